@@ -114,6 +114,15 @@ public interface AdapterGovernor extends BluetoothGovernor {
      */
     void setSignalPropagationExponent(double exponent);
 
+    /**
+     * Returns health score of the adapter that ranges from 0.0 (the adapter is failing) to 1.0 (the adapter
+     * is healthy). The score is estimated from recent error rate and latency of native calls made through the adapter
+     * and success rate of connection attempts of its devices. The score is 0.0 if the adapter circuit breaker is open.
+     * Combined device governors deprioritise unhealthy adapters when choosing a connection target.
+     * @return health score of the adapter
+     */
+    double getHealthScore();
+
     /**
      * Returns a list of discovered Bluetooth devices by the adapter.
      * @return a list of discovered Bluetooth devices by the adapter
@@ -93,6 +93,16 @@ public interface BluetoothGovernor {
      */
     Instant getLastInteracted();
 
+    /**
+     * Returns the state of circuit breakers that protect native calls of the governor (transport, adapter and
+     * governor itself). If any of them is open (or a timed out native call of the governor is still running),
+     * the governor is not updated and all interactions fail fast until the hardware recovers.
+     * @return the most restrictive state of circuit breakers of the governor
+     */
+    default CircuitBreakerState getCircuitBreakerState() {
+        return CircuitBreakerState.CLOSED;
+    }
+
     /**
      * An accept method of the visitor pattern to process different bluetooth governors at once.
      * @param visitor bluetooth governor visitor
@@ -115,6 +125,24 @@ public interface BluetoothGovernor {
 
     <G extends BluetoothGovernor, V> CompletableFuture<V> when(Predicate<G> condition, Function<G, V> function);
 
+    /**
+     * Returns a completable future that gets completed when the governor goes through the given state transition.
+     * Governors that track state transitions complete such futures immediately from the notification
+     * that causes the transition, other governors fall back to checking the condition of the transition
+     * ({@link GovernorTransition#getCondition()}) periodically.
+     * @param transition a state transition to wait for
+     * @param function a function that is invoked when the transition happens, the completable future is
+     *                 completed with the result of this function
+     * @param <G> bluetooth governor
+     * @param <V> returned value
+     * @return a completable future
+     */
+    @SuppressWarnings("unchecked")
+    default <G extends BluetoothGovernor, V> CompletableFuture<V> when(GovernorTransition transition,
+                                                                       Function<G, V> function) {
+        return when((Predicate<G>) transition.getCondition(), function);
+    }
+
     default <G extends BluetoothGovernor> CompletableFuture<Void> doWhen(Predicate<G> predicate,
                                                                               Consumer<G> consumer) {
         return when(predicate, g -> {
@@ -132,7 +160,7 @@ public interface BluetoothGovernor {
      * @return a completable future
      */
     default <G extends BluetoothGovernor, V> CompletableFuture<V> whenReady(Function<G, V> function) {
-        return when(BluetoothGovernor::isReady, function);
+        return when(GovernorTransition.READY, function);
     }
 
 }
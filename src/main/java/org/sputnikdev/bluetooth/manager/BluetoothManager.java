@@ -23,6 +23,7 @@ package org.sputnikdev.bluetooth.manager;
 import org.sputnikdev.bluetooth.URL;
 import org.sputnikdev.bluetooth.manager.impl.BluetoothManagerBuilder;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObjectFactory;
+import org.sputnikdev.bluetooth.manager.transport.metrics.NativeCallMetrics;
 
 import java.util.Set;
 
@@ -217,4 +218,12 @@ public interface BluetoothManager {
      */
     int getRefreshRate();
 
+    /**
+     * Returns statistics of native (transport) calls: number of calls, errors and latency histograms
+     * for each method of native objects, tagged by transport and adapter.
+     * See {@link BluetoothManagerBuilder#withNativeCallMetrics(boolean)}.
+     * @return native calls statistics or null if native calls instrumentation is not enabled
+     */
+    NativeCallMetrics getNativeCallMetrics();
+
 }
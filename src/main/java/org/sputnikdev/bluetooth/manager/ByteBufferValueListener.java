@@ -0,0 +1,44 @@
+package org.sputnikdev.bluetooth.manager;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * A value change listener that receives characteristic values as read-only byte buffers. Unlike
+ * {@link ValueListener}, the buffer is reused between notifications, so that no objects are allocated per listener
+ * and notification. The buffer is only valid during the call; listeners must not keep references to it
+ * and must copy the content if it is needed later.
+ * The buffer is positioned at the beginning of the value, its limit is set to the value length and its byte order
+ * is little-endian (as all GATT values).
+ *
+ * @author Vlad Kolotov
+ */
+@FunctionalInterface
+public interface ByteBufferValueListener {
+
+    /**
+     * Reports value changed event.
+     * @param value a read-only buffer containing the new state, valid only during the call
+     */
+    void changed(ByteBuffer value);
+
+}
@@ -22,6 +22,8 @@ package org.sputnikdev.bluetooth.manager;
 
 import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -83,6 +85,17 @@ public interface CharacteristicGovernor extends BluetoothGovernor {
      */
     byte[] read() throws NotReadyException;
 
+    /**
+     * Reads state from the characteristic into the given buffer (e.g. a pooled one). The state is put at
+     * the current position of the buffer.
+     *
+     * @param destination a buffer to put the characteristic state into
+     * @return number of bytes read
+     * @throws NotReadyException if the bluetooth object is not ready
+     * @throws java.nio.BufferOverflowException if there is insufficient space in the buffer
+     */
+    int read(ByteBuffer destination) throws NotReadyException;
+
     /**
      * Writes state to the characteristic.
      * @param data a new characteristic state
@@ -91,18 +104,139 @@ public interface CharacteristicGovernor extends BluetoothGovernor {
      */
     boolean write(byte[] data) throws NotReadyException;
 
+    /**
+     * Reads state from the characteristic asynchronously. The read operation is queued in the device
+     * GATT operation queue and executed after all previously queued operations of the same device,
+     * so that the caller never blocks.
+     *
+     * @return a future that is completed with the characteristic state, or completed exceptionally
+     *     if the bluetooth object is not ready or the operation fails
+     */
+    CompletableFuture<byte[]> readAsync();
+
+    /**
+     * Writes state to the characteristic asynchronously. The write operation is queued in the device
+     * GATT operation queue and executed after all previously queued operations of the same device,
+     * so that the caller never blocks.
+     *
+     * @param data a new characteristic state
+     * @return a future that is completed with true if the new state is written, or completed exceptionally
+     *     if the bluetooth object is not ready or the operation fails
+     */
+    CompletableFuture<Boolean> writeAsync(byte[] data);
+
+    /**
+     * Sets time-to-live (milliseconds) of the characteristic read cache. When the cache is enabled,
+     * {@link #read()} and {@link #readAsync()} return the last known value (either read or received
+     * from a notification) if it is not older than the TTL, and concurrent reads of the characteristic share
+     * a single native read. The cache is invalidated when the characteristic gets written or the governor
+     * gets reset. The cache is disabled by default.
+     *
+     * @param ttl time-to-live in milliseconds, zero or negative value disables the cache
+     */
+    void setReadCacheTTL(long ttl);
+
+    /**
+     * Returns time-to-live (milliseconds) of the characteristic read cache.
+     * @return time-to-live of the read cache, zero or negative value if the cache is disabled
+     */
+    long getReadCacheTTL();
+
+    /**
+     * Returns number of reads that have been served by the read cache (including reads that joined
+     * an in-flight read).
+     * @return number of read cache hits
+     */
+    long getReadCacheHits();
+
+    /**
+     * Returns number of reads that have required a native read while the read cache was enabled.
+     * @return number of read cache misses
+     */
+    long getReadCacheMisses();
+
+    /**
+     * Streams a large payload (e.g. a firmware image) to the characteristic. The payload is split into chunks
+     * of the maximum payload size of the characteristic and written with pipelined writes, up to the given
+     * number of chunks are in flight at the same time (transports that do not support pipelined writes
+     * write chunks one by one). The transfer is queued in the device GATT operation queue and is not
+     * interleaved with other GATT operations of the device.
+     *
+     * @param data data to write, the stream is read until its end, but not closed
+     * @param window maximum number of chunks in flight
+     * @param progressListener a listener that is notified after each written chunk, can be null
+     * @return a future that is completed with the final progress of the transfer
+     */
+    CompletableFuture<WriteProgress> writeStream(InputStream data, int window,
+                                                 Consumer<WriteProgress> progressListener);
+
+    /**
+     * Streams remaining bytes of the given buffer to the characteristic,
+     * see {@link #writeStream(InputStream, int, Consumer)}. The buffer position is not changed.
+     *
+     * @param data data to write
+     * @param window maximum number of chunks in flight
+     * @param progressListener a listener that is notified after each written chunk, can be null
+     * @return a future that is completed with the final progress of the transfer
+     */
+    CompletableFuture<WriteProgress> writeStream(ByteBuffer data, int window,
+                                                 Consumer<WriteProgress> progressListener);
+
     /**
      * Register a new characteristic listener.
      * @param valueListener new characteristic listener
      */
     void addValueListener(ValueListener valueListener);
 
+    /**
+     * Register a new characteristic listener with the given dispatch policy. Asynchronous policies
+     * ({@link ValueDispatchPolicy#QUEUED} and {@link ValueDispatchPolicy#CONFLATED}) make sure that a slow listener
+     * does not block the transport callback thread; values are delivered to the listener in order, one at a time.
+     * @param valueListener new characteristic listener
+     * @param policy dispatch policy
+     * @param capacity maximum number of pending values for the {@link ValueDispatchPolicy#QUEUED} policy,
+     *                 ignored for other policies
+     */
+    void addValueListener(ValueListener valueListener, ValueDispatchPolicy policy, int capacity);
+
+    /**
+     * Returns delivery statistics of a listener registered with an asynchronous dispatch policy.
+     * @param valueListener a previously registered characteristic listener
+     * @return delivery statistics or null if the listener is not registered or is synchronous
+     */
+    ValueListenerStats getValueListenerStats(ValueListener valueListener);
+
+    /**
+     * Register a new characteristic listener that receives values as read-only byte buffers.
+     * Buffers are reused between notifications, see {@link ByteBufferValueListener}.
+     * @param valueListener new characteristic listener
+     */
+    void addBufferListener(ByteBufferValueListener valueListener);
+
+    /**
+     * Removes a previously registered byte buffer characteristic listener.
+     * @param valueListener a previously registered characteristic listener
+     */
+    void removeBufferListener(ByteBufferValueListener valueListener);
+
     /**
      * Removes a previously registered characteristic listener.
      * @param valueListener a previously registered characteristic listener
      */
     void removeValueListener(ValueListener valueListener);
 
+    /**
+     * Returns how many times native notifications have been enabled for the characteristic (CCCD writes).
+     * @return number of times notifications have been enabled
+     */
+    long getNotificationEnableCount();
+
+    /**
+     * Returns how many times native notifications have been disabled for the characteristic (CCCD writes).
+     * @return number of times notifications have been disabled
+     */
+    long getNotificationDisableCount();
+
     /**
      * Returns the date/time of last known received notification.
      * @return the date/time of last known received notification
@@ -113,7 +247,7 @@ public interface CharacteristicGovernor extends BluetoothGovernor {
 
 
     default <G extends CharacteristicGovernor, V> CompletableFuture<V> whenAuthenticated(Function<G, V> function) {
-        return when(CharacteristicGovernor::isAuthenticated, function);
+        return when(GovernorTransition.AUTHENTICATED, function);
     }
 
     default <G extends CharacteristicGovernor> CompletableFuture<Void> whenAuthenticatedThanDo(Consumer<G> consumer) {
@@ -0,0 +1,18 @@
+package org.sputnikdev.bluetooth.manager;
+
+/**
+ * State of a circuit breaker that protects native (transport) calls.
+ *
+ * <p><ul>
+ *     <li>CLOSED - native calls are allowed</li>
+ *     <li>OPEN - native calls fail fast without hitting the hardware</li>
+ *     <li>HALF_OPEN - a single probe call is allowed to check whether the hardware has recovered</li>
+ * </ul>
+ */
+public enum CircuitBreakerState {
+
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+
+}
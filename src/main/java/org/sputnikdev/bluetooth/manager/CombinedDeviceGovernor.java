@@ -20,6 +20,19 @@ public interface CombinedDeviceGovernor extends CombinedGovernor {
      */
     ConnectionStrategy getConnectionStrategy();
 
+    /**
+     * Sets a custom connection target selector and switches the connection strategy
+     * to {@link ConnectionStrategy#CUSTOM}.
+     * @param selector a custom connection target selector
+     */
+    void setConnectionTargetSelector(ConnectionTargetSelector selector);
+
+    /**
+     * Returns the custom connection target selector.
+     * @return the custom connection target selector or null if it is not set
+     */
+    ConnectionTargetSelector getConnectionTargetSelector();
+
     /**
      * Sets an adapter URL that is a preferred adapter to be connected to.
      * @param adapter a preferred adapter
@@ -32,6 +45,71 @@ public interface CombinedDeviceGovernor extends CombinedGovernor {
      */
     URL getPreferredAdapter();
 
+    /**
+     * Sets the hysteresis margin (dB) for the {@link ConnectionStrategy#NEAREST_ADAPTER_WITH_HYSTERESIS}
+     * connection strategy. A new nearest adapter becomes the connection target only if its RSSI is stronger than
+     * RSSI of the current target by this margin.
+     * @param margin hysteresis margin in dB
+     */
+    void setHysteresisMargin(double margin);
+
+    /**
+     * Returns the hysteresis margin (dB) for the {@link ConnectionStrategy#NEAREST_ADAPTER_WITH_HYSTERESIS}
+     * connection strategy.
+     * @return hysteresis margin in dB
+     */
+    double getHysteresisMargin();
+
+    /**
+     * Sets the minimum time (in milliseconds) a connection target is kept before it can be switched to a new nearest
+     * adapter for the {@link ConnectionStrategy#NEAREST_ADAPTER_WITH_HYSTERESIS} connection strategy.
+     * @param dwellTime minimum dwell time in milliseconds
+     */
+    void setMinimumDwellTime(long dwellTime);
+
+    /**
+     * Returns the minimum time (in milliseconds) a connection target is kept before it can be switched
+     * to a new nearest adapter.
+     * @return minimum dwell time in milliseconds
+     */
+    long getMinimumDwellTime();
+
+    /**
+     * Sets the advertisement de-duplication window (in milliseconds). The same advertisement (service data
+     * or manufacturer data) is normally received through all adapters in range, its copies received through other
+     * adapters within the window are not forwarded to listeners, so that listeners receive each distinct
+     * advertisement once. Zero disables de-duplication.
+     * @param window de-duplication window in milliseconds
+     */
+    void setAdvertisementDeduplicationWindow(long window);
+
+    /**
+     * Returns the advertisement de-duplication window (in milliseconds).
+     * @return de-duplication window in milliseconds
+     */
+    long getAdvertisementDeduplicationWindow();
+
+    /**
+     * Sets the failover cooldown (in milliseconds). When the connection is lost, connection control is immediately
+     * handed over to the best alternative adapter, and the adapter that has lost the connection is not used
+     * as a connection target for the device during the cooldown period (unless there are no alternatives).
+     * Zero disables the cooldown.
+     * @param cooldown failover cooldown in milliseconds
+     */
+    void setFailoverCooldown(long cooldown);
+
+    /**
+     * Returns the failover cooldown (in milliseconds).
+     * @return failover cooldown in milliseconds
+     */
+    long getFailoverCooldown();
+
+    /**
+     * Returns how long (in milliseconds) it took to reconnect the device last time it lost its connection.
+     * @return the last reconnection latency in milliseconds or -1 if the device has not been reconnected yet
+     */
+    long getReconnectionLatency();
+
     /**
      * Returns the URL of an adapter the device is connected to. If the device is not connected, then the result is null.
      * @return URL of an adapter the device is connected to
@@ -0,0 +1,146 @@
+package org.sputnikdev.bluetooth.manager;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+
+/**
+ * A candidate (delegate device governor of a particular adapter) for being a connection target
+ * of a combined device governor, see {@link ConnectionTargetSelector}.
+ *
+ * @author Vlad Kolotov
+ */
+public class ConnectionCandidate {
+
+    private final URL url;
+    private final short rssi;
+    private final boolean available;
+    private final int connectionCount;
+    private final int pendingConnectionCount;
+    private final boolean currentTarget;
+    private final double healthScore;
+
+    /**
+     * Creates a new object.
+     * @param url device URL of the candidate (includes the adapter address)
+     * @param rssi the last known RSSI of the device reported by the adapter
+     * @param available true if the device is online and advertises through the adapter
+     * @param connectionCount number of devices connected through the adapter
+     * @param pendingConnectionCount number of devices being connected through the adapter (excluding this device)
+     * @param currentTarget true if the candidate is the current connection target
+     */
+    public ConnectionCandidate(URL url, short rssi, boolean available, int connectionCount,
+                               int pendingConnectionCount, boolean currentTarget) {
+        this(url, rssi, available, connectionCount, pendingConnectionCount, currentTarget, 1.0);
+    }
+
+    /**
+     * Creates a new object.
+     * @param url device URL of the candidate (includes the adapter address)
+     * @param rssi the last known RSSI of the device reported by the adapter
+     * @param available true if the device is online and advertises through the adapter
+     * @param connectionCount number of devices connected through the adapter
+     * @param pendingConnectionCount number of devices being connected through the adapter (excluding this device)
+     * @param currentTarget true if the candidate is the current connection target
+     * @param healthScore health score of the adapter, see {@link AdapterGovernor#getHealthScore()}
+     */
+    public ConnectionCandidate(URL url, short rssi, boolean available, int connectionCount,
+                               int pendingConnectionCount, boolean currentTarget, double healthScore) {
+        this.url = url;
+        this.rssi = rssi;
+        this.available = available;
+        this.connectionCount = connectionCount;
+        this.pendingConnectionCount = pendingConnectionCount;
+        this.currentTarget = currentTarget;
+        this.healthScore = healthScore;
+    }
+
+    /**
+     * Returns device URL of the candidate.
+     * @return device URL
+     */
+    public URL getURL() {
+        return url;
+    }
+
+    /**
+     * Returns the adapter URL of the candidate.
+     * @return adapter URL
+     */
+    public URL getAdapterURL() {
+        return url.getAdapterURL();
+    }
+
+    /**
+     * Returns the last known RSSI of the device reported by the adapter.
+     * @return RSSI
+     */
+    public short getRSSI() {
+        return rssi;
+    }
+
+    /**
+     * Checks whether the device is online and advertises through the adapter.
+     * @return true if the device is available through the adapter
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Returns number of devices connected through the adapter.
+     * @return number of connected devices
+     */
+    public int getConnectionCount() {
+        return connectionCount;
+    }
+
+    /**
+     * Returns number of devices being connected through the adapter (excluding the device of this candidate).
+     * @return number of pending connection attempts
+     */
+    public int getPendingConnectionCount() {
+        return pendingConnectionCount;
+    }
+
+    /**
+     * Checks whether the candidate is the current connection target.
+     * @return true if the candidate is the current connection target
+     */
+    public boolean isCurrentTarget() {
+        return currentTarget;
+    }
+
+    /**
+     * Returns health score of the adapter, see {@link AdapterGovernor#getHealthScore()}.
+     * @return health score of the adapter
+     */
+    public double getHealthScore() {
+        return healthScore;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + url + " : " + rssi + " dBm : " + connectionCount + " / " + pendingConnectionCount
+                + " : " + healthScore + "]";
+    }
+
+}
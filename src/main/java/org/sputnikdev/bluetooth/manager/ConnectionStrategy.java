@@ -3,6 +3,25 @@ package org.sputnikdev.bluetooth.manager;
 public enum ConnectionStrategy {
 
     NEAREST_ADAPTER,
-    PREFERRED_ADAPTER
+    PREFERRED_ADAPTER,
+    /**
+     * Same as {@link #NEAREST_ADAPTER}, but the connection target is switched to a new nearest adapter only
+     * if its RSSI is stronger by the hysteresis margin and the current target has been kept for the minimum
+     * dwell time, see {@link CombinedDeviceGovernor#setHysteresisMargin(double)}
+     * and {@link CombinedDeviceGovernor#setMinimumDwellTime(long)}. This prevents the connection target from flipping
+     * between adapters when the device is in between them.
+     */
+    NEAREST_ADAPTER_WITH_HYSTERESIS,
+    /**
+     * Spreads connections across adapters. The connection target is the adapter that has the least number of
+     * connected devices and pending connection attempts among adapters through which the device is available
+     * and its signal is strong enough. Ties are resolved in favour of the current target, then the stronger signal.
+     */
+    LEAST_LOADED_ADAPTER,
+    /**
+     * The connection target is selected by a custom {@link ConnectionTargetSelector},
+     * see {@link CombinedDeviceGovernor#setConnectionTargetSelector(ConnectionTargetSelector)}.
+     */
+    CUSTOM
 
 }
@@ -0,0 +1,46 @@
+package org.sputnikdev.bluetooth.manager;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+
+import java.util.List;
+
+/**
+ * A pluggable strategy to select a connection target (adapter) for a combined device governor,
+ * see {@link CombinedDeviceGovernor#setConnectionTargetSelector(ConnectionTargetSelector)}.
+ * Selectors are invoked periodically (while the device is not connected), therefore they must be fast
+ * and must not interact with Bluetooth objects.
+ *
+ * @author Vlad Kolotov
+ */
+@FunctionalInterface
+public interface ConnectionTargetSelector {
+
+    /**
+     * Selects a connection target among the given candidates.
+     * @param device combined device URL
+     * @param candidates connection candidates (one per adapter)
+     * @return selected candidate or null if none of the candidates is suitable
+     */
+    ConnectionCandidate select(URL device, List<ConnectionCandidate> candidates);
+
+}
@@ -282,6 +282,16 @@ public interface DeviceGovernor extends BluetoothGovernor {
      */
     List<GattService> getResolvedServices() throws NotReadyException;
 
+    /**
+     * Returns a list of known services. If GATT database persistence is enabled, services of a device are known
+     * once they have been resolved, hence they are available straight after reconnecting,
+     * before the device resolves services again.
+     * Once services are resolved, this method returns the same as {@link #getResolvedServices()}.
+     * Null is returned if services of the device are not known.
+     * @return a list of known services
+     */
+    List<GattService> getKnownServices();
+
     /**
      * Returns a map of services to their characteristics.
      *
@@ -304,6 +314,16 @@ public interface DeviceGovernor extends BluetoothGovernor {
      */
     List<CharacteristicGovernor> getCharacteristicGovernors() throws NotReadyException;
 
+    /**
+     * Executes a GATT transaction (an ordered script of reads, writes and awaited notifications) as a single unit
+     * on the connected device: no other GATT operation of the device is executed until the transaction is finished.
+     * The caller never blocks, the transaction is queued in the device GATT operation queue.
+     * @param transaction a transaction to execute
+     * @return a future that is completed with results of all transaction steps in order (null for writes),
+     *     or completed exceptionally if the device is not connected, any step fails or the transaction times out
+     */
+    CompletableFuture<List<byte[]>> execute(GattTransaction transaction);
+
     /**
      * Returns advertised manufacturer data. The key is manufacturer ID, the value is manufacturer data.
      * @return advertised manufacturer data
@@ -336,12 +356,12 @@ public interface DeviceGovernor extends BluetoothGovernor {
      */
     @SuppressWarnings({"unchecked", "rawtypes"})
     default <G extends DeviceGovernor, V> CompletableFuture<V> whenServicesResolved(Function<G, V> function) {
-        return when(DeviceGovernor::isServicesResolved, function);
+        return when(GovernorTransition.SERVICES_RESOLVED, function);
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     default <G extends DeviceGovernor, V> CompletableFuture<V> whenAuthenticated(Function<G, V> function) {
-        return when(DeviceGovernor::isAuthenticated, function);
+        return when(GovernorTransition.AUTHENTICATED, function);
     }
 
     default <G extends DeviceGovernor> CompletableFuture<Void> doWhenAuthenticated(Consumer<G> consumer) {
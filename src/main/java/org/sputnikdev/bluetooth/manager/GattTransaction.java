@@ -0,0 +1,185 @@
+package org.sputnikdev.bluetooth.manager;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An ordered script of GATT operations (reads, writes and awaited notifications) that is executed
+ * by {@link DeviceGovernor#execute(GattTransaction)} as a single unit, i.e. no other GATT operation
+ * of the device is executed until the transaction is finished.
+ *
+ * <p>A typical "write command, wait for notification, read result" protocol looks like that:
+ * <pre>
+ * deviceGovernor.execute(new GattTransaction()
+ *     .write(commandURL, command)
+ *     .awaitNotification(statusURL, 1000)
+ *     .read(resultURL)
+ *     .withTimeout(5000));
+ * </pre>
+ *
+ * <p>Notifications of all the characteristics that are awaited in the transaction are captured from the very
+ * beginning of the transaction, so that a notification that is triggered by a preceding write is never missed.
+ * Notifications captured before a write are discarded when the write begins, so that an awaited notification
+ * is never a stale one that came before the write that triggers it.
+ *
+ * @author Vlad Kolotov
+ */
+public class GattTransaction {
+
+    /**
+     * Type of a transaction step.
+     */
+    public enum StepType {
+        READ,
+        WRITE,
+        AWAIT_NOTIFICATION
+    }
+
+    private final List<Step> steps = new ArrayList<>();
+    private long timeout;
+
+    /**
+     * Adds a read step. The result of the step is the characteristic value.
+     * @param characteristic characteristic URL
+     * @return the same transaction instance
+     */
+    public GattTransaction read(URL characteristic) {
+        return add(new Step(StepType.READ, characteristic, null, 0));
+    }
+
+    /**
+     * Adds a write step. The result of the step is null.
+     * @param characteristic characteristic URL
+     * @param data data to write
+     * @return the same transaction instance
+     */
+    public GattTransaction write(URL characteristic, byte[] data) {
+        return add(new Step(StepType.WRITE, characteristic, data.clone(), 0));
+    }
+
+    /**
+     * Adds a step that waits for a notification from the given characteristic.
+     * The result of the step is the notified value.
+     * @param characteristic characteristic URL
+     * @param timeout how long (milliseconds) to wait for the notification, must be positive
+     * @return the same transaction instance
+     * @throws IllegalArgumentException if the timeout is not positive
+     */
+    public GattTransaction awaitNotification(URL characteristic, long timeout) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Notification timeout must be positive: " + timeout);
+        }
+        return add(new Step(StepType.AWAIT_NOTIFICATION, characteristic, null, timeout));
+    }
+
+    /**
+     * Sets a timeout for the whole transaction. Zero (default) means that the transaction is not limited,
+     * however each awaited notification is still limited by its own timeout.
+     * @param timeout transaction timeout in milliseconds
+     * @return the same transaction instance
+     */
+    public GattTransaction withTimeout(long timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Returns transaction steps.
+     * @return transaction steps
+     */
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * Returns transaction timeout.
+     * @return transaction timeout in milliseconds
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Creates a copy of the transaction where all characteristic URLs point to the given adapter.
+     * @param adapterAddress adapter address
+     * @return a copy of the transaction
+     */
+    public GattTransaction copyWithAdapter(String adapterAddress) {
+        GattTransaction copy = new GattTransaction().withTimeout(timeout);
+        for (Step step : steps) {
+            copy.add(new Step(step.type, step.characteristic.copyWithProtocol(null).copyWithAdapter(adapterAddress),
+                    step.data, step.timeout));
+        }
+        return copy;
+    }
+
+    private GattTransaction add(Step step) {
+        if (!step.characteristic.isCharacteristic()) {
+            throw new IllegalArgumentException("Characteristic URL is expected: " + step.characteristic);
+        }
+        steps.add(step);
+        return this;
+    }
+
+    /**
+     * A single step of a transaction.
+     */
+    public static final class Step {
+        private final StepType type;
+        private final URL characteristic;
+        private final byte[] data;
+        private final long timeout;
+
+        private Step(StepType type, URL characteristic, byte[] data, long timeout) {
+            this.type = type;
+            this.characteristic = characteristic;
+            this.data = data;
+            this.timeout = timeout;
+        }
+
+        public StepType getType() {
+            return type;
+        }
+
+        public URL getCharacteristic() {
+            return characteristic;
+        }
+
+        public byte[] getData() {
+            return data != null ? data.clone() : null;
+        }
+
+        public long getTimeout() {
+            return timeout;
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + characteristic;
+        }
+    }
+
+}
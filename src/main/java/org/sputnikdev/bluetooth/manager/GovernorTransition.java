@@ -0,0 +1,76 @@
+package org.sputnikdev.bluetooth.manager;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.function.Predicate;
+
+/**
+ * Governor state transitions that completable futures can wait for, see
+ * {@link BluetoothGovernor#when(GovernorTransition, java.util.function.Function)}.
+ * Unlike futures with arbitrary conditions, which are re-evaluated on each governor update,
+ * futures of a state transition are completed straight away from the notification that causes the transition.
+ * Each transition also defines a condition which is used by governors that cannot track the transition.
+ *
+ * @author Vlad Kolotov
+ */
+public enum GovernorTransition {
+
+    /**
+     * Governor becomes ready, see {@link BluetoothGovernor#isReady()}.
+     */
+    READY(BluetoothGovernor::isReady),
+    /**
+     * Device gets connected, see {@link DeviceGovernor#isConnected()}.
+     */
+    CONNECTED(governor -> governor instanceof DeviceGovernor && ((DeviceGovernor) governor).isConnected()),
+    /**
+     * Device services get resolved, see {@link DeviceGovernor#isServicesResolved()}.
+     */
+    SERVICES_RESOLVED(governor -> governor instanceof DeviceGovernor
+            && ((DeviceGovernor) governor).isServicesResolved()),
+    /**
+     * Device (or characteristic device) gets authenticated, see {@link DeviceGovernor#isAuthenticated()}
+     * and {@link CharacteristicGovernor#isAuthenticated()}.
+     */
+    AUTHENTICATED(governor -> governor instanceof DeviceGovernor && ((DeviceGovernor) governor).isAuthenticated()
+            || governor instanceof CharacteristicGovernor && ((CharacteristicGovernor) governor).isAuthenticated()),
+    /**
+     * Characteristic notifications get enabled, see {@link CharacteristicGovernor#isNotifying()}.
+     */
+    NOTIFYING(governor -> governor instanceof CharacteristicGovernor
+            && ((CharacteristicGovernor) governor).isNotifying());
+
+    private final Predicate<BluetoothGovernor> condition;
+
+    GovernorTransition(Predicate<BluetoothGovernor> condition) {
+        this.condition = condition;
+    }
+
+    /**
+     * Returns a condition which is true when the transition has happened for a given governor.
+     * @return a condition of the transition
+     */
+    public Predicate<BluetoothGovernor> getCondition() {
+        return condition;
+    }
+
+}
@@ -0,0 +1,78 @@
+package org.sputnikdev.bluetooth.manager;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Factory methods of {@link ByteBufferValueListener} adapters that decode a primitive value at a given offset
+ * and pass it to a primitive consumer, so that decoding of characteristic values does not allocate any objects.
+ *
+ * @author Vlad Kolotov
+ */
+public final class PrimitiveValueListeners {
+
+    private PrimitiveValueListeners() { }
+
+    /**
+     * Creates a listener that decodes an integer value.
+     * @param offset offset of the value in the characteristic value
+     * @param format integer format of the value
+     * @param consumer value consumer
+     * @return a new listener
+     */
+    public static ByteBufferValueListener intListener(int offset, ValueFormat format, IntConsumer consumer) {
+        checkIntegerFormat(format);
+        return value -> consumer.accept((int) format.decodeLong(value, offset));
+    }
+
+    /**
+     * Creates a listener that decodes a long value.
+     * @param offset offset of the value in the characteristic value
+     * @param format integer format of the value
+     * @param consumer value consumer
+     * @return a new listener
+     */
+    public static ByteBufferValueListener longListener(int offset, ValueFormat format, LongConsumer consumer) {
+        checkIntegerFormat(format);
+        return value -> consumer.accept(format.decodeLong(value, offset));
+    }
+
+    /**
+     * Creates a listener that decodes a floating point value, integer formats are converted to double.
+     * @param offset offset of the value in the characteristic value
+     * @param format format of the value
+     * @param consumer value consumer
+     * @return a new listener
+     */
+    public static ByteBufferValueListener floatListener(int offset, ValueFormat format, DoubleConsumer consumer) {
+        return value -> consumer.accept(format.decodeDouble(value, offset));
+    }
+
+    private static void checkIntegerFormat(ValueFormat format) {
+        if (format.isFloatingPoint()) {
+            throw new IllegalArgumentException("Integer format is expected: " + format);
+        }
+    }
+
+}
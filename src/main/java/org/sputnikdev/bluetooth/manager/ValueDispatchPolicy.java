@@ -0,0 +1,47 @@
+package org.sputnikdev.bluetooth.manager;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Defines how characteristic value notifications are delivered to a value listener
+ * (see {@link CharacteristicGovernor#addValueListener(ValueListener, ValueDispatchPolicy, int)}).
+ *
+ * @author Vlad Kolotov
+ */
+public enum ValueDispatchPolicy {
+
+    /**
+     * Values are delivered on the transport callback thread. A slow listener delays all other notifications
+     * of the transport.
+     */
+    SYNCHRONOUS,
+    /**
+     * Values are delivered asynchronously in order through a bounded queue. When the queue is full,
+     * the oldest pending value is dropped.
+     */
+    QUEUED,
+    /**
+     * Values are delivered asynchronously, only the latest value is kept while the listener is busy,
+     * all intermediate values are dropped.
+     */
+    CONFLATED
+
+}
@@ -0,0 +1,185 @@
+package org.sputnikdev.bluetooth.manager;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * Formats of primitive GATT values. All formats are little-endian as defined by the Bluetooth specification.
+ * Values are decoded from a buffer at an offset relative to the buffer position; the buffer position and byte order
+ * are not used or changed.
+ *
+ * @author Vlad Kolotov
+ */
+public enum ValueFormat {
+
+    UINT8(1, false),
+    SINT8(1, false),
+    UINT16(2, false),
+    SINT16(2, false),
+    UINT24(3, false),
+    SINT24(3, false),
+    UINT32(4, false),
+    SINT32(4, false),
+    SINT64(8, false),
+    /**
+     * IEEE-754 single precision floating point number.
+     */
+    FLOAT32(4, true),
+    /**
+     * IEEE-754 double precision floating point number.
+     */
+    FLOAT64(8, true),
+    /**
+     * IEEE-11073 16-bit short float (12-bit mantissa, 4-bit exponent).
+     */
+    SFLOAT(2, true),
+    /**
+     * IEEE-11073 32-bit float (24-bit mantissa, 8-bit exponent).
+     */
+    FLOAT(4, true);
+
+    private static final int SFLOAT_NAN = 0x07FF;
+    private static final int SFLOAT_NRES = 0x0800;
+    private static final int SFLOAT_POSITIVE_INFINITY = 0x07FE;
+    private static final int SFLOAT_NEGATIVE_INFINITY = 0x0802;
+    private static final int SFLOAT_RESERVED = 0x0801;
+    private static final int FLOAT_NAN = 0x007FFFFF;
+    private static final int FLOAT_NRES = 0x00800000;
+    private static final int FLOAT_POSITIVE_INFINITY = 0x007FFFFE;
+    private static final int FLOAT_NEGATIVE_INFINITY = 0x00800002;
+    private static final int FLOAT_RESERVED = 0x00800001;
+
+    private final int size;
+    private final boolean floatingPoint;
+
+    ValueFormat(int size, boolean floatingPoint) {
+        this.size = size;
+        this.floatingPoint = floatingPoint;
+    }
+
+    /**
+     * Returns size of the format in bytes.
+     * @return size in bytes
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Checks whether the format is a floating point format.
+     * @return true if the format is a floating point format
+     */
+    public boolean isFloatingPoint() {
+        return floatingPoint;
+    }
+
+    /**
+     * Decodes an integer value.
+     * @param buffer a buffer
+     * @param offset offset of the value relative to the buffer position
+     * @return decoded value
+     * @throws IllegalStateException if the format is a floating point format
+     * @throws IndexOutOfBoundsException if the buffer is too short
+     */
+    public long decodeLong(ByteBuffer buffer, int offset) {
+        if (floatingPoint) {
+            throw new IllegalStateException("Floating point format cannot be decoded as integer: " + this);
+        }
+        long raw = readRaw(buffer, offset);
+        switch (this) {
+            case SINT8:
+            case SINT16:
+            case SINT24:
+            case SINT32:
+                int shift = 64 - size * 8;
+                return raw << shift >> shift;
+            default:
+                return raw;
+        }
+    }
+
+    /**
+     * Decodes a value as a floating point number, integer formats are converted to double.
+     * @param buffer a buffer
+     * @param offset offset of the value relative to the buffer position
+     * @return decoded value
+     * @throws IndexOutOfBoundsException if the buffer is too short
+     */
+    public double decodeDouble(ByteBuffer buffer, int offset) {
+        switch (this) {
+            case FLOAT32:
+                return Float.intBitsToFloat((int) readRaw(buffer, offset));
+            case FLOAT64:
+                return Double.longBitsToDouble(readRaw(buffer, offset));
+            case SFLOAT:
+                return decodeSFloat((int) readRaw(buffer, offset));
+            case FLOAT:
+                return decodeFloat((int) readRaw(buffer, offset));
+            default:
+                return decodeLong(buffer, offset);
+        }
+    }
+
+    private long readRaw(ByteBuffer buffer, int offset) {
+        int index = buffer.position() + offset;
+        long value = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            value = value << 8 | buffer.get(index + i) & 0xFF;
+        }
+        return value;
+    }
+
+    private static double decodeSFloat(int raw) {
+        switch (raw) {
+            case SFLOAT_NAN:
+            case SFLOAT_NRES:
+            case SFLOAT_RESERVED:
+                return Double.NaN;
+            case SFLOAT_POSITIVE_INFINITY:
+                return Double.POSITIVE_INFINITY;
+            case SFLOAT_NEGATIVE_INFINITY:
+                return Double.NEGATIVE_INFINITY;
+            default:
+                int mantissa = raw << 20 >> 20;
+                int exponent = raw << 16 >> 28;
+                return mantissa * Math.pow(10, exponent);
+        }
+    }
+
+    private static double decodeFloat(int raw) {
+        switch (raw) {
+            case FLOAT_NAN:
+            case FLOAT_NRES:
+            case FLOAT_RESERVED:
+                return Double.NaN;
+            case FLOAT_POSITIVE_INFINITY:
+                return Double.POSITIVE_INFINITY;
+            case FLOAT_NEGATIVE_INFINITY:
+                return Double.NEGATIVE_INFINITY;
+            default:
+                int mantissa = raw << 8 >> 8;
+                int exponent = raw >> 24;
+                return mantissa * Math.pow(10, exponent);
+        }
+    }
+
+}
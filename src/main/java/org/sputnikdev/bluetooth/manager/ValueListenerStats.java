@@ -0,0 +1,102 @@
+package org.sputnikdev.bluetooth.manager;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivery statistics of an asynchronous value listener,
+ * see {@link CharacteristicGovernor#getValueListenerStats(ValueListener)}.
+ *
+ * @author Vlad Kolotov
+ */
+public class ValueListenerStats {
+
+    private final ValueDispatchPolicy policy;
+    private final long delivered;
+    private final long dropped;
+    private final int pending;
+    private final long lagNanos;
+
+    /**
+     * Creates a new object.
+     * @param policy dispatch policy of the listener
+     * @param delivered number of values delivered to the listener
+     * @param dropped number of values dropped because the listener could not keep up
+     * @param pending number of values waiting to be delivered
+     * @param lagNanos time between receiving and delivering of the last delivered value
+     */
+    public ValueListenerStats(ValueDispatchPolicy policy, long delivered, long dropped, int pending,
+                              long lagNanos) {
+        this.policy = policy;
+        this.delivered = delivered;
+        this.dropped = dropped;
+        this.pending = pending;
+        this.lagNanos = lagNanos;
+    }
+
+    /**
+     * Returns dispatch policy of the listener.
+     * @return dispatch policy
+     */
+    public ValueDispatchPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns number of values delivered to the listener.
+     * @return number of delivered values
+     */
+    public long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * Returns number of values dropped because the listener could not keep up.
+     * @return number of dropped values
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Returns number of values waiting to be delivered.
+     * @return number of pending values
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * Returns time (milliseconds) between receiving of the last delivered value and its delivery.
+     * @return lag of the listener in milliseconds
+     */
+    public long getLag() {
+        return TimeUnit.NANOSECONDS.toMillis(lagNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + policy + "] delivered: " + delivered + ", dropped: " + dropped + ", pending: " + pending
+                + ", lag: " + getLag() + "ms";
+    }
+
+}
@@ -0,0 +1,121 @@
+package org.sputnikdev.bluetooth.manager;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progress of a streaming write, see {@link CharacteristicGovernor#writeStream(java.io.InputStream, int,
+ * java.util.function.Consumer)}.
+ *
+ * @author Vlad Kolotov
+ */
+public class WriteProgress {
+
+    private final long bytesWritten;
+    private final long totalBytes;
+    private final long chunksWritten;
+    private final long elapsedNanos;
+    private final boolean completed;
+
+    /**
+     * Creates a new object.
+     * @param bytesWritten number of bytes written so far
+     * @param totalBytes total number of bytes to write, -1 if unknown
+     * @param chunksWritten number of chunks (packets) written so far
+     * @param elapsedNanos time elapsed since the beginning of the transfer
+     * @param completed true if the transfer is completed
+     */
+    public WriteProgress(long bytesWritten, long totalBytes, long chunksWritten, long elapsedNanos,
+                         boolean completed) {
+        this.bytesWritten = bytesWritten;
+        this.totalBytes = totalBytes;
+        this.chunksWritten = chunksWritten;
+        this.elapsedNanos = elapsedNanos;
+        this.completed = completed;
+    }
+
+    /**
+     * Returns number of bytes written so far.
+     * @return number of bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns total number of bytes to write.
+     * @return total number of bytes or -1 if unknown (e.g. when an input stream is written)
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns number of chunks (packets) written so far.
+     * @return number of chunks
+     */
+    public long getChunksWritten() {
+        return chunksWritten;
+    }
+
+    /**
+     * Returns time elapsed since the beginning of the transfer.
+     * @return elapsed time in milliseconds
+     */
+    public long getElapsed() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * Returns average throughput.
+     * @return throughput in bytes per second
+     */
+    public double getThroughput() {
+        return elapsedNanos > 0 ? bytesWritten * 1e9 / elapsedNanos : 0;
+    }
+
+    /**
+     * Returns progress of the transfer.
+     * @return progress in percents or -1 if total number of bytes is unknown
+     */
+    public double getPercentage() {
+        if (totalBytes < 0) {
+            return -1;
+        }
+        return totalBytes == 0 ? 100 : bytesWritten * 100.0 / totalBytes;
+    }
+
+    /**
+     * Returns true if the transfer is completed.
+     * @return true if the transfer is completed
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d bytes, %d chunks, %d ms, %.0f B/s%s", bytesWritten, totalBytes, chunksWritten,
+                getElapsed(), getThroughput(), completed ? ", completed" : "");
+    }
+
+}
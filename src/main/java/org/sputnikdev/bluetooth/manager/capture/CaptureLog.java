@@ -0,0 +1,324 @@
+package org.sputnikdev.bluetooth.manager.capture;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sputnikdev.bluetooth.URL;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * An append-only log of captured notifications (characteristic values and advertisement data) for offline analysis.
+ * Records are written into memory-mapped segment files of a fixed size, a new segment is started when the current
+ * one is full. Writers reserve space in the current segment with a CAS operation and then copy the record straight
+ * into the mapped memory, so that recording does not block and does not involve any system calls
+ * (except when a segment is rotated).
+ *
+ * <p>Segment format (little-endian):
+ * <pre>
+ * segment header (32 bytes): magic (4), version (2), reserved (2),
+ *                            wall clock time of creation in ms (8), monotonic time of creation in ns (8),
+ *                            end of records (4), reserved (4)
+ * URL definition record:     length (4), type = 0 (1), URL id (4), URL (UTF-8)
+ * data record:               length (4), type = record type ordinal + 1 (1), URL id (4), monotonic timestamp (8),
+ *                            payload
+ * </pre>
+ * Each segment defines the URLs it uses (URL ids are local to a segment), so that segments can be read
+ * independently. The negated length of a record is written as soon as its space is reserved, the length is written
+ * after the content of the record, a zero length marks the end of the segment. When a segment is rotated or
+ * the log is closed, the segment is sealed: no more space can be reserved in it, the end of its records is written
+ * into the header and the segment is flushed to the storage device. Use {@link CaptureLogReader} to read captured
+ * records.
+ *
+ * @author Vlad Kolotov
+ */
+public class CaptureLog implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    static final int MAGIC = 0x50435442;
+    static final short VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 32;
+    static final int END_OF_RECORDS = 24;
+    static final int RECORD_HEADER_SIZE = 9;
+    static final int TIMESTAMP_SIZE = 8;
+    static final byte DEFINITION = 0;
+    static final String FILE_PREFIX = "capture-";
+    static final String FILE_SUFFIX = ".seg";
+    static final Pattern FILE_NAME = Pattern.compile(FILE_PREFIX + "(\\d+)" + Pattern.quote(FILE_SUFFIX));
+
+    private static final int MIN_SEGMENT_SIZE = 4096;
+    // a record that does not fit into a few fresh segments in a row (e.g. because of a huge URL) is dropped
+    private static final int MAX_ROTATIONS = 3;
+
+    private Logger logger = LoggerFactory.getLogger(CaptureLog.class);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final LongAdder records = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile Segment segment;
+    private long segmentIndex;
+    private int segments;
+    private volatile boolean closed;
+
+    /**
+     * Opens a capture log in the given directory. New segments are appended after already existing ones.
+     * @param directory a directory to store segment files in
+     * @param segmentSize size of segment files in bytes
+     * @throws IOException if the first segment cannot be created
+     */
+    public CaptureLog(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size is too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        segmentIndex = getLastSegmentIndex(directory) + 1;
+        segment = newSegment();
+    }
+
+    /**
+     * Appends a new record.
+     * @param type record type
+     * @param url URL of the bluetooth object the record belongs to
+     * @param timestamp monotonic timestamp in nanoseconds, see {@link System#nanoTime()}
+     * @param payload record payload
+     * @return true if the record is written, false if the log is closed or the record is too big for a segment
+     */
+    public boolean append(CaptureRecordType type, URL url, long timestamp, byte[] payload) {
+        int size = RECORD_HEADER_SIZE + TIMESTAMP_SIZE + payload.length;
+        if (closed || size > segmentSize - SEGMENT_HEADER_SIZE - MIN_SEGMENT_SIZE / 2) {
+            dropped.increment();
+            return false;
+        }
+        for (int attempt = 0; attempt <= MAX_ROTATIONS; attempt++) {
+            Segment current = segment;
+            int id = current.define(url);
+            if (id >= 0 && current.write(type, id, timestamp, payload, size)) {
+                records.increment();
+                return true;
+            }
+            if (!rotate(current)) {
+                break;
+            }
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * Returns the directory where segment files are stored.
+     * @return directory of segment files
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns size of segment files.
+     * @return segment size in bytes
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Returns number of records written.
+     * @return number of records written
+     */
+    public long getRecords() {
+        return records.sum();
+    }
+
+    /**
+     * Returns number of records that were not written, because they were too big or the log was closed.
+     * @return number of dropped records
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns number of segments created by this log.
+     * @return number of segments
+     */
+    public synchronized int getSegments() {
+        return segments;
+    }
+
+    /**
+     * Flushes the current segment to the storage device and closes the log.
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            segment.seal();
+            logger.debug("Capture log closed: {} : {} records", directory, records.sum());
+        }
+    }
+
+    private synchronized boolean rotate(Segment full) {
+        if (closed) {
+            return false;
+        }
+        if (segment == full) {
+            full.seal();
+            try {
+                segment = newSegment();
+            } catch (IOException ex) {
+                logger.warn("Could not create a new capture segment: {} : {}", directory, ex.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Segment newSegment() throws IOException {
+        Path file = directory.resolve(String.format("%s%012d%s", FILE_PREFIX, segmentIndex++, FILE_SUFFIX));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, VERSION);
+        buffer.putLong(8, System.currentTimeMillis());
+        buffer.putLong(16, System.nanoTime());
+        segments++;
+        logger.debug("New capture segment created: {}", file);
+        return new Segment(buffer);
+    }
+
+    static long getLastSegmentIndex(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> FILE_NAME.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .mapToLong(matcher -> Long.parseLong(matcher.group(1)))
+                    .max().orElse(-1);
+        }
+    }
+
+    private static final class Segment {
+
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger position = new AtomicInteger(SEGMENT_HEADER_SIZE);
+        private final ConcurrentMap<URL, Integer> ids = new ConcurrentHashMap<>();
+        private final AtomicInteger nextId = new AtomicInteger();
+
+        private Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Returns id of the given URL in this segment, the URL is defined if it is not defined yet.
+         * @return URL id or -1 if there is no space left for the definition
+         */
+        private int define(URL url) {
+            Integer id = ids.get(url);
+            if (id == null) {
+                id = ids.computeIfAbsent(url, this::writeDefinition);
+            }
+            return id != null ? id : -1;
+        }
+
+        private Integer writeDefinition(URL url) {
+            byte[] bytes = url.toString().getBytes(StandardCharsets.UTF_8);
+            int size = RECORD_HEADER_SIZE + bytes.length;
+            int pos = reserve(size);
+            if (pos < 0) {
+                return null;
+            }
+            int id = nextId.getAndIncrement();
+            buffer.put(pos + 4, DEFINITION);
+            buffer.putInt(pos + 5, id);
+            put(pos + RECORD_HEADER_SIZE, bytes);
+            buffer.putInt(pos, size);
+            return id;
+        }
+
+        private boolean write(CaptureRecordType type, int id, long timestamp, byte[] payload, int size) {
+            int pos = reserve(size);
+            if (pos < 0) {
+                return false;
+            }
+            buffer.put(pos + 4, (byte) (type.ordinal() + 1));
+            buffer.putInt(pos + 5, id);
+            buffer.putLong(pos + RECORD_HEADER_SIZE, timestamp);
+            put(pos + RECORD_HEADER_SIZE + TIMESTAMP_SIZE, payload);
+            // the length is written last, so that a reader never sees a partially written record as a valid one
+            buffer.putInt(pos, size);
+            return true;
+        }
+
+        private int reserve(int size) {
+            while (true) {
+                int pos = position.get();
+                // a few bytes are always left at the end for the end of segment marker (zero length)
+                if (pos + size + 4 > buffer.capacity()) {
+                    return -1;
+                }
+                if (position.compareAndSet(pos, pos + size)) {
+                    // marking the space as reserved, so that readers can skip it if it is never written
+                    buffer.putInt(pos, -size);
+                    return pos;
+                }
+            }
+        }
+
+        /**
+         * Prevents any further reservations, writes the end of records into the header and flushes the segment.
+         */
+        private void seal() {
+            buffer.putInt(END_OF_RECORDS, position.getAndSet(buffer.capacity()));
+            buffer.force();
+        }
+
+        private void put(int index, byte[] data) {
+            // absolute bulk puts are not available, a duplicate has its own position, so that concurrent writers
+            // do not interfere through the position of the shared buffer
+            ByteBuffer target = buffer.duplicate();
+            target.position(index);
+            target.put(data, 0, data.length);
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+package org.sputnikdev.bluetooth.manager.capture;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A sequential reader of capture logs written by {@link CaptureLog}. Segments are read in the order they were
+ * created, segment files are memory-mapped in the read-only mode. The segment that is currently being written
+ * can only be read up to the first record that is not completely written yet. Space that has been reserved
+ * for a record, but has never been written (e.g. because the writer was terminated), is skipped,
+ * see {@link #getSkipped()}.
+ *
+ * @author Vlad Kolotov
+ */
+public class CaptureLogReader implements Closeable {
+
+    private static final CaptureRecordType[] TYPES = CaptureRecordType.values();
+
+    private final Iterator<Path> segments;
+    private final Map<Integer, URL> urls = new HashMap<>();
+    private MappedByteBuffer buffer;
+    private Path segment;
+    private int position;
+    private int end;
+    private boolean sealed;
+    private long skipped;
+    private long createdMillis;
+    private long createdNanos;
+
+    /**
+     * Creates a reader of segment files in the given directory.
+     * @param directory a directory with segment files
+     * @throws IOException if the directory cannot be read
+     */
+    public CaptureLogReader(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> paths = files
+                    .filter(file -> CaptureLog.FILE_NAME.matcher(file.getFileName().toString()).matches())
+                    .sorted().collect(Collectors.toList());
+            segments = paths.iterator();
+        }
+    }
+
+    /**
+     * Reads the next record.
+     * @return the next record or null if there are no more records
+     * @throws IOException if a segment cannot be read or it is corrupted
+     */
+    public CaptureRecord next() throws IOException {
+        while (true) {
+            if (buffer == null && !nextSegment()) {
+                return null;
+            }
+            int length = position + 4 <= end ? buffer.getInt(position) : 0;
+            if (length == 0) {
+                if (sealed && position < end) {
+                    // the segment is sealed, but there is a gap in its records
+                    throw new IOException("Corrupted capture segment: " + segment + " at " + position);
+                }
+                buffer = null;
+                continue;
+            }
+            if (length < 0 && position - (long) length <= end) {
+                // reserved, but not written
+                skipped++;
+                position -= length;
+                continue;
+            }
+            if (length < CaptureLog.RECORD_HEADER_SIZE || position + length > end) {
+                throw new IOException("Corrupted capture segment: " + segment + " at " + position);
+            }
+            byte type = buffer.get(position + 4);
+            int id = buffer.getInt(position + 5);
+            if (type == CaptureLog.DEFINITION) {
+                byte[] url = read(position + CaptureLog.RECORD_HEADER_SIZE, length - CaptureLog.RECORD_HEADER_SIZE);
+                urls.put(id, new URL(new String(url, StandardCharsets.UTF_8)));
+                position += length;
+                continue;
+            }
+            if (type < 0 || type > TYPES.length || !urls.containsKey(id)) {
+                throw new IOException("Corrupted capture segment: " + segment + " at " + position);
+            }
+            long timestamp = buffer.getLong(position + CaptureLog.RECORD_HEADER_SIZE);
+            int header = CaptureLog.RECORD_HEADER_SIZE + CaptureLog.TIMESTAMP_SIZE;
+            byte[] payload = read(position + header, length - header);
+            position += length;
+            return new CaptureRecord(TYPES[type - 1], urls.get(id), timestamp,
+                    Instant.ofEpochMilli(createdMillis).plusNanos(timestamp - createdNanos), payload);
+        }
+    }
+
+    /**
+     * Returns number of records that have been skipped because their space was reserved, but never written.
+     * @return number of skipped records
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    @Override
+    public void close() {
+        buffer = null;
+    }
+
+    private boolean nextSegment() throws IOException {
+        if (!segments.hasNext()) {
+            return false;
+        }
+        segment = segments.next();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < CaptureLog.SEGMENT_HEADER_SIZE || buffer.getInt(0) != CaptureLog.MAGIC
+                || buffer.getShort(4) != CaptureLog.VERSION) {
+            throw new IOException("Not a capture segment: " + segment);
+        }
+        createdMillis = buffer.getLong(8);
+        createdNanos = buffer.getLong(16);
+        // the end of records is only known once the segment is sealed
+        end = buffer.getInt(CaptureLog.END_OF_RECORDS);
+        sealed = end > 0;
+        if (!sealed) {
+            end = buffer.limit();
+        } else if (end < CaptureLog.SEGMENT_HEADER_SIZE || end > buffer.limit()) {
+            throw new IOException("Corrupted capture segment: " + segment);
+        }
+        position = CaptureLog.SEGMENT_HEADER_SIZE;
+        urls.clear();
+        return true;
+    }
+
+    private byte[] read(int index, int length) {
+        byte[] data = new byte[length];
+        buffer.position(index);
+        buffer.get(data);
+        return data;
+    }
+
+}
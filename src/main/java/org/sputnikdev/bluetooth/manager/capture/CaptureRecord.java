@@ -0,0 +1,95 @@
+package org.sputnikdev.bluetooth.manager.capture;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+
+import java.time.Instant;
+
+/**
+ * A record read from a capture log, see {@link CaptureLogReader}.
+ *
+ * @author Vlad Kolotov
+ */
+public class CaptureRecord {
+
+    private final CaptureRecordType type;
+    private final URL url;
+    private final long timestamp;
+    private final Instant time;
+    private final byte[] payload;
+
+    CaptureRecord(CaptureRecordType type, URL url, long timestamp, Instant time, byte[] payload) {
+        this.type = type;
+        this.url = url;
+        this.timestamp = timestamp;
+        this.time = time;
+        this.payload = payload;
+    }
+
+    /**
+     * Returns type of the record.
+     * @return record type
+     */
+    public CaptureRecordType getType() {
+        return type;
+    }
+
+    /**
+     * Returns URL of the bluetooth object the record belongs to.
+     * @return URL of the bluetooth object
+     */
+    public URL getURL() {
+        return url;
+    }
+
+    /**
+     * Returns monotonic timestamp (nanoseconds, see {@link System#nanoTime()}) of the record. Timestamps are only
+     * comparable within the same recording session (JVM).
+     * @return monotonic timestamp in nanoseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns wall clock time of the record. The time is derived from the monotonic timestamp and the wall clock
+     * time of the segment creation.
+     * @return wall clock time of the record
+     */
+    public Instant getTime() {
+        return time;
+    }
+
+    /**
+     * Returns payload of the record.
+     * @return payload
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + type + "] " + url + " @" + timestamp + " (" + payload.length + " bytes)";
+    }
+
+}
@@ -0,0 +1,44 @@
+package org.sputnikdev.bluetooth.manager.capture;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Types of captured records.
+ *
+ * @author Vlad Kolotov
+ */
+public enum CaptureRecordType {
+
+    /**
+     * A characteristic value notification, the record URL is the characteristic URL.
+     */
+    CHARACTERISTIC_VALUE,
+    /**
+     * Advertised manufacturer data, the record URL is the device URL. The payload starts with
+     * the manufacturer identifier (2 bytes, little-endian) followed by the manufacturer data.
+     */
+    MANUFACTURER_DATA,
+    /**
+     * Advertised service data, the record URL is the service URL.
+     */
+    SERVICE_DATA
+
+}
@@ -26,16 +26,25 @@ import org.sputnikdev.bluetooth.URL;
 import org.sputnikdev.bluetooth.manager.BluetoothFatalException;
 import org.sputnikdev.bluetooth.manager.BluetoothGovernor;
 import org.sputnikdev.bluetooth.manager.BluetoothInteractionException;
+import org.sputnikdev.bluetooth.manager.CircuitBreakerState;
 import org.sputnikdev.bluetooth.manager.GovernorListener;
 import org.sputnikdev.bluetooth.manager.GovernorState;
+import org.sputnikdev.bluetooth.manager.GovernorTransition;
 import org.sputnikdev.bluetooth.manager.NotReadyException;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObject;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -87,6 +96,12 @@ import java.util.function.Predicate;
  */
 abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implements BluetoothObjectGovernor {
 
+    // set while a native call is being executed, nested calls are part of the outer call
+    private static final ThreadLocal<Boolean> NATIVE_CALL_IN_PROGRESS = ThreadLocal.withInitial(() -> false);
+    // set while a governor is being updated, interactions of the update have their own deadlines,
+    // but the outcome is recorded once for the whole update
+    private static final ThreadLocal<Boolean> UPDATE_IN_PROGRESS = ThreadLocal.withInitial(() -> false);
+
     private Logger logger = LoggerFactory.getLogger(AbstractBluetoothObjectGovernor.class);
 
     protected final BluetoothManagerImpl bluetoothManager;
@@ -97,12 +112,17 @@ abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implem
     private Instant lastChangedNotified;
     private Instant ready;
     private final List<GovernorListener> governorListeners = new CopyOnWriteArrayList<>();
-    private GovernorState state = GovernorState.NEW;
+    private volatile GovernorState state = GovernorState.NEW;
     @SuppressWarnings({"unchecked", "rawtypes"})
     private final CompletableFutureService<AbstractBluetoothObjectGovernor> futureService =
             new CompletableFutureService<>();
 
     private final ReentrantLock updateLock = new ReentrantLock();
+    // transport, adapter and governor breakers, the governor breaker is for failures that are specific
+    // to the governor (e.g. device errors)
+    private volatile CircuitBreaker[] circuitBreakers;
+    // completes when a timed out native call of the governor actually finishes
+    private volatile CompletableFuture<Void> quarantine;
 
     AbstractBluetoothObjectGovernor(BluetoothManagerImpl bluetoothManager, URL url) {
         this.bluetoothManager = bluetoothManager;
@@ -168,6 +188,10 @@ abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implem
                 boolean updated = false;
                 T object = null;
                 try {
+                    if (!allowNativeCall()) {
+                        logger.trace("Native calls are suspended. Skipping update: {}", url);
+                        return;
+                    }
                     logger.trace("Lock acquired. Getting a native object: {}", url);
                     object = getOrFindBluetoothObject();
                     if (object == null) {
@@ -176,12 +200,14 @@ abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implem
                     }
                     logger.trace("Performing update with the native object: {} / {}",
                             url, Integer.toHexString(object.hashCode()));
-                    update(object);
+                    updateNative(object);
                     logger.trace("Governor has been updated: {}", url);
                     updated = true;
                     if (state != GovernorState.READY) {
                         state = GovernorState.READY;
                         notifyReady(true);
+                        // transitions could have happened while the governor was being initialised
+                        futureService.completeTransitions(this);
                     }
                     // handling completable futures
                     futureService.complete(this);
@@ -192,7 +218,9 @@ abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implem
                 } catch (Exception ex) {
                     logger.warn("Error occurred while updating governor: {} / {} : {}",
                             url, object != null ? Integer.toHexString(object.hashCode()) : null, ex.getMessage());
-                    reset();
+                    if (!isSuspended(ex)) {
+                        reset();
+                    }
                 }
                 if (updated) {
                     notifyLastChanged();
@@ -240,6 +268,24 @@ abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implem
                 (Function<AbstractBluetoothObjectGovernor, V>) function);
     }
 
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <G extends BluetoothGovernor, V> CompletableFuture<V> when(GovernorTransition transition,
+                                                                      Function<G, V> function) {
+        return futureService.submit(this, transition, (Function<AbstractBluetoothObjectGovernor, V>) function);
+    }
+
+    /**
+     * Completes futures that wait for the given state transition. Futures are completed only if the governor
+     * is ready, otherwise they will be checked once the governor becomes ready.
+     * @param transition state transition that has just happened
+     */
+    void notifyTransition(GovernorTransition transition) {
+        if (state == GovernorState.READY) {
+            futureService.complete(this, transition);
+        }
+    }
+
     protected void scheduleUpdate() {
         bluetoothManager.scheduleUpdate(this);
     }
@@ -249,11 +295,33 @@ abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implem
     }
 
     protected <R> R interact(String name, Function<T, R> delegate, boolean update) {
+        return interact(name, delegate, update, bluetoothManager.getNativeCallTimeout(name));
+    }
+
+    /**
+     * Interacts with the native object, the native call is limited by the given deadline rather than
+     * by the configured one.
+     * @param name operation name
+     * @param delegate interaction
+     * @param update whether the last interacted timestamp should be updated
+     * @param timeout deadline in milliseconds, zero or negative value if the call is not limited
+     * @param <R> type of the result
+     * @return result of the interaction
+     */
+    protected <R> R interact(String name, Function<T, R> delegate, boolean update, long timeout) {
+        if (!NATIVE_CALL_IN_PROGRESS.get()
+                && (UPDATE_IN_PROGRESS.get() ? isQuarantined() : !allowNativeCall())) {
+            // hardware is known to be dead, failing fast without resetting the governor
+            String message = String.format("Native calls are suspended (circuit breaker is open or "
+                    + "a timed out call is still running), interaction (%s) is rejected: %s", name, url);
+            logger.debug(message);
+            throw new NativeCallNotStartedException(message);
+        }
         try {
             T object = getBluetoothObject();
             logger.debug("Interacting with native object ({}): {} / {}",
                     name, url, Integer.toHexString(object.hashCode()));
-            R result = delegate.apply(object);
+            R result = callNative(name, timeout, () -> delegate.apply(object));
             logger.trace("Interaction completed ({}): {} / {}", name, url, Integer.toHexString(object.hashCode()));
             if (update) {
                 updateLastInteracted();
@@ -263,7 +331,10 @@ abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implem
             String message = String.format("Error occurred while interacting (%s) with native object: %s : %s",
                     name, url, ex.getMessage());
             logger.warn(message);
-            reset();
+            if (!isSuspended(ex)) {
+                // the native object is not touched if it is hanging or has not been called at all
+                reset();
+            }
             throw new BluetoothInteractionException(message, ex);
         }
     }
@@ -282,6 +353,263 @@ abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implem
         });
     }
 
+    @Override
+    public CircuitBreakerState getCircuitBreakerState() {
+        if (isQuarantined()) {
+            return CircuitBreakerState.OPEN;
+        }
+        CircuitBreakerState result = CircuitBreakerState.CLOSED;
+        for (CircuitBreaker breaker : getCircuitBreakers()) {
+            if (breaker != null) {
+                CircuitBreakerState breakerState = breaker.getState();
+                if (breakerState == CircuitBreakerState.OPEN) {
+                    return breakerState;
+                } else if (breakerState == CircuitBreakerState.HALF_OPEN) {
+                    result = breakerState;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Executes a native call honoring the configured deadline for the given operation and records its outcome
+     * in the circuit breakers of the governor. A call that has not completed within its deadline is cancelled
+     * (interrupted) and considered as failed, the governor is quarantined until the call actually finishes.
+     * A call that could not even start in time (all native call threads are busy) fails without being recorded.
+     * Nested native calls are part of the outer call, they share its deadline. Interactions made by
+     * {@link #update(BluetoothObject)} have their own deadlines, but their outcome is recorded only once
+     * for the whole update.
+     * @param name operation name
+     * @param call native call
+     * @param <R> type of the result
+     * @return result of the native call
+     */
+    <R> R callNative(String name, Callable<R> call) {
+        return callNative(name, bluetoothManager.getNativeCallTimeout(name), call);
+    }
+
+    private <R> R callNative(String name, long timeout, Callable<R> call) {
+        if (NATIVE_CALL_IN_PROGRESS.get()) {
+            return callNested(call);
+        }
+        boolean record = !UPDATE_IN_PROGRESS.get();
+        long started = System.nanoTime();
+        try {
+            R result;
+            if (timeout > 0) {
+                result = callWithDeadline(name, call, timeout);
+            } else {
+                result = callInContext(call);
+            }
+            if (record) {
+                onNativeCallCompleted(null, System.nanoTime() - started);
+            }
+            return result;
+        } catch (RuntimeException ex) {
+            if (record) {
+                onNativeCallCompleted(ex, System.nanoTime() - started);
+            }
+            throw ex;
+        } catch (Exception ex) {
+            if (record) {
+                onNativeCallCompleted(ex, System.nanoTime() - started);
+            }
+            throw new BluetoothInteractionException(ex.getMessage(), ex);
+        }
+    }
+
+    private void updateNative(T object) {
+        UPDATE_IN_PROGRESS.set(true);
+        long started = System.nanoTime();
+        try {
+            update(object);
+            onNativeCallCompleted(null, System.nanoTime() - started);
+        } catch (RuntimeException ex) {
+            onNativeCallCompleted(ex, System.nanoTime() - started);
+            throw ex;
+        } finally {
+            UPDATE_IN_PROGRESS.remove();
+        }
+    }
+
+    private <R> R callWithDeadline(String name, Callable<R> call, long timeout) throws Exception {
+        AtomicBoolean started = new AtomicBoolean();
+        CompletableFuture<Void> finished = new CompletableFuture<>();
+        Future<R> future;
+        try {
+            future = bluetoothManager.submitNativeCall(() -> {
+                if (!started.compareAndSet(false, true)) {
+                    // the call has been abandoned before it started
+                    return null;
+                }
+                try {
+                    return callInContext(call);
+                } finally {
+                    finished.complete(null);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            throw new NativeCallNotStartedException(
+                    String.format("Native call (%s) is rejected, too many native calls are pending: %s", name, url));
+        }
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            if (!abandon(future, started, finished)) {
+                // the call has been waiting for a free thread, this says nothing about the hardware
+                throw new NativeCallNotStartedException(
+                        String.format("Native call (%s) could not start within %d ms: %s", name, timeout, url));
+            }
+            throw new NativeCallTimeoutException(
+                    String.format("Native call (%s) timed out after %d ms: %s", name, timeout, url));
+        } catch (InterruptedException ex) {
+            abandon(future, started, finished);
+            Thread.currentThread().interrupt();
+            throw new BluetoothInteractionException(
+                    String.format("Native call (%s) has been interrupted: %s", name, url), ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception) {
+                throw (Exception) ex.getCause();
+            }
+            throw new BluetoothInteractionException(ex.getCause().getMessage(), ex.getCause());
+        }
+    }
+
+    private boolean abandon(Future<?> future, AtomicBoolean started, CompletableFuture<Void> finished) {
+        future.cancel(true);
+        if (started.compareAndSet(false, true)) {
+            return false;
+        }
+        // the call is running and might ignore the interruption, native calls of the governor
+        // are suspended until it actually finishes
+        logger.warn("Native call is still running, governor is quarantined until it finishes: {}", url);
+        quarantine = finished;
+        return true;
+    }
+
+    private static <R> R callInContext(Callable<R> call) throws Exception {
+        NATIVE_CALL_IN_PROGRESS.set(true);
+        try {
+            return call.call();
+        } finally {
+            NATIVE_CALL_IN_PROGRESS.remove();
+        }
+    }
+
+    private static <R> R callNested(Callable<R> call) {
+        try {
+            return call.call();
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new BluetoothInteractionException(ex.getMessage(), ex);
+        }
+    }
+
+    private boolean allowNativeCall() {
+        if (isQuarantined()) {
+            return false;
+        }
+        CircuitBreaker[] breakers = getCircuitBreakers();
+        // checking all breakers first so that a probe call is not taken if another breaker rejects the call
+        for (CircuitBreaker breaker : breakers) {
+            if (breaker != null && !breaker.isRequestAllowed()) {
+                return false;
+            }
+        }
+        for (int i = 0; i < breakers.length; i++) {
+            if (breakers[i] != null && !breakers[i].allowRequest()) {
+                for (int j = 0; j < i; j++) {
+                    if (breakers[j] != null) {
+                        breakers[j].cancelRequest();
+                    }
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isQuarantined() {
+        CompletableFuture<Void> finished = quarantine;
+        return finished != null && !finished.isDone();
+    }
+
+    private void onNativeCallCompleted(Exception error, long latency) {
+        if (error != null && hasCause(error, NativeCallNotStartedException.class)) {
+            return;
+        }
+        AdapterHealth health = bluetoothManager.getAdapterHealth(url);
+        if (health != null) {
+            health.recordNativeCall(error == null, latency);
+        }
+        CircuitBreaker[] breakers = getCircuitBreakers();
+        CircuitBreaker governorBreaker = breakers[2];
+        if (governorBreaker != null) {
+            if (error == null) {
+                governorBreaker.onSuccess();
+            } else {
+                governorBreaker.onFailure();
+            }
+        }
+        // errors that are specific to the governor prove that the transport and the adapter are responsive,
+        // only transport/adapter level faults count towards the shared breakers
+        boolean sharedFault = error != null && isTransportFault(error);
+        for (int i = 0; i < 2; i++) {
+            if (breakers[i] != null) {
+                if (sharedFault) {
+                    breakers[i].onFailure();
+                } else {
+                    breakers[i].onSuccess();
+                }
+            }
+        }
+    }
+
+    private boolean isTransportFault(Throwable error) {
+        return url.isAdapter() || hasCause(error, NativeCallTimeoutException.class)
+                || hasCause(error, NotReadyException.class);
+    }
+
+    /**
+     * Checks whether the given error means that the native object must not be touched: a native call
+     * has timed out (and might still be running) or has not been made at all.
+     * @param error an error
+     * @return true if the native object must not be touched
+     */
+    private static boolean isSuspended(Throwable error) {
+        return hasCause(error, NativeCallTimeoutException.class)
+                || hasCause(error, NativeCallNotStartedException.class);
+    }
+
+    private static boolean hasCause(Throwable error, Class<? extends Throwable> type) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CircuitBreaker[] getCircuitBreakers() {
+        CircuitBreaker[] breakers = circuitBreakers;
+        if (breakers == null) {
+            breakers = createCircuitBreakers(transport);
+            circuitBreakers = breakers;
+        }
+        return breakers;
+    }
+
+    private CircuitBreaker[] createCircuitBreakers(String protocol) {
+        CircuitBreaker[] current = circuitBreakers;
+        return new CircuitBreaker[] {
+            protocol != null ? bluetoothManager.getTransportCircuitBreaker(protocol) : null,
+            bluetoothManager.getAdapterCircuitBreaker(url.getAdapterURL()),
+            current != null ? current[2] : bluetoothManager.createCircuitBreaker(url.toString())
+        };
+    }
+
     private T getBluetoothObject() throws NotReadyException {
         if (bluetoothObject == null) {
             throw new NotReadyException("Bluetooth object is not ready: " + url);
@@ -333,7 +661,12 @@ abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implem
                 ready = Instant.now();
                 logger.debug("A new native object has been acquired: {}", url);
                 // update internal cache so that next time acquiring "native" object will be faster
-                transport = bluetoothObject.getURL().getProtocol();
+                String protocol = bluetoothObject.getURL().getProtocol();
+                if (!Objects.equals(protocol, transport)) {
+                    // the transport breaker is not known until a native object is acquired
+                    transport = protocol;
+                    circuitBreakers = createCircuitBreakers(protocol);
+                }
                 try {
                     logger.debug("Initializing governor with the new native object: {}", url);
                     init(bluetoothObject);
@@ -365,4 +698,20 @@ abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implem
         }
     }
 
+    private static class NativeCallTimeoutException extends BluetoothInteractionException {
+        private static final long serialVersionUID = 1L;
+
+        NativeCallTimeoutException(String message) {
+            super(message);
+        }
+    }
+
+    private static class NativeCallNotStartedException extends BluetoothInteractionException {
+        private static final long serialVersionUID = 1L;
+
+        NativeCallNotStartedException(String message) {
+            super(message);
+        }
+    }
+
 }
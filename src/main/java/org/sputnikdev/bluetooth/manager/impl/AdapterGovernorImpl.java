@@ -27,6 +27,7 @@ import org.sputnikdev.bluetooth.manager.AdapterGovernor;
 import org.sputnikdev.bluetooth.manager.AdapterListener;
 import org.sputnikdev.bluetooth.manager.BluetoothObjectType;
 import org.sputnikdev.bluetooth.manager.BluetoothObjectVisitor;
+import org.sputnikdev.bluetooth.manager.CircuitBreakerState;
 import org.sputnikdev.bluetooth.manager.DeviceGovernor;
 import org.sputnikdev.bluetooth.manager.NotReadyException;
 import org.sputnikdev.bluetooth.manager.transport.Adapter;
@@ -164,6 +165,14 @@ class AdapterGovernorImpl extends AbstractBluetoothObjectGovernor<Adapter> imple
         this.signalPropagationExponent = signalPropagationExponent;
     }
 
+    @Override
+    public double getHealthScore() {
+        if (getCircuitBreakerState() == CircuitBreakerState.OPEN) {
+            return 0.0;
+        }
+        return AdapterHealth.getScore(bluetoothManager.getAdapterHealth(url));
+    }
+
     @Override
     public List<URL> getDevices() throws NotReadyException {
         return interact("getDevices",
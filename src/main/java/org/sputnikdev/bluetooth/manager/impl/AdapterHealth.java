@@ -0,0 +1,83 @@
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.sputnikdev.bluetooth.manager.impl;
+
+/**
+ * Health of an adapter estimated from what governors of the adapter observe: error rate and latency of native calls,
+ * and success rate of connection attempts. Each of the factors is an exponentially weighted moving average,
+ * so that the score reflects recent behaviour of the adapter and recovers once the adapter gets back to normal.
+ *
+ * <p>The health score ranges from 0.0 (the adapter is failing) to 1.0 (the adapter is healthy) and is calculated as:
+ * (1 - native call error rate) * connection success rate * latency factor, where the latency factor is 1.0 for
+ * latencies not exceeding the reference latency and is inversely proportional to the latency otherwise.
+ *
+ * @author Vlad Kolotov
+ */
+class AdapterHealth {
+
+    static final double UNHEALTHY_THRESHOLD = 0.5;
+    // weight of a new sample
+    private static final double ALPHA = 0.1;
+    private static final double REFERENCE_LATENCY_MS = 500;
+
+    private double errorRate;
+    private double latency;
+    private double connectionSuccessRate = 1.0;
+    private double connectionLatency;
+
+    synchronized void recordNativeCall(boolean succeeded, long latencyNanos) {
+        errorRate += ALPHA * ((succeeded ? 0.0 : 1.0) - errorRate);
+        latency += ALPHA * (latencyNanos / 1000000.0 - latency);
+    }
+
+    synchronized void recordConnectionAttempt(boolean succeeded, long latencyMillis) {
+        connectionSuccessRate += ALPHA * ((succeeded ? 1.0 : 0.0) - connectionSuccessRate);
+        if (succeeded) {
+            connectionLatency += ALPHA * (latencyMillis - connectionLatency);
+        }
+    }
+
+    synchronized double getScore() {
+        double latencyFactor = latency > REFERENCE_LATENCY_MS ? REFERENCE_LATENCY_MS / latency : 1.0;
+        return (1.0 - errorRate) * connectionSuccessRate * latencyFactor;
+    }
+
+    static double getScore(AdapterHealth health) {
+        return health != null ? health.getScore() : 1.0;
+    }
+
+    synchronized double getErrorRate() {
+        return errorRate;
+    }
+
+    synchronized double getLatency() {
+        return latency;
+    }
+
+    synchronized double getConnectionSuccessRate() {
+        return connectionSuccessRate;
+    }
+
+    synchronized double getConnectionLatency() {
+        return connectionLatency;
+    }
+
+}
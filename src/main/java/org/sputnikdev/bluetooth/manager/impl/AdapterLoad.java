@@ -0,0 +1,86 @@
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.sputnikdev.bluetooth.URL;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks connection load of an adapter: devices that are connected through the adapter and devices that are
+ * being connected (connection control is set, but the device is not connected yet).
+ * Updates are idempotent (sets of device URLs), so that repetitive notifications do not skew the counters.
+ *
+ * @author Vlad Kolotov
+ */
+class AdapterLoad {
+
+    private final Set<URL> connected = ConcurrentHashMap.newKeySet();
+    private final Set<URL> pending = ConcurrentHashMap.newKeySet();
+    private final Set<URL> controlled = ConcurrentHashMap.newKeySet();
+
+    void setConnectionControl(URL device, boolean connectionControl) {
+        URL key = device.copyWithProtocol(null);
+        if (connectionControl) {
+            controlled.add(key);
+            if (!connected.contains(key)) {
+                pending.add(key);
+            }
+        } else {
+            controlled.remove(key);
+            pending.remove(key);
+        }
+    }
+
+    void setConnected(URL device, boolean isConnected) {
+        URL key = device.copyWithProtocol(null);
+        if (isConnected) {
+            connected.add(key);
+            pending.remove(key);
+        } else {
+            connected.remove(key);
+            if (controlled.contains(key)) {
+                pending.add(key);
+            }
+        }
+    }
+
+    void remove(URL device) {
+        URL key = device.copyWithProtocol(null);
+        connected.remove(key);
+        pending.remove(key);
+        controlled.remove(key);
+    }
+
+    int getConnectionCount() {
+        return connected.size();
+    }
+
+    int getPendingConnectionCount() {
+        return pending.size();
+    }
+
+    boolean isPending(URL device) {
+        return pending.contains(device.copyWithProtocol(null));
+    }
+
+}
@@ -0,0 +1,44 @@
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
+
+import java.util.Set;
+
+/**
+ * A listener of changes in the set of discovered adapters. Unlike adapter discovery listeners, which get notified
+ * about each adapter on every discovery cycle, membership listeners get notified only when the set of adapters
+ * actually changes, and all changes of a discovery cycle are delivered at once.
+ *
+ * @author Vlad Kolotov
+ */
+@FunctionalInterface
+interface AdapterMembershipListener {
+
+    /**
+     * Method is called when some adapters have been added to or removed from the set of discovered adapters.
+     * @param added newly discovered adapters
+     * @param removed lost adapters
+     */
+    void membershipChanged(Set<DiscoveredAdapter> added, Set<DiscoveredAdapter> removed);
+
+}
@@ -0,0 +1,123 @@
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.sputnikdev.bluetooth.manager.impl;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Suppresses copies of the same advertisement (service data or manufacturer data) received through multiple delegates
+ * (adapters) of a combined device governor. A payload is a copy if an identical payload has been accepted within
+ * the de-duplication window and the delegate has not reported it yet. If the same delegate reports an identical
+ * payload again, it is considered as a new advertisement. Several recent payloads are tracked, so that devices
+ * that rotate their advertisements (e.g. Eddystone frames) are de-duplicated too.
+ *
+ * @param <K> type of advertisement keys (e.g. service URL or manufacturer ID)
+ * @author Vlad Kolotov
+ */
+class AdvertisementDeduplicator<K> {
+
+    private static final int MAX_ENTRIES = 16;
+
+    // keys of advertisements may contain delegate specific information (e.g. service data URLs contain adapter address)
+    private final Function<K, Object> keyNormalizer;
+    private final Map<Map<Object, ByteBuffer>, Entry> entries =
+        new LinkedHashMap<Map<Object, ByteBuffer>, Entry>(MAX_ENTRIES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Map<Object, ByteBuffer>, Entry> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    private volatile long window;
+
+    AdvertisementDeduplicator(Function<K, Object> keyNormalizer, long window) {
+        this.keyNormalizer = keyNormalizer;
+        this.window = window;
+    }
+
+    long getWindow() {
+        return window;
+    }
+
+    void setWindow(long window) {
+        this.window = window;
+    }
+
+    /**
+     * Checks whether an advertisement should be forwarded to listeners.
+     * @param delegate delegate index
+     * @param advertisement advertised data
+     * @param now current time in milliseconds
+     * @return true if the advertisement is new, false if it is a copy of an advertisement received through another
+     *     delegate
+     */
+    boolean accept(int delegate, Map<K, byte[]> advertisement, long now) {
+        long window = this.window;
+        if (window <= 0) {
+            return true;
+        }
+        Map<Object, ByteBuffer> payload = new HashMap<>(advertisement.size() * 2);
+        for (Map.Entry<K, byte[]> entry : advertisement.entrySet()) {
+            payload.put(keyNormalizer.apply(entry.getKey()), ByteBuffer.wrap(entry.getValue()));
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(payload);
+            if (entry != null && now - entry.accepted <= window && !entry.reporters.get(delegate)) {
+                entry.reporters.set(delegate);
+                return false;
+            }
+            if (entry == null) {
+                expire(now, window);
+                entry = new Entry();
+                entries.put(payload, entry);
+            }
+            entry.accepted = now;
+            entry.reporters.clear();
+            entry.reporters.set(delegate);
+            return true;
+        }
+    }
+
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private void expire(long now, long window) {
+        for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();) {
+            if (now - iterator.next().accepted > window) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final BitSet reporters = new BitSet();
+        private long accepted;
+    }
+
+}
@@ -0,0 +1,160 @@
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sputnikdev.bluetooth.manager.ValueDispatchPolicy;
+import org.sputnikdev.bluetooth.manager.ValueListener;
+import org.sputnikdev.bluetooth.manager.ValueListenerStats;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A value listener that delivers values to another (slow) listener asynchronously, so that the transport
+ * callback thread never waits for the listener. Values are delivered one by one in order of arrival, either through
+ * a bounded queue (oldest values are dropped when the queue is full) or conflated to the latest value.
+ *
+ * @author Vlad Kolotov
+ */
+class AsyncValueDispatcher implements ValueListener {
+
+    private Logger logger = LoggerFactory.getLogger(AsyncValueDispatcher.class);
+
+    private final ValueListener listener;
+    private final ValueDispatchPolicy policy;
+    private final Executor executor;
+    private final Queue<Sample> queue;
+    private final AtomicReference<Sample> latest = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile long lagNanos;
+    private volatile boolean disposed;
+
+    AsyncValueDispatcher(ValueListener listener, ValueDispatchPolicy policy, int capacity, Executor executor) {
+        if (policy == ValueDispatchPolicy.SYNCHRONOUS) {
+            throw new IllegalArgumentException("Synchronous listeners do not need a dispatcher");
+        }
+        if (policy == ValueDispatchPolicy.QUEUED && capacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + capacity);
+        }
+        this.listener = listener;
+        this.policy = policy;
+        this.executor = executor;
+        queue = policy == ValueDispatchPolicy.QUEUED ? new ArrayBlockingQueue<>(capacity) : null;
+    }
+
+    @Override
+    public void changed(byte[] value) {
+        if (disposed) {
+            return;
+        }
+        Sample sample = new Sample(value, System.nanoTime());
+        if (queue != null) {
+            while (!queue.offer(sample)) {
+                if (queue.poll() != null) {
+                    dropped.increment();
+                }
+            }
+        } else if (latest.getAndSet(sample) != null) {
+            dropped.increment();
+        }
+        schedule();
+    }
+
+    ValueListener getListener() {
+        return listener;
+    }
+
+    ValueListenerStats getStats() {
+        int pending = queue != null ? queue.size() : latest.get() != null ? 1 : 0;
+        return new ValueListenerStats(policy, delivered.sum(), dropped.sum(), pending, lagNanos);
+    }
+
+    void dispose() {
+        disposed = true;
+        if (queue != null) {
+            queue.clear();
+        }
+        latest.set(null);
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                scheduled.set(false);
+                logger.debug("Could not schedule value delivery: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Sample sample = poll();
+            if (sample == null) {
+                scheduled.set(false);
+                // a value might have arrived after the last poll, but before the flag was reset
+                if (!hasPending() || !scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            lagNanos = System.nanoTime() - sample.received;
+            try {
+                listener.changed(sample.value);
+            } catch (Exception ex) {
+                logger.error("Execution error of a characteristic listener", ex);
+            }
+            delivered.increment();
+        }
+    }
+
+    private Sample poll() {
+        if (disposed) {
+            return null;
+        }
+        return queue != null ? queue.poll() : latest.getAndSet(null);
+    }
+
+    private boolean hasPending() {
+        return !disposed && (queue != null ? !queue.isEmpty() : latest.get() != null);
+    }
+
+    private static final class Sample {
+        private final byte[] value;
+        private final long received;
+
+        private Sample(byte[] value, long received) {
+            this.value = value;
+            this.received = received;
+        }
+    }
+
+}
@@ -26,13 +26,19 @@ import org.sputnikdev.bluetooth.manager.AdapterDiscoveryListener;
 import org.sputnikdev.bluetooth.manager.BluetoothGovernor;
 import org.sputnikdev.bluetooth.manager.BluetoothManager;
 import org.sputnikdev.bluetooth.manager.DeviceDiscoveryListener;
+import org.sputnikdev.bluetooth.manager.DeviceGovernor;
 import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
 import org.sputnikdev.bluetooth.manager.DiscoveredDevice;
 import org.sputnikdev.bluetooth.manager.ManagerListener;
+import org.sputnikdev.bluetooth.manager.capture.CaptureLog;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObjectFactory;
 
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Bluetooth Manager instance builder.
@@ -53,6 +59,15 @@ public class BluetoothManagerBuilder {
     private boolean started = true;
     private boolean discovering;
     private boolean ignoreTransportInitErrors;
+    private String gattDatabaseDirectory;
+    private long nativeCallTimeout;
+    private final Map<String, Long> operationTimeouts = new HashMap<>();
+    private int circuitBreakerFailureThreshold = BluetoothManagerImpl.CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+    private long circuitBreakerOpenTimeout = BluetoothManagerImpl.CIRCUIT_BREAKER_OPEN_TIMEOUT;
+    private boolean nativeCallMetrics;
+    private String captureDirectory;
+    private long notificationLinger;
+    private int captureSegmentSize = CaptureLog.DEFAULT_SEGMENT_SIZE;
 
     /**
      * Sets how frequent the discovery process should update its state.
@@ -175,6 +190,99 @@ public class BluetoothManagerBuilder {
         return this;
     }
 
+    /**
+     * If the provided argument is not null, GATT databases (services and characteristics) of connected devices
+     * are stored in the given directory so that known devices can report their services
+     * (see {@link DeviceGovernor#getKnownServices()}) straight after reconnecting,
+     * before the transport finishes services discovery.
+     * @param gattDatabaseDirectory a directory to store GATT databases in
+     * @return the same builder instance
+     */
+    public BluetoothManagerBuilder withGattDatabaseDirectory(String gattDatabaseDirectory) {
+        this.gattDatabaseDirectory = gattDatabaseDirectory;
+        return this;
+    }
+
+    /**
+     * Sets a deadline for all native (transport) calls made by governors. A call that does not complete
+     * within the deadline is interrupted and reported as failed. Zero (default) means no deadline.
+     * The deadline applies to each interaction individually, a governor update as a whole is not limited.
+     * @param milliseconds a deadline for native calls
+     * @return the same builder instance
+     */
+    public BluetoothManagerBuilder withNativeCallTimeout(long milliseconds) {
+        nativeCallTimeout = milliseconds;
+        return this;
+    }
+
+    /**
+     * Sets a deadline for a particular native operation, e.g. "connect", "read", "write" or "isConnected".
+     * Overrides the default deadline set by {@link #withNativeCallTimeout(long)}.
+     * @param operation operation name
+     * @param milliseconds a deadline for the operation
+     * @return the same builder instance
+     */
+    public BluetoothManagerBuilder withNativeCallTimeout(String operation, long milliseconds) {
+        operationTimeouts.put(operation, milliseconds);
+        return this;
+    }
+
+    /**
+     * Configures circuit breakers that are maintained for each transport, each adapter and each governor.
+     * A breaker opens after the given number of consecutive failed native calls, then all calls fail fast
+     * and governors are not updated until the open timeout elapses, after that a single probe call is allowed
+     * to check whether the hardware has recovered. Only transport and adapter level faults (e.g. timed out calls)
+     * count towards transport and adapter breakers, other errors count only towards the governor breaker.
+     * Circuit breakers are disabled by default, zero failure threshold disables circuit breakers.
+     * @param failureThreshold number of consecutive failures that opens a breaker
+     * @param openTimeout how long (milliseconds) a breaker stays open before probing
+     * @return the same builder instance
+     */
+    public BluetoothManagerBuilder withCircuitBreaker(int failureThreshold, long openTimeout) {
+        circuitBreakerFailureThreshold = failureThreshold;
+        circuitBreakerOpenTimeout = openTimeout;
+        return this;
+    }
+
+    /**
+     * If set to true, all registered transports are instrumented so that number of calls, errors and latency
+     * histograms are recorded for each native method. Statistics can be queried at runtime with
+     * {@link BluetoothManager#getNativeCallMetrics()}.
+     * @param nativeCallMetrics if true, native calls statistics is collected
+     * @return the same builder instance
+     */
+    public BluetoothManagerBuilder withNativeCallMetrics(boolean nativeCallMetrics) {
+        this.nativeCallMetrics = nativeCallMetrics;
+        return this;
+    }
+
+    /**
+     * Sets how long (milliseconds) characteristic notifications stay enabled after the last value listener
+     * is removed. If a new listener is added within this period, notifications are reused without any radio traffic
+     * (CCCD writes). Zero (default) means notifications are disabled on the next governor update.
+     * @param milliseconds notification linger period
+     * @return the same builder instance
+     */
+    public BluetoothManagerBuilder withNotificationLinger(long milliseconds) {
+        notificationLinger = milliseconds;
+        return this;
+    }
+
+    /**
+     * Enables capturing of characteristic value notifications and advertisement data (manufacturer and service data)
+     * of all governors into memory-mapped segment files in the given directory,
+     * see {@link org.sputnikdev.bluetooth.manager.capture.CaptureLog}.
+     * Captured records can be read with {@link org.sputnikdev.bluetooth.manager.capture.CaptureLogReader}.
+     * @param captureDirectory a directory to store segment files in
+     * @param segmentSize size of segment files in bytes
+     * @return the same builder instance
+     */
+    public BluetoothManagerBuilder withCapture(String captureDirectory, int segmentSize) {
+        this.captureDirectory = captureDirectory;
+        captureSegmentSize = segmentSize;
+        return this;
+    }
+
     /**
      * Builds a new instance of the Bluetooth Manager.
      * @return a new instance of the Bluetooth Manager
@@ -186,6 +294,21 @@ public class BluetoothManagerBuilder {
         manager.setRefreshRate(refreshRate);
         manager.enableCombinedAdapters(combinedAdapters);
         manager.enableCombinedDevices(combinedDevices);
+        if (gattDatabaseDirectory != null) {
+            manager.setGattDatabaseStore(new GattDatabaseStore(Paths.get(gattDatabaseDirectory)));
+        }
+        manager.setNativeCallTimeout(nativeCallTimeout);
+        operationTimeouts.forEach(manager::setNativeCallTimeout);
+        manager.setCircuitBreaker(circuitBreakerFailureThreshold, circuitBreakerOpenTimeout);
+        manager.enableNativeCallMetrics(nativeCallMetrics);
+        manager.setNotificationLinger(notificationLinger);
+        if (captureDirectory != null) {
+            try {
+                manager.setCaptureLog(new CaptureLog(Paths.get(captureDirectory), captureSegmentSize));
+            } catch (IOException ex) {
+                throw new IllegalStateException("Could not open capture log: " + captureDirectory, ex);
+            }
+        }
         if (tinybTransport) {
             loadTinyBTransport(manager);
         }
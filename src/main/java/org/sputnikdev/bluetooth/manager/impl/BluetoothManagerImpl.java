@@ -29,14 +29,18 @@ import org.sputnikdev.bluetooth.manager.AdapterGovernor;
 import org.sputnikdev.bluetooth.manager.BluetoothGovernor;
 import org.sputnikdev.bluetooth.manager.BluetoothManager;
 import org.sputnikdev.bluetooth.manager.CharacteristicGovernor;
+import org.sputnikdev.bluetooth.manager.CircuitBreakerState;
 import org.sputnikdev.bluetooth.manager.CombinedGovernor;
 import org.sputnikdev.bluetooth.manager.DeviceDiscoveryListener;
 import org.sputnikdev.bluetooth.manager.DeviceGovernor;
 import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
 import org.sputnikdev.bluetooth.manager.DiscoveredDevice;
 import org.sputnikdev.bluetooth.manager.ManagerListener;
+import org.sputnikdev.bluetooth.manager.capture.CaptureLog;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObject;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObjectFactory;
+import org.sputnikdev.bluetooth.manager.transport.metrics.InstrumentedBluetoothObjectFactory;
+import org.sputnikdev.bluetooth.manager.transport.metrics.NativeCallMetrics;
 
 import java.util.Collections;
 import java.util.Comparator;
@@ -46,12 +50,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -67,6 +76,11 @@ class BluetoothManagerImpl implements BluetoothManager {
     static final int REFRESH_RATE_SEC = 5;
     static final int DISCOVERY_RATE_SEC = 10;
     static final long DISCOVERY_STALE_DEVICE_REMOVAL_TIMEOUT = 1000 * 60 * 10;
+    // circuit breakers are disabled by default
+    static final int CIRCUIT_BREAKER_FAILURE_THRESHOLD = 0;
+    static final long CIRCUIT_BREAKER_OPEN_TIMEOUT = 0;
+    static final int NATIVE_CALL_THREADS = 8;
+    static final int NATIVE_CALL_QUEUE_SIZE = 256;
 
     private Logger logger = LoggerFactory.getLogger(BluetoothManagerImpl.class);
     private static final Comparator<Map.Entry<URL, BluetoothObjectGovernor>> GOVERNORS_DESCENDING_COMPARATOR =
@@ -77,6 +91,10 @@ class BluetoothManagerImpl implements BluetoothManager {
     private final Map<String, BluetoothObjectFactory> factories = new ConcurrentHashMap<>();
 
     private final ExecutorService notificationService = Executors.newCachedThreadPool();
+    // native calls are executed by this service only when a deadline is configured for them
+    private final ExecutorService nativeCallService = newNativeCallService();
+    // drains per-device GATT operation queues
+    private final ExecutorService gattOperationService = Executors.newCachedThreadPool();
 
     private final ScheduledExecutorService discoveryScheduler = Executors.newScheduledThreadPool(6);
     private final ScheduledExecutorService governorScheduler = Executors.newScheduledThreadPool(5);
@@ -86,7 +104,10 @@ class BluetoothManagerImpl implements BluetoothManager {
 
     private final Set<DeviceDiscoveryListener> deviceDiscoveryListeners = new CopyOnWriteArraySet<>();
     private final Set<AdapterDiscoveryListener> adapterDiscoveryListeners = new CopyOnWriteArraySet<>();
+    private final Set<AdapterMembershipListener> adapterMembershipListeners = new CopyOnWriteArraySet<>();
     private final Set<ManagerListener> managerListeners = new CopyOnWriteArraySet<>();
+    // ready listeners of combined governors, keyed by combined URLs (no protocol, combined adapter address)
+    private final Map<URL, Set<ManagerListener>> readyListeners = new ConcurrentHashMap<>();
 
     private final Map<URL, BluetoothObjectGovernor> governors = new ConcurrentHashMap<>();
     private final Map<URL, DeviceDiscoveryHolder> discoveredDevices = new ConcurrentHashMap<>();
@@ -99,6 +120,18 @@ class BluetoothManagerImpl implements BluetoothManager {
     private boolean started;
     private boolean combinedAdapters;
     private boolean combinedDevices = true;
+    private GattDatabaseStore gattDatabaseStore;
+    private CaptureLog captureLog;
+    private long nativeCallTimeout;
+    private long notificationLinger;
+    private final Map<String, Long> operationTimeouts = new ConcurrentHashMap<>();
+    private int circuitBreakerFailureThreshold = CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+    private long circuitBreakerOpenTimeout = CIRCUIT_BREAKER_OPEN_TIMEOUT;
+    private final Map<String, CircuitBreaker> transportCircuitBreakers = new ConcurrentHashMap<>();
+    private final Map<URL, CircuitBreaker> adapterCircuitBreakers = new ConcurrentHashMap<>();
+    private final Map<URL, AdapterLoad> adapterLoads = new ConcurrentHashMap<>();
+    private final Map<URL, AdapterHealth> adapterHealth = new ConcurrentHashMap<>();
+    private NativeCallMetrics nativeCallMetrics;
 
     @Override
     public void start(boolean startDiscovering) {
@@ -120,12 +153,14 @@ class BluetoothManagerImpl implements BluetoothManager {
     @Override
     public void registerFactory(BluetoothObjectFactory transport) {
         logger.debug("Register {} transport", transport.getProtocolName());
+        BluetoothObjectFactory factory = nativeCallMetrics != null
+                ? new InstrumentedBluetoothObjectFactory(transport, nativeCallMetrics) : transport;
         synchronized (factories) {
-            factories.computeIfAbsent(transport.getProtocolName(), protocolName -> {
+            factories.computeIfAbsent(factory.getProtocolName(), protocolName -> {
                 if (started) {
-                    scheduleDiscovery(transport);
+                    scheduleDiscovery(factory);
                 }
-                return transport;
+                return factory;
             });
         }
     }
@@ -173,6 +208,24 @@ class BluetoothManagerImpl implements BluetoothManager {
         adapterDiscoveryListeners.remove(adapterDiscoveryListener);
     }
 
+    /**
+     * Registers a listener of changes in the set of discovered adapters (see {@link AdapterMembershipListener}).
+     * The listener is not notified about adapters that have been discovered before it was registered,
+     * use {@link #getDiscoveredAdapters()} to get them.
+     * @param listener adapter membership listener
+     */
+    void addAdapterMembershipListener(AdapterMembershipListener listener) {
+        adapterMembershipListeners.add(listener);
+    }
+
+    /**
+     * Unregisters an adapter membership listener.
+     * @param listener adapter membership listener
+     */
+    void removeAdapterMembershipListener(AdapterMembershipListener listener) {
+        adapterMembershipListeners.remove(listener);
+    }
+
     @Override
     public BluetoothGovernor getGovernor(URL url) {
         logger.trace("Governor requested: {}", url);
@@ -249,10 +302,13 @@ class BluetoothManagerImpl implements BluetoothManager {
         shutdownAndWait(notificationService);
         shutdownAndWait(discoveryScheduler);
         shutdownAndWait(governorScheduler);
+        nativeCallService.shutdownNow();
+        shutdownAndWait(gattOperationService);
         cancelAllFutures(true);
 
         deviceDiscoveryListeners.clear();
         adapterDiscoveryListeners.clear();
+        adapterMembershipListeners.clear();
 
         governors.entrySet().stream().sorted(GOVERNORS_DESCENDING_COMPARATOR)
                 .map(Map.Entry::getValue).forEach(this::dispose);
@@ -262,6 +318,11 @@ class BluetoothManagerImpl implements BluetoothManager {
                 "Error occurred when notifying that manager is destroyed");
         factories.clear();
         managerListeners.clear();
+        readyListeners.clear();
+
+        if (captureLog != null) {
+            captureLog.close();
+        }
 
         logger.debug("Bluetooth manager has been disposed: {}", Integer.toHexString(hashCode()));
     }
@@ -318,6 +379,11 @@ class BluetoothManagerImpl implements BluetoothManager {
         return refreshRate;
     }
 
+    @Override
+    public NativeCallMetrics getNativeCallMetrics() {
+        return nativeCallMetrics;
+    }
+
     protected void disposeGovernor(URL url) {
         logger.debug("Explicitly disposing governor: {}", url);
         synchronized (governors) {
@@ -342,6 +408,12 @@ class BluetoothManagerImpl implements BluetoothManager {
         }
     }
 
+    protected void scheduleForceUpdate(BluetoothObjectGovernor governor, long delay) {
+        if (!governorScheduler.isShutdown()) {
+            governorScheduler.schedule(() -> update(governor, true), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
     protected void notify(Runnable runnable) {
         if (!notificationService.isShutdown()) {
             notificationService.submit(runnable);
@@ -393,11 +465,184 @@ class BluetoothManagerImpl implements BluetoothManager {
         combinedDevices = combineDevices;
     }
 
+    void setGattDatabaseStore(GattDatabaseStore gattDatabaseStore) {
+        this.gattDatabaseStore = gattDatabaseStore;
+    }
+
+    GattDatabaseStore getGattDatabaseStore() {
+        return gattDatabaseStore;
+    }
+
+    void setCaptureLog(CaptureLog captureLog) {
+        this.captureLog = captureLog;
+    }
+
+    CaptureLog getCaptureLog() {
+        return captureLog;
+    }
+
+    void setNotificationLinger(long linger) {
+        notificationLinger = linger;
+    }
+
+    /**
+     * Returns how long (milliseconds) characteristic notifications stay enabled after the last value listener
+     * is removed.
+     * @return notification linger period in milliseconds
+     */
+    long getNotificationLinger() {
+        return notificationLinger;
+    }
+
+    void setNativeCallTimeout(long timeout) {
+        nativeCallTimeout = timeout;
+    }
+
+    void setNativeCallTimeout(String operation, long timeout) {
+        operationTimeouts.put(operation, timeout);
+    }
+
+    /**
+     * Returns a deadline for a native call.
+     * @param operation operation name
+     * @return deadline in milliseconds, zero or negative value if the call is not limited
+     */
+    long getNativeCallTimeout(String operation) {
+        return operationTimeouts.getOrDefault(operation, nativeCallTimeout);
+    }
+
+    /**
+     * Submits a native call that is limited by a deadline.
+     * @param call native call
+     * @param <R> type of the result
+     * @return future of the native call
+     * @throws java.util.concurrent.RejectedExecutionException if too many native calls are pending
+     */
+    <R> Future<R> submitNativeCall(Callable<R> call) {
+        return nativeCallService.submit(call);
+    }
+
+    Executor getNotificationExecutor() {
+        return notificationService;
+    }
+
+    Executor getGattOperationExecutor() {
+        return gattOperationService;
+    }
+
+    /**
+     * Returns a GATT operation queue of the device that the given URL belongs to.
+     * @param url device or characteristic URL
+     * @return GATT operation queue
+     */
+    GattOperationQueue getGattOperationQueue(URL url) {
+        return ((DeviceGovernorImpl) getDeviceGovernor(url)).getGattOperationQueue();
+    }
+
+    void enableNativeCallMetrics(boolean enabled) {
+        nativeCallMetrics = enabled ? new NativeCallMetrics() : null;
+    }
+
+    void setCircuitBreaker(int failureThreshold, long openTimeout) {
+        circuitBreakerFailureThreshold = failureThreshold;
+        circuitBreakerOpenTimeout = openTimeout;
+        transportCircuitBreakers.clear();
+        adapterCircuitBreakers.clear();
+    }
+
+    /**
+     * Creates a new circuit breaker that is not shared (e.g. a breaker of a single governor).
+     * @param name breaker name
+     * @return a new circuit breaker or null if circuit breakers are disabled
+     */
+    CircuitBreaker createCircuitBreaker(String name) {
+        if (circuitBreakerFailureThreshold <= 0) {
+            return null;
+        }
+        return new CircuitBreaker(name, circuitBreakerFailureThreshold, circuitBreakerOpenTimeout);
+    }
+
+    /**
+     * Returns a circuit breaker for the given transport.
+     * @param protocol transport protocol name
+     * @return a circuit breaker or null if circuit breakers are disabled
+     */
+    CircuitBreaker getTransportCircuitBreaker(String protocol) {
+        if (circuitBreakerFailureThreshold <= 0) {
+            return null;
+        }
+        return transportCircuitBreakers.computeIfAbsent(protocol, key -> new CircuitBreaker(key,
+                circuitBreakerFailureThreshold, circuitBreakerOpenTimeout));
+    }
+
+    /**
+     * Returns a circuit breaker for the given adapter.
+     * @param adapterURL adapter URL
+     * @return a circuit breaker or null if circuit breakers are disabled
+     */
+    CircuitBreaker getAdapterCircuitBreaker(URL adapterURL) {
+        if (circuitBreakerFailureThreshold <= 0) {
+            return null;
+        }
+        return adapterCircuitBreakers.computeIfAbsent(adapterURL.copyWithProtocol(null), key ->
+                new CircuitBreaker(key.toString(), circuitBreakerFailureThreshold, circuitBreakerOpenTimeout));
+    }
+
+    /**
+     * Returns connection load of the given adapter.
+     * @param url adapter URL (or any URL of an object that belongs to the adapter)
+     * @return connection load of the adapter
+     */
+    AdapterLoad getAdapterLoad(URL url) {
+        return adapterLoads.computeIfAbsent(url.getAdapterURL().copyWithProtocol(null), key -> new AdapterLoad());
+    }
+
+    /**
+     * Returns health of the given adapter.
+     * @param url adapter URL (or any URL of an object that belongs to the adapter)
+     * @return health of the adapter
+     */
+    AdapterHealth getAdapterHealth(URL url) {
+        return adapterHealth.computeIfAbsent(url.getAdapterURL().copyWithProtocol(null), key -> new AdapterHealth());
+    }
+
+    /**
+     * Registers a listener that gets notified only when a governor of the given combined URL becomes ready
+     * (or otherwise). Unlike manager listeners, ready listeners are not notified about all governors
+     * in the system, but only about those which URLs match the given combined URL (regardless of
+     * their protocol and adapter).
+     * @param combinedURL combined URL (without protocol and with {@link CombinedGovernor#COMBINED_ADDRESS} adapter)
+     * @param listener ready listener
+     */
+    void addReadyListener(URL combinedURL, ManagerListener listener) {
+        readyListeners.computeIfAbsent(combinedURL, key -> new CopyOnWriteArraySet<>()).add(listener);
+    }
+
+    /**
+     * Unregisters a ready listener.
+     * @param combinedURL combined URL
+     * @param listener ready listener
+     */
+    void removeReadyListener(URL combinedURL, ManagerListener listener) {
+        readyListeners.computeIfPresent(combinedURL, (key, listeners) -> {
+            listeners.remove(listener);
+            return listeners.isEmpty() ? null : listeners;
+        });
+    }
+
     protected void notifyGovernorReady(BluetoothGovernor governor, boolean ready) {
         logger.debug("Notifying manager listeners (governor ready): {} : {}",
                 managerListeners.size(), ready);
         BluetoothManagerUtils.forEachSilently(managerListeners, listener -> listener.ready(governor, ready), logger,
                 "Error in manager listener: ready");
+        if (!readyListeners.isEmpty()) {
+            Set<ManagerListener> listeners = readyListeners.get(
+                    governor.getURL().copyWithProtocol(null).copyWithAdapter(CombinedGovernor.COMBINED_ADDRESS));
+            if (listeners != null) {
+                BluetoothManagerUtils.forEachSilently(listeners, listener -> listener.ready(governor, ready), logger,
+                        "Error in ready listener");
+            }
+        }
     }
 
     List<BluetoothGovernor> getGovernors(List<? extends BluetoothObject> objects) {
@@ -486,6 +731,16 @@ class BluetoothManagerImpl implements BluetoothManager {
         }
     }
 
+    private static ExecutorService newNativeCallService() {
+        // bounded, so that hanging native calls (which ignore interruption) cannot exhaust system resources,
+        // calls are rejected when the queue is full, governors fail them without counting a hardware fault
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(NATIVE_CALL_THREADS, NATIVE_CALL_THREADS,
+                60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(NATIVE_CALL_QUEUE_SIZE),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private static void shutdownAndWait(ExecutorService executorService) {
         executorService.shutdown();
         try {
@@ -604,6 +859,18 @@ class BluetoothManagerImpl implements BluetoothManager {
             }, logger, "Error in adapter discovery listener");
     }
 
+    private void notifyAdapterMembershipChanged(Set<DiscoveredAdapter> added, Set<DiscoveredAdapter> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        logger.debug("Adapters membership changed. Added: {}; removed: {}", added.size(), removed.size());
+        Set<DiscoveredAdapter> unmodifiableAdded = Collections.unmodifiableSet(added);
+        Set<DiscoveredAdapter> unmodifiableRemoved = Collections.unmodifiableSet(removed);
+        BluetoothManagerUtils.forEachSilently(adapterMembershipListeners,
+            listener -> listener.membershipChanged(unmodifiableAdded, unmodifiableRemoved),
+            logger, "Error in adapter membership listener");
+    }
+
     private void notifyDeviceLost(DiscoveredDevice device) {
         logger.debug("Device has been lost: " + device.getURL());
         BluetoothManagerUtils.forEachSilently(deviceDiscoveryListeners, DeviceDiscoveryListener::deviceLost, device,
@@ -642,7 +909,8 @@ class BluetoothManagerImpl implements BluetoothManager {
     private void update(BluetoothObjectGovernor governor, boolean forceUpdate) {
         try {
             logger.trace("Updating governor: {}", governor.getURL());
-            if (forceUpdate || governor.isUpdatable()) {
+            if (forceUpdate || governor.isUpdatable()
+                    && governor.getCircuitBreakerState() != CircuitBreakerState.OPEN) {
                 governor.update();
             }
         } catch (Exception ex) {
@@ -831,11 +1099,14 @@ class BluetoothManagerImpl implements BluetoothManager {
                     .filter(device -> factory.getProtocolName().equals(device.getURL().getProtocol()))
                     .collect(Collectors.toSet());
 
-            Set<DiscoveredAdapter> lostAdapters = Sets.difference(factoryAdapters, discovered);
+            Set<DiscoveredAdapter> lostAdapters = Sets.newHashSet(Sets.difference(factoryAdapters, discovered));
             lostAdapters.forEach(lost -> handleAdapterLost(lost.getURL()));
+            Set<DiscoveredAdapter> newAdapters = Sets.newHashSet(Sets.difference(discovered, factoryAdapters));
 
             discoveredAdapters.removeAll(lostAdapters);
             discoveredAdapters.addAll(discovered);
+
+            notifyAdapterMembershipChanged(newAdapters, lostAdapters);
         }
     }
 
@@ -25,17 +25,34 @@ import org.slf4j.LoggerFactory;
 import org.sputnikdev.bluetooth.URL;
 import org.sputnikdev.bluetooth.manager.BluetoothObjectType;
 import org.sputnikdev.bluetooth.manager.BluetoothObjectVisitor;
+import org.sputnikdev.bluetooth.manager.ByteBufferValueListener;
 import org.sputnikdev.bluetooth.manager.CharacteristicGovernor;
+import org.sputnikdev.bluetooth.manager.GovernorTransition;
 import org.sputnikdev.bluetooth.manager.NotReadyException;
+import org.sputnikdev.bluetooth.manager.ValueDispatchPolicy;
 import org.sputnikdev.bluetooth.manager.ValueListener;
+import org.sputnikdev.bluetooth.manager.ValueListenerStats;
+import org.sputnikdev.bluetooth.manager.WriteProgress;
+import org.sputnikdev.bluetooth.manager.capture.CaptureLog;
+import org.sputnikdev.bluetooth.manager.capture.CaptureRecordType;
 import org.sputnikdev.bluetooth.manager.transport.Characteristic;
 import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
 import org.sputnikdev.bluetooth.manager.transport.Notification;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.time.Instant;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  *
@@ -44,15 +61,36 @@ import java.util.concurrent.CopyOnWriteArrayList;
 class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Characteristic>
     implements CharacteristicGovernor {
 
+    // maximum length of an attribute value defined by the Bluetooth specification
+    private static final int MAX_VALUE_LENGTH = 512;
+    private static final ValueListener[] NO_VALUE_LISTENERS = new ValueListener[0];
+    private static final ByteBufferValueListener[] NO_BUFFER_LISTENERS = new ByteBufferValueListener[0];
+
     private Logger logger = LoggerFactory.getLogger(CharacteristicGovernorImpl.class);
 
     private boolean authenticated;
 
-    private List<ValueListener> valueListeners = new CopyOnWriteArrayList<>();
+    // listeners are kept in arrays rather than collections, so that iterating does not allocate iterators
+    private volatile ValueListener[] valueListeners = NO_VALUE_LISTENERS;
+    // asynchronous listeners are registered in the list of value listeners through their dispatchers
+    private final Map<ValueListener, AsyncValueDispatcher> dispatchers = new ConcurrentHashMap<>();
+    private volatile ByteBufferValueListener[] bufferListeners = NO_BUFFER_LISTENERS;
+    private final Object listenersLock = new Object();
+    private final Object bufferLock = new Object();
+    private ByteBuffer notificationBuffer;
+    private ByteBuffer notificationView;
     private ValueNotification valueNotification;
+    // GATT flags do not change while the device is connected, hence they are cached until reset
+    private volatile Set<CharacteristicAccessType> flags;
     private boolean canNotify;
     private boolean notifying;
-    private Instant lastNotified;
+    // epoch milliseconds, recorded as a primitive so that notifications do not allocate timestamps
+    private volatile long lastNotified;
+    // time (ms) when the last value listener was removed, notifications linger for a while after that
+    private volatile long unsubscribed;
+    private final LongAdder notificationsEnabled = new LongAdder();
+    private final LongAdder notificationsDisabled = new LongAdder();
+    private final CharacteristicReadCache readCache = new CharacteristicReadCache();
 
     CharacteristicGovernorImpl(BluetoothManagerImpl bluetoothManager, URL url) {
         super(bluetoothManager, url);
@@ -61,7 +99,9 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
     @Override
     void init(Characteristic characteristic) {
         logger.debug("Initializing characteristic governor: {}", url);
-        canNotify = canNotify(characteristic);
+        Set<CharacteristicAccessType> characteristicFlags = characteristic.getFlags();
+        flags = characteristicFlags != null ? Collections.unmodifiableSet(characteristicFlags) : null;
+        canNotify = canNotify(characteristicFlags);
         if (canNotify) {
             notifying = characteristic.isNotifying();
         }
@@ -71,14 +111,18 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
     @Override
     void update(Characteristic characteristic) {
         logger.trace("Updating characteristic governor: {}", url);
+        boolean wasAuthenticated = authenticated;
         authenticated = bluetoothManager.getDeviceGovernor(url.getDeviceURL()).isAuthenticated();
+        if (authenticated && !wasAuthenticated) {
+            notifyTransition(GovernorTransition.AUTHENTICATED);
+        }
 
         if (canNotify) {
             logger.trace("Updating characteristic governor notifications state: {} : {} / {} / {}",
-                    url, valueListeners.isEmpty(), notifying, valueNotification == null);
-            if (!valueListeners.isEmpty() && (!notifying || valueNotification == null)) {
+                    url, !hasValueListeners(), notifying, valueNotification == null);
+            if (hasValueListeners() && (!notifying || valueNotification == null)) {
                 enableNotification(characteristic);
-            } else if (valueListeners.isEmpty() && notifying) {
+            } else if (!hasValueListeners() && notifying && isLingerElapsed()) {
                 disableNotification(characteristic);
             }
         }
@@ -88,9 +132,12 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
     void reset(Characteristic characteristic) {
         logger.debug("Resetting characteristic governor: {}", url);
         valueNotification = null;
+        flags = null;
+        readCache.invalidate();
         try {
             if (canNotify && characteristic.isNotifying()) {
                 characteristic.disableValueNotifications();
+                notificationsDisabled.increment();
             }
         } catch (Exception ex) {
             logger.debug("Error occurred while resetting characteristic: {} : {} ", url, ex.getMessage());
@@ -102,7 +149,10 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
     public void dispose() {
         super.dispose();
         logger.debug("Disposing characteristic governor: {}", url);
-        valueListeners.clear();
+        valueListeners = NO_VALUE_LISTENERS;
+        dispatchers.values().forEach(AsyncValueDispatcher::dispose);
+        dispatchers.clear();
+        bufferListeners = NO_BUFFER_LISTENERS;
         logger.trace("Characteristic governor disposed: {}", url);
     }
 
@@ -113,17 +163,72 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
 
     @Override
     public void addValueListener(ValueListener valueListener) {
-        valueListeners.add(valueListener);
-        bluetoothManager.scheduleForceUpdate(this);
+        synchronized (listenersLock) {
+            valueListeners = add(valueListeners, valueListener);
+        }
+        subscribed();
+    }
+
+    @Override
+    public void addValueListener(ValueListener valueListener, ValueDispatchPolicy policy, int capacity) {
+        if (policy == ValueDispatchPolicy.SYNCHRONOUS) {
+            addValueListener(valueListener);
+            return;
+        }
+        AsyncValueDispatcher dispatcher = new AsyncValueDispatcher(valueListener, policy, capacity,
+                bluetoothManager.getNotificationExecutor());
+        removeDispatcher(valueListener);
+        dispatchers.put(valueListener, dispatcher);
+        addValueListener(dispatcher);
     }
 
     @Override
     public void removeValueListener(ValueListener valueListener) {
-        valueListeners.remove(valueListener);
+        synchronized (listenersLock) {
+            valueListeners = remove(valueListeners, valueListener);
+        }
+        removeDispatcher(valueListener);
+        unsubscribed();
+    }
+
+    @Override
+    public long getNotificationEnableCount() {
+        return notificationsEnabled.sum();
+    }
+
+    @Override
+    public long getNotificationDisableCount() {
+        return notificationsDisabled.sum();
+    }
+
+    @Override
+    public void addBufferListener(ByteBufferValueListener valueListener) {
+        synchronized (listenersLock) {
+            bufferListeners = add(bufferListeners, valueListener);
+        }
+        subscribed();
+    }
+
+    @Override
+    public void removeBufferListener(ByteBufferValueListener valueListener) {
+        synchronized (listenersLock) {
+            bufferListeners = remove(bufferListeners, valueListener);
+        }
+        unsubscribed();
+    }
+
+    @Override
+    public ValueListenerStats getValueListenerStats(ValueListener valueListener) {
+        AsyncValueDispatcher dispatcher = dispatchers.get(valueListener);
+        return dispatcher != null ? dispatcher.getStats() : null;
     }
 
     @Override
     public Set<CharacteristicAccessType> getFlags() throws NotReadyException {
+        Set<CharacteristicAccessType> cached = flags;
+        if (cached != null && isReady()) {
+            return cached;
+        }
         return interact("getFlags", Characteristic::getFlags);
     }
 
@@ -152,10 +257,58 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
 
     @Override
     public byte[] read() throws NotReadyException {
+        byte[] cached = readCache.get();
+        if (cached != null) {
+            return cached;
+        }
         if (!isReadable()) {
             throw new IllegalStateException("Characteristic is not readable: {}" + url);
         }
-        return interact("read", Characteristic::readValue, true);
+        return bluetoothManager.getGattOperationQueue(url).execute(
+            () -> readCache.load(() -> interact("read", Characteristic::readValue, true)));
+    }
+
+    @Override
+    public int read(ByteBuffer destination) throws NotReadyException {
+        int cached = readCache.get(destination);
+        if (cached >= 0) {
+            return cached;
+        }
+        if (!isReadable()) {
+            throw new IllegalStateException("Characteristic is not readable: {}" + url);
+        }
+        return bluetoothManager.getGattOperationQueue(url).execute(
+            () -> readCache.load(() -> interact("read", Characteristic::readValue, true), destination));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> readAsync() {
+        // joining a read in flight without blocking the caller
+        CompletableFuture<byte[]> cached = readCache.getAsync();
+        if (cached != null) {
+            return cached;
+        }
+        return bluetoothManager.getGattOperationQueue(url).submit("read", this::read);
+    }
+
+    @Override
+    public void setReadCacheTTL(long ttl) {
+        readCache.setTTL(ttl);
+    }
+
+    @Override
+    public long getReadCacheTTL() {
+        return readCache.getTTL();
+    }
+
+    @Override
+    public long getReadCacheHits() {
+        return readCache.getHits();
+    }
+
+    @Override
+    public long getReadCacheMisses() {
+        return readCache.getMisses();
     }
 
     @Override
@@ -163,7 +316,78 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
         if (!isWritable()) {
             throw new IllegalStateException("Characteristic is not writable: {}" + url);
         }
-        return interact("write", characteristic -> characteristic.writeValue(data), true);
+        return bluetoothManager.getGattOperationQueue(url).execute(() -> {
+            try {
+                return interact("write", characteristic -> characteristic.writeValue(data), true);
+            } finally {
+                // the device may transform or reject the value, hence the cached value is simply dropped
+                readCache.invalidate();
+            }
+        });
+    }
+
+    /**
+     * Writes the value, the native call is limited by the given deadline.
+     * The caller is expected to hold the device GATT operation queue (e.g. a GATT transaction).
+     * @param data a new value
+     * @param timeout deadline in milliseconds, zero or negative value if the call is not limited
+     * @return true if the value has been written
+     */
+    boolean write(byte[] data, long timeout) {
+        if (!isWritable()) {
+            throw new IllegalStateException("Characteristic is not writable: {}" + url);
+        }
+        try {
+            return interact("write", characteristic -> characteristic.writeValue(data), true, timeout);
+        } finally {
+            readCache.invalidate();
+        }
+    }
+
+    /**
+     * Reads the value from the device bypassing the read cache. The native call is limited by the given deadline.
+     * The caller is expected to hold the device GATT operation queue (e.g. a GATT transaction).
+     * @param timeout deadline in milliseconds, zero or negative value if the call is not limited
+     * @return characteristic value
+     */
+    byte[] readUncached(long timeout) {
+        if (!isReadable()) {
+            throw new IllegalStateException("Characteristic is not readable: {}" + url);
+        }
+        return interact("read", Characteristic::readValue, true, timeout);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> writeAsync(byte[] data) {
+        return bluetoothManager.getGattOperationQueue(url).submit("write", () -> write(data));
+    }
+
+    @Override
+    public CompletableFuture<WriteProgress> writeStream(InputStream data, int window,
+                                                        Consumer<WriteProgress> progressListener) {
+        return writeStream(Channels.newChannel(data), -1, window, progressListener);
+    }
+
+    @Override
+    public CompletableFuture<WriteProgress> writeStream(ByteBuffer data, int window,
+                                                        Consumer<WriteProgress> progressListener) {
+        return writeStream(StreamingWriter.channel(data), data.remaining(), window, progressListener);
+    }
+
+    private CompletableFuture<WriteProgress> writeStream(ReadableByteChannel source, long totalBytes, int window,
+                                                         Consumer<WriteProgress> progressListener) {
+        StreamingWriter writer = new StreamingWriter(this, source, totalBytes, window,
+                bluetoothManager.getNativeCallTimeout("writeStream"), progressListener);
+        return bluetoothManager.getGattOperationQueue(url).submit("writeStream", () -> {
+            if (!isWritable()) {
+                throw new IllegalStateException("Characteristic is not writable: " + url);
+            }
+            try {
+                return writer.write();
+            } finally {
+                readCache.invalidate();
+            }
+        });
     }
 
     @Override
@@ -181,9 +405,16 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
         visitor.visit(this);
     }
 
+    @Override
+    public Instant getLastInteracted() {
+        // notifications are interactions too, their timestamp is converted only when requested
+        return BluetoothManagerUtils.max(super.getLastInteracted(), getLastNotified());
+    }
+
     @Override
     public Instant getLastNotified() {
-        return lastNotified;
+        long notified = lastNotified;
+        return notified > 0 ? Instant.ofEpochMilli(notified) : null;
     }
 
     @Override
@@ -193,11 +424,102 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
 
     @Override
     void notifyLastChanged() {
-        notifyLastChanged(BluetoothManagerUtils.max(getLastInteracted(), lastNotified));
+        notifyLastChanged(getLastInteracted());
+    }
+
+    private void subscribed() {
+        unsubscribed = 0;
+        // listeners share the same native subscription, an update is only needed to enable it
+        if (valueNotification == null) {
+            bluetoothManager.scheduleForceUpdate(this);
+        }
+    }
+
+    private void unsubscribed() {
+        if (!hasValueListeners() && unsubscribed == 0) {
+            unsubscribed = System.currentTimeMillis();
+            long linger = bluetoothManager.getNotificationLinger();
+            if (linger > 0) {
+                bluetoothManager.scheduleForceUpdate(this, linger);
+            }
+        }
     }
 
-    private void updateLastNotified() {
-        lastNotified = Instant.now();
+    private boolean isLingerElapsed() {
+        long linger = bluetoothManager.getNotificationLinger();
+        return linger <= 0 || unsubscribed == 0 || System.currentTimeMillis() - unsubscribed >= linger;
+    }
+
+    private boolean hasValueListeners() {
+        return valueListeners.length > 0 || bufferListeners.length > 0;
+    }
+
+    private void notifyValueListeners(byte[] data) {
+        for (ValueListener listener : valueListeners) {
+            try {
+                listener.changed(data);
+            } catch (Exception ex) {
+                logger.error("Execution error of a characteristic listener", ex);
+            }
+        }
+    }
+
+    private void notifyBufferListeners(byte[] data) {
+        ByteBufferValueListener[] listeners = bufferListeners;
+        if (listeners.length == 0) {
+            return;
+        }
+        synchronized (bufferLock) {
+            ByteBuffer view = getNotificationView(data);
+            for (ByteBufferValueListener listener : listeners) {
+                view.limit(data.length).position(0);
+                try {
+                    listener.changed(view);
+                } catch (Exception ex) {
+                    logger.error("Execution error of a characteristic listener", ex);
+                }
+            }
+        }
+    }
+
+    private ByteBuffer getNotificationView(byte[] data) {
+        if (data.length > MAX_VALUE_LENGTH) {
+            return ByteBuffer.wrap(data).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (notificationView == null) {
+            notificationBuffer = ByteBuffer.allocate(MAX_VALUE_LENGTH);
+            notificationView = notificationBuffer.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        }
+        notificationBuffer.clear();
+        notificationBuffer.put(data);
+        return notificationView;
+    }
+
+    private void removeDispatcher(ValueListener valueListener) {
+        AsyncValueDispatcher dispatcher = dispatchers.remove(valueListener);
+        if (dispatcher != null) {
+            synchronized (listenersLock) {
+                valueListeners = remove(valueListeners, dispatcher);
+            }
+            dispatcher.dispose();
+        }
+    }
+
+    private static <L> L[] add(L[] listeners, L listener) {
+        L[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        return updated;
+    }
+
+    private static <L> L[] remove(L[] listeners, L listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i].equals(listener)) {
+                L[] updated = Arrays.copyOf(listeners, listeners.length - 1);
+                System.arraycopy(listeners, i + 1, updated, i, listeners.length - i - 1);
+                return updated;
+            }
+        }
+        return listeners;
     }
 
     private void enableNotification(Characteristic characteristic) {
@@ -208,6 +530,8 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
             characteristic.enableValueNotifications(notification);
             valueNotification = notification;
             notifying = true;
+            notificationsEnabled.increment();
+            notifyTransition(GovernorTransition.NOTIFYING);
         }
     }
 
@@ -219,22 +543,30 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
         if (notification != null && canNotify) {
             characteristic.disableValueNotifications();
             notifying = false;
+            notificationsDisabled.increment();
         }
     }
 
-    private static boolean canNotify(Characteristic characteristic) {
-        Set<CharacteristicAccessType> flgs = characteristic.getFlags();
-        return flgs.contains(CharacteristicAccessType.NOTIFY) || flgs.contains(CharacteristicAccessType.INDICATE);
+    private static boolean canNotify(Set<CharacteristicAccessType> flgs) {
+        return flgs != null
+                && (flgs.contains(CharacteristicAccessType.NOTIFY) || flgs.contains(CharacteristicAccessType.INDICATE));
     }
 
     private class ValueNotification implements Notification<byte[]> {
         @Override
         public void notify(byte[] data) {
             logger.trace("Characteristic value changed (notification): {}", url);
-            updateLastInteracted();
-            updateLastNotified();
-            BluetoothManagerUtils.forEachSilently(valueListeners, ValueListener::changed, data, logger,
-                    "Execution error of a characteristic listener");
+            lastNotified = System.currentTimeMillis();
+            if (readCache.isEnabled()) {
+                // listeners receive the same array, a copy is cached so that they cannot corrupt cached value
+                readCache.put(data.clone());
+            }
+            CaptureLog captureLog = bluetoothManager.getCaptureLog();
+            if (captureLog != null) {
+                captureLog.append(CaptureRecordType.CHARACTERISTIC_VALUE, url, System.nanoTime(), data);
+            }
+            notifyValueListeners(data);
+            notifyBufferListeners(data);
         }
     }
 
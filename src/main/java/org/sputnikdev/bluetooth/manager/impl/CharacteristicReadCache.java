@@ -0,0 +1,282 @@
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.sputnikdev.bluetooth.manager.BluetoothInteractionException;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A time-to-live cache of a characteristic value. The cache is populated by both native reads and value
+ * notifications. Native reads are meant to be performed under the device GATT lock (see {@link GattOperationQueue}),
+ * so that there is at most one read in flight; concurrent readers join the in-flight read instead of issuing
+ * their own native calls.
+ *
+ * @author Vlad Kolotov
+ */
+class CharacteristicReadCache {
+
+    private final LongSupplier clock;
+    private volatile long ttl;
+    private volatile Entry entry;
+    private volatile CompletableFuture<byte[]> inFlight;
+    // incremented on each invalidation, so that a read that was in flight during invalidation is not cached
+    private long generation;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    CharacteristicReadCache() {
+        this(System::currentTimeMillis);
+    }
+
+    CharacteristicReadCache(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    long getTTL() {
+        return ttl;
+    }
+
+    /**
+     * Sets the time-to-live of cached values in milliseconds. Zero or negative value disables the cache.
+     * @param ttl time-to-live in milliseconds
+     */
+    void setTTL(long ttl) {
+        this.ttl = ttl;
+        if (ttl <= 0) {
+            invalidate();
+        }
+    }
+
+    boolean isEnabled() {
+        return ttl > 0;
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns a fresh cached value or the result of a read that is currently in flight.
+     * @return a copy of the cached value or null if there is no fresh value and no read in flight
+     */
+    byte[] get() {
+        if (!isEnabled()) {
+            return null;
+        }
+        byte[] value = getFresh();
+        if (value != null) {
+            return value;
+        }
+        CompletableFuture<byte[]> future = inFlight;
+        if (future != null) {
+            hits.increment();
+            return copy(join(future));
+        }
+        return null;
+    }
+
+    /**
+     * Puts a fresh cached value or the result of a read that is currently in flight into the given buffer
+     * without allocating a copy of the value.
+     * @param destination a buffer to put the value into
+     * @return number of bytes put or -1 if there is no fresh value and no read in flight
+     */
+    int get(ByteBuffer destination) {
+        if (!isEnabled()) {
+            return -1;
+        }
+        byte[] value;
+        Entry current = entry;
+        CompletableFuture<byte[]> future = inFlight;
+        if (isFresh(current)) {
+            value = current.value;
+        } else if (future != null) {
+            value = join(future);
+        } else {
+            return -1;
+        }
+        hits.increment();
+        return put(value, destination);
+    }
+
+    /**
+     * Returns a fresh cached value or the read that is currently in flight without waiting for it to complete.
+     * @return a future of a copy of the value or null if there is no fresh value and no read in flight
+     */
+    CompletableFuture<byte[]> getAsync() {
+        if (!isEnabled()) {
+            return null;
+        }
+        byte[] value = getFresh();
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+        CompletableFuture<byte[]> future = inFlight;
+        if (future != null) {
+            hits.increment();
+            return future.thenApply(CharacteristicReadCache::copy);
+        }
+        return null;
+    }
+
+    /**
+     * Reads the value with the given reader unless a fresh value is already cached. The result of the reader is
+     * shared with concurrent readers (see {@link #get()}) and cached. This method must not be called concurrently.
+     * @param reader native reader
+     * @return a copy of the value or null if the reader returned null
+     */
+    byte[] load(Supplier<byte[]> reader) {
+        if (!isEnabled()) {
+            return reader.get();
+        }
+        byte[] value = getFresh();
+        if (value != null) {
+            return value;
+        }
+        return copy(read(reader));
+    }
+
+    /**
+     * Same as {@link #load(Supplier)}, but puts the value into the given buffer without allocating a copy of it.
+     * @param reader native reader
+     * @param destination a buffer to put the value into
+     * @return number of bytes put
+     */
+    int load(Supplier<byte[]> reader, ByteBuffer destination) {
+        if (!isEnabled()) {
+            return put(reader.get(), destination);
+        }
+        Entry current = entry;
+        if (isFresh(current)) {
+            hits.increment();
+            return put(current.value, destination);
+        }
+        return put(read(reader), destination);
+    }
+
+    /**
+     * Puts a value into the cache, e.g. a value received from a notification. The value is stored by reference,
+     * so it must not be modified afterwards.
+     * @param value a new value
+     */
+    void put(byte[] value) {
+        if (isEnabled() && value != null) {
+            synchronized (this) {
+                entry = new Entry(value, clock.getAsLong());
+            }
+        }
+    }
+
+    private synchronized void put(byte[] value, long gen) {
+        if (value != null && gen == generation) {
+            entry = new Entry(value, clock.getAsLong());
+        }
+    }
+
+    private static int put(byte[] value, ByteBuffer destination) {
+        if (value == null) {
+            return 0;
+        }
+        destination.put(value);
+        return value.length;
+    }
+
+    synchronized void invalidate() {
+        generation++;
+        entry = null;
+    }
+
+    /**
+     * Reads the value and shares it with concurrent readers. The value is neither copied nor exposed
+     * to the caller, it is stored by reference as the reader returns a new array for each read.
+     * @param reader native reader
+     * @return the value
+     */
+    private byte[] read(Supplier<byte[]> reader) {
+        misses.increment();
+        long gen;
+        synchronized (this) {
+            gen = generation;
+        }
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        inFlight = future;
+        try {
+            byte[] value = reader.get();
+            put(value, gen);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight = null;
+        }
+    }
+
+    private byte[] getFresh() {
+        Entry current = entry;
+        if (isFresh(current)) {
+            hits.increment();
+            return current.value.clone();
+        }
+        return null;
+    }
+
+    private boolean isFresh(Entry current) {
+        return current != null && clock.getAsLong() - current.timestamp < ttl;
+    }
+
+    private static byte[] copy(byte[] value) {
+        return value != null ? value.clone() : null;
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new BluetoothInteractionException("Could not read characteristic", ex.getCause());
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] value;
+        private final long timestamp;
+
+        private Entry(byte[] value, long timestamp) {
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.sputnikdev.bluetooth.manager.CircuitBreakerState;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A circuit breaker for native (transport) calls. The breaker opens after a number of consecutive failures,
+ * then all calls fail fast until the open timeout elapses. After that a single probe call is let through
+ * (half-open state): if the probe succeeds, the breaker closes, otherwise it opens again.
+ *
+ * @author Vlad Kolotov
+ */
+class CircuitBreaker {
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openTimeout;
+    private final LongSupplier clock;
+
+    private CircuitBreakerState state = CircuitBreakerState.CLOSED;
+    private int failures;
+    private long openedAt;
+    private long probeStartedAt;
+    private boolean probing;
+
+    /**
+     * Creates a new circuit breaker.
+     * @param name a name of the breaker (used for logging)
+     * @param failureThreshold number of consecutive failures that opens the breaker
+     * @param openTimeout how long (milliseconds) the breaker stays open before a probe call is allowed
+     */
+    CircuitBreaker(String name, int failureThreshold, long openTimeout) {
+        this(name, failureThreshold, openTimeout, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(String name, int failureThreshold, long openTimeout, LongSupplier clock) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive: " + failureThreshold);
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openTimeout = openTimeout;
+        this.clock = clock;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the current state of the breaker. An open breaker whose open timeout has elapsed is reported as
+     * half-open, i.e. ready to let a probe call through.
+     * @return the current state of the breaker
+     */
+    synchronized CircuitBreakerState getState() {
+        if (state == CircuitBreakerState.OPEN && clock.getAsLong() - openedAt >= openTimeout) {
+            return CircuitBreakerState.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Checks whether a call is allowed. In the half-open state only one probe call is allowed at a time,
+     * a probe that has not reported its result within the open timeout is considered lost and another probe
+     * is allowed.
+     * @return true if the call is allowed
+     */
+    synchronized boolean allowRequest() {
+        long now = clock.getAsLong();
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now - openedAt < openTimeout) {
+                    return false;
+                }
+                state = CircuitBreakerState.HALF_OPEN;
+                return startProbe(now);
+            default:
+                if (probing && now - probeStartedAt < openTimeout) {
+                    return false;
+                }
+                return startProbe(now);
+        }
+    }
+
+    /**
+     * Checks whether a call would be allowed by {@link #allowRequest()} without starting a probe call.
+     * @return true if the call would be allowed
+     */
+    synchronized boolean isRequestAllowed() {
+        long now = clock.getAsLong();
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return now - openedAt >= openTimeout;
+            default:
+                return !probing || now - probeStartedAt >= openTimeout;
+        }
+    }
+
+    /**
+     * Releases a probe call started by {@link #allowRequest()} when the call is not going to be made,
+     * so that another probe can be allowed straight away.
+     */
+    synchronized void cancelRequest() {
+        probing = false;
+    }
+
+    synchronized void onSuccess() {
+        failures = 0;
+        probing = false;
+        state = CircuitBreakerState.CLOSED;
+    }
+
+    synchronized void onFailure() {
+        probing = false;
+        failures++;
+        if (state == CircuitBreakerState.HALF_OPEN || failures >= failureThreshold) {
+            state = CircuitBreakerState.OPEN;
+            openedAt = clock.getAsLong();
+        }
+    }
+
+    private boolean startProbe(long now) {
+        probing = true;
+        probeStartedAt = now;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "[Circuit breaker] " + name + " : " + getState();
+    }
+
+}
@@ -23,7 +23,6 @@ package org.sputnikdev.bluetooth.manager.impl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sputnikdev.bluetooth.URL;
-import org.sputnikdev.bluetooth.manager.AdapterDiscoveryListener;
 import org.sputnikdev.bluetooth.manager.AdapterGovernor;
 import org.sputnikdev.bluetooth.manager.AdapterListener;
 import org.sputnikdev.bluetooth.manager.BluetoothGovernor;
@@ -38,6 +37,7 @@ import org.sputnikdev.bluetooth.manager.NotReadyException;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -46,7 +46,7 @@ import java.util.function.Function;
 import java.util.function.Predicate;
 
 class CombinedAdapterGovernorImpl implements AdapterGovernor, CombinedGovernor,
-        BluetoothObjectGovernor, AdapterDiscoveryListener {
+        BluetoothObjectGovernor, AdapterMembershipListener {
 
     private Logger logger = LoggerFactory.getLogger(CombinedAdapterGovernorImpl.class);
 
@@ -112,6 +112,17 @@ class CombinedAdapterGovernorImpl implements AdapterGovernor, CombinedGovernor,
             adapterGovernorHandler -> adapterGovernorHandler.adapterGovernor.setPoweredControl(powered));
     }
 
+    /**
+     * Returns health score of the healthiest adapter, as the combined adapter is usable while any of its
+     * adapters is usable.
+     * @return health score of the healthiest adapter, or 0.0 if there are no adapters
+     */
+    @Override
+    public double getHealthScore() {
+        return governors.values().stream().mapToDouble(handler -> handler.adapterGovernor.getHealthScore())
+                .max().orElse(0.0);
+    }
+
     @Override
     public boolean isDiscovering() throws NotReadyException {
         return discovering.get();
@@ -153,7 +164,7 @@ class CombinedAdapterGovernorImpl implements AdapterGovernor, CombinedGovernor,
 
     @Override
     public void init() {
-        bluetoothManager.addAdapterDiscoveryListener(this);
+        bluetoothManager.addAdapterMembershipListener(this);
         bluetoothManager.getRegisteredGovernors().forEach(this::registerGovernor);
         bluetoothManager.getDiscoveredAdapters().stream().map(DiscoveredAdapter::getURL)
                 .forEach(this::registerGovernor);
@@ -174,7 +185,7 @@ class CombinedAdapterGovernorImpl implements AdapterGovernor, CombinedGovernor,
 
     @Override
     public void dispose() {
-        bluetoothManager.removeAdapterDiscoveryListener(this);
+        bluetoothManager.removeAdapterMembershipListener(this);
         governors.clear();
         governorListeners.clear();
         adapterListeners.clear();
@@ -227,13 +238,10 @@ class CombinedAdapterGovernorImpl implements AdapterGovernor, CombinedGovernor,
     }
 
     @Override
-    public void discovered(DiscoveredAdapter adapter) {
-        registerGovernor(adapter.getURL());
+    public void membershipChanged(Set<DiscoveredAdapter> added, Set<DiscoveredAdapter> removed) {
+        added.stream().map(DiscoveredAdapter::getURL).forEach(this::registerGovernor);
     }
 
-    @Override
-    public void adapterLost(URL address) { /* do nothing */ }
-
     @Override
     @SuppressWarnings({"unchecked", "rawtypes"})
     public <G extends BluetoothGovernor, V> CompletableFuture<V> when(Predicate<G> predicate, Function<G, V> function) {
@@ -242,9 +250,6 @@ class CombinedAdapterGovernorImpl implements AdapterGovernor, CombinedGovernor,
     }
 
     private void registerGovernor(URL url) {
-        if (governorsCount.get() > 63) {
-            throw new IllegalStateException("Shared Device Governor can only span upto 63 device governors.");
-        }
         if (url.isAdapter() && !url.equals(this.url)) {
             governors.computeIfAbsent(url, newUrl -> {
                 AdapterGovernor deviceGovernor = bluetoothManager.getAdapterGovernor(url);
@@ -27,21 +27,31 @@ import org.sputnikdev.bluetooth.manager.AdapterDiscoveryListener;
 import org.sputnikdev.bluetooth.manager.BluetoothGovernor;
 import org.sputnikdev.bluetooth.manager.BluetoothObjectType;
 import org.sputnikdev.bluetooth.manager.BluetoothObjectVisitor;
+import org.sputnikdev.bluetooth.manager.ByteBufferValueListener;
 import org.sputnikdev.bluetooth.manager.CharacteristicGovernor;
+import org.sputnikdev.bluetooth.manager.CombinedDeviceGovernor;
 import org.sputnikdev.bluetooth.manager.CombinedGovernor;
-import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
+import org.sputnikdev.bluetooth.manager.DeviceGovernor;
 import org.sputnikdev.bluetooth.manager.GovernorListener;
 import org.sputnikdev.bluetooth.manager.ManagerListener;
 import org.sputnikdev.bluetooth.manager.NotReadyException;
+import org.sputnikdev.bluetooth.manager.ValueDispatchPolicy;
 import org.sputnikdev.bluetooth.manager.ValueListener;
+import org.sputnikdev.bluetooth.manager.ValueListenerStats;
+import org.sputnikdev.bluetooth.manager.WriteProgress;
 import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -61,10 +71,13 @@ class CombinedCharacteristicGovernorImpl
 
     private CharacteristicGovernor delegate;
     private final List<ValueListener> valueListeners = new CopyOnWriteArrayList<>();
+    private final List<ByteBufferValueListener> bufferListeners = new CopyOnWriteArrayList<>();
+    private final Map<ValueListener, DispatchOptions> dispatchOptions = new ConcurrentHashMap<>();
     private final List<GovernorListener> governorListeners = new CopyOnWriteArrayList<>();
     private final CompletableFutureService<CharacteristicGovernor> futureService = new CompletableFutureService<>();
     private Instant lastInteracted;
     private Instant lastNotified;
+    private volatile long readCacheTTL;
 
 
     CombinedCharacteristicGovernorImpl(BluetoothManagerImpl bluetoothManager, URL url) {
@@ -102,11 +115,61 @@ class CombinedCharacteristicGovernorImpl
         return getDelegate().read();
     }
 
+    @Override
+    public int read(ByteBuffer destination) throws NotReadyException {
+        return getDelegate().read(destination);
+    }
+
     @Override
     public boolean write(byte[] data) throws NotReadyException {
         return getDelegate().write(data);
     }
 
+    @Override
+    public CompletableFuture<byte[]> readAsync() {
+        CharacteristicGovernor delegate = this.delegate;
+        if (delegate == null) {
+            return failedFuture();
+        }
+        return delegate.readAsync();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> writeAsync(byte[] data) {
+        CharacteristicGovernor delegate = this.delegate;
+        if (delegate == null) {
+            return failedFuture();
+        }
+        return delegate.writeAsync(data);
+    }
+
+    @Override
+    public void setReadCacheTTL(long ttl) {
+        synchronized (delegateListener) {
+            readCacheTTL = ttl;
+            if (delegate != null) {
+                delegate.setReadCacheTTL(ttl);
+            }
+        }
+    }
+
+    @Override
+    public long getReadCacheTTL() {
+        return readCacheTTL;
+    }
+
+    @Override
+    public long getReadCacheHits() {
+        CharacteristicGovernor delegate = this.delegate;
+        return delegate != null ? delegate.getReadCacheHits() : 0;
+    }
+
+    @Override
+    public long getReadCacheMisses() {
+        CharacteristicGovernor delegate = this.delegate;
+        return delegate != null ? delegate.getReadCacheMisses() : 0;
+    }
+
     @Override
     public void addValueListener(ValueListener valueListener) {
         synchronized (delegateListener) {
@@ -117,10 +180,77 @@ class CombinedCharacteristicGovernorImpl
         }
     }
 
+    @Override
+    public void addValueListener(ValueListener valueListener, ValueDispatchPolicy policy, int capacity) {
+        if (policy == ValueDispatchPolicy.SYNCHRONOUS) {
+            addValueListener(valueListener);
+            return;
+        }
+        synchronized (delegateListener) {
+            if (delegate != null) {
+                delegate.removeValueListener(valueListener);
+            }
+            valueListeners.remove(valueListener);
+            valueListeners.add(valueListener);
+            dispatchOptions.put(valueListener, new DispatchOptions(policy, capacity));
+            if (delegate != null) {
+                addValueListener(delegate, valueListener);
+            }
+        }
+    }
+
+    private void addValueListener(CharacteristicGovernor delegate, ValueListener valueListener) {
+        DispatchOptions options = dispatchOptions.get(valueListener);
+        if (options != null) {
+            delegate.addValueListener(valueListener, options.policy, options.capacity);
+        } else {
+            delegate.addValueListener(valueListener);
+        }
+    }
+
+    @Override
+    public long getNotificationEnableCount() {
+        CharacteristicGovernor delegate = this.delegate;
+        return delegate != null ? delegate.getNotificationEnableCount() : 0;
+    }
+
+    @Override
+    public long getNotificationDisableCount() {
+        CharacteristicGovernor delegate = this.delegate;
+        return delegate != null ? delegate.getNotificationDisableCount() : 0;
+    }
+
+    @Override
+    public void addBufferListener(ByteBufferValueListener valueListener) {
+        synchronized (delegateListener) {
+            bufferListeners.add(valueListener);
+            if (delegate != null) {
+                delegate.addBufferListener(valueListener);
+            }
+        }
+    }
+
+    @Override
+    public void removeBufferListener(ByteBufferValueListener valueListener) {
+        synchronized (delegateListener) {
+            bufferListeners.remove(valueListener);
+            if (delegate != null) {
+                delegate.removeBufferListener(valueListener);
+            }
+        }
+    }
+
+    @Override
+    public ValueListenerStats getValueListenerStats(ValueListener valueListener) {
+        CharacteristicGovernor delegate = this.delegate;
+        return delegate != null ? delegate.getValueListenerStats(valueListener) : null;
+    }
+
     @Override
     public void removeValueListener(ValueListener valueListener) {
         synchronized (delegateListener) {
             valueListeners.remove(valueListener);
+            dispatchOptions.remove(valueListener);
             if (delegate != null) {
                 delegate.removeValueListener(valueListener);
             }
@@ -182,7 +312,7 @@ class CombinedCharacteristicGovernorImpl
     @Override
     public void init() {
         logger.debug("Initializing combined characteristic governor: {}", url);
-        bluetoothManager.addManagerListener(delegateListener);
+        bluetoothManager.addReadyListener(url, delegateListener);
         update();
         logger.debug("Combined characteristic governor initialization completed: {}", url);
     }
@@ -190,13 +320,20 @@ class CombinedCharacteristicGovernorImpl
     @Override
     public void update() {
         logger.debug("Updating combined characteristic governor: {}", url);
-        if (delegate == null) {
-            bluetoothManager.getDiscoveredAdapters().stream()
-                    .filter(CombinedCharacteristicGovernorImpl::notCombined)
-                    .map(this::getDelegate)
-                    .filter(BluetoothGovernor::isReady)
-                    .findFirst()
-                    .ifPresent(this::installDelegate);
+        // only the adapter that is connected to the device can serve the characteristic,
+        // hence a characteristic governor is created only for that adapter
+        URL connectedAdapter = getConnectedAdapter();
+        CharacteristicGovernor delegate = this.delegate;
+        if (delegate != null && !isConnectedThrough(connectedAdapter, delegate)) {
+            logger.debug("Device is not connected through the delegate adapter, uninstalling delegate: {}",
+                    delegate.getURL());
+            uninstallDelegate(delegate.getURL());
+        }
+        if (this.delegate == null && connectedAdapter != null) {
+            CharacteristicGovernor connectedDelegate = getDelegate(connectedAdapter);
+            if (connectedDelegate.isReady()) {
+                installDelegate(connectedDelegate);
+            }
         }
         futureService.completeSilently(this);
         logger.debug("Combined characteristic governor update completed: {}", url);
@@ -216,10 +353,12 @@ class CombinedCharacteristicGovernorImpl
 
     @Override
     public void dispose() {
-        bluetoothManager.removeManagerListener(delegateListener);
+        bluetoothManager.removeReadyListener(url, delegateListener);
         reset();
         governorListeners.clear();
         valueListeners.clear();
+        bufferListeners.clear();
+        dispatchOptions.clear();
         futureService.clear();
     }
 
@@ -241,7 +380,11 @@ class CombinedCharacteristicGovernorImpl
                 logger.debug("Installing delegate: {}", delegate.getURL());
                 this.delegate = delegate;
                 governorListeners.forEach(delegate::addGovernorListener);
-                valueListeners.forEach(delegate::addValueListener);
+                valueListeners.forEach(listener -> addValueListener(delegate, listener));
+                bufferListeners.forEach(delegate::addBufferListener);
+                if (readCacheTTL > 0) {
+                    delegate.setReadCacheTTL(readCacheTTL);
+                }
                 lastInteracted = delegate.getLastInteracted();
                 lastNotified = delegate.getLastNotified();
             } else if (!this.delegate.equals(delegate)) {
@@ -266,6 +409,7 @@ class CombinedCharacteristicGovernorImpl
             synchronized (delegateListener) {
                 governorListeners.forEach(delegate::removeGovernorListener);
                 valueListeners.forEach(delegate::removeValueListener);
+                bufferListeners.forEach(delegate::removeBufferListener);
                 lastInteracted = delegate.getLastInteracted();
                 lastNotified = delegate.getLastNotified();
                 this.delegate = null;
@@ -273,6 +417,32 @@ class CombinedCharacteristicGovernorImpl
         }
     }
 
+    @Override
+    public CompletableFuture<WriteProgress> writeStream(InputStream data, int window,
+                                                        Consumer<WriteProgress> progressListener) {
+        CharacteristicGovernor delegate = this.delegate;
+        if (delegate == null) {
+            return failedFuture();
+        }
+        return delegate.writeStream(data, window, progressListener);
+    }
+
+    @Override
+    public CompletableFuture<WriteProgress> writeStream(ByteBuffer data, int window,
+                                                        Consumer<WriteProgress> progressListener) {
+        CharacteristicGovernor delegate = this.delegate;
+        if (delegate == null) {
+            return failedFuture();
+        }
+        return delegate.writeStream(data, window, progressListener);
+    }
+
+    private static <V> CompletableFuture<V> failedFuture() {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        future.completeExceptionally(new NotReadyException("Combined characteristic governor is not ready yet"));
+        return future;
+    }
+
     private CharacteristicGovernor getDelegate() {
         CharacteristicGovernor delegate = this.delegate;
         if (delegate != null) {
@@ -281,13 +451,21 @@ class CombinedCharacteristicGovernorImpl
         throw new NotReadyException("Combined characteristic governor is not ready yet");
     }
 
+    private CharacteristicGovernor getDelegate(URL adapter) {
+        return bluetoothManager.getCharacteristicGovernor(url.copyWithAdapter(adapter.getAdapterAddress()));
+    }
+
     private class DelegatesListener implements ManagerListener {
         @Override
         public void ready(BluetoothGovernor governor, boolean isReady) {
-            if (governor instanceof CharacteristicGovernor
-                    && governor.getURL().copyWithProtocol(null).copyWithAdapter(COMBINED_ADDRESS).equals(url)) {
+            // only governors of the combined URL are routed here, see BluetoothManagerImpl.addReadyListener
+            if (governor instanceof CharacteristicGovernor) {
                 if (isReady) {
-                    installDelegate((CharacteristicGovernor) governor);
+                    CharacteristicGovernor characteristicGovernor = (CharacteristicGovernor) governor;
+                    // a characteristic governor of an adapter that is not connected to the device is ignored
+                    if (isConnectedThrough(getConnectedAdapter(), characteristicGovernor)) {
+                        installDelegate(characteristicGovernor);
+                    }
                 } else {
                     uninstallDelegate(governor.getURL());
                 }
@@ -295,12 +473,25 @@ class CombinedCharacteristicGovernorImpl
         }
     }
 
-    private static boolean notCombined(DiscoveredAdapter adapter) {
-        return !COMBINED_ADDRESS.equals(adapter.getURL().getAdapterAddress());
+    private URL getConnectedAdapter() {
+        DeviceGovernor deviceGovernor = bluetoothManager.getDeviceGovernor(url);
+        return deviceGovernor instanceof CombinedDeviceGovernor
+                ? ((CombinedDeviceGovernor) deviceGovernor).getConnectedAdapter() : null;
+    }
+
+    private static boolean isConnectedThrough(URL connectedAdapter, CharacteristicGovernor delegate) {
+        return connectedAdapter != null
+                && connectedAdapter.getAdapterAddress().equals(delegate.getURL().getAdapterAddress());
     }
 
-    private CharacteristicGovernor getDelegate(DiscoveredAdapter adapter) {
-        return bluetoothManager.getCharacteristicGovernor(url.copyWithAdapter(adapter.getURL().getAdapterAddress()));
+    private static final class DispatchOptions {
+        private final ValueDispatchPolicy policy;
+        private final int capacity;
+
+        private DispatchOptions(ValueDispatchPolicy policy, int capacity) {
+            this.policy = policy;
+            this.capacity = capacity;
+        }
     }
 
 }
@@ -25,18 +25,20 @@ import org.slf4j.LoggerFactory;
 import org.sputnikdev.bluetooth.Filter;
 import org.sputnikdev.bluetooth.RssiKalmanFilter;
 import org.sputnikdev.bluetooth.URL;
-import org.sputnikdev.bluetooth.manager.AdapterDiscoveryListener;
 import org.sputnikdev.bluetooth.manager.BluetoothGovernor;
 import org.sputnikdev.bluetooth.manager.BluetoothObjectType;
 import org.sputnikdev.bluetooth.manager.BluetoothObjectVisitor;
 import org.sputnikdev.bluetooth.manager.BluetoothSmartDeviceListener;
 import org.sputnikdev.bluetooth.manager.CharacteristicGovernor;
 import org.sputnikdev.bluetooth.manager.CombinedDeviceGovernor;
+import org.sputnikdev.bluetooth.manager.ConnectionCandidate;
 import org.sputnikdev.bluetooth.manager.ConnectionStrategy;
+import org.sputnikdev.bluetooth.manager.ConnectionTargetSelector;
 import org.sputnikdev.bluetooth.manager.DeviceGovernor;
 import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
 import org.sputnikdev.bluetooth.manager.GattCharacteristic;
 import org.sputnikdev.bluetooth.manager.GattService;
+import org.sputnikdev.bluetooth.manager.GattTransaction;
 import org.sputnikdev.bluetooth.manager.GenericBluetoothDeviceListener;
 import org.sputnikdev.bluetooth.manager.GovernorListener;
 import org.sputnikdev.bluetooth.manager.NotReadyException;
@@ -45,21 +47,16 @@ import org.sputnikdev.bluetooth.manager.auth.AuthenticationProvider;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -73,6 +70,10 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
 
     // when RSSI reading is deemed to be stale for the nearest adapter calculation
     private static final int STALE_TIMEOUT = 10000;
+    static final double DEFAULT_HYSTERESIS_MARGIN = 6.0;
+    static final long DEFAULT_MINIMUM_DWELL_TIME = 30000;
+    static final long DEFAULT_ADVERTISEMENT_DEDUPLICATION_WINDOW = 1000;
+    static final long DEFAULT_FAILOVER_COOLDOWN = 10000;
 
     private Logger logger = LoggerFactory.getLogger(CombinedDeviceGovernorImpl.class);
 
@@ -81,7 +82,10 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
 
     private final AtomicInteger governorsCount = new AtomicInteger();
     private final Map<URL, DeviceGovernorHandler> governors = new ConcurrentHashMap<>();
-    private final AdapterDiscoveryListener delegateRegistrar = adapter -> registerDelegate((DiscoveredAdapter) adapter);
+    // delegates indexed by their bitmap index, extended (copied) only when a new delegate is registered
+    private volatile DeviceGovernorHandler[] slots = new DeviceGovernorHandler[0];
+    private volatile boolean disposed;
+    private final AdapterMembershipListener delegateRegistrar = (added, removed) -> registerDelegates(added);
 
     // proxy listeners
     private final List<GovernorListener> governorListeners = new CopyOnWriteArrayList<>();
@@ -112,11 +116,18 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
     private double signalPropagationExponent = DeviceGovernorImpl.DEFAULT_SIGNAL_PROPAGATION_EXPONENT;
     private Instant lastInteracted;
     private Instant lastConnectedStateChanged;
+    // the last converted GATT database, delegates return the same (cached) database until services are unresolved
+    private volatile CombinedGattDatabase combinedGattDatabase;
+    // the same advertisements received through different adapters
+    private final AdvertisementDeduplicator<URL> serviceDataDeduplicator =
+            new AdvertisementDeduplicator<>(URL::getServiceUUID, DEFAULT_ADVERTISEMENT_DEDUPLICATION_WINDOW);
+    private final AdvertisementDeduplicator<Short> manufacturerDataDeduplicator =
+            new AdvertisementDeduplicator<>(id -> id, DEFAULT_ADVERTISEMENT_DEDUPLICATION_WINDOW);
 
     // some specifics for the nearest adapter detection
-    private final Set<DeviceGovernorHandler> activeGovernors = new HashSet<>();
-    private DeviceGovernor nearest;
-    private final ReentrantLock rssiLock = new ReentrantLock();
+    private final NearestDelegateTracker<DeviceGovernorHandler> nearestTracker =
+            new NearestDelegateTracker<>(STALE_TIMEOUT);
+    private volatile DeviceGovernor nearest;
 
     // controlling fields
     private boolean connectionControl;
@@ -128,6 +139,15 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
     private ConnectionStrategy connectionStrategy = ConnectionStrategy.NEAREST_ADAPTER;
     private URL preferredAdapter;
     private DeviceGovernor connectionTarget;
+    private long connectionTargetSelected;
+    private double hysteresisMargin = DEFAULT_HYSTERESIS_MARGIN;
+    private long minimumDwellTime = DEFAULT_MINIMUM_DWELL_TIME;
+    private final ConnectionTargetSelector leastLoadedSelector = new LeastLoadedAdapterSelector();
+    private ConnectionTargetSelector connectionTargetSelector;
+    private long failoverCooldown = DEFAULT_FAILOVER_COOLDOWN;
+    // when the connection was lost (0 if the device is connected or the connection is not controlled)
+    private volatile long disconnectedAt;
+    private volatile long reconnectionLatency = -1;
 
     CombinedDeviceGovernorImpl(BluetoothManagerImpl bluetoothManager, URL url) {
         this.bluetoothManager = bluetoothManager;
@@ -187,6 +207,7 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
         if (connected) {
             updateConnectionTarget();
         } else {
+            disconnectedAt = 0;
             // make sure nothing sets connectionTarget and calls setConnectionControls
             synchronized (this.connected) {
                 governors.values().forEach(deviceGovernorHandler -> deviceGovernorHandler.delegate
@@ -203,7 +224,17 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
     @Override
     public List<GattService> getResolvedServices() throws NotReadyException {
         DeviceGovernor deviceGovernor = getGovernor(servicesResolved.getUniqueIndex());
-        return deviceGovernor != null ? convert(deviceGovernor.getResolvedServices()) : null;
+        return deviceGovernor != null ? getCombinedGattDatabase(deviceGovernor.getResolvedServices()) : null;
+    }
+
+    @Override
+    public List<GattService> getKnownServices() {
+        DeviceGovernor deviceGovernor = getGovernor(servicesResolved.getUniqueIndex());
+        if (deviceGovernor == null) {
+            // known services are shared between all adapters the device is visible through
+            deviceGovernor = nearest;
+        }
+        return deviceGovernor != null ? getCombinedGattDatabase(deviceGovernor.getKnownServices()) : null;
     }
 
     @Override
@@ -239,33 +270,88 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
 
     private void updateConnectionTarget() {
         logger.debug("Updating connection target: {} : {}", url, connectionControl);
-        boolean connectionControl = this.connectionControl;
         // make sure nothing sets connectionTarget and calls setConnectionControls
         synchronized (this.connected) {
             if (!isConnected()) {
-                DeviceGovernor newTarget = findConnectionTarget();
-                logger.debug("Current target / new target: {} / {}",
-                        connectionTarget != null ? connectionTarget.getURL() : null,
-                        newTarget != null ? newTarget.getURL() : null);
-                if (connectionTarget != null && !connectionTarget.equals(newTarget)) {
-                    connectionTarget.setConnectionControl(false);
-                }
-                if (newTarget != null && newTarget.getConnectionControl() != connectionControl) {
-                    newTarget.setConnectionControl(connectionControl);
-                }
-                connectionTarget = newTarget;
+                switchConnectionTarget(findConnectionTarget());
             } else {
                 logger.trace("Skipping updating connection target as the governor is currently connected: {}", url);
             }
         }
     }
 
+    /**
+     * Hands connection control over to the best alternative of the delegate that has just lost its connection,
+     * so that the device gets reconnected straight away rather than on the next update.
+     */
+    private void failover(DeviceGovernorHandler failed) {
+        long now = System.currentTimeMillis();
+        disconnectedAt = now;
+        if (failoverCooldown > 0) {
+            failed.blacklistedUntil = now + failoverCooldown;
+        }
+        synchronized (this.connected) {
+            if (!connectionControl || isConnected()) {
+                return;
+            }
+            DeviceGovernor alternative = findAlternative(failed.delegate);
+            logger.debug("Connection lost, failing over (failed / alternative): {} / {}", failed.delegate.getURL(),
+                    alternative != null ? alternative.getURL() : null);
+            switchConnectionTarget(alternative != null ? alternative : findConnectionTarget());
+        }
+    }
+
+    private void switchConnectionTarget(DeviceGovernor newTarget) {
+        boolean connectionControl = this.connectionControl;
+        logger.debug("Current target / new target: {} / {}",
+                connectionTarget != null ? connectionTarget.getURL() : null,
+                newTarget != null ? newTarget.getURL() : null);
+        if (connectionTarget != null && !connectionTarget.equals(newTarget)) {
+            connectionTarget.setConnectionControl(false);
+        }
+        if (newTarget != null && newTarget.getConnectionControl() != connectionControl) {
+            newTarget.setConnectionControl(connectionControl);
+        }
+        if (connectionTarget != newTarget) {
+            connectionTargetSelected = System.currentTimeMillis();
+        }
+        connectionTarget = newTarget;
+    }
+
     private DeviceGovernor findConnectionTarget() {
+        DeviceGovernor target = findStrategyTarget();
+        DeviceGovernorHandler handler = getHandler(target);
+        if (handler != null && isBlacklisted(handler)) {
+            DeviceGovernor alternative = findAlternative(target);
+            if (alternative != null) {
+                logger.debug("Connection target is blacklisted (blacklisted / alternative): {} / {}",
+                        target.getURL(), alternative.getURL());
+                return alternative;
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Ranks delegates (except the given one) according to the connection strategy and returns the best one.
+     */
+    private DeviceGovernor findAlternative(DeviceGovernor excluded) {
+        switch (connectionStrategy) {
+            case LEAST_LOADED_ADAPTER:
+                return selectConnectionTarget(leastLoadedSelector, excluded);
+            case CUSTOM:
+                return selectConnectionTarget(connectionTargetSelector, excluded);
+            default:
+                return findStrongest(excluded);
+        }
+    }
+
+    private DeviceGovernor findStrategyTarget() {
         logger.trace("Finding connection target: {} : {}", url, connectionStrategy);
         switch (connectionStrategy) {
             case NEAREST_ADAPTER:
                 logger.trace("Nearest connection target: {}", nearest != null ? nearest.getURL() : null);
-                return nearest;
+                return avoidUnhealthy(nearest);
             case PREFERRED_ADAPTER:
                 logger.trace("Preferred adapter: {}", preferredAdapter);
                 if (preferredAdapter != null) {
@@ -277,10 +363,68 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
                     }
                 }
                 return null;
+            case NEAREST_ADAPTER_WITH_HYSTERESIS:
+                return findNearestWithHysteresis();
+            case LEAST_LOADED_ADAPTER:
+                return selectConnectionTarget(leastLoadedSelector, null);
+            case CUSTOM:
+                return selectConnectionTarget(connectionTargetSelector, null);
             default: throw new IllegalStateException("Unknown connection strategy: " + connectionStrategy);
         }
     }
 
+    private DeviceGovernor selectConnectionTarget(ConnectionTargetSelector selector, DeviceGovernor excluded) {
+        List<DeviceGovernorHandler> handlers = new ArrayList<>();
+        List<ConnectionCandidate> candidates = new ArrayList<>();
+        for (DeviceGovernorHandler handler : slots) {
+            if (handler == null || handler.delegate == excluded) {
+                continue;
+            }
+            URL delegateURL = handler.delegate.getURL();
+            AdapterLoad adapterLoad = bluetoothManager.getAdapterLoad(delegateURL);
+            int connections = adapterLoad != null ? adapterLoad.getConnectionCount() : 0;
+            int pending = adapterLoad != null ? adapterLoad.getPendingConnectionCount() : 0;
+            if (adapterLoad != null && adapterLoad.isPending(delegateURL)) {
+                // the device itself does not add load to its own target
+                pending--;
+            }
+            handlers.add(handler);
+            boolean available = isAvailable(handler) && !isBlacklisted(handler);
+            candidates.add(new ConnectionCandidate(delegateURL, handler.lastRssi, available, connections,
+                    pending, handler.delegate == connectionTarget, getHealthScore(handler.delegate)));
+        }
+        ConnectionCandidate selected = selector.select(url, Collections.unmodifiableList(candidates));
+        logger.trace("Selected connection target: {} : {}", selected, candidates);
+        if (selected != null) {
+            for (int i = 0; i < candidates.size(); i++) {
+                if (candidates.get(i) == selected || candidates.get(i).getURL().equals(selected.getURL())) {
+                    return handlers.get(i).delegate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private DeviceGovernor findNearestWithHysteresis() {
+        DeviceGovernor healthyNearest = avoidUnhealthy(nearest);
+        DeviceGovernorHandler candidate = getHandler(healthyNearest);
+        DeviceGovernorHandler current = getHandler(connectionTarget);
+        if (candidate == null || current == null || candidate == current || !isAvailable(current)
+                || getHealthScore(current.delegate) < AdapterHealth.UNHEALTHY_THRESHOLD) {
+            // the current target is gone (offline, stale or failing), no reason to keep it
+            return healthyNearest;
+        }
+        long dwelling = System.currentTimeMillis() - connectionTargetSelected;
+        if (dwelling >= minimumDwellTime && candidate.lastRssi - current.lastRssi >= hysteresisMargin) {
+            logger.debug("Switching connection target (current / new): {} ({}) / {} ({})",
+                    current.delegate.getURL(), current.lastRssi, candidate.delegate.getURL(), candidate.lastRssi);
+            return candidate.delegate;
+        }
+        logger.trace("Keeping connection target (current / nearest): {} ({}) / {} ({})",
+                current.delegate.getURL(), current.lastRssi, candidate.delegate.getURL(), candidate.lastRssi);
+        return current.delegate;
+    }
+
     @Override
     public boolean isBlocked() throws NotReadyException {
         return blocked.get();
@@ -412,6 +556,17 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
         return null;
     }
 
+    @Override
+    public CompletableFuture<List<byte[]>> execute(GattTransaction transaction) {
+        DeviceGovernor deviceGovernor = getGovernor(connected.getUniqueIndex());
+        if (!isConnected() || deviceGovernor == null) {
+            CompletableFuture<List<byte[]>> future = new CompletableFuture<>();
+            future.completeExceptionally(new NotReadyException("Combined device is not connected: " + url));
+            return future;
+        }
+        return deviceGovernor.execute(transaction.copyWithAdapter(deviceGovernor.getURL().getAdapterAddress()));
+    }
+
     @Override
     public URL getURL() {
         return url;
@@ -440,8 +595,8 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
     @Override
     public void init() {
         logger.debug("Initializing combined device governor: {}", url);
-        bluetoothManager.addAdapterDiscoveryListener(delegateRegistrar);
-        bluetoothManager.getDiscoveredAdapters().forEach(this::registerDelegate);
+        bluetoothManager.addAdapterMembershipListener(delegateRegistrar);
+        registerDelegates(bluetoothManager.getDiscoveredAdapters());
         logger.debug("Combined device governor initialization performed: {}", url);
     }
 
@@ -463,7 +618,7 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
     @Override
     public void dispose() {
         logger.debug("Disposing combined device governor: {}", url);
-        bluetoothManager.removeAdapterDiscoveryListener(delegateRegistrar);
+        bluetoothManager.removeAdapterMembershipListener(delegateRegistrar);
         setConnectionControl(false);
         governors.values().forEach(DeviceGovernorHandler::dispose);
         governors.clear();
@@ -471,8 +626,11 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
         futureService.clear();
         genericBluetoothDeviceListeners.clear();
         bluetoothSmartDeviceListeners.clear();
-        activeGovernors.clear();
-        governorsCount.set(64);
+        nearestTracker.clear();
+        serviceDataDeduplicator.clear();
+        manufacturerDataDeduplicator.clear();
+        disposed = true;
+        slots = new DeviceGovernorHandler[0];
         logger.debug("Combined device governor disposed: {}", url);
     }
 
@@ -520,9 +678,84 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
         if (connectionStrategy == null) {
             throw new IllegalArgumentException("Connection strategy cannot be null");
         }
+        if (connectionStrategy == ConnectionStrategy.CUSTOM && connectionTargetSelector == null) {
+            throw new IllegalStateException("Connection target selector must be set for the custom strategy");
+        }
         this.connectionStrategy = connectionStrategy;
     }
 
+    @Override
+    public void setConnectionTargetSelector(ConnectionTargetSelector selector) {
+        if (selector == null) {
+            throw new IllegalArgumentException("Connection target selector cannot be null");
+        }
+        connectionTargetSelector = selector;
+        connectionStrategy = ConnectionStrategy.CUSTOM;
+    }
+
+    @Override
+    public ConnectionTargetSelector getConnectionTargetSelector() {
+        return connectionTargetSelector;
+    }
+
+    @Override
+    public long getAdvertisementDeduplicationWindow() {
+        return serviceDataDeduplicator.getWindow();
+    }
+
+    @Override
+    public void setAdvertisementDeduplicationWindow(long window) {
+        if (window < 0) {
+            throw new IllegalArgumentException("De-duplication window cannot be negative: " + window);
+        }
+        serviceDataDeduplicator.setWindow(window);
+        manufacturerDataDeduplicator.setWindow(window);
+    }
+
+    @Override
+    public long getFailoverCooldown() {
+        return failoverCooldown;
+    }
+
+    @Override
+    public void setFailoverCooldown(long cooldown) {
+        if (cooldown < 0) {
+            throw new IllegalArgumentException("Failover cooldown cannot be negative: " + cooldown);
+        }
+        failoverCooldown = cooldown;
+    }
+
+    @Override
+    public long getReconnectionLatency() {
+        return reconnectionLatency;
+    }
+
+    @Override
+    public double getHysteresisMargin() {
+        return hysteresisMargin;
+    }
+
+    @Override
+    public void setHysteresisMargin(double hysteresisMargin) {
+        if (hysteresisMargin < 0) {
+            throw new IllegalArgumentException("Hysteresis margin cannot be negative: " + hysteresisMargin);
+        }
+        this.hysteresisMargin = hysteresisMargin;
+    }
+
+    @Override
+    public long getMinimumDwellTime() {
+        return minimumDwellTime;
+    }
+
+    @Override
+    public void setMinimumDwellTime(long minimumDwellTime) {
+        if (minimumDwellTime < 0) {
+            throw new IllegalArgumentException("Minimum dwell time cannot be negative: " + minimumDwellTime);
+        }
+        this.minimumDwellTime = minimumDwellTime;
+    }
+
     @Override
     public URL getPreferredAdapter() {
         return preferredAdapter;
@@ -564,8 +797,77 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
     }
 
     private DeviceGovernor getGovernor(int index) {
-        return governors.values().stream().filter(handler -> handler.index == index)
-                .map(handler ->handler.delegate).findFirst().orElse(null);
+        DeviceGovernorHandler[] current = slots;
+        return index >= 0 && index < current.length && current[index] != null ? current[index].delegate : null;
+    }
+
+    /**
+     * Returns the given target if its adapter is healthy, otherwise the strongest available delegate
+     * of a healthy adapter (or the given target if there are no healthy alternatives).
+     */
+    private DeviceGovernor avoidUnhealthy(DeviceGovernor target) {
+        if (target == null || getHealthScore(target) >= AdapterHealth.UNHEALTHY_THRESHOLD) {
+            return target;
+        }
+        DeviceGovernor alternative = findStrongest(target);
+        if (alternative != null) {
+            logger.debug("Avoiding unhealthy adapter (unhealthy / alternative): {} / {}",
+                    target.getURL(), alternative.getURL());
+            return alternative;
+        }
+        return target;
+    }
+
+    /**
+     * Returns the strongest (by RSSI) available delegate of a healthy adapter that is not blacklisted,
+     * excluding the given one.
+     */
+    private DeviceGovernor findStrongest(DeviceGovernor excluded) {
+        DeviceGovernorHandler strongest = null;
+        for (DeviceGovernorHandler handler : slots) {
+            if (handler != null && handler.delegate != excluded && isAvailable(handler) && !isBlacklisted(handler)
+                    && getHealthScore(handler.delegate) >= AdapterHealth.UNHEALTHY_THRESHOLD
+                    && (strongest == null || handler.lastRssi > strongest.lastRssi)) {
+                strongest = handler;
+            }
+        }
+        return strongest != null ? strongest.delegate : null;
+    }
+
+    private static boolean isBlacklisted(DeviceGovernorHandler handler) {
+        return handler.blacklistedUntil > System.currentTimeMillis();
+    }
+
+    private boolean isAvailable(DeviceGovernorHandler handler) {
+        return governorsCount.get() == 1 ? handler.delegate.isReady() : nearestTracker.isAvailable(handler.index);
+    }
+
+    private double getHealthScore(DeviceGovernor delegate) {
+        URL delegateURL = delegate.getURL();
+        return delegateURL != null ? AdapterHealth.getScore(bluetoothManager.getAdapterHealth(delegateURL)) : 1.0;
+    }
+
+    private DeviceGovernorHandler getHandler(DeviceGovernor delegate) {
+        if (delegate != null) {
+            for (DeviceGovernorHandler handler : slots) {
+                if (handler != null && handler.delegate == delegate) {
+                    return handler;
+                }
+            }
+        }
+        return null;
+    }
+
+    private synchronized void putSlot(DeviceGovernorHandler handler) {
+        DeviceGovernorHandler[] extended = Arrays.copyOf(slots, Math.max(slots.length, handler.index + 1));
+        extended[handler.index] = handler;
+        slots = extended;
+    }
+
+    private void registerDelegates(Collection<DiscoveredAdapter> adapters) {
+        if (adapters != null) {
+            adapters.forEach(this::registerDelegate);
+        }
     }
 
     private void registerDelegate(DiscoveredAdapter adapter) {
@@ -577,9 +879,8 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
     }
 
     private void registerDelegate(URL url) {
-        if (governorsCount.get() > 63) {
-            throw new IllegalStateException("Combined Device Governor can only span up to 63 device governors "
-                    + "(adapters).");
+        if (disposed) {
+            return;
         }
         if (!governors.containsKey(url.copyWithProtocol(null))) {
             // getting the governor outside of the synchronisation context to avoid deadlocks
@@ -588,6 +889,7 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
                 int index = governorsCount.getAndIncrement();
                 logger.debug("Registering a new delegate: {} : {}", newUrl, index);
                 DeviceGovernorHandler handler = new DeviceGovernorHandler(deviceGovernor, index);
+                putSlot(handler);
                 handler.init();
                 return handler;
             });
@@ -612,6 +914,19 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
         }
     }
 
+    private List<GattService> getCombinedGattDatabase(List<GattService> services) {
+        if (services == null) {
+            return null;
+        }
+        CombinedGattDatabase cached = combinedGattDatabase;
+        if (cached != null && cached.delegateServices == services) {
+            return cached.combinedServices;
+        }
+        List<GattService> combinedServices = convert(services);
+        combinedGattDatabase = new CombinedGattDatabase(services, combinedServices);
+        return combinedServices;
+    }
+
     private static List<GattService> convert(List<GattService> services) {
         List<GattService> combinedServices = new ArrayList<>(services.size());
         services.forEach(service -> {
@@ -633,14 +948,26 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
         return Collections.unmodifiableList(combinedServices);
     }
 
+    private static final class CombinedGattDatabase {
+        private final List<GattService> delegateServices;
+        private final List<GattService> combinedServices;
+
+        private CombinedGattDatabase(List<GattService> delegateServices, List<GattService> combinedServices) {
+            this.delegateServices = delegateServices;
+            this.combinedServices = combinedServices;
+        }
+    }
+
     private final class DeviceGovernorHandler
         implements GovernorListener, BluetoothSmartDeviceListener, GenericBluetoothDeviceListener {
 
         private final DeviceGovernor delegate;
         private final int index;
-        private double distance = Double.MAX_VALUE;
-        private Instant lastAdvertised = Instant.now();
         private CompletableFuture<Void> initFuture;
+        // the last reported RSSI, used to compare delegates without interacting with them
+        private volatile short lastRssi = Short.MIN_VALUE;
+        // the adapter has recently failed to keep the connection
+        private volatile long blacklistedUntil;
 
         private DeviceGovernorHandler(DeviceGovernor delegate, int index) {
             this.delegate = delegate;
@@ -746,6 +1073,7 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
         public void servicesUnresolved() {
             logger.debug("Services unresolved (listener): {}", url);
             servicesResolved.exclusiveSet(index, false, () -> {
+                combinedGattDatabase = null;
                 BluetoothManagerUtils.forEachSilently(bluetoothSmartDeviceListeners,
                         BluetoothSmartDeviceListener::servicesUnresolved,
                         logger, "Execution error of a service resolved listener");
@@ -775,36 +1103,40 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
         public void serviceDataChanged(Map<URL, byte[]> serviceData) {
             logger.debug("Services data changed (listener): {} : {} : {}",
                     url, serviceData.size(), delegate == nearest);
-            //if (delegate == nearest) {
+            if (!serviceDataDeduplicator.accept(index, serviceData, System.currentTimeMillis())) {
+                logger.trace("Duplicate service data suppressed: {} : {}", url, delegate.getURL());
+                return;
+            }
             Map<URL, byte[]> converted = serviceData.entrySet().stream()
                     .collect(Collectors.toMap(entry -> entry.getKey().copyWithAdapter(COMBINED_ADDRESS),
                             Map.Entry::getValue));
             BluetoothManagerUtils.forEachSilently(bluetoothSmartDeviceListeners,
                     BluetoothSmartDeviceListener::serviceDataChanged, converted,
                     logger, "Execution error of a service resolved listener");
-            //}
         }
 
         @Override
         public void manufacturerDataChanged(Map<Short, byte[]> manufacturerData) {
             logger.debug("Manufacturer data changed (listener): {} : {} : {}",
                     url, manufacturerData.size(), delegate == nearest);
-            //if (delegate == nearest) {
+            if (!manufacturerDataDeduplicator.accept(index, manufacturerData, System.currentTimeMillis())) {
+                logger.trace("Duplicate manufacturer data suppressed: {} : {}", url, delegate.getURL());
+                return;
+            }
             BluetoothManagerUtils.forEachSilently(bluetoothSmartDeviceListeners,
                     BluetoothSmartDeviceListener::manufacturerDataChanged, manufacturerData,
                     logger, "Execution error of a service resolved listener");
-            //}
         }
 
         @Override
         public void online() {
-            activeGovernors.add(this);
+            nearestTracker.activate(index, this);
             notifyIfChangedOnline(true);
         }
 
         @Override
         public void offline() {
-            activeGovernors.remove(this);
+            nearestTracker.deactivate(index);
             notifyIfChangedOnline(false);
         }
 
@@ -815,9 +1147,9 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
 
         @Override
         public void rssiChanged(short newRssi) {
+            lastRssi = newRssi;
             if (governorsCount.get() == 1) {
                 nearest = delegate;
-                lastAdvertised = delegate.getLastAdvertised();
                 updateRssi(newRssi);
             } else {
                 handleRssiChangedForMultipleDelegates(newRssi);
@@ -829,9 +1161,9 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
             logger.debug("Delegate changed ready state: {} : {}", delegate.getURL(), isReady);
             if (isReady) {
                 initUnsafe();
-                activeGovernors.add(this);
+                nearestTracker.activate(index, this);
             } else {
-                activeGovernors.remove(this);
+                nearestTracker.deactivate(index);
                 servicesUnresolved();
                 notifyIfChangedConnected(false);
             }
@@ -908,8 +1240,19 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
                         }
                     }, logger, "Execution error of a connection listener");
                 });
-                if (!newState) {
+                if (newState) {
+                    long lostAt = disconnectedAt;
+                    if (lostAt > 0) {
+                        disconnectedAt = 0;
+                        reconnectionLatency = System.currentTimeMillis() - lostAt;
+                        logger.info("Device reconnected through {} in {} ms: {}", delegate.getURL(),
+                                reconnectionLatency, url);
+                    }
+                } else {
                     authenticated.reset();
+                    if (connectionControl) {
+                        failover(this);
+                    }
                 }
             });
         }
@@ -926,7 +1269,7 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
             logger.debug("Notify service resolved: {} : {} : {}",
                     url, bluetoothSmartDeviceListeners.size(), services.size());
             if (!bluetoothSmartDeviceListeners.isEmpty()) {
-                List<GattService> combinedServices = convert(services);
+                List<GattService> combinedServices = getCombinedGattDatabase(services);
                 BluetoothManagerUtils.forEachSilently(bluetoothSmartDeviceListeners,
                         BluetoothSmartDeviceListener::servicesResolved, combinedServices,
                         logger, "Execution error of a service resolved listener");
@@ -941,30 +1284,16 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
         }
 
         private void handleRssiChangedForMultipleDelegates(short newRssi) {
-            try {
-                if (rssiLock.tryLock(50, TimeUnit.MILLISECONDS)) {
-                    try {
-                        activeGovernors.add(this);
-                        lastAdvertised = delegate.getLastAdvertised();
-                        distance = delegate.getEstimatedDistance();
-                        SortedSet<DeviceGovernorHandler> sorted = new TreeSet<>(new DistanceComparator());
-                        sorted.addAll(activeGovernors);
-                        if (!sorted.isEmpty()) {
-                            DeviceGovernor newNearest = sorted.first().delegate;
-                            sorted.clear();
-                            logger.debug("Calculating nearest delegate (current / new): {} / {}",
-                                    nearest != null ? nearest.getURL() : null, newNearest.getURL());
-                            nearest = newNearest;
-                            if (delegate == nearest) {
-                                updateRssi(newRssi);
-                            }
-                        }
-                    } finally {
-                        rssiLock.unlock();
-                    }
-                }
-            } catch (InterruptedException ignore) {
-                logger.debug("Could not acquire a lock to update RSSI: {}", delegate.getURL());
+            Instant lastAdvertised = delegate.getLastAdvertised();
+            DeviceGovernorHandler newNearest = nearestTracker.update(index, this, delegate.getEstimatedDistance(),
+                    lastAdvertised != null ? lastAdvertised.toEpochMilli() : 0);
+            if (nearest != newNearest.delegate) {
+                logger.debug("Nearest delegate changed (current / new): {} / {}",
+                        nearest != null ? nearest.getURL() : null, newNearest.delegate.getURL());
+                nearest = newNearest.delegate;
+            }
+            if (newNearest == this) {
+                updateRssi(newRssi);
             }
         }
     }
@@ -991,22 +1320,4 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
                     .forEach(consumer);
         }
     }
-
-    private class DistanceComparator implements Comparator<DeviceGovernorHandler> {
-
-        @Override
-        public int compare(DeviceGovernorHandler first, DeviceGovernorHandler second) {
-            Instant current = Instant.now();
-            boolean firstStale = current.toEpochMilli() - getEpoch(first) > STALE_TIMEOUT;
-            boolean secondStale = current.toEpochMilli() - getEpoch(second) > STALE_TIMEOUT;
-            double firstWeighedValue = first.distance * (firstStale ? 1 : 1000);
-            double secondWeighedValue = second.distance * (secondStale ? 1 : 1000);
-
-            return Double.compare(firstWeighedValue, secondWeighedValue);
-        }
-
-        private long getEpoch(DeviceGovernorHandler handler) {
-            return handler.lastAdvertised != null ? handler.lastAdvertised.toEpochMilli() : 0;
-        }
-    }
 }
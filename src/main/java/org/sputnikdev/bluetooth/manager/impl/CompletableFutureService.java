@@ -4,10 +4,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sputnikdev.bluetooth.manager.BluetoothGovernor;
 import org.sputnikdev.bluetooth.manager.BluetoothInteractionException;
+import org.sputnikdev.bluetooth.manager.GovernorTransition;
 import org.sputnikdev.bluetooth.manager.NotReadyException;
 import org.sputnikdev.bluetooth.manager.auth.BluetoothAuthenticationException;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Function;
@@ -19,29 +24,36 @@ class CompletableFutureService<G extends BluetoothGovernor> {
 
     private final ConcurrentLinkedQueue<DeferredCompletableFuture<G, ?>> futures =
             new ConcurrentLinkedQueue<>();
+    // futures waiting for state transitions, they are not polled, but completed by transition notifications
+    private final Map<GovernorTransition, ConcurrentLinkedQueue<DeferredCompletableFuture<G, ?>>> transitionFutures =
+            new EnumMap<>(GovernorTransition.class);
+
+    CompletableFutureService() {
+        for (GovernorTransition transition : GovernorTransition.values()) {
+            transitionFutures.put(transition, new ConcurrentLinkedQueue<>());
+        }
+    }
 
     <V> CompletableFuture<V> submit(G governor, Predicate<G> predicate, Function<G, V> function) {
         DeferredCompletableFuture<G, V> future = new DeferredCompletableFuture<>(predicate, function);
-
-        try {
-            if (!predicate.test(governor)) {
-                logger.debug("Future is not ready to be completed immediately: {} : {}", governor.getURL(), predicate);
-                futures.add(future);
-                return future;
-            }
-
-            logger.debug("Trying to complete future immediately: {} : {}", governor.getURL(), predicate);
-
-            future.complete(function.apply(governor));
-        } catch (BluetoothInteractionException | NotReadyException | BluetoothAuthenticationException nativeException) {
-            logger.warn("Bluetooth error happened while completing a future immediately: {} : {}",
-                    governor.getURL(), nativeException.getMessage());
+        if (!completeImmediately(governor, future)) {
             futures.add(future);
-        } catch (Exception ex) {
-            logger.error("Application error happened while completing a ready future: {}", governor.getURL(), ex);
-            future.completeExceptionally(ex);
         }
+        return future;
+    }
 
+    @SuppressWarnings("unchecked")
+    <V> CompletableFuture<V> submit(G governor, GovernorTransition transition, Function<G, V> function) {
+        DeferredCompletableFuture<G, V> future =
+                new DeferredCompletableFuture<>((Predicate<G>) transition.getCondition(), function);
+        ConcurrentLinkedQueue<DeferredCompletableFuture<G, ?>> queue = transitionFutures.get(transition);
+        // queued before the condition is checked, so that a transition that happens in between is not missed
+        queue.add(future);
+        // whoever removes the future from the queue completes it, either this or the transition notification
+        if (isConditionMet(governor, future) && queue.remove(future) && !completeImmediately(governor, future)) {
+            // the transition notification will not come again, hence the future is retried by polling
+            futures.add(future);
+        }
         return future;
     }
 
@@ -85,9 +97,101 @@ class CompletableFutureService<G extends BluetoothGovernor> {
         }
     }
 
+    /**
+     * Completes futures that wait for the given transition. This is called by the notification that causes
+     * the transition, therefore the condition of the transition is not evaluated.
+     * @param governor governor
+     * @param transition state transition that has just happened
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    void complete(G governor, GovernorTransition transition) {
+        ConcurrentLinkedQueue<DeferredCompletableFuture<G, ?>> queue = transitionFutures.get(transition);
+        for (DeferredCompletableFuture next : drain(queue)) {
+            if (next.isCancelled() || next.isDone()) {
+                continue;
+            }
+            try {
+                next.complete(next.getFunction().apply(governor));
+            } catch (BluetoothInteractionException | NotReadyException | BluetoothAuthenticationException
+                    nativeException) {
+                logger.warn("Bluetooth error happened while completing a future of transition: {} : {} : {}",
+                        governor.getURL(), transition, nativeException.getMessage());
+                // the transition notification will not come again, hence the future is retried
+                // by the polled queue (its condition is evaluated on each governor update)
+                futures.add(next);
+            } catch (Exception ex) {
+                logger.warn("Application error happened while completing a future of transition: {} : {} : {}",
+                        governor.getURL(), transition, ex.getMessage());
+                next.completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * Evaluates conditions of all futures that wait for state transitions and completes those which conditions
+     * are met. This is used when transition notifications could have been missed, e.g. when the governor
+     * is being (re)initialised.
+     * @param governor governor
+     */
+    void completeTransitions(G governor) {
+        transitionFutures.values().forEach(queue -> {
+            for (DeferredCompletableFuture<G, ?> next : drain(queue)) {
+                if (!next.isCancelled() && !next.isDone() && !completeImmediately(governor, next)) {
+                    queue.add(next);
+                }
+            }
+        });
+    }
+
     void clear() {
         futures.forEach(future -> future.cancel(true));
         futures.clear();
+        transitionFutures.values().forEach(queue -> {
+            queue.forEach(future -> future.cancel(true));
+            queue.clear();
+        });
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private boolean completeImmediately(G governor, DeferredCompletableFuture future) {
+        Predicate<G> predicate = future.getPredicate();
+        try {
+            if (!predicate.test(governor)) {
+                logger.debug("Future is not ready to be completed immediately: {} : {}", governor.getURL(), predicate);
+                return false;
+            }
+
+            logger.debug("Trying to complete future immediately: {} : {}", governor.getURL(), predicate);
+
+            future.complete(future.getFunction().apply(governor));
+        } catch (BluetoothInteractionException | NotReadyException | BluetoothAuthenticationException nativeException) {
+            logger.warn("Bluetooth error happened while completing a future immediately: {} : {}",
+                    governor.getURL(), nativeException.getMessage());
+            return false;
+        } catch (Exception ex) {
+            logger.error("Application error happened while completing a ready future: {}", governor.getURL(), ex);
+            future.completeExceptionally(ex);
+        }
+        return true;
+    }
+
+    private boolean isConditionMet(G governor, DeferredCompletableFuture<G, ?> future) {
+        try {
+            return future.getPredicate().test(governor);
+        } catch (BluetoothInteractionException | NotReadyException | BluetoothAuthenticationException nativeException) {
+            logger.warn("Bluetooth error happened while checking a condition of a future: {} : {}",
+                    governor.getURL(), nativeException.getMessage());
+            return false;
+        }
+    }
+
+    private static <F> List<F> drain(ConcurrentLinkedQueue<F> queue) {
+        List<F> drained = new ArrayList<>();
+        F next;
+        while ((next = queue.poll()) != null) {
+            drained.add(next);
+        }
+        return drained;
     }
 
 }
@@ -22,16 +22,29 @@ package org.sputnikdev.bluetooth.manager.impl;
 
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * A utility class that can accommodate 63 boolean flags. It is similar to {@link java.util.BitSet}
- * but synchronized and provides some "atomic" utility methods for tracking changes.
+ * A utility class that can accommodate an unbounded number of boolean flags. It is similar to
+ * {@link java.util.BitSet} but thread safe and provides some "atomic" utility methods for tracking changes.
+ * <br>Flags are packed into 64-bit words which are updated independently with CAS, so that updates of different
+ * words never contend. The overall (cumulative) state is tracked by a counter of non-empty words, therefore
+ * changes of the overall state are always reported in strictly alternating order, even when several words
+ * are updated concurrently.
+ * <br>A bitmap is meant to be used either cumulatively or exclusively. An exclusive bitmap can have only one flag
+ * set at a time, its state is kept in a single atomic field.
  * @author Vlad Kolotov
  */
 class ConcurrentBitMap {
 
-    private final AtomicLong bits = new AtomicLong();
+    private static final int NONE = -1;
+
+    // words are never replaced, the array gets only extended (copying references), so that CAS updates
+    // of a word are never lost while the array is being extended
+    private volatile AtomicLong[] words = {new AtomicLong()};
+    private final AtomicInteger nonEmptyWords = new AtomicInteger();
+    private final AtomicInteger exclusive = new AtomicInteger(NONE);
     private final Queue<Runnable> notifications = new ConcurrentLinkedQueue<>();
 
     /**
@@ -80,21 +93,23 @@ class ConcurrentBitMap {
      * @param notChanged triggered if the overall state does not change
      */
     void cumulativeSet(int index, boolean newState, Runnable changed, Runnable notChanged) {
-        if (index < 0 || index > 63) {
-            throw new IllegalStateException("Invalid index, must be between 0 and 63: " + index);
+        checkIndex(index);
+        AtomicLong word = getWord(index >>> 6);
+        long mask = 1L << index;
+        long current;
+        long updated;
+        do {
+            current = word.get();
+            updated = newState ? current | mask : current & ~mask;
+        } while (current != updated && !word.compareAndSet(current, updated));
+
+        boolean overallChanged = false;
+        if (current == 0 && updated != 0) {
+            overallChanged = nonEmptyWords.incrementAndGet() == 1;
+        } else if (current != 0 && updated == 0) {
+            overallChanged = nonEmptyWords.decrementAndGet() == 0;
         }
-        bits.getAndUpdate(current -> {
-            long updated = newState ? current | (1L << index) : current & ~(1L << index);
-            if (updated > 0 && current == 0 || updated == 0 && current > 0) {
-                if (changed != null) {
-                    notifications.add(changed);
-                }
-            } else if (notChanged != null) {
-                notifications.add(notChanged);
-            }
-            return updated;
-        });
-        handleNotifications();
+        enqueue(overallChanged ? changed : notChanged);
     }
 
     /**
@@ -105,21 +120,14 @@ class ConcurrentBitMap {
      * @param notChanged triggered if the overall state does not change
      */
     void exclusiveSet(int index, boolean newState, Runnable changed, Runnable notChanged) {
-        if (index < 0 || index > 63) {
-            throw new IllegalStateException("Invalid index, must be between 0 and 63: " + index);
+        checkIndex(index);
+        boolean overallChanged;
+        if (newState) {
+            overallChanged = exclusive.getAndSet(index) == NONE;
+        } else {
+            overallChanged = exclusive.compareAndSet(index, NONE);
         }
-        bits.getAndUpdate(current -> {
-            long updated = newState ? (1L << index) : current & ~(1L << index);
-            if (updated > 0 && current == 0 || updated == 0 && current > 0) {
-                if (changed != null) {
-                    notifications.add(changed);
-                }
-            } else if (notChanged != null) {
-                notifications.add(notChanged);
-            }
-            return updated;
-        });
-        handleNotifications();
+        enqueue(overallChanged ? changed : notChanged);
     }
 
     /**
@@ -127,7 +135,7 @@ class ConcurrentBitMap {
      * @return true if any of bits is set to 1, false otherwise
      */
     boolean get() {
-        return bits.get() > 0;
+        return nonEmptyWords.get() > 0 || exclusive.get() != NONE;
     }
 
     /**
@@ -136,22 +144,71 @@ class ConcurrentBitMap {
      * @return one bit index
      */
     int getUniqueIndex() {
-        long state = bits.get();
-        if (Long.bitCount(state) > 1) {
-            throw new IllegalStateException("Multiple one bits found");
+        int found = exclusive.get();
+        if (nonEmptyWords.get() == 0) {
+            return found;
+        }
+        AtomicLong[] current = words;
+        for (int i = 0; i < current.length; i++) {
+            long state = current[i].get();
+            if (state != 0) {
+                if (found != NONE || Long.bitCount(state) > 1) {
+                    throw new IllegalStateException("Multiple one bits found");
+                }
+                found = (i << 6) + Long.numberOfTrailingZeros(state);
+            }
         }
-        return Long.numberOfTrailingZeros(state);
+        return found;
     }
 
     void reset() {
-        bits.set(0);
+        for (AtomicLong word : words) {
+            if (word.getAndSet(0) != 0) {
+                nonEmptyWords.decrementAndGet();
+            }
+        }
+        exclusive.set(NONE);
+    }
+
+    private AtomicLong getWord(int wordIndex) {
+        AtomicLong[] current = words;
+        if (wordIndex < current.length) {
+            return current[wordIndex];
+        }
+        synchronized (this) {
+            current = words;
+            if (wordIndex >= current.length) {
+                AtomicLong[] extended = new AtomicLong[Math.max(wordIndex + 1, current.length * 2)];
+                System.arraycopy(current, 0, extended, 0, current.length);
+                for (int i = current.length; i < extended.length; i++) {
+                    extended[i] = new AtomicLong();
+                }
+                words = extended;
+                current = extended;
+            }
+            return current[wordIndex];
+        }
+    }
+
+    private void enqueue(Runnable notification) {
+        if (notification != null) {
+            notifications.add(notification);
+        }
+        handleNotifications();
     }
 
     private void handleNotifications() {
-        notifications.removeIf(notification -> {
+        // polling ensures that each notification is run exactly once even if notifications are handled concurrently
+        Runnable notification;
+        while ((notification = notifications.poll()) != null) {
             notification.run();
-            return true;
-        });
+        }
+    }
+
+    private static void checkIndex(int index) {
+        if (index < 0) {
+            throw new IllegalStateException("Invalid index, must not be negative: " + index);
+        }
     }
 
 }
@@ -35,22 +35,31 @@ import org.sputnikdev.bluetooth.manager.CharacteristicGovernor;
 import org.sputnikdev.bluetooth.manager.DeviceGovernor;
 import org.sputnikdev.bluetooth.manager.GattCharacteristic;
 import org.sputnikdev.bluetooth.manager.GattService;
+import org.sputnikdev.bluetooth.manager.GattTransaction;
 import org.sputnikdev.bluetooth.manager.GenericBluetoothDeviceListener;
+import org.sputnikdev.bluetooth.manager.GovernorTransition;
 import org.sputnikdev.bluetooth.manager.NotReadyException;
 import org.sputnikdev.bluetooth.manager.auth.AuthenticationProvider;
 import org.sputnikdev.bluetooth.manager.auth.BluetoothAuthenticationException;
+import org.sputnikdev.bluetooth.manager.capture.CaptureLog;
+import org.sputnikdev.bluetooth.manager.capture.CaptureRecordType;
 import org.sputnikdev.bluetooth.manager.transport.Characteristic;
+import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
 import org.sputnikdev.bluetooth.manager.transport.Device;
+import org.sputnikdev.bluetooth.manager.transport.DeviceState;
 import org.sputnikdev.bluetooth.manager.transport.Notification;
 import org.sputnikdev.bluetooth.manager.transport.Service;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -73,7 +82,7 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
     private final List<GenericBluetoothDeviceListener> genericBluetoothDeviceListeners = new CopyOnWriteArrayList<>();
     private final List<BluetoothSmartDeviceListener> bluetoothSmartDeviceListeners = new CopyOnWriteArrayList<>();
 
-    private boolean authenticated;
+    private volatile boolean authenticated;
 
     private ConnectionNotification connectionNotification;
     private BlockedNotification blockedNotification;
@@ -82,6 +91,8 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
     private ServiceDataNotification serviceDataNotification;
     private ManufacturerDataNotification manufacturerDataNotification;
     private boolean connectionControl;
+    // when the current connection attempt was started (0 if there is no attempt in progress)
+    private volatile long connectionAttemptStarted;
     private boolean blockedControl;
     private boolean online;
     private int onlineTimeout = DEFAULT_ONLINE_TIMEOUT;
@@ -96,6 +107,17 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
     private double signalPropagationExponent;
     private Instant lastAdvertised;
     private short txPower;
+    // static properties, captured in init and invalidated on reset
+    private volatile boolean staticPropertiesCached;
+    private volatile String name;
+    private volatile String alias;
+    private volatile int bluetoothClass;
+    private volatile boolean bleEnabled;
+    // immutable GATT database, built once services are resolved and invalidated when they are unresolved
+    private volatile List<GattService> gattDatabase;
+    // persisted GATT database of a known device, reported by getKnownServices until services are resolved
+    private volatile List<GattService> knownGattDatabase;
+    private volatile GattOperationQueue gattOperationQueue;
 
     DeviceGovernorImpl(BluetoothManagerImpl bluetoothManager, URL url) {
         super(bluetoothManager, url);
@@ -104,6 +126,11 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
     @Override
     void init(Device device) {
         logger.debug("Initializing device governor: {}", url);
+        name = device.getName();
+        alias = device.getAlias();
+        bluetoothClass = device.getBluetoothClass();
+        bleEnabled = device.isBleEnabled();
+        staticPropertiesCached = true;
         enableRSSINotifications(device);
         enableConnectionNotifications(device);
         enableServicesResolvedNotifications(device);
@@ -113,8 +140,10 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         if (device.isConnected()) {
             notifyConnected(true);
             if (device.isServicesResolved()) {
-                notifyServicesResolved(getResolvedServices());
+                notifyServicesResolved(resolveGattDatabase(device));
                 authenticate();
+            } else {
+                loadKnownGattDatabase();
             }
         }
         logger.trace("Device governor initialization performed: {}", url);
@@ -129,17 +158,20 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         logger.trace("Checking if device adapter is ready / powered: {} : {} / {}",
                 url, adapterReady, adapterPowered);
         if (adapterReady && adapterPowered) {
-            updateBlocked(device);
+            // getting all frequently polled attributes in one go, some transports can do it in a single call
+            DeviceState state = device.getState();
+            logger.trace("Device state: {} : {}", url, state);
+            updateBlocked(device, state.isBlocked());
             if (!blockedControl) {
                 // Note: BlueGiga and TinyB devices work in different way:
                 // TinyB would have thrown an exception if the device was out of range (or turned off)
                 // BlueGiga would not thrown any exception by now
                 // therefore we need to check if BlueGiga device is still alive by querying the device RSSI
                 // Further note: TinyB device when connected constantly returns the very last known RSSI
-                boolean connected = updateConnected(device);
+                boolean connected = updateConnected(device, state.isConnected());
                 if (connected) {
                     logger.debug("Checking if device is still alive by getting its RSSI: {}", url);
-                    notifyRSSIChanged(getRSSI());
+                    notifyRSSIChanged(state.getRSSI());
                     updateLastInteracted();
                 } else {
                     // if not connected, there is not any easy way to check if the native object is still
@@ -151,7 +183,7 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
                     // see {@link CombinedDeviceGovernorImpl#update()} method
                 }
             }
-            txPower = device.getTxPower();
+            txPower = state.getTxPower();
         }
 
         boolean newOnline = isOnline();
@@ -209,6 +241,11 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
     @Override
     void reset(Device device) {
         logger.debug("Resetting device governor: {}", url);
+        staticPropertiesCached = false;
+        name = null;
+        alias = null;
+        gattDatabase = null;
+        knownGattDatabase = null;
         try {
             logger.trace("Disable device notifications: {}", url);
             device.disableConnectedNotifications();
@@ -225,6 +262,8 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         } catch (Exception ex) {
             logger.warn("Error occurred while resetting device: {} : {} ", url, ex.getMessage());
         }
+        // the device (or adapter) failed while connecting
+        completeConnectionAttempt(false);
         connectionNotification = null;
         servicesResolvedNotification = null;
         rssiNotification = null;
@@ -239,8 +278,16 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
     public void dispose() {
         super.dispose();
         logger.trace("Disposing device governor: {}", url);
+        AdapterLoad adapterLoad = bluetoothManager.getAdapterLoad(url);
+        if (adapterLoad != null) {
+            adapterLoad.remove(url);
+        }
         genericBluetoothDeviceListeners.clear();
         bluetoothSmartDeviceListeners.clear();
+        GattOperationQueue queue = gattOperationQueue;
+        if (queue != null) {
+            queue.cancel(new NotReadyException("Device governor has been disposed: " + url));
+        }
         logger.debug("Device governor disposed: {}", url);
     }
 
@@ -251,27 +298,48 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
 
     @Override
     public int getBluetoothClass() throws NotReadyException {
+        if (isStaticPropertiesCached()) {
+            return bluetoothClass;
+        }
         return interact("getBluetoothClass", Device::getBluetoothClass);
     }
 
     @Override
     public boolean isBleEnabled() throws NotReadyException {
+        if (isStaticPropertiesCached()) {
+            return bleEnabled;
+        }
         return interact("isBleEnabled", Device::isBleEnabled);
     }
 
     @Override
     public String getName() throws NotReadyException {
-        return interact("getName", Device::getName);
+        String cached = name;
+        if (cached != null && isStaticPropertiesCached()) {
+            return cached;
+        }
+        // some transports do not know device name until a scan response is received, hence it is re-requested
+        String deviceName = interact("getName", Device::getName);
+        if (staticPropertiesCached) {
+            name = deviceName;
+        }
+        return deviceName;
     }
 
     @Override
     public String getAlias() throws NotReadyException {
+        if (isStaticPropertiesCached()) {
+            return alias;
+        }
         return interact("getAlias", Device::getAlias);
     }
 
     @Override
     public void setAlias(String alias) throws NotReadyException {
         interact("setAlias", Device::setAlias, alias);
+        if (staticPropertiesCached) {
+            this.alias = alias;
+        }
     }
 
     @Override
@@ -290,6 +358,14 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         boolean changed = this.connectionControl != connectionControl;
         if (changed) {
             this.connectionControl = connectionControl;
+            if (!connectionControl) {
+                // cancelled, neither success nor failure
+                connectionAttemptStarted = 0;
+            }
+            AdapterLoad adapterLoad = bluetoothManager.getAdapterLoad(url);
+            if (adapterLoad != null) {
+                adapterLoad.setConnectionControl(url, connectionControl);
+            }
             scheduleUpdate();
         }
     }
@@ -449,17 +525,21 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
 
     @Override
     public List<GattService> getResolvedServices() throws NotReadyException {
-        return interact("getResolvedServices", device -> {
-            List<GattService> services = new ArrayList<>();
-            for (Service service : device.getServices()) {
-                List<GattCharacteristic> characteristics = new ArrayList<>();
-                for (Characteristic characteristic : service.getCharacteristics()) {
-                    characteristics.add(convert(characteristic));
-                }
-                services.add(new GattService(service.getURL(), characteristics));
-            }
-            return services;
-        });
+        List<GattService> cached = gattDatabase;
+        if (cached != null && isReady()) {
+            return cached;
+        }
+        return interact("getResolvedServices", DeviceGovernorImpl::buildGattDatabase);
+    }
+
+    @Override
+    public List<GattService> getKnownServices() {
+        List<GattService> resolved = gattDatabase;
+        if (resolved != null) {
+            return resolved;
+        }
+        loadKnownGattDatabase();
+        return knownGattDatabase;
     }
 
     @Override
@@ -532,7 +612,47 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
     }
 
     void setAuthenticated(boolean authenticated) {
+        boolean wasAuthenticated = this.authenticated;
         this.authenticated = authenticated;
+        if (authenticated && !wasAuthenticated) {
+            notifyTransition(GovernorTransition.AUTHENTICATED);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> execute(GattTransaction transaction) {
+        GattTransactionExecutor executor;
+        try {
+            executor = new GattTransactionExecutor(bluetoothManager, url, transaction);
+        } catch (IllegalArgumentException ex) {
+            CompletableFuture<List<byte[]>> future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+            return future;
+        }
+        return getGattOperationQueue().submit("transaction", () -> {
+            if (!isReady() || !isConnected()) {
+                throw new NotReadyException("Device is not connected: " + url);
+            }
+            return executor.execute();
+        });
+    }
+
+    /**
+     * Returns a queue that serialises all GATT operations (reads, writes etc) of the device.
+     * @return GATT operation queue of the device
+     */
+    GattOperationQueue getGattOperationQueue() {
+        GattOperationQueue queue = gattOperationQueue;
+        if (queue == null) {
+            synchronized (this) {
+                queue = gattOperationQueue;
+                if (queue == null) {
+                    queue = new GattOperationQueue(url, bluetoothManager.getGattOperationExecutor());
+                    gattOperationQueue = queue;
+                }
+            }
+        }
+        return queue;
     }
 
     @Override
@@ -541,6 +661,13 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
     }
 
     void notifyConnected(boolean connected) {
+        AdapterLoad adapterLoad = bluetoothManager.getAdapterLoad(url);
+        if (adapterLoad != null) {
+            adapterLoad.setConnected(url, connected);
+        }
+        if (connected) {
+            completeConnectionAttempt(true);
+        }
         logger.debug("Notifying device governor listener (connected): {} : {} : {}",
                 url, bluetoothSmartDeviceListeners.size(), connected);
         bluetoothSmartDeviceListeners.forEach(listener -> {
@@ -554,6 +681,9 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
                 logger.error("Execution error of a connection listener", ex);
             }
         });
+        if (connected) {
+            notifyTransition(GovernorTransition.CONNECTED);
+        }
     }
 
     void notifyBlocked(boolean blocked) {
@@ -569,6 +699,7 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         BluetoothManagerUtils.forEachSilently(bluetoothSmartDeviceListeners,
                 BluetoothSmartDeviceListener::servicesResolved, services, logger,
                 "Execution error of a service resolved listener");
+        notifyTransition(GovernorTransition.SERVICES_RESOLVED);
     }
 
     void notifyServicesUnresolved() {
@@ -703,11 +834,69 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         bluetoothManager.updateDescendants(url);
     }
 
+    private List<GattService> resolveGattDatabase(Device device) {
+        List<GattService> services = buildGattDatabase(device);
+        gattDatabase = services;
+        GattDatabaseStore store = bluetoothManager.getGattDatabaseStore();
+        if (store != null) {
+            List<GattService> known = knownGattDatabase != null ? knownGattDatabase : store.load(url);
+            if (known != null && index(known).equals(index(services))) {
+                logger.debug("Known GATT database matches resolved services: {}", url);
+            } else {
+                store.save(url, services);
+            }
+        }
+        knownGattDatabase = null;
+        return services;
+    }
+
+    private void loadKnownGattDatabase() {
+        GattDatabaseStore store = bluetoothManager.getGattDatabaseStore();
+        if (store != null && gattDatabase == null && knownGattDatabase == null) {
+            logger.debug("Loading known GATT database: {}", url);
+            // URLs are built the same way as URLs of resolved services
+            String transport = getTransport();
+            knownGattDatabase = store.load(transport != null ? url.copyWithProtocol(transport) : url);
+        }
+    }
+
+    private static Map<URL, Map<URL, Set<CharacteristicAccessType>>> index(List<GattService> services) {
+        Map<URL, Map<URL, Set<CharacteristicAccessType>>> index = new HashMap<>();
+        for (GattService service : services) {
+            Map<URL, Set<CharacteristicAccessType>> characteristics = new HashMap<>();
+            for (GattCharacteristic characteristic : service.getCharacteristics()) {
+                characteristics.put(characteristic.getURL().copyWithProtocol(null), characteristic.getFlags());
+            }
+            index.put(service.getURL().copyWithProtocol(null), characteristics);
+        }
+        return index;
+    }
+
+    private static List<GattService> buildGattDatabase(Device device) {
+        return convert(device.getServices());
+    }
+
+    private boolean isStaticPropertiesCached() {
+        return staticPropertiesCached && isReady();
+    }
+
     private void resetCharacteristics() {
         logger.debug("Resetting device governor characteristics: {}", url);
         bluetoothManager.resetDescendants(url);
     }
 
+    private static List<GattService> convert(List<Service> nativeServices) {
+        List<GattService> services = new ArrayList<>();
+        for (Service service : nativeServices) {
+            List<GattCharacteristic> characteristics = new ArrayList<>();
+            for (Characteristic characteristic : service.getCharacteristics()) {
+                characteristics.add(convert(characteristic));
+            }
+            services.add(new GattService(service.getURL(), characteristics));
+        }
+        return Collections.unmodifiableList(services);
+    }
+
     private static GattCharacteristic convert(Characteristic characteristic) {
         return new GattCharacteristic(characteristic.getURL(), characteristic.getFlags());
     }
@@ -721,24 +910,26 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         this.online = online;
     }
 
-    private void updateBlocked(Device device) {
+    private void updateBlocked(Device device, boolean blocked) {
         logger.trace("Updating device governor blocked state: {}", url);
-        boolean blocked = device.isBlocked();
         if (blockedControl != blocked) {
             logger.debug("Updating blocked state: {} : {} (control) / {} (state)", url, blockedControl, blocked);
             device.setBlocked(blockedControl);
         }
     }
 
-    private boolean updateConnected(Device device) {
+    private boolean updateConnected(Device device, boolean connected) {
         logger.trace("Updating device governor connected state: {}", url);
-        boolean connected = isConnected();
         logger.trace("Connected state: {} : {} (control) / {} (state)", url, connectionControl, connected);
         if (connectionControl && !connected && isOnline()) {
             logger.debug("Connecting device: {}", url);
             // if connect returns true, it does not mean that it is already connected, it means that the connection
             // procedure has been started successfully, a connection event should indicate when the procedure finishes
+            if (connectionAttemptStarted == 0) {
+                connectionAttemptStarted = System.currentTimeMillis();
+            }
             if (!device.connect()) {
+                completeConnectionAttempt(false);
                 throw new NotReadyException("Could not connect to device: " + url);
             }
             connected = true;
@@ -752,6 +943,17 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         return connected;
     }
 
+    private void completeConnectionAttempt(boolean succeeded) {
+        long started = connectionAttemptStarted;
+        if (started > 0) {
+            connectionAttemptStarted = 0;
+            AdapterHealth health = bluetoothManager.getAdapterHealth(url);
+            if (health != null) {
+                health.recordConnectionAttempt(succeeded, System.currentTimeMillis() - started);
+            }
+        }
+    }
+
     private short getTxPowerInternal() {
         short txPower = measuredTxPower;
         if (txPower == 0 && isReady()) {
@@ -777,6 +979,14 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         return propagationExponent;
     }
 
+    private static byte[] withManufacturerId(short id, byte[] data) {
+        byte[] payload = new byte[data.length + 2];
+        payload[0] = (byte) id;
+        payload[1] = (byte) (id >> 8);
+        System.arraycopy(data, 0, payload, 2, data.length);
+        return payload;
+    }
+
     private Map<URL, byte[]> convert(Map<String, byte[]> serviceData) {
         return serviceData.entrySet().stream()
                 .collect(Collectors.toMap(entry -> url.copyWithService(entry.getKey()), Map.Entry::getValue)) ;
@@ -787,7 +997,11 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         public void notify(Boolean connected) {
             logger.debug("Connected (notification): {} : {}", url, connected);
             notifyConnected(connected);
-            if (!connected) {
+            if (connected) {
+                loadKnownGattDatabase();
+            } else {
+                gattDatabase = null;
+                knownGattDatabase = null;
                 resetCharacteristics();
                 setAuthenticated(false);
             }
@@ -810,7 +1024,8 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
             logger.debug("Services resolved (notification): {} : {}", url, serviceResolved);
 
             if (serviceResolved) {
-                List<GattService> gattServices = getResolvedServices();
+                List<GattService> gattServices = interact("getResolvedServices",
+                        DeviceGovernorImpl.this::resolveGattDatabase);
                 if (gattServices != null) {
                     notifyServicesResolved(gattServices);
                 }
@@ -819,6 +1034,7 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
                 updateLastInteracted();
             } else {
                 logger.debug("Resetting characteristic governors due to services unresolved event: {}", url);
+                gattDatabase = null;
                 setAuthenticated(false);
                 resetCharacteristics();
                 notifyServicesUnresolved();
@@ -862,6 +1078,12 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
             BluetoothManagerUtils.forEachSilently(bluetoothSmartDeviceListeners,
                 listener -> listener.serviceDataChanged(convert(serviceData)), logger,
                     "Execution error of a service data listener");
+            CaptureLog captureLog = bluetoothManager.getCaptureLog();
+            if (captureLog != null) {
+                long timestamp = System.nanoTime();
+                serviceData.forEach((uuid, data) -> captureLog.append(CaptureRecordType.SERVICE_DATA,
+                        url.copyWithService(uuid), timestamp, data));
+            }
             updateLastAdvertised();
         }
     }
@@ -874,6 +1096,12 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
             BluetoothManagerUtils.forEachSilently(bluetoothSmartDeviceListeners,
                 listener -> listener.manufacturerDataChanged(manufacturerData), logger,
                     "Execution error of a manufacturer data listener");
+            CaptureLog captureLog = bluetoothManager.getCaptureLog();
+            if (captureLog != null) {
+                long timestamp = System.nanoTime();
+                manufacturerData.forEach((id, data) -> captureLog.append(CaptureRecordType.MANUFACTURER_DATA,
+                        url, timestamp, withManufacturerId(id, data)));
+            }
             updateLastAdvertised();
         }
     }
@@ -0,0 +1,167 @@
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.GattCharacteristic;
+import org.sputnikdev.bluetooth.manager.GattService;
+import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A simple file based storage for GATT databases (services and characteristics) of known devices.
+ * Each device database is stored in a separate file which is named after the device address, therefore
+ * the same database is shared between all adapters the device is visible through.
+ *
+ * <p>File format (one service per line followed by its characteristics, one per line, indented with a space):
+ * <pre>
+ * 0000180f-0000-1000-8000-00805f9b34fb
+ *  00002a19-0000-1000-8000-00805f9b34fb READ,NOTIFY
+ * </pre>
+ *
+ * @author Vlad Kolotov
+ */
+class GattDatabaseStore {
+
+    private static final String FILE_EXTENSION = ".gatt";
+
+    private Logger logger = LoggerFactory.getLogger(GattDatabaseStore.class);
+
+    private final Path directory;
+
+    GattDatabaseStore(Path directory) {
+        this.directory = directory;
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Loads a previously stored GATT database of the given device.
+     * @param deviceURL device URL, service and characteristic URLs are built relative to this URL
+     * @return GATT database or null if the device is not known or the database could not be read
+     */
+    List<GattService> load(URL deviceURL) {
+        Path file = getFile(deviceURL);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        List<GattService> services = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            URL serviceURL = null;
+            List<GattCharacteristic> characteristics = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                if (!line.startsWith(" ")) {
+                    if (serviceURL != null) {
+                        services.add(new GattService(serviceURL, characteristics));
+                    }
+                    serviceURL = deviceURL.copyWithService(line.trim());
+                    characteristics = new ArrayList<>();
+                } else if (serviceURL != null) {
+                    String[] tokens = line.trim().split(" ");
+                    Set<CharacteristicAccessType> flags = EnumSet.noneOf(CharacteristicAccessType.class);
+                    if (tokens.length > 1 && !tokens[1].isEmpty()) {
+                        for (String flag : tokens[1].split(",")) {
+                            flags.add(CharacteristicAccessType.valueOf(flag));
+                        }
+                    }
+                    characteristics.add(new GattCharacteristic(serviceURL.copyWithCharacteristic(tokens[0]), flags));
+                } else {
+                    throw new IOException("Characteristic is defined outside of a service: " + line);
+                }
+            }
+            if (serviceURL != null) {
+                services.add(new GattService(serviceURL, characteristics));
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Could not load GATT database: {} : {}", file, ex.getMessage());
+            return null;
+        }
+        logger.debug("GATT database has been loaded: {} : {}", deviceURL, services.size());
+        return Collections.unmodifiableList(services);
+    }
+
+    /**
+     * Stores GATT database of the given device.
+     * @param deviceURL device URL
+     * @param services GATT database
+     */
+    void save(URL deviceURL, List<GattService> services) {
+        Path file = getFile(deviceURL);
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (GattService service : services) {
+                    writer.write(service.getURL().getServiceUUID());
+                    writer.newLine();
+                    for (GattCharacteristic characteristic : service.getCharacteristics()) {
+                        writer.write(' ');
+                        writer.write(characteristic.getURL().getCharacteristicUUID());
+                        writer.write(' ');
+                        writer.write(characteristic.getFlags().stream()
+                                .map(Enum::name).collect(Collectors.joining(",")));
+                        writer.newLine();
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+            logger.debug("GATT database has been saved: {} : {}", deviceURL, file);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Could not save GATT database: {} : {}", file, ex.getMessage());
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ex) {
+                    logger.warn("Could not delete temporary GATT database file: {} : {}", temp, ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private Path getFile(URL deviceURL) {
+        return directory.resolve(deviceURL.getDeviceAddress().replace(':', '-').toLowerCase() + FILE_EXTENSION);
+    }
+
+}
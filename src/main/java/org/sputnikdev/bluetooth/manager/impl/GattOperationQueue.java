@@ -0,0 +1,168 @@
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sputnikdev.bluetooth.URL;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A per-device queue of GATT operations (reads, writes etc). BLE links allow only one outstanding ATT request,
+ * therefore all GATT operations of a device are serialised by this queue.
+ *
+ * <p>Asynchronous operations ({@link #submit(String, Supplier)}) are executed in order by a single drain task
+ * that runs them back-to-back while the queue is not empty, so that callers never block.
+ * Synchronous operations ({@link #execute(Supplier)}) are executed in the caller thread, but never concurrently
+ * with any other operation of the same device.
+ *
+ * @author Vlad Kolotov
+ */
+class GattOperationQueue {
+
+    private Logger logger = LoggerFactory.getLogger(GattOperationQueue.class);
+
+    private final URL url;
+    private final Executor executor;
+    // fair, so that synchronous callers are not starved by a busy queue and vice versa
+    private final ReentrantLock linkLock = new ReentrantLock(true);
+    private final Queue<Operation<?>> operations = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    GattOperationQueue(URL url, Executor executor) {
+        this.url = url;
+        this.executor = executor;
+    }
+
+    /**
+     * Submits an operation to be executed asynchronously after all previously submitted operations.
+     * @param name operation name (used for logging)
+     * @param operation operation
+     * @param <R> type of the operation result
+     * @return a future that is completed with the operation result
+     */
+    <R> CompletableFuture<R> submit(String name, Supplier<R> operation) {
+        Operation<R> op = new Operation<>(name, operation);
+        operations.add(op);
+        drain();
+        return op.future;
+    }
+
+    /**
+     * Executes an operation in the caller thread exclusively, i.e. no other operation of the device is executed
+     * at the same time.
+     * @param operation operation
+     * @param <R> type of the operation result
+     * @return the operation result
+     */
+    <R> R execute(Supplier<R> operation) {
+        linkLock.lock();
+        try {
+            return operation.get();
+        } finally {
+            linkLock.unlock();
+        }
+    }
+
+    /**
+     * Returns number of pending asynchronous operations.
+     * @return number of pending operations
+     */
+    int size() {
+        return operations.size();
+    }
+
+    /**
+     * Cancels all pending asynchronous operations.
+     * @param reason an exception to complete pending operations with
+     */
+    void cancel(Throwable reason) {
+        Operation<?> op;
+        while ((op = operations.poll()) != null) {
+            op.future.completeExceptionally(reason);
+        }
+    }
+
+    private void drain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::run);
+            } catch (RejectedExecutionException ex) {
+                draining.set(false);
+                cancel(ex);
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            Operation<?> op;
+            while ((op = operations.poll()) != null) {
+                linkLock.lock();
+                try {
+                    op.run();
+                } finally {
+                    linkLock.unlock();
+                }
+            }
+        } finally {
+            draining.set(false);
+            // an operation might have been added after the queue was seen empty, but before the flag was reset
+            if (!operations.isEmpty()) {
+                drain();
+            }
+        }
+    }
+
+    private final class Operation<R> {
+        private final String name;
+        private final Supplier<R> operation;
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+
+        private Operation(String name, Supplier<R> operation) {
+            this.name = name;
+            this.operation = operation;
+        }
+
+        private void run() {
+            if (future.isDone()) {
+                // cancelled by the caller
+                return;
+            }
+            try {
+                logger.trace("Executing GATT operation ({}): {}", name, url);
+                future.complete(operation.get());
+            } catch (Exception ex) {
+                logger.debug("GATT operation ({}) failed: {} : {}", name, url, ex.getMessage());
+                future.completeExceptionally(ex);
+            }
+        }
+    }
+
+}
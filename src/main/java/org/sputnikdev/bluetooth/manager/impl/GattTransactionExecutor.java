@@ -0,0 +1,157 @@
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.BluetoothInteractionException;
+import org.sputnikdev.bluetooth.manager.CharacteristicGovernor;
+import org.sputnikdev.bluetooth.manager.GattTransaction;
+import org.sputnikdev.bluetooth.manager.ValueListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes a GATT transaction step by step. The executor is meant to be run by the device GATT operation queue,
+ * so that the whole transaction is executed exclusively (without interleaving with other GATT operations).
+ *
+ * @author Vlad Kolotov
+ */
+class GattTransactionExecutor {
+
+    private Logger logger = LoggerFactory.getLogger(GattTransactionExecutor.class);
+
+    private final BluetoothManagerImpl bluetoothManager;
+    private final URL deviceURL;
+    private final GattTransaction transaction;
+    private final Map<URL, BlockingQueue<byte[]>> notifications = new HashMap<>();
+    private final Map<URL, ValueListener> listeners = new HashMap<>();
+
+    GattTransactionExecutor(BluetoothManagerImpl bluetoothManager, URL deviceURL, GattTransaction transaction) {
+        this.bluetoothManager = bluetoothManager;
+        this.deviceURL = deviceURL.copyWithProtocol(null);
+        this.transaction = transaction;
+        for (GattTransaction.Step step : transaction.getSteps()) {
+            if (!this.deviceURL.equals(step.getCharacteristic().getDeviceURL().copyWithProtocol(null))) {
+                throw new IllegalArgumentException("Characteristic does not belong to the device: "
+                        + step.getCharacteristic() + " / " + deviceURL);
+            }
+        }
+    }
+
+    /**
+     * Executes the transaction.
+     * @return results of all transaction steps (null for writes)
+     */
+    List<byte[]> execute() {
+        long started = System.currentTimeMillis();
+        long deadline = transaction.getTimeout() > 0 ? started + transaction.getTimeout() : Long.MAX_VALUE;
+        logger.debug("Executing GATT transaction: {} : {}", deviceURL, transaction.getSteps());
+        subscribe();
+        try {
+            List<byte[]> results = new ArrayList<>(transaction.getSteps().size());
+            for (GattTransaction.Step step : transaction.getSteps()) {
+                if (System.currentTimeMillis() >= deadline) {
+                    throw new BluetoothInteractionException("GATT transaction timed out before step: " + step);
+                }
+                results.add(execute(step, deadline));
+            }
+            logger.debug("GATT transaction completed in {} ms: {}", System.currentTimeMillis() - started, deviceURL);
+            return results;
+        } finally {
+            unsubscribe();
+        }
+    }
+
+    private byte[] execute(GattTransaction.Step step, long deadline) {
+        CharacteristicGovernorImpl governor =
+                (CharacteristicGovernorImpl) bluetoothManager.getCharacteristicGovernor(step.getCharacteristic());
+        switch (step.getType()) {
+            case READ:
+                // transactions expect up-to-date values, hence the read cache is bypassed
+                return governor.readUncached(getTimeout("read", deadline));
+            case WRITE:
+                // notifications received so far cannot be triggered by this write
+                notifications.values().forEach(BlockingQueue::clear);
+                if (!governor.write(step.getData(), getTimeout("write", deadline))) {
+                    throw new BluetoothInteractionException("Could not write characteristic: "
+                            + step.getCharacteristic());
+                }
+                return null;
+            default:
+                return awaitNotification(step, deadline);
+        }
+    }
+
+    private long getTimeout(String operation, long deadline) {
+        long configured = bluetoothManager.getNativeCallTimeout(operation);
+        if (deadline == Long.MAX_VALUE) {
+            return configured;
+        }
+        long remaining = Math.max(1, deadline - System.currentTimeMillis());
+        return configured > 0 ? Math.min(configured, remaining) : remaining;
+    }
+
+    private byte[] awaitNotification(GattTransaction.Step step, long deadline) {
+        long timeout = Math.min(step.getTimeout(), deadline - System.currentTimeMillis());
+        try {
+            byte[] value = notifications.get(step.getCharacteristic()).poll(Math.max(0, timeout),
+                    TimeUnit.MILLISECONDS);
+            if (value == null) {
+                throw new BluetoothInteractionException("GATT transaction timed out while waiting for notification: "
+                        + step.getCharacteristic());
+            }
+            return value;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BluetoothInteractionException("GATT transaction has been interrupted: " + deviceURL, ex);
+        }
+    }
+
+    private void subscribe() {
+        for (GattTransaction.Step step : transaction.getSteps()) {
+            URL url = step.getCharacteristic();
+            if (step.getType() == GattTransaction.StepType.AWAIT_NOTIFICATION && !listeners.containsKey(url)) {
+                BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+                ValueListener listener = queue::offer;
+                notifications.put(url, queue);
+                listeners.put(url, listener);
+                CharacteristicGovernor governor = bluetoothManager.getCharacteristicGovernor(url);
+                governor.addValueListener(listener);
+                // enabling notifications straight away rather than waiting for the scheduled update
+                ((BluetoothObjectGovernor) governor).update();
+            }
+        }
+    }
+
+    private void unsubscribe() {
+        listeners.forEach((url, listener) -> bluetoothManager.getCharacteristicGovernor(url)
+                .removeValueListener(listener));
+    }
+
+}
@@ -0,0 +1,100 @@
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.ConnectionCandidate;
+import org.sputnikdev.bluetooth.manager.ConnectionTargetSelector;
+
+import java.util.List;
+
+/**
+ * Connection target selector that spreads connections across adapters,
+ * see {@link org.sputnikdev.bluetooth.manager.ConnectionStrategy#LEAST_LOADED_ADAPTER}.
+ * Load of an adapter is the number of connected devices plus the number of pending connection attempts.
+ * A candidate is viable if the device is available through the adapter, its RSSI is not weaker than
+ * the minimum RSSI and the adapter is healthy. If none of the candidates is viable, the current target is kept
+ * if it is still available, otherwise the strongest available candidate is selected.
+ *
+ * @author Vlad Kolotov
+ */
+class LeastLoadedAdapterSelector implements ConnectionTargetSelector {
+
+    static final short DEFAULT_MIN_RSSI = -90;
+
+    private final short minRssi;
+
+    LeastLoadedAdapterSelector() {
+        this(DEFAULT_MIN_RSSI);
+    }
+
+    LeastLoadedAdapterSelector(short minRssi) {
+        this.minRssi = minRssi;
+    }
+
+    @Override
+    public ConnectionCandidate select(URL device, List<ConnectionCandidate> candidates) {
+        ConnectionCandidate selected = null;
+        ConnectionCandidate strongest = null;
+        ConnectionCandidate current = null;
+        for (ConnectionCandidate candidate : candidates) {
+            if (candidate.isCurrentTarget()) {
+                current = candidate;
+            }
+            if (!candidate.isAvailable()) {
+                continue;
+            }
+            if (strongest == null || candidate.getRSSI() > strongest.getRSSI()) {
+                strongest = candidate;
+            }
+            if (candidate.getRSSI() >= minRssi && candidate.getHealthScore() >= AdapterHealth.UNHEALTHY_THRESHOLD
+                    && (selected == null || isBetter(candidate, selected))) {
+                selected = candidate;
+            }
+        }
+        if (selected != null) {
+            return selected;
+        }
+        // none of the candidates is viable, keeping the current target (if it is still available or there is
+        // nothing better) to avoid restarting connection attempts
+        if (current != null && (current.isAvailable() || strongest == null)) {
+            return current;
+        }
+        return strongest;
+    }
+
+    private static boolean isBetter(ConnectionCandidate first, ConnectionCandidate second) {
+        int firstLoad = getLoad(first);
+        int secondLoad = getLoad(second);
+        if (firstLoad != secondLoad) {
+            return firstLoad < secondLoad;
+        }
+        if (first.isCurrentTarget() != second.isCurrentTarget()) {
+            return first.isCurrentTarget();
+        }
+        return first.getRSSI() > second.getRSSI();
+    }
+
+    private static int getLoad(ConnectionCandidate candidate) {
+        return candidate.getConnectionCount() + candidate.getPendingConnectionCount();
+    }
+
+}
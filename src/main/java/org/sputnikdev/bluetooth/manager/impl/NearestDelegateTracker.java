@@ -0,0 +1,182 @@
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.sputnikdev.bluetooth.manager.impl;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks the nearest delegate (e.g. a device governor of a particular adapter) of a combined governor.
+ * Each delegate has its own slot (index) holding its last estimated distance and the time when it was estimated.
+ * Fresh readings always win over stale ones, the nearest delegate is the one with the shortest distance among
+ * delegates with fresh readings (or among all active delegates if all of them are stale).
+ *
+ * <p>The tracker is updated incrementally: a reading of a delegate that is not the nearest one is only compared
+ * with the nearest one, all slots are scanned only when the nearest delegate moves away, becomes stale
+ * or inactive. Slots are primitive arrays, so that updates do not allocate any objects.
+ *
+ * @param <T> type of delegates
+ * @author Vlad Kolotov
+ */
+class NearestDelegateTracker<T> {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final long staleTimeout;
+    private final LongSupplier clock;
+
+    private Object[] delegates = new Object[INITIAL_CAPACITY];
+    private double[] distances = new double[INITIAL_CAPACITY];
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private boolean[] active = new boolean[INITIAL_CAPACITY];
+    private int nearest = -1;
+
+    /**
+     * Creates a new tracker.
+     * @param staleTimeout a reading that is older than the timeout (milliseconds) is considered to be stale
+     */
+    NearestDelegateTracker(long staleTimeout) {
+        this(staleTimeout, System::currentTimeMillis);
+    }
+
+    NearestDelegateTracker(long staleTimeout, LongSupplier clock) {
+        this.staleTimeout = staleTimeout;
+        this.clock = clock;
+    }
+
+    /**
+     * Records a new reading of a delegate and returns the nearest delegate.
+     * @param index delegate index (slot)
+     * @param delegate delegate
+     * @param distance estimated distance to the delegate
+     * @param timestamp time (milliseconds) of the reading
+     * @return the nearest delegate
+     */
+    @SuppressWarnings("unchecked")
+    synchronized T update(int index, T delegate, double distance, long timestamp) {
+        ensureCapacity(index);
+        long now = clock.getAsLong();
+        boolean wasNearest = index == nearest;
+        boolean movedAway = wasNearest && (distance > distances[index] || isStale(timestamp, now));
+        record(index, delegate, distance, timestamp);
+        if (nearest < 0 || movedAway || isStale(timestamps[nearest], now)) {
+            nearest = scan(now);
+        } else if (!wasNearest && isNearer(index, nearest, now)) {
+            nearest = index;
+        }
+        return (T) delegates[nearest];
+    }
+
+    /**
+     * Marks a delegate as active (e.g. online), so that it participates in the selection with its last reading.
+     * @param index delegate index (slot)
+     * @param delegate delegate
+     */
+    synchronized void activate(int index, T delegate) {
+        ensureCapacity(index);
+        if (delegates[index] == null) {
+            distances[index] = Double.MAX_VALUE;
+        }
+        delegates[index] = delegate;
+        active[index] = true;
+        if (nearest < 0) {
+            nearest = index;
+        }
+    }
+
+    /**
+     * Excludes a delegate from the selection (e.g. when it goes offline).
+     * @param index delegate index (slot)
+     */
+    synchronized void deactivate(int index) {
+        if (index < active.length && active[index]) {
+            active[index] = false;
+            if (index == nearest) {
+                nearest = scan(clock.getAsLong());
+            }
+        }
+    }
+
+    /**
+     * Checks whether a delegate is active and its last reading is not stale.
+     * @param index delegate index (slot)
+     * @return true if the delegate is active and its last reading is fresh
+     */
+    synchronized boolean isAvailable(int index) {
+        return index < active.length && active[index] && !isStale(timestamps[index], clock.getAsLong());
+    }
+
+    /**
+     * Returns the nearest delegate.
+     * @return the nearest delegate or null if there are no active delegates
+     */
+    @SuppressWarnings("unchecked")
+    synchronized T getNearest() {
+        return nearest >= 0 ? (T) delegates[nearest] : null;
+    }
+
+    synchronized void clear() {
+        Arrays.fill(delegates, null);
+        Arrays.fill(active, false);
+        nearest = -1;
+    }
+
+    private void record(int index, T delegate, double distance, long timestamp) {
+        delegates[index] = delegate;
+        distances[index] = distance;
+        timestamps[index] = timestamp;
+        active[index] = true;
+    }
+
+    private int scan(long now) {
+        int candidate = -1;
+        for (int i = 0; i < active.length; i++) {
+            if (active[i] && (candidate < 0 || isNearer(i, candidate, now))) {
+                candidate = i;
+            }
+        }
+        return candidate;
+    }
+
+    private boolean isNearer(int first, int second, long now) {
+        boolean firstStale = isStale(timestamps[first], now);
+        boolean secondStale = isStale(timestamps[second], now);
+        if (firstStale != secondStale) {
+            return secondStale;
+        }
+        return distances[first] < distances[second];
+    }
+
+    private boolean isStale(long timestamp, long now) {
+        return now - timestamp > staleTimeout;
+    }
+
+    private void ensureCapacity(int index) {
+        if (index >= active.length) {
+            int capacity = Math.max(index + 1, active.length * 2);
+            delegates = Arrays.copyOf(delegates, capacity);
+            distances = Arrays.copyOf(distances, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            active = Arrays.copyOf(active, capacity);
+        }
+    }
+
+}
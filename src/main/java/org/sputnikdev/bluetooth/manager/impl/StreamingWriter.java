@@ -0,0 +1,255 @@
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sputnikdev.bluetooth.manager.BluetoothInteractionException;
+import org.sputnikdev.bluetooth.manager.WriteProgress;
+import org.sputnikdev.bluetooth.manager.transport.Characteristic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Streams a large payload to a characteristic. The payload is split into chunks of the maximum payload size
+ * of the characteristic, each chunk is sent as a packet with {@link Characteristic#writeValueAsync(byte[])},
+ * so that up to a window of packets are in flight at the same time. The window works as credits: a packet
+ * takes a credit when it is sent, the credit is returned when the transport completes the packet,
+ * once all credits are taken the writer waits for the oldest packet to complete before sending the next one.
+ * Transports that do not support pipelined writes complete each packet synchronously, i.e. packets are
+ * written one by one.
+ *
+ * <p>The transfer runs in the calling thread, chunks are read from the source straight into a fixed set of
+ * buffers (one per credit), a buffer is reused once its packet has completed.
+ *
+ * <p>The writer is meant to be executed by the device GATT operation queue, so that the transfer is not
+ * interleaved with other GATT operations of the device.
+ *
+ * @author Vlad Kolotov
+ */
+class StreamingWriter {
+
+    private static final long MAX_READ_BACKOFF = 50;
+
+    private Logger logger = LoggerFactory.getLogger(StreamingWriter.class);
+
+    private final CharacteristicGovernorImpl governor;
+    private final ReadableByteChannel source;
+    private final long totalBytes;
+    private final int window;
+    private final long timeout;
+    private final Consumer<WriteProgress> progressListener;
+
+    private final CompletableFuture<?>[] packets;
+    private final int[] lengths;
+    private long sent;
+    private long completed;
+    private long bytesWritten;
+    private long started;
+
+    /**
+     * Creates a new writer.
+     * @param governor characteristic governor
+     * @param source data to write
+     * @param totalBytes total number of bytes to write, -1 if not known
+     * @param window maximum number of packets in flight
+     * @param timeout how long (milliseconds) to wait for a packet to complete, zero or negative if not limited
+     * @param progressListener progress listener, can be null
+     */
+    StreamingWriter(CharacteristicGovernorImpl governor, ReadableByteChannel source, long totalBytes,
+                    int window, long timeout, Consumer<WriteProgress> progressListener) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + window);
+        }
+        this.governor = governor;
+        this.source = source;
+        this.totalBytes = totalBytes;
+        this.window = window;
+        this.timeout = timeout;
+        this.progressListener = progressListener;
+        packets = new CompletableFuture<?>[window];
+        lengths = new int[window];
+    }
+
+    /**
+     * Creates a channel that reads remaining bytes of the given buffer without changing its position.
+     * @param buffer a buffer
+     * @return a channel
+     */
+    static ReadableByteChannel channel(ByteBuffer buffer) {
+        ByteBuffer data = buffer.duplicate();
+        return new ReadableByteChannel() {
+            private volatile boolean open = true;
+
+            @Override
+            public int read(ByteBuffer dst) {
+                if (!data.hasRemaining()) {
+                    return -1;
+                }
+                int length = Math.min(dst.remaining(), data.remaining());
+                ByteBuffer slice = data.slice();
+                slice.limit(length);
+                dst.put(slice);
+                data.position(data.position() + length);
+                return length;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open;
+            }
+
+            @Override
+            public void close() {
+                open = false;
+            }
+        };
+    }
+
+    /**
+     * Writes the whole payload.
+     * @return final progress of the transfer
+     */
+    WriteProgress write() {
+        int payloadSize = governor.interact("getMaxPayloadSize", Characteristic::getMaxPayloadSize);
+        logger.debug("Streaming write started: {} / payload size: {} / window: {}",
+                governor.getURL(), payloadSize, window);
+        started = System.nanoTime();
+        ByteBuffer[] buffers = new ByteBuffer[window];
+        for (int i = 0; i < window; i++) {
+            buffers[i] = ByteBuffer.allocate(payloadSize);
+        }
+        try {
+            int length;
+            do {
+                int slot = (int) (sent % window);
+                if (sent - completed == window) {
+                    // all credits are taken, the oldest packet occupies the buffer
+                    complete();
+                }
+                ByteBuffer buffer = buffers[slot];
+                buffer.clear();
+                length = fill(buffer);
+                if (length > 0) {
+                    send(slot, length == payloadSize ? buffer.array() : Arrays.copyOf(buffer.array(), length));
+                }
+            } while (length == payloadSize);
+            while (completed < sent) {
+                complete();
+            }
+            WriteProgress progress = getProgress(true);
+            notifyProgress(progress);
+            logger.debug("Streaming write completed: {} : {}", governor.getURL(), progress);
+            return progress;
+        } catch (IOException ex) {
+            throw new BluetoothInteractionException("Could not read data to write: " + governor.getURL(), ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BluetoothInteractionException("Streaming write has been interrupted: " + governor.getURL(), ex);
+        } finally {
+            for (CompletableFuture<?> packet : packets) {
+                if (packet != null) {
+                    packet.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the source until the buffer is full or the source ends.
+     * @return number of bytes read
+     */
+    private int fill(ByteBuffer buffer) throws IOException, InterruptedException {
+        long backoff = 0;
+        while (buffer.hasRemaining()) {
+            int read = source.read(buffer);
+            if (read < 0) {
+                break;
+            } else if (read == 0) {
+                // no data available yet, backing off rather than spinning
+                backoff = Math.min(backoff + 1, MAX_READ_BACKOFF);
+                TimeUnit.MILLISECONDS.sleep(backoff);
+            } else {
+                backoff = 0;
+            }
+        }
+        return buffer.position();
+    }
+
+    private void send(int slot, byte[] data) {
+        packets[slot] = governor.interact("writeStream",
+                (Function<Characteristic, CompletableFuture<Boolean>>) characteristic ->
+                        characteristic.writeValueAsync(data), true);
+        lengths[slot] = data.length;
+        sent++;
+    }
+
+    /**
+     * Waits for the oldest packet in flight to complete and returns its credit.
+     */
+    private void complete() throws InterruptedException {
+        int slot = (int) (completed % window);
+        CompletableFuture<?> packet = packets[slot];
+        packets[slot] = null;
+        Object written = null;
+        try {
+            if (packet != null) {
+                written = timeout > 0 ? packet.get(timeout, TimeUnit.MILLISECONDS) : packet.get();
+            }
+        } catch (ExecutionException ex) {
+            throw new BluetoothInteractionException("Could not write chunk " + completed + ": "
+                    + governor.getURL(), ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new BluetoothInteractionException("Streaming write has timed out at chunk " + completed + ": "
+                    + governor.getURL(), ex);
+        }
+        if (!Boolean.TRUE.equals(written)) {
+            throw new BluetoothInteractionException("Could not write chunk " + completed + ": " + governor.getURL());
+        }
+        bytesWritten += lengths[slot];
+        completed++;
+        notifyProgress(getProgress(false));
+    }
+
+    private WriteProgress getProgress(boolean finished) {
+        return new WriteProgress(bytesWritten, totalBytes, completed, System.nanoTime() - started, finished);
+    }
+
+    private void notifyProgress(WriteProgress progress) {
+        if (progressListener != null) {
+            try {
+                progressListener.accept(progress);
+            } catch (Exception ex) {
+                logger.warn("Execution error of a progress listener: {}", ex.getMessage());
+            }
+        }
+    }
+
+}
@@ -86,4 +86,10 @@ public interface BluetoothObjectFactory {
      */
     void dispose(URL url);
 
+    /**
+     * Disposes the transport and releases all its resources. Transports that do not hold any resources
+     * do not need to override this method.
+     */
+    default void dispose() { }
+
 }
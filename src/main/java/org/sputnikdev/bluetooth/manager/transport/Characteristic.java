@@ -21,6 +21,7 @@ package org.sputnikdev.bluetooth.manager.transport;
  */
 
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  *
@@ -41,4 +42,28 @@ public interface Characteristic extends BluetoothObject {
     void enableValueNotifications(Notification<byte[]> notification);
 
     boolean isNotificationConfigurable();
+
+    /**
+     * Returns maximum number of bytes that can be written in a single write operation, i.e. the negotiated
+     * ATT MTU minus the ATT header. Transports that do not support MTU negotiation report the default
+     * BLE payload size (20 bytes).
+     * @return maximum payload size
+     */
+    default int getMaxPayloadSize() {
+        return 20;
+    }
+
+    /**
+     * Writes a value without waiting for the write to complete, so that a number of writes can be in flight
+     * at the same time (e.g. write without response or queued writes). The returned future is completed
+     * when the transport is done with the packet: when the write is acknowledged, or when the packet has been
+     * handed over to the controller for characteristics that are written without response. The given array
+     * must not be modified until then. Transports that do not support pipelined writes write the value
+     * synchronously.
+     * @param data a value to write
+     * @return a future that is completed with the result of the write
+     */
+    default CompletableFuture<Boolean> writeValueAsync(byte[] data) {
+        return CompletableFuture.completedFuture(writeValue(data));
+    }
 }
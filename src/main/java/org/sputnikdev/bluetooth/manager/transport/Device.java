@@ -88,4 +88,15 @@ public interface Device extends BluetoothObject {
     void enableManufacturerDataNotifications(Notification<Map<Short, byte[]>> notification);
 
     void disableManufacturerDataNotifications();
+
+    /**
+     * Returns a snapshot of the device state (connected, blocked, services resolved, RSSI and TX power).
+     * The default implementation queries each attribute individually and only when it is requested
+     * (see {@link DeviceState#of(Device)}), transports that can get all of them in a single call
+     * should override this method.
+     * @return device state snapshot
+     */
+    default DeviceState getState() {
+        return DeviceState.of(this);
+    }
 }
@@ -0,0 +1,173 @@
+package org.sputnikdev.bluetooth.manager.transport;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * A snapshot of the most frequently polled device attributes. Transports that can fetch these
+ * attributes in a single round-trip (e.g. serial adapters) should override {@link Device#getState()}
+ * so that the device governor does not have to query each attribute separately.
+ *
+ * @author Vlad Kolotov
+ */
+public class DeviceState {
+
+    private final boolean connected;
+    private final boolean blocked;
+    private final boolean servicesResolved;
+    private final short rssi;
+    private final short txPower;
+
+    /**
+     * Creates a new device state snapshot.
+     * @param connected connected status
+     * @param blocked blocked status
+     * @param servicesResolved services resolved status
+     * @param rssi RSSI
+     * @param txPower TX power
+     */
+    public DeviceState(boolean connected, boolean blocked, boolean servicesResolved, short rssi, short txPower) {
+        this.connected = connected;
+        this.blocked = blocked;
+        this.servicesResolved = servicesResolved;
+        this.rssi = rssi;
+        this.txPower = txPower;
+    }
+
+    /**
+     * Returns a device state that queries attributes of the given device individually and only when they are
+     * requested (each attribute is queried at most once). This is what transports that cannot get all attributes
+     * in a single call provide, so that consumers of the state do not make more native calls than they need,
+     * e.g. RSSI is not read if it is not requested.
+     * @param device device
+     * @return device state backed by individual getters of the device
+     */
+    public static DeviceState of(Device device) {
+        return new LazyDeviceState(device);
+    }
+
+    /**
+     * Returns connected status of the device.
+     * @return true if connected, false otherwise
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Returns blocked status of the device.
+     * @return true if blocked, false otherwise
+     */
+    public boolean isBlocked() {
+        return blocked;
+    }
+
+    /**
+     * Returns services resolved status of the device.
+     * @return true if services are resolved, false otherwise
+     */
+    public boolean isServicesResolved() {
+        return servicesResolved;
+    }
+
+    /**
+     * Returns RSSI of the device.
+     * @return RSSI
+     */
+    public short getRSSI() {
+        return rssi;
+    }
+
+    /**
+     * Returns TX power of the device.
+     * @return TX power
+     */
+    public short getTxPower() {
+        return txPower;
+    }
+
+    @Override
+    public String toString() {
+        return "[connected=" + connected + ", blocked=" + blocked + ", servicesResolved=" + servicesResolved
+                + ", rssi=" + rssi + ", txPower=" + txPower + "]";
+    }
+
+    private static final class LazyDeviceState extends DeviceState {
+
+        private final Device device;
+        private Boolean connected;
+        private Boolean blocked;
+        private Boolean servicesResolved;
+        private Short rssi;
+        private Short txPower;
+
+        private LazyDeviceState(Device device) {
+            super(false, false, false, (short) 0, (short) 0);
+            this.device = device;
+        }
+
+        @Override
+        public boolean isConnected() {
+            if (connected == null) {
+                connected = device.isConnected();
+            }
+            return connected;
+        }
+
+        @Override
+        public boolean isBlocked() {
+            if (blocked == null) {
+                blocked = device.isBlocked();
+            }
+            return blocked;
+        }
+
+        @Override
+        public boolean isServicesResolved() {
+            if (servicesResolved == null) {
+                servicesResolved = device.isServicesResolved();
+            }
+            return servicesResolved;
+        }
+
+        @Override
+        public short getRSSI() {
+            if (rssi == null) {
+                rssi = device.getRSSI();
+            }
+            return rssi;
+        }
+
+        @Override
+        public short getTxPower() {
+            if (txPower == null) {
+                txPower = device.getTxPower();
+            }
+            return txPower;
+        }
+
+        @Override
+        public String toString() {
+            return "[connected=" + connected + ", blocked=" + blocked + ", servicesResolved=" + servicesResolved
+                    + ", rssi=" + rssi + ", txPower=" + txPower + "]";
+        }
+    }
+
+}
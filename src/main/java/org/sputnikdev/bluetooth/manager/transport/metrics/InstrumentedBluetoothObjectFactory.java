@@ -0,0 +1,235 @@
+package org.sputnikdev.bluetooth.manager.transport.metrics;
+
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
+import org.sputnikdev.bluetooth.manager.DiscoveredDevice;
+import org.sputnikdev.bluetooth.manager.transport.Adapter;
+import org.sputnikdev.bluetooth.manager.transport.BluetoothObject;
+import org.sputnikdev.bluetooth.manager.transport.BluetoothObjectFactory;
+import org.sputnikdev.bluetooth.manager.transport.Characteristic;
+import org.sputnikdev.bluetooth.manager.transport.Device;
+import org.sputnikdev.bluetooth.manager.transport.Service;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A decorator for a transport (bluetooth object factory) that records statistics of all native calls:
+ * number of calls, number of errors and latency histograms for each method of native objects
+ * (adapters, devices, services and characteristics) and the factory itself.
+ * Statistics are tagged by transport protocol and adapter address and can be queried at runtime
+ * through {@link NativeCallMetrics}.
+ *
+ * @author Vlad Kolotov
+ */
+public class InstrumentedBluetoothObjectFactory implements BluetoothObjectFactory {
+
+    private static final String FACTORY_TYPE = BluetoothObjectFactory.class.getSimpleName();
+
+    private final BluetoothObjectFactory delegate;
+    private final NativeCallMetrics metrics;
+    private final String protocol;
+
+    /**
+     * Creates a new instrumented factory.
+     * @param delegate transport to be instrumented
+     * @param metrics a registry to record statistics in
+     */
+    public InstrumentedBluetoothObjectFactory(BluetoothObjectFactory delegate, NativeCallMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.protocol = delegate.getProtocolName();
+    }
+
+    /**
+     * Returns the instrumented transport.
+     * @return the instrumented transport
+     */
+    public BluetoothObjectFactory getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Returns a registry that statistics are recorded in.
+     * @return statistics registry
+     */
+    public NativeCallMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Adapter getAdapter(URL url) {
+        return wrap(record(url, "getAdapter", () -> delegate.getAdapter(url)));
+    }
+
+    @Override
+    public Device getDevice(URL url) {
+        return wrap(record(url, "getDevice", () -> delegate.getDevice(url)));
+    }
+
+    @Override
+    public Characteristic getCharacteristic(URL url) {
+        return wrap(record(url, "getCharacteristic", () -> delegate.getCharacteristic(url)));
+    }
+
+    @Override
+    public Set<DiscoveredAdapter> getDiscoveredAdapters() {
+        return record(null, "getDiscoveredAdapters", delegate::getDiscoveredAdapters);
+    }
+
+    @Override
+    public Set<DiscoveredDevice> getDiscoveredDevices() {
+        return record(null, "getDiscoveredDevices", delegate::getDiscoveredDevices);
+    }
+
+    @Override
+    public String getProtocolName() {
+        return protocol;
+    }
+
+    @Override
+    public void configure(Map<String, Object> config) {
+        delegate.configure(config);
+    }
+
+    @Override
+    public void dispose(URL url) {
+        record(url, "dispose", () -> {
+            delegate.dispose(url);
+            return null;
+        });
+    }
+
+    @Override
+    public void dispose() {
+        delegate.dispose();
+    }
+
+    @Override
+    public String toString() {
+        return "[Instrumented] " + delegate;
+    }
+
+    private <R> R record(URL url, String method, Supplier<R> call) {
+        MethodMetrics methodMetrics = metrics.getOrCreate(protocol, url != null ? url.getAdapterAddress() : null,
+                FACTORY_TYPE, method);
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            R result = call.get();
+            failed = false;
+            return result;
+        } finally {
+            methodMetrics.record(System.nanoTime() - started, failed);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T wrap(T object) {
+        if (object == null || Proxy.isProxyClass(object.getClass())) {
+            return object;
+        } else if (object instanceof Characteristic) {
+            return (T) newProxy(Characteristic.class, (Characteristic) object);
+        } else if (object instanceof Device) {
+            return (T) newProxy(Device.class, (Device) object);
+        } else if (object instanceof Adapter) {
+            return (T) newProxy(Adapter.class, (Adapter) object);
+        } else if (object instanceof Service) {
+            return (T) newProxy(Service.class, (Service) object);
+        } else if (object instanceof List && !((List<?>) object).isEmpty()
+                && ((List<?>) object).get(0) instanceof BluetoothObject) {
+            List<Object> wrapped = new ArrayList<>(((List<?>) object).size());
+            for (Object element : (List<?>) object) {
+                wrapped.add(wrap(element));
+            }
+            return (T) wrapped;
+        }
+        return object;
+    }
+
+    private <T extends BluetoothObject> T newProxy(Class<T> type, T target) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                new InstrumentingHandler(type.getSimpleName(), target)));
+    }
+
+    private final class InstrumentingHandler implements InvocationHandler {
+
+        private final String objectType;
+        private final BluetoothObject target;
+        private final String adapter;
+        private final Map<Method, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+        private InstrumentingHandler(String objectType, BluetoothObject target) {
+            this.objectType = objectType;
+            this.target = target;
+            URL url = target.getURL();
+            this.adapter = url != null ? url.getAdapterAddress() : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeObjectMethod(proxy, method, args);
+            }
+            MethodMetrics methodMetrics = methods.computeIfAbsent(method,
+                m -> metrics.getOrCreate(protocol, adapter, objectType, m.getName()));
+            long started = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = method.invoke(target, args);
+                failed = false;
+                return wrap(result);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            } finally {
+                methodMetrics.record(System.nanoTime() - started, failed);
+            }
+        }
+
+        private Object invokeObjectMethod(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("equals".equals(method.getName())) {
+                Object other = args[0];
+                if (other != null && Proxy.isProxyClass(other.getClass())
+                        && Proxy.getInvocationHandler(other) instanceof InstrumentingHandler) {
+                    other = ((InstrumentingHandler) Proxy.getInvocationHandler(other)).target;
+                }
+                return target.equals(other);
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+
+}
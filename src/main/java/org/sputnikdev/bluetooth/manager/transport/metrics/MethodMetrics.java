@@ -0,0 +1,126 @@
+package org.sputnikdev.bluetooth.manager.transport.metrics;
+
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of a native method (e.g. Device.connect) for a particular transport and adapter:
+ * number of calls, number of errors and latency histogram.
+ *
+ * @author Vlad Kolotov
+ */
+public class MethodMetrics {
+
+    private final String protocol;
+    private final String adapter;
+    private final String objectType;
+    private final String method;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    MethodMetrics(String protocol, String adapter, String objectType, String method) {
+        this.protocol = protocol;
+        this.adapter = adapter;
+        this.objectType = objectType;
+        this.method = method;
+    }
+
+    /**
+     * Returns transport protocol name.
+     * @return protocol name
+     */
+    public String getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Returns adapter address, null for the calls that are not related to any adapter
+     * (e.g. factory discovery methods).
+     * @return adapter address
+     */
+    public String getAdapter() {
+        return adapter;
+    }
+
+    /**
+     * Returns native object type, e.g. Adapter, Device, Characteristic or BluetoothObjectFactory.
+     * @return native object type
+     */
+    public String getObjectType() {
+        return objectType;
+    }
+
+    /**
+     * Returns method name.
+     * @return method name
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns number of calls, including failed ones.
+     * @return number of calls
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * Returns number of calls that threw an exception.
+     * @return number of errors
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Returns latency histogram of the method.
+     * @return latency histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    void record(long nanos, boolean failed) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        latency.record(nanos);
+    }
+
+    void reset() {
+        calls.reset();
+        errors.reset();
+        latency.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s] %s %s.%s: calls=%d, errors=%d, %s", protocol, adapter, objectType, method,
+                getCalls(), getErrors(), latency);
+    }
+
+}
@@ -0,0 +1,119 @@
+package org.sputnikdev.bluetooth.manager.transport.metrics;
+
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * A registry of native call statistics collected by {@link InstrumentedBluetoothObjectFactory}.
+ * Statistics are tagged by transport protocol, adapter address, native object type and method name.
+ *
+ * @author Vlad Kolotov
+ */
+public class NativeCallMetrics {
+
+    private final Map<Key, MethodMetrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Returns statistics of all recorded methods sorted by total latency (descending),
+     * so that the most "expensive" native calls go first.
+     * @return statistics of all recorded methods
+     */
+    public List<MethodMetrics> getMethodMetrics() {
+        List<MethodMetrics> result = new ArrayList<>(metrics.values());
+        result.sort(Comparator.comparingLong((MethodMetrics method) -> method.getLatency().getTotal()).reversed());
+        return result;
+    }
+
+    /**
+     * Returns statistics of all recorded methods for the given transport.
+     * @param protocol transport protocol name
+     * @return statistics of all recorded methods for the given transport
+     */
+    public List<MethodMetrics> getMethodMetrics(String protocol) {
+        return getMethodMetrics().stream().filter(m -> protocol.equals(m.getProtocol()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns statistics of a particular method.
+     * @param protocol transport protocol name
+     * @param adapter adapter address
+     * @param objectType native object type, e.g. Device
+     * @param method method name
+     * @return statistics of the method or null if the method has not been called yet
+     */
+    public MethodMetrics getMethodMetrics(String protocol, String adapter, String objectType, String method) {
+        return metrics.get(new Key(protocol, adapter, objectType, method));
+    }
+
+    /**
+     * Resets all collected statistics.
+     */
+    public void reset() {
+        metrics.values().forEach(MethodMetrics::reset);
+    }
+
+    MethodMetrics getOrCreate(String protocol, String adapter, String objectType, String method) {
+        return metrics.computeIfAbsent(new Key(protocol, adapter, objectType, method),
+            key -> new MethodMetrics(protocol, adapter, objectType, method));
+    }
+
+    private static final class Key {
+        private final String protocol;
+        private final String adapter;
+        private final String objectType;
+        private final String method;
+
+        private Key(String protocol, String adapter, String objectType, String method) {
+            this.protocol = protocol;
+            this.adapter = adapter;
+            this.objectType = objectType;
+            this.method = method;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+            Key that = (Key) other;
+            return Objects.equals(protocol, that.protocol) && Objects.equals(adapter, that.adapter)
+                    && Objects.equals(objectType, that.objectType) && Objects.equals(method, that.method);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(protocol, adapter, objectType, method);
+        }
+    }
+
+}
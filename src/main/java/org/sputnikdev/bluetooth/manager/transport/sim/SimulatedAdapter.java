@@ -0,0 +1,172 @@
+package org.sputnikdev.bluetooth.manager.transport.sim;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.transport.Adapter;
+import org.sputnikdev.bluetooth.manager.transport.Device;
+import org.sputnikdev.bluetooth.manager.transport.Notification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A simulated adapter.
+ *
+ * @author Vlad Kolotov
+ */
+class SimulatedAdapter implements Adapter {
+
+    private final URL url;
+    private final String name;
+    private volatile String alias;
+    private volatile boolean powered = true;
+    private volatile boolean discovering;
+    private volatile Notification<Boolean> poweredNotification;
+    private volatile Notification<Boolean> discoveringNotification;
+    private final Map<String, SimulatedDevice> devices = new ConcurrentSkipListMap<>();
+
+    SimulatedAdapter(URL url, String name) {
+        this.url = url;
+        this.name = name;
+    }
+
+    @Override
+    public URL getURL() {
+        return url;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getAlias() {
+        return alias;
+    }
+
+    @Override
+    public void setAlias(String alias) {
+        this.alias = alias;
+    }
+
+    @Override
+    public boolean isDiscovering() {
+        return discovering;
+    }
+
+    @Override
+    public void enableDiscoveringNotifications(Notification<Boolean> notification) {
+        discoveringNotification = notification;
+    }
+
+    @Override
+    public void disableDiscoveringNotifications() {
+        discoveringNotification = null;
+    }
+
+    @Override
+    public boolean startDiscovery() {
+        if (!powered) {
+            return false;
+        }
+        setDiscovering(true);
+        return true;
+    }
+
+    @Override
+    public boolean stopDiscovery() {
+        setDiscovering(false);
+        return true;
+    }
+
+    @Override
+    public boolean isPowered() {
+        return powered;
+    }
+
+    @Override
+    public void setPowered(boolean powered) {
+        if (this.powered != powered) {
+            this.powered = powered;
+            if (!powered) {
+                setDiscovering(false);
+                devices.values().forEach(SimulatedDevice::disconnect);
+            }
+            Notification<Boolean> notification = poweredNotification;
+            if (notification != null) {
+                notification.notify(powered);
+            }
+        }
+    }
+
+    @Override
+    public void enablePoweredNotifications(Notification<Boolean> notification) {
+        poweredNotification = notification;
+    }
+
+    @Override
+    public void disablePoweredNotifications() {
+        poweredNotification = null;
+    }
+
+    @Override
+    public List<Device> getDevices() {
+        return new ArrayList<>(devices.values());
+    }
+
+    SimulatedDevice getDevice(String address) {
+        return devices.get(address);
+    }
+
+    Collection<SimulatedDevice> getSimulatedDevices() {
+        return devices.values();
+    }
+
+    void addDevice(SimulatedDevice device) {
+        devices.put(device.getAddress(), device);
+    }
+
+    void replaceDevice(SimulatedDevice oldDevice, SimulatedDevice newDevice) {
+        devices.remove(oldDevice.getAddress());
+        devices.put(newDevice.getAddress(), newDevice);
+    }
+
+    private void setDiscovering(boolean discovering) {
+        if (this.discovering != discovering) {
+            this.discovering = discovering;
+            Notification<Boolean> notification = discoveringNotification;
+            if (notification != null) {
+                notification.notify(discovering);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[Simulated Adapter] " + url;
+    }
+
+}
@@ -0,0 +1,374 @@
+package org.sputnikdev.bluetooth.manager.transport.sim;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
+import org.sputnikdev.bluetooth.manager.DiscoveredDevice;
+import org.sputnikdev.bluetooth.manager.transport.Adapter;
+import org.sputnikdev.bluetooth.manager.transport.BluetoothObjectFactory;
+import org.sputnikdev.bluetooth.manager.transport.Characteristic;
+import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
+import org.sputnikdev.bluetooth.manager.transport.Device;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An in-process simulated transport ("sim" protocol). It simulates a number of adapters and (possibly tens of
+ * thousands of) devices with advertisements, RSSI random walks, rotating private addresses, connection latency,
+ * GATT trees and notification streams. It does not require any radio hardware and can be used for load testing.
+ *
+ * <p>The simulation is driven by a {@link SimulationClock} which moves only when {@link #advance(long)} is called,
+ * so that all the simulation events (advertisements, connection establishment, notifications etc) are fired
+ * in a strict (time, scheduling order) order. Random values are generated from the configured seed, hence
+ * the simulation is deterministic: the same configuration driven by the same sequence of calls produces
+ * exactly the same results. For using the simulation together with the bluetooth manager, the clock can be
+ * driven in real time by {@link #start(long)}.
+ *
+ * @author Vlad Kolotov
+ */
+public class SimulatedBluetoothFactory implements BluetoothObjectFactory {
+
+    public static final String SIM_PROTOCOL_NAME = "sim";
+
+    private static final String BASE_UUID = "-0000-1000-8000-00805f9b34fb";
+
+    private Logger logger = LoggerFactory.getLogger(SimulatedBluetoothFactory.class);
+
+    private final SimulationConfig config;
+    private final SimulationClock clock;
+    private final Map<String, SimulatedAdapter> adapters = new LinkedHashMap<>();
+    private final List<SimulatedPeripheral> peripherals = new ArrayList<>();
+    private final Map<String, List<SimulatedCharacteristic.Definition>> gatt = new LinkedHashMap<>();
+    private final Set<String> addresses = ConcurrentHashMap.newKeySet();
+
+    private final PriorityQueue<SimulationEvent> events = new PriorityQueue<>();
+    private final ReentrantLock eventsLock = new ReentrantLock();
+    private final ReentrantLock advanceLock = new ReentrantLock();
+    private long eventSequence;
+    private ScheduledExecutorService driver;
+
+    /**
+     * Creates a new simulation with its own clock.
+     * @param config simulation configuration
+     */
+    public SimulatedBluetoothFactory(SimulationConfig config) {
+        this(config, new SimulationClock());
+    }
+
+    /**
+     * Creates a new simulation driven by the given clock.
+     * @param config simulation configuration
+     * @param clock simulation clock
+     */
+    public SimulatedBluetoothFactory(SimulationConfig config, SimulationClock clock) {
+        this.config = config;
+        this.clock = clock;
+        buildGatt();
+        buildAdapters();
+        buildPeripherals();
+    }
+
+    public SimulationConfig getConfig() {
+        return config;
+    }
+
+    public SimulationClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Advances the simulation clock by the given amount of time firing all the simulation events that are due.
+     * Events are fired in the calling thread.
+     * @param millis simulation time in milliseconds
+     */
+    public void advance(long millis) {
+        advanceLock.lock();
+        try {
+            long target = clock.millis() + millis;
+            SimulationEvent event;
+            while ((event = pollDueEvent(target)) != null) {
+                clock.advanceTo(event.time);
+                try {
+                    event.action.run();
+                } catch (Exception ex) {
+                    logger.warn("Simulation event error: {}", ex.getMessage());
+                }
+            }
+            clock.advanceTo(target);
+        } finally {
+            advanceLock.unlock();
+        }
+    }
+
+    /**
+     * Starts driving the simulation clock in real time in a background thread.
+     * Note: the simulation is not deterministic anymore when it is driven in real time and accessed concurrently.
+     * @param tickMillis how often (in real milliseconds) the clock is advanced
+     */
+    public synchronized void start(long tickMillis) {
+        if (driver == null) {
+            driver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "bluetooth-simulation");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long[] last = {System.currentTimeMillis()};
+            driver.scheduleWithFixedDelay(() -> {
+                long current = System.currentTimeMillis();
+                advance(current - last[0]);
+                last[0] = current;
+            }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Adapter getAdapter(URL url) {
+        return adapters.get(url.getAdapterAddress());
+    }
+
+    @Override
+    public Device getDevice(URL url) {
+        SimulatedAdapter adapter = adapters.get(url.getAdapterAddress());
+        return adapter != null ? adapter.getDevice(url.getDeviceAddress()) : null;
+    }
+
+    @Override
+    public Characteristic getCharacteristic(URL url) {
+        SimulatedAdapter adapter = adapters.get(url.getAdapterAddress());
+        SimulatedDevice device = adapter != null ? adapter.getDevice(url.getDeviceAddress()) : null;
+        return device != null ? device.getCharacteristic(url.getServiceUUID(), url.getCharacteristicUUID()) : null;
+    }
+
+    @Override
+    public Set<DiscoveredAdapter> getDiscoveredAdapters() {
+        Set<DiscoveredAdapter> discovered = new HashSet<>();
+        adapters.values().forEach(adapter ->
+                discovered.add(new DiscoveredAdapter(adapter.getURL(), adapter.getName(), adapter.getAlias())));
+        return discovered;
+    }
+
+    @Override
+    public Set<DiscoveredDevice> getDiscoveredDevices() {
+        Set<DiscoveredDevice> discovered = new HashSet<>();
+        for (SimulatedAdapter adapter : adapters.values()) {
+            if (adapter.isPowered() && adapter.isDiscovering()) {
+                for (SimulatedDevice device : adapter.getSimulatedDevices()) {
+                    discovered.add(new DiscoveredDevice(device.getURL(), device.getName(), device.getAlias(),
+                            device.getRSSI(), device.getBluetoothClass(), device.isBleEnabled()));
+                }
+            }
+        }
+        return discovered;
+    }
+
+    @Override
+    public String getProtocolName() {
+        return SIM_PROTOCOL_NAME;
+    }
+
+    @Override
+    public void configure(Map<String, Object> config) {
+        // the simulation is configured by SimulationConfig
+    }
+
+    /**
+     * Stops driving the simulation clock in real time (if started).
+     */
+    @Override
+    public synchronized void dispose() {
+        if (driver != null) {
+            driver.shutdownNow();
+            driver = null;
+        }
+    }
+
+    @Override
+    public void dispose(URL url) {
+        logger.debug("Disposing simulated object: {}", url);
+        if (url.isDevice()) {
+            SimulatedDevice device = (SimulatedDevice) getDevice(url);
+            if (device != null) {
+                device.dispose();
+            }
+        }
+    }
+
+    long now() {
+        return clock.millis();
+    }
+
+    void schedule(long delay, Runnable action) {
+        eventsLock.lock();
+        try {
+            events.add(new SimulationEvent(clock.millis() + Math.max(0, delay), eventSequence++, action));
+        } finally {
+            eventsLock.unlock();
+        }
+    }
+
+    List<SimulatedCharacteristic.Definition> getCharacteristicDefinitions(String serviceUUID) {
+        return gatt.get(serviceUUID);
+    }
+
+    Set<String> getServiceUUIDs() {
+        return gatt.keySet();
+    }
+
+    String newPrivateAddress(SimulatedPeripheral peripheral) {
+        String address;
+        do {
+            long random = peripheral.getAddressRandom().nextLong();
+            // resolvable private address: two most significant bits are 01
+            address = formatAddress((random & 0x3FFFFFFFFFFFL) | 0x400000000000L);
+        } while (!addresses.add(address));
+        return address;
+    }
+
+    void releaseAddress(String address) {
+        addresses.remove(address);
+    }
+
+    /**
+     * A SplitMix64 hash function, used to derive independent random values from the seed.
+     * @param value value to mix
+     * @return mixed value
+     */
+    static long mix(long value) {
+        long mixed = value + 0x9E3779B97F4A7C15L;
+        mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+        return mixed ^ (mixed >>> 31);
+    }
+
+    private SimulationEvent pollDueEvent(long target) {
+        eventsLock.lock();
+        try {
+            SimulationEvent next = events.peek();
+            return next != null && next.time <= target ? events.poll() : null;
+        } finally {
+            eventsLock.unlock();
+        }
+    }
+
+    private void buildGatt() {
+        for (int s = 0; s < config.getServices(); s++) {
+            String serviceUUID = String.format("%08x", 0xA000 + s) + BASE_UUID;
+            List<SimulatedCharacteristic.Definition> characteristics = new ArrayList<>();
+            for (int c = 0; c < config.getCharacteristics(); c++) {
+                int index = s * config.getCharacteristics() + c;
+                String uuid = String.format("%08x", 0xB000 + index) + BASE_UUID;
+                Set<CharacteristicAccessType> flags;
+                switch (c % 3) {
+                    case 0:
+                        flags = EnumSet.of(CharacteristicAccessType.READ, CharacteristicAccessType.NOTIFY);
+                        break;
+                    case 1:
+                        flags = EnumSet.of(CharacteristicAccessType.READ, CharacteristicAccessType.WRITE);
+                        break;
+                    default:
+                        flags = EnumSet.of(CharacteristicAccessType.WRITE_WITHOUT_RESPONSE);
+                }
+                characteristics.add(new SimulatedCharacteristic.Definition(index, serviceUUID, uuid, flags));
+            }
+            gatt.put(serviceUUID, Collections.unmodifiableList(characteristics));
+        }
+    }
+
+    private void buildAdapters() {
+        for (int i = 0; i < config.getAdapters(); i++) {
+            String address = formatAddress(0x5E1A00000000L | i);
+            addresses.add(address);
+            adapters.put(address, new SimulatedAdapter(new URL(SIM_PROTOCOL_NAME + ":/" + address),
+                    "Simulated Adapter " + i));
+        }
+    }
+
+    private void buildPeripherals() {
+        List<SimulatedAdapter> adapterList = new ArrayList<>(adapters.values());
+        for (int i = 0; i < config.getDevices(); i++) {
+            SimulatedPeripheral peripheral = new SimulatedPeripheral(this, i, mix(config.getSeed() ^ mix(i)));
+            String address;
+            if (peripheral.isPrivateAddress()) {
+                address = newPrivateAddress(peripheral);
+            } else {
+                address = formatAddress(0x5E1D00000000L | i);
+                addresses.add(address);
+            }
+            List<SimulatedAdapter> visible = new ArrayList<>();
+            for (SimulatedAdapter adapter : adapterList) {
+                if (peripheral.getRandom().nextDouble() < config.getVisibilityRatio()) {
+                    visible.add(adapter);
+                }
+            }
+            if (visible.isEmpty()) {
+                visible.add(adapterList.get(i % adapterList.size()));
+            }
+            peripheral.init(address, visible);
+            peripherals.add(peripheral);
+        }
+    }
+
+    private static String formatAddress(long address) {
+        StringBuilder builder = new StringBuilder(17);
+        for (int i = 5; i >= 0; i--) {
+            builder.append(String.format("%02X", (address >>> (i * 8)) & 0xFF));
+            if (i > 0) {
+                builder.append(':');
+            }
+        }
+        return builder.toString();
+    }
+
+    private static final class SimulationEvent implements Comparable<SimulationEvent> {
+        private final long time;
+        private final long sequence;
+        private final Runnable action;
+
+        private SimulationEvent(long time, long sequence, Runnable action) {
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(SimulationEvent other) {
+            int result = Long.compare(time, other.time);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package org.sputnikdev.bluetooth.manager.transport.sim;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.transport.Characteristic;
+import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
+import org.sputnikdev.bluetooth.manager.transport.Notification;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A simulated GATT characteristic. Characteristic values are stored in the simulated physical device,
+ * so that they are shared between adapters.
+ *
+ * @author Vlad Kolotov
+ */
+class SimulatedCharacteristic implements Characteristic {
+
+    private final SimulatedDevice device;
+    private final URL url;
+    private final Definition definition;
+    private volatile Notification<byte[]> valueNotification;
+    private volatile boolean notifying;
+    // incremented each time notifications are enabled/disabled, so that stale notification events can be discarded
+    private final AtomicInteger notificationGeneration = new AtomicInteger();
+
+    SimulatedCharacteristic(SimulatedDevice device, URL url, Definition definition) {
+        this.device = device;
+        this.url = url;
+        this.definition = definition;
+    }
+
+    @Override
+    public URL getURL() {
+        return url;
+    }
+
+    @Override
+    public Set<CharacteristicAccessType> getFlags() {
+        return definition.getFlags();
+    }
+
+    @Override
+    public boolean isNotifying() {
+        return notifying;
+    }
+
+    @Override
+    public void disableValueNotifications() {
+        valueNotification = null;
+        stopNotifications();
+    }
+
+    @Override
+    public byte[] readValue() {
+        device.checkConnected();
+        if (!definition.getFlags().contains(CharacteristicAccessType.READ)) {
+            throw new IllegalStateException("Characteristic is not readable: " + url);
+        }
+        return device.getPeripheral().getValue(definition);
+    }
+
+    @Override
+    public boolean writeValue(byte[] data) {
+        device.checkConnected();
+        device.getPeripheral().setValue(definition, data);
+        return true;
+    }
+
+    @Override
+    public void enableValueNotifications(Notification<byte[]> notification) {
+        device.checkConnected();
+        if (!definition.getFlags().contains(CharacteristicAccessType.NOTIFY)) {
+            throw new IllegalStateException("Characteristic is not notifiable: " + url);
+        }
+        valueNotification = notification;
+        if (!notifying) {
+            notifying = true;
+            int generation = notificationGeneration.incrementAndGet();
+            scheduleNotification(generation);
+        }
+    }
+
+    @Override
+    public boolean isNotificationConfigurable() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "[Simulated Characteristic] " + url;
+    }
+
+    void stopNotifications() {
+        notifying = false;
+        notificationGeneration.incrementAndGet();
+    }
+
+    private void scheduleNotification(int generation) {
+        device.getFactory().schedule(device.getConfig().getNotificationInterval(), () -> {
+            if (generation == notificationGeneration.get() && notifying && device.isConnected()) {
+                byte[] value = device.getPeripheral().nextNotificationValue(definition);
+                Notification<byte[]> notification = valueNotification;
+                if (notification != null) {
+                    notification.notify(value);
+                }
+                scheduleNotification(generation);
+            }
+        });
+    }
+
+    static final class Definition {
+        private final int index;
+        private final String serviceUUID;
+        private final String uuid;
+        private final Set<CharacteristicAccessType> flags;
+
+        Definition(int index, String serviceUUID, String uuid, Set<CharacteristicAccessType> flags) {
+            this.index = index;
+            this.serviceUUID = serviceUUID;
+            this.uuid = uuid;
+            this.flags = Collections.unmodifiableSet(flags);
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        String getServiceUUID() {
+            return serviceUUID;
+        }
+
+        String getUUID() {
+            return uuid;
+        }
+
+        Set<CharacteristicAccessType> getFlags() {
+            return flags;
+        }
+    }
+
+}
@@ -0,0 +1,401 @@
+package org.sputnikdev.bluetooth.manager.transport.sim;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.BluetoothAddressType;
+import org.sputnikdev.bluetooth.manager.transport.Device;
+import org.sputnikdev.bluetooth.manager.transport.DeviceState;
+import org.sputnikdev.bluetooth.manager.transport.Notification;
+import org.sputnikdev.bluetooth.manager.transport.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A simulated device, which is a radio link between a simulated adapter and a simulated physical device
+ * ({@link SimulatedPeripheral}) with a particular address. When a device rotates its address, a new simulated
+ * device object is created and the old one becomes unreachable.
+ *
+ * @author Vlad Kolotov
+ */
+class SimulatedDevice implements Device {
+
+    private static final short MANUFACTURER_ID = (short) 0xFFFF;
+
+    private final SimulatedBluetoothFactory factory;
+    private final SimulatedAdapter adapter;
+    private final SimulatedPeripheral peripheral;
+    private final String address;
+    private final URL url;
+
+    private volatile double rssi;
+    private volatile String alias;
+    private volatile boolean blocked;
+    private volatile boolean connecting;
+    private volatile boolean connected;
+    private volatile boolean servicesResolved;
+    private volatile boolean lost;
+    // incremented on each connection attempt and disconnection, so that pending connection events can be discarded
+    private final AtomicInteger connectionGeneration = new AtomicInteger();
+    private volatile List<SimulatedService> services;
+
+    private volatile Notification<Short> rssiNotification;
+    private volatile Notification<Boolean> blockedNotification;
+    private volatile Notification<Boolean> connectedNotification;
+    private volatile Notification<Boolean> servicesResolvedNotification;
+    private volatile Notification<Map<String, byte[]>> serviceDataNotification;
+    private volatile Notification<Map<Short, byte[]>> manufacturerDataNotification;
+
+    SimulatedDevice(SimulatedBluetoothFactory factory, SimulatedAdapter adapter, SimulatedPeripheral peripheral,
+                    String address, double rssi) {
+        this.factory = factory;
+        this.adapter = adapter;
+        this.peripheral = peripheral;
+        this.address = address;
+        this.url = adapter.getURL().copyWithDevice(address);
+        this.rssi = rssi;
+    }
+
+    @Override
+    public URL getURL() {
+        return url;
+    }
+
+    @Override
+    public int getBluetoothClass() {
+        return 0;
+    }
+
+    @Override
+    public boolean disconnect() {
+        connectionGeneration.incrementAndGet();
+        connecting = false;
+        final boolean wasResolved = servicesResolved;
+        final boolean wasConnected = connected;
+        servicesResolved = false;
+        connected = false;
+        List<SimulatedService> resolved = services;
+        if (resolved != null) {
+            resolved.forEach(service -> service.getSimulatedCharacteristics()
+                    .forEach(SimulatedCharacteristic::stopNotifications));
+        }
+        if (wasResolved) {
+            notify(servicesResolvedNotification, false);
+        }
+        if (wasConnected) {
+            notify(connectedNotification, false);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean connect() {
+        checkReachable();
+        if (blocked || !adapter.isPowered()) {
+            return false;
+        }
+        if (!connected && !connecting) {
+            // connection procedure is started, an event will indicate when it is finished
+            connecting = true;
+            int generation = connectionGeneration.incrementAndGet();
+            factory.schedule(factory.getConfig().getConnectionLatency(), () -> completeConnection(generation));
+        }
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return peripheral.getName();
+    }
+
+    @Override
+    public String getAlias() {
+        return alias;
+    }
+
+    @Override
+    public void setAlias(String alias) {
+        this.alias = alias;
+    }
+
+    @Override
+    public boolean isBlocked() {
+        return blocked;
+    }
+
+    @Override
+    public boolean isBleEnabled() {
+        return true;
+    }
+
+    @Override
+    public void enableBlockedNotifications(Notification<Boolean> notification) {
+        blockedNotification = notification;
+    }
+
+    @Override
+    public void disableBlockedNotifications() {
+        blockedNotification = null;
+    }
+
+    @Override
+    public void setBlocked(boolean blocked) {
+        checkReachable();
+        if (this.blocked != blocked) {
+            this.blocked = blocked;
+            if (blocked) {
+                disconnect();
+            }
+            notify(blockedNotification, blocked);
+        }
+    }
+
+    @Override
+    public short getRSSI() {
+        checkReachable();
+        return (short) Math.round(rssi);
+    }
+
+    @Override
+    public short getTxPower() {
+        return factory.getConfig().getTxPower();
+    }
+
+    @Override
+    public void enableRSSINotifications(Notification<Short> notification) {
+        rssiNotification = notification;
+    }
+
+    @Override
+    public void disableRSSINotifications() {
+        rssiNotification = null;
+    }
+
+    @Override
+    public boolean isConnected() {
+        checkReachable();
+        return connected;
+    }
+
+    @Override
+    public void enableConnectedNotifications(Notification<Boolean> notification) {
+        connectedNotification = notification;
+    }
+
+    @Override
+    public void disableConnectedNotifications() {
+        connectedNotification = null;
+    }
+
+    @Override
+    public boolean isServicesResolved() {
+        return servicesResolved;
+    }
+
+    @Override
+    public void enableServicesResolvedNotifications(Notification<Boolean> notification) {
+        servicesResolvedNotification = notification;
+    }
+
+    @Override
+    public void disableServicesResolvedNotifications() {
+        servicesResolvedNotification = null;
+    }
+
+    @Override
+    public List<Service> getServices() {
+        return servicesResolved ? new ArrayList<>(getSimulatedServices()) : Collections.emptyList();
+    }
+
+    @Override
+    public Map<String, byte[]> getServiceData() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Map<Short, byte[]> getManufacturerData() {
+        return Collections.singletonMap(MANUFACTURER_ID, peripheral.getManufacturerData());
+    }
+
+    @Override
+    public BluetoothAddressType getAddressType() {
+        return peripheral.isPrivateAddress() ? BluetoothAddressType.RANDOM : BluetoothAddressType.PUBLIC;
+    }
+
+    @Override
+    public void enableServiceDataNotifications(Notification<Map<String, byte[]>> notification) {
+        serviceDataNotification = notification;
+    }
+
+    @Override
+    public void disableServiceDataNotifications() {
+        serviceDataNotification = null;
+    }
+
+    @Override
+    public void enableManufacturerDataNotifications(Notification<Map<Short, byte[]>> notification) {
+        manufacturerDataNotification = notification;
+    }
+
+    @Override
+    public void disableManufacturerDataNotifications() {
+        manufacturerDataNotification = null;
+    }
+
+    @Override
+    public DeviceState getState() {
+        checkReachable();
+        return new DeviceState(connected, blocked, servicesResolved, (short) Math.round(rssi),
+                factory.getConfig().getTxPower());
+    }
+
+    @Override
+    public String toString() {
+        return "[Simulated Device] " + url;
+    }
+
+    SimulatedAdapter getAdapter() {
+        return adapter;
+    }
+
+    SimulatedPeripheral getPeripheral() {
+        return peripheral;
+    }
+
+    String getAddress() {
+        return address;
+    }
+
+    SimulationConfig getConfig() {
+        return factory.getConfig();
+    }
+
+    SimulatedBluetoothFactory getFactory() {
+        return factory;
+    }
+
+    boolean isConnectedOrConnecting() {
+        return connected || connecting;
+    }
+
+    SimulatedCharacteristic getCharacteristic(String serviceUUID, String characteristicUUID) {
+        if (!servicesResolved) {
+            return null;
+        }
+        for (SimulatedService service : getSimulatedServices()) {
+            if (service.getURL().getServiceUUID().equals(serviceUUID)) {
+                return service.getCharacteristic(characteristicUUID);
+            }
+        }
+        return null;
+    }
+
+    SimulatedDevice copyWithAddress(String newAddress) {
+        SimulatedDevice device = new SimulatedDevice(factory, adapter, peripheral, newAddress, rssi);
+        device.alias = alias;
+        device.blocked = blocked;
+        return device;
+    }
+
+    void setLost() {
+        lost = true;
+        disconnect();
+    }
+
+    void dispose() {
+        disableRSSINotifications();
+        disableBlockedNotifications();
+        disableConnectedNotifications();
+        disableServicesResolvedNotifications();
+        disableServiceDataNotifications();
+        disableManufacturerDataNotifications();
+    }
+
+    void advertise(double rssiStep) {
+        double next = rssi + rssiStep;
+        SimulationConfig config = factory.getConfig();
+        rssi = Math.max(config.getRssiMin(), Math.min(config.getRssiMax(), next));
+        if (adapter.isPowered()) {
+            notify(rssiNotification, (short) Math.round(rssi));
+            notify(manufacturerDataNotification, getManufacturerData());
+        }
+    }
+
+    void checkConnected() {
+        checkReachable();
+        if (!connected) {
+            throw new IllegalStateException("Device is not connected: " + url);
+        }
+    }
+
+    private void checkReachable() {
+        if (lost) {
+            throw new IllegalStateException("Device is not reachable: " + url);
+        }
+    }
+
+    private List<SimulatedService> getSimulatedServices() {
+        List<SimulatedService> result = services;
+        if (result == null) {
+            // GATT tree is built lazily as most of the simulated devices never get connected
+            synchronized (this) {
+                result = services;
+                if (result == null) {
+                    List<SimulatedService> built = new ArrayList<>();
+                    for (String serviceUUID : factory.getServiceUUIDs()) {
+                        built.add(new SimulatedService(this, url.copyWithService(serviceUUID),
+                                factory.getCharacteristicDefinitions(serviceUUID)));
+                    }
+                    result = Collections.unmodifiableList(built);
+                    services = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private void completeConnection(int generation) {
+        if (generation == connectionGeneration.get() && !lost && connecting) {
+            connecting = false;
+            connected = true;
+            notify(connectedNotification, true);
+            factory.schedule(factory.getConfig().getServicesResolutionLatency(), () -> resolveServices(generation));
+        }
+    }
+
+    private void resolveServices(int generation) {
+        if (generation == connectionGeneration.get() && connected) {
+            servicesResolved = true;
+            notify(servicesResolvedNotification, true);
+        }
+    }
+
+    private static <V> void notify(Notification<V> notification, V value) {
+        if (notification != null) {
+            notification.notify(value);
+        }
+    }
+
+}
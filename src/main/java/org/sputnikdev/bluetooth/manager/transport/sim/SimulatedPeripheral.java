@@ -0,0 +1,172 @@
+package org.sputnikdev.bluetooth.manager.transport.sim;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A simulated physical device. The same physical device can be visible through several adapters,
+ * each of them is represented by its own {@link SimulatedDevice} (radio link).
+ *
+ * @author Vlad Kolotov
+ */
+class SimulatedPeripheral {
+
+    private final SimulatedBluetoothFactory factory;
+    private final SimulationConfig config;
+    private final int index;
+    private final long seed;
+    private final String name;
+    private final boolean privateAddress;
+    // advertisements (RSSI walk, jitter) and address rotation use their own random sequences,
+    // so that they do not depend on each other
+    private final Random random;
+    private final Random addressRandom;
+    private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> notificationCounters = new ConcurrentHashMap<>();
+    private volatile String address;
+    private volatile List<SimulatedDevice> devices = Collections.emptyList();
+    private volatile long advertisements;
+
+    SimulatedPeripheral(SimulatedBluetoothFactory factory, int index, long seed) {
+        this.factory = factory;
+        this.config = factory.getConfig();
+        this.index = index;
+        this.seed = seed;
+        this.name = "Simulated Device " + index;
+        this.random = new Random(seed);
+        this.addressRandom = new Random(SimulatedBluetoothFactory.mix(seed));
+        this.privateAddress = random.nextDouble() < config.getPrivateAddressRatio();
+    }
+
+    void init(String address, List<SimulatedAdapter> adapters) {
+        this.address = address;
+        List<SimulatedDevice> links = new ArrayList<>(adapters.size());
+        double range = config.getRssiMax() - config.getRssiMin();
+        for (SimulatedAdapter adapter : adapters) {
+            SimulatedDevice device = new SimulatedDevice(factory, adapter, this, address,
+                    config.getRssiMin() + random.nextDouble() * range);
+            adapter.addDevice(device);
+            links.add(device);
+        }
+        devices = Collections.unmodifiableList(links);
+        // spreading advertisements of all devices across the advertisement interval
+        factory.schedule((long) (random.nextDouble() * config.getAdvertisementInterval()), this::advertise);
+        if (privateAddress) {
+            factory.schedule(config.getAddressRotationInterval()
+                    + (long) (addressRandom.nextDouble() * config.getAddressRotationInterval()), this::rotateAddress);
+        }
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getAddress() {
+        return address;
+    }
+
+    boolean isPrivateAddress() {
+        return privateAddress;
+    }
+
+    List<SimulatedDevice> getDevices() {
+        return devices;
+    }
+
+    Random getRandom() {
+        return random;
+    }
+
+    Random getAddressRandom() {
+        return addressRandom;
+    }
+
+    byte[] getValue(SimulatedCharacteristic.Definition definition) {
+        return values.computeIfAbsent(definition.getUUID(),
+            uuid -> toBytes(SimulatedBluetoothFactory.mix(seed ^ definition.getIndex()))).clone();
+    }
+
+    void setValue(SimulatedCharacteristic.Definition definition, byte[] value) {
+        values.put(definition.getUUID(), value.clone());
+    }
+
+    byte[] nextNotificationValue(SimulatedCharacteristic.Definition definition) {
+        long sequence = notificationCounters.computeIfAbsent(definition.getUUID(), uuid -> new AtomicLong())
+                .incrementAndGet();
+        byte[] value = toBytes(SimulatedBluetoothFactory.mix(
+                seed ^ SimulatedBluetoothFactory.mix(definition.getIndex()) ^ sequence));
+        values.put(definition.getUUID(), value);
+        return value.clone();
+    }
+
+    byte[] getManufacturerData() {
+        return toBytes(advertisements);
+    }
+
+    private void advertise() {
+        advertisements++;
+        for (SimulatedDevice device : devices) {
+            device.advertise(random.nextGaussian() * config.getRssiStep());
+        }
+        long jitter = config.getAdvertisementJitter() > 0
+                ? (long) (random.nextDouble() * (config.getAdvertisementJitter() + 1)) : 0;
+        factory.schedule(config.getAdvertisementInterval() + jitter, this::advertise);
+    }
+
+    private void rotateAddress() {
+        List<SimulatedDevice> current = devices;
+        if (current.stream().noneMatch(SimulatedDevice::isConnectedOrConnecting)) {
+            final String oldAddress = address;
+            String newAddress = factory.newPrivateAddress(this);
+            List<SimulatedDevice> links = new ArrayList<>(current.size());
+            for (SimulatedDevice device : current) {
+                SimulatedDevice rotated = device.copyWithAddress(newAddress);
+                device.getAdapter().replaceDevice(device, rotated);
+                device.setLost();
+                links.add(rotated);
+            }
+            address = newAddress;
+            devices = Collections.unmodifiableList(links);
+            factory.releaseAddress(oldAddress);
+        }
+        factory.schedule(config.getAddressRotationInterval(), this::rotateAddress);
+    }
+
+    private static byte[] toBytes(long value) {
+        byte[] bytes = new byte[4];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (value >>> (i * 8));
+        }
+        return bytes;
+    }
+
+}
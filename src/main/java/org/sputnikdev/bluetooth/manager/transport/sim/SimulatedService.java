@@ -0,0 +1,74 @@
+package org.sputnikdev.bluetooth.manager.transport.sim;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.transport.Characteristic;
+import org.sputnikdev.bluetooth.manager.transport.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A simulated GATT service.
+ *
+ * @author Vlad Kolotov
+ */
+class SimulatedService implements Service {
+
+    private final URL url;
+    private final List<SimulatedCharacteristic> characteristics;
+
+    SimulatedService(SimulatedDevice device, URL url, List<SimulatedCharacteristic.Definition> definitions) {
+        this.url = url;
+        List<SimulatedCharacteristic> chars = new ArrayList<>(definitions.size());
+        for (SimulatedCharacteristic.Definition definition : definitions) {
+            chars.add(new SimulatedCharacteristic(device, url.copyWithCharacteristic(definition.getUUID()),
+                    definition));
+        }
+        characteristics = Collections.unmodifiableList(chars);
+    }
+
+    @Override
+    public URL getURL() {
+        return url;
+    }
+
+    @Override
+    public List<Characteristic> getCharacteristics() {
+        return new ArrayList<>(characteristics);
+    }
+
+    List<SimulatedCharacteristic> getSimulatedCharacteristics() {
+        return characteristics;
+    }
+
+    SimulatedCharacteristic getCharacteristic(String uuid) {
+        for (SimulatedCharacteristic characteristic : characteristics) {
+            if (characteristic.getURL().getCharacteristicUUID().equals(uuid)) {
+                return characteristic;
+            }
+        }
+        return null;
+    }
+
+}
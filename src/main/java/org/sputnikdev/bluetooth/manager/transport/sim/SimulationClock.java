@@ -0,0 +1,62 @@
+package org.sputnikdev.bluetooth.manager.transport.sim;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A controllable clock that drives the simulated transport. The clock does not move by itself, it is advanced
+ * by {@link SimulatedBluetoothFactory#advance(long)} which also fires all the simulation events that are due.
+ *
+ * @author Vlad Kolotov
+ */
+public class SimulationClock {
+
+    private final AtomicLong millis;
+
+    /**
+     * Creates a new clock starting from zero.
+     */
+    public SimulationClock() {
+        this(0);
+    }
+
+    /**
+     * Creates a new clock starting from the given time.
+     * @param start start time in milliseconds
+     */
+    public SimulationClock(long start) {
+        millis = new AtomicLong(start);
+    }
+
+    /**
+     * Returns current simulation time in milliseconds.
+     * @return current simulation time
+     */
+    public long millis() {
+        return millis.get();
+    }
+
+    void advanceTo(long time) {
+        millis.accumulateAndGet(time, Math::max);
+    }
+
+}
@@ -0,0 +1,258 @@
+package org.sputnikdev.bluetooth.manager.transport.sim;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Configuration of the simulated transport. All time intervals are in simulation milliseconds
+ * (see {@link SimulationClock}). Two simulations built from equal configurations (including the seed) and driven
+ * by the same sequence of calls produce exactly the same results.
+ *
+ * @author Vlad Kolotov
+ */
+public class SimulationConfig {
+
+    private long seed;
+    private int adapters = 1;
+    private int devices = 10;
+    private double visibilityRatio = 1.0;
+    private long advertisementInterval = 1000;
+    private long advertisementJitter = 10;
+    private short rssiMin = -100;
+    private short rssiMax = -40;
+    private double rssiStep = 2.0;
+    private short txPower = -55;
+    private double privateAddressRatio;
+    private long addressRotationInterval = 15 * 60 * 1000;
+    private long connectionLatency = 100;
+    private long servicesResolutionLatency = 500;
+    private int services = 2;
+    private int characteristics = 3;
+    private long notificationInterval = 1000;
+
+    /**
+     * Sets the seed of the simulation, simulations with the same seed are identical.
+     * @param seed random seed
+     * @return the same config instance
+     */
+    public SimulationConfig withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Sets number of simulated adapters.
+     * @param adapters number of adapters
+     * @return the same config instance
+     */
+    public SimulationConfig withAdapters(int adapters) {
+        if (adapters < 1) {
+            throw new IllegalArgumentException("At least one adapter must be simulated");
+        }
+        this.adapters = adapters;
+        return this;
+    }
+
+    /**
+     * Sets number of simulated (physical) devices.
+     * @param devices number of devices
+     * @return the same config instance
+     */
+    public SimulationConfig withDevices(int devices) {
+        this.devices = devices;
+        return this;
+    }
+
+    /**
+     * Sets probability of a device to be visible through an adapter. Each device is visible at least through
+     * one adapter.
+     * @param visibilityRatio a value between 0 and 1
+     * @return the same config instance
+     */
+    public SimulationConfig withVisibilityRatio(double visibilityRatio) {
+        this.visibilityRatio = visibilityRatio;
+        return this;
+    }
+
+    /**
+     * Sets advertisement interval and its random jitter (BLE adds a random delay up to 10ms to each interval).
+     * @param advertisementInterval advertisement interval
+     * @param advertisementJitter maximum random delay added to each interval
+     * @return the same config instance
+     */
+    public SimulationConfig withAdvertisementInterval(long advertisementInterval, long advertisementJitter) {
+        if (advertisementInterval <= 0) {
+            throw new IllegalArgumentException("Advertisement interval must be positive");
+        }
+        this.advertisementInterval = advertisementInterval;
+        this.advertisementJitter = advertisementJitter;
+        return this;
+    }
+
+    /**
+     * Sets RSSI random walk parameters. Initial RSSI is uniformly distributed between min and max,
+     * then on each advertisement it changes by a normally distributed step.
+     * @param rssiMin minimum RSSI
+     * @param rssiMax maximum RSSI
+     * @param rssiStep standard deviation of the RSSI step
+     * @return the same config instance
+     */
+    public SimulationConfig withRssi(short rssiMin, short rssiMax, double rssiStep) {
+        if (rssiMin > rssiMax) {
+            throw new IllegalArgumentException("Min RSSI is greater than max RSSI");
+        }
+        this.rssiMin = rssiMin;
+        this.rssiMax = rssiMax;
+        this.rssiStep = rssiStep;
+        return this;
+    }
+
+    /**
+     * Sets TX power reported by simulated devices.
+     * @param txPower TX power
+     * @return the same config instance
+     */
+    public SimulationConfig withTxPower(short txPower) {
+        this.txPower = txPower;
+        return this;
+    }
+
+    /**
+     * Sets a ratio of devices using rotating private addresses and how often they change their addresses.
+     * Devices do not change their addresses while connected.
+     * @param privateAddressRatio a value between 0 and 1
+     * @param addressRotationInterval address rotation interval
+     * @return the same config instance
+     */
+    public SimulationConfig withPrivateAddresses(double privateAddressRatio, long addressRotationInterval) {
+        if (addressRotationInterval <= 0) {
+            throw new IllegalArgumentException("Address rotation interval must be positive");
+        }
+        this.privateAddressRatio = privateAddressRatio;
+        this.addressRotationInterval = addressRotationInterval;
+        return this;
+    }
+
+    /**
+     * Sets how long it takes to connect to a device and then resolve its services.
+     * @param connectionLatency connection latency
+     * @param servicesResolutionLatency services resolution latency (after connection is established)
+     * @return the same config instance
+     */
+    public SimulationConfig withConnectionLatency(long connectionLatency, long servicesResolutionLatency) {
+        this.connectionLatency = connectionLatency;
+        this.servicesResolutionLatency = servicesResolutionLatency;
+        return this;
+    }
+
+    /**
+     * Sets the shape of GATT tree of simulated devices.
+     * @param services number of services
+     * @param characteristics number of characteristics per service
+     * @return the same config instance
+     */
+    public SimulationConfig withGatt(int services, int characteristics) {
+        this.services = services;
+        this.characteristics = characteristics;
+        return this;
+    }
+
+    /**
+     * Sets how often notifiable characteristics send notifications (when enabled).
+     * @param notificationInterval notification interval
+     * @return the same config instance
+     */
+    public SimulationConfig withNotificationInterval(long notificationInterval) {
+        if (notificationInterval <= 0) {
+            throw new IllegalArgumentException("Notification interval must be positive");
+        }
+        this.notificationInterval = notificationInterval;
+        return this;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getAdapters() {
+        return adapters;
+    }
+
+    public int getDevices() {
+        return devices;
+    }
+
+    public double getVisibilityRatio() {
+        return visibilityRatio;
+    }
+
+    public long getAdvertisementInterval() {
+        return advertisementInterval;
+    }
+
+    public long getAdvertisementJitter() {
+        return advertisementJitter;
+    }
+
+    public short getRssiMin() {
+        return rssiMin;
+    }
+
+    public short getRssiMax() {
+        return rssiMax;
+    }
+
+    public double getRssiStep() {
+        return rssiStep;
+    }
+
+    public short getTxPower() {
+        return txPower;
+    }
+
+    public double getPrivateAddressRatio() {
+        return privateAddressRatio;
+    }
+
+    public long getAddressRotationInterval() {
+        return addressRotationInterval;
+    }
+
+    public long getConnectionLatency() {
+        return connectionLatency;
+    }
+
+    public long getServicesResolutionLatency() {
+        return servicesResolutionLatency;
+    }
+
+    public int getServices() {
+        return services;
+    }
+
+    public int getCharacteristics() {
+        return characteristics;
+    }
+
+    public long getNotificationInterval() {
+        return notificationInterval;
+    }
+
+}
@@ -0,0 +1,95 @@
+package org.sputnikdev.bluetooth.manager;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ValueFormatTest {
+
+    @Test
+    public void testIntegers() {
+        ByteBuffer buffer = buffer(0xFF, 0xFE, 0xFF, 0xFF, 0x7F, 0x00, 0x00, 0x00, 0x80);
+        assertEquals(255, ValueFormat.UINT8.decodeLong(buffer, 0));
+        assertEquals(-1, ValueFormat.SINT8.decodeLong(buffer, 0));
+        assertEquals(0xFEFF, ValueFormat.UINT16.decodeLong(buffer, 0));
+        assertEquals(-257, ValueFormat.SINT16.decodeLong(buffer, 0));
+        assertEquals(-2, ValueFormat.SINT24.decodeLong(buffer, 1));
+        assertEquals(0xFFFFFEFFL, ValueFormat.UINT32.decodeLong(buffer, 0));
+        assertEquals(-257, ValueFormat.SINT32.decodeLong(buffer, 0));
+        assertEquals(0x7F, ValueFormat.SINT32.decodeLong(buffer, 4));
+        assertEquals(0x800000007FFFFFFEL, ValueFormat.SINT64.decodeLong(buffer, 1));
+
+        // offset is relative to the buffer position
+        buffer.position(4);
+        assertEquals(0x7F, ValueFormat.UINT8.decodeLong(buffer, 0));
+        assertEquals(4, buffer.position());
+
+        try {
+            ValueFormat.UINT16.decodeLong(buffer, 4);
+            fail();
+        } catch (IndexOutOfBoundsException ignore) { }
+        try {
+            ValueFormat.FLOAT32.decodeLong(buffer, 0);
+            fail();
+        } catch (IllegalStateException ignore) { }
+    }
+
+    @Test
+    public void testFloats() {
+        ByteBuffer buffer = ByteBuffer.allocate(8).order(java.nio.ByteOrder.LITTLE_ENDIAN).putFloat(0, 36.6f);
+        assertEquals(36.6, ValueFormat.FLOAT32.decodeDouble(buffer, 0), 0.00001);
+        buffer.putDouble(0, -1.5);
+        assertEquals(-1.5, ValueFormat.FLOAT64.decodeDouble(buffer, 0), 0.0);
+        assertEquals(255.0, ValueFormat.UINT8.decodeDouble(buffer(0xFF), 0), 0.0);
+
+        // 0xF16E: exponent -1, mantissa 366
+        assertEquals(36.6, ValueFormat.SFLOAT.decodeDouble(buffer(0x6E, 0xF1), 0), 0.00001);
+        // 0x0FFF: exponent 0, mantissa -1
+        assertEquals(-1.0, ValueFormat.SFLOAT.decodeDouble(buffer(0xFF, 0x0F), 0), 0.0);
+        assertTrue(Double.isNaN(ValueFormat.SFLOAT.decodeDouble(buffer(0xFF, 0x07), 0)));
+        assertEquals(Double.POSITIVE_INFINITY, ValueFormat.SFLOAT.decodeDouble(buffer(0xFE, 0x07), 0), 0.0);
+
+        // 0xFE00016E: exponent -2, mantissa 366
+        assertEquals(3.66, ValueFormat.FLOAT.decodeDouble(buffer(0x6E, 0x01, 0x00, 0xFE), 0), 0.00001);
+        assertEquals(Double.NEGATIVE_INFINITY,
+                ValueFormat.FLOAT.decodeDouble(buffer(0x02, 0x00, 0x80, 0x00), 0), 0.0);
+    }
+
+    @Test
+    public void testPrimitiveListeners() {
+        ByteBuffer buffer = buffer(0x01, 0x6E, 0xF1, 0xFF, 0xFF);
+        AtomicInteger intValue = new AtomicInteger();
+        AtomicLong longValue = new AtomicLong();
+        AtomicReference<Double> doubleValue = new AtomicReference<>();
+
+        PrimitiveValueListeners.intListener(3, ValueFormat.SINT16, intValue::set).changed(buffer);
+        PrimitiveValueListeners.longListener(3, ValueFormat.UINT16, longValue::set).changed(buffer);
+        PrimitiveValueListeners.floatListener(1, ValueFormat.SFLOAT, doubleValue::set).changed(buffer);
+
+        assertEquals(-1, intValue.get());
+        assertEquals(0xFFFF, longValue.get());
+        assertEquals(36.6, doubleValue.get(), 0.00001);
+
+        try {
+            PrimitiveValueListeners.intListener(0, ValueFormat.FLOAT, intValue::set);
+            fail();
+        } catch (IllegalArgumentException ignore) { }
+    }
+
+    private static ByteBuffer buffer(int... bytes) {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+        for (int value : bytes) {
+            buffer.put((byte) value);
+        }
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+}
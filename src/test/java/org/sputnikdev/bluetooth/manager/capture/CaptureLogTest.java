@@ -0,0 +1,191 @@
+package org.sputnikdev.bluetooth.manager.capture;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sputnikdev.bluetooth.URL;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CaptureLogTest {
+
+    private static final URL DEVICE = new URL("/11:22:33:44:55:66/12:34:56:78:90:12");
+    private static final URL CHARACTERISTIC = DEVICE.copyWith("0000180f-0000-1000-8000-00805f9b34fb",
+            "00002a19-0000-1000-8000-00805f9b34fb");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppendAndRead() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        long start = System.nanoTime();
+        try (CaptureLog log = new CaptureLog(directory, 4096)) {
+            for (int i = 0; i < 1000; i++) {
+                URL url = i % 2 == 0 ? CHARACTERISTIC : DEVICE;
+                CaptureRecordType type = i % 2 == 0
+                        ? CaptureRecordType.CHARACTERISTIC_VALUE : CaptureRecordType.MANUFACTURER_DATA;
+                assertTrue(log.append(type, url, start + i, new byte[] {(byte) i, (byte) (i >> 8)}));
+            }
+            assertEquals(1000, log.getRecords());
+            assertTrue(log.getSegments() > 1);
+
+            // too big for a segment
+            assertFalse(log.append(CaptureRecordType.SERVICE_DATA, DEVICE, start, new byte[4096]));
+            assertEquals(1, log.getDropped());
+        }
+
+        try (CaptureLogReader reader = new CaptureLogReader(directory)) {
+            for (int i = 0; i < 1000; i++) {
+                CaptureRecord record = reader.next();
+                assertEquals(i % 2 == 0 ? CHARACTERISTIC : DEVICE, record.getURL());
+                assertEquals(i % 2 == 0 ? CaptureRecordType.CHARACTERISTIC_VALUE
+                        : CaptureRecordType.MANUFACTURER_DATA, record.getType());
+                assertEquals(start + i, record.getTimestamp());
+                assertArrayEquals(new byte[] {(byte) i, (byte) (i >> 8)}, record.getPayload());
+                assertTrue(Math.abs(record.getTime().toEpochMilli() - System.currentTimeMillis()) < 10000);
+            }
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (CaptureLog log = new CaptureLog(directory, 4096)) {
+            log.append(CaptureRecordType.SERVICE_DATA, DEVICE, 1, new byte[] {1});
+        }
+        try (CaptureLog log = new CaptureLog(directory, 4096)) {
+            log.append(CaptureRecordType.SERVICE_DATA, DEVICE, 2, new byte[] {2});
+            log.close();
+            assertFalse(log.append(CaptureRecordType.SERVICE_DATA, DEVICE, 3, new byte[] {3}));
+        }
+        assertEquals(1, CaptureLog.getLastSegmentIndex(directory));
+
+        try (CaptureLogReader reader = new CaptureLogReader(directory)) {
+            assertEquals(1, reader.next().getTimestamp());
+            assertEquals(2, reader.next().getTimestamp());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testStrayFiles() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Files.createFile(directory.resolve("capture-x.seg"));
+        Files.createFile(directory.resolve("capture-000000000007.seg.tmp"));
+        assertEquals(-1, CaptureLog.getLastSegmentIndex(directory));
+        try (CaptureLog log = new CaptureLog(directory, 4096)) {
+            log.append(CaptureRecordType.SERVICE_DATA, DEVICE, 1, new byte[] {1});
+        }
+        assertEquals(0, CaptureLog.getLastSegmentIndex(directory));
+
+        try (CaptureLogReader reader = new CaptureLogReader(directory)) {
+            assertEquals(1, reader.next().getTimestamp());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testSealedSegments() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (CaptureLog log = new CaptureLog(directory, 4096)) {
+            for (int i = 0; i < 1000; i++) {
+                log.append(CaptureRecordType.SERVICE_DATA, i % 2 == 0 ? DEVICE : CHARACTERISTIC, i, new byte[] {1});
+            }
+            assertTrue(log.getSegments() > 1);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                ByteBuffer segment = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+                // rotated segments and the last one (on close) are sealed
+                assertTrue(segment.getInt(CaptureLog.END_OF_RECORDS) > CaptureLog.SEGMENT_HEADER_SIZE);
+                // URL ids are local to a segment
+                assertEquals(0, segment.getInt(CaptureLog.SEGMENT_HEADER_SIZE + 5));
+            }
+        }
+    }
+
+    @Test
+    public void testReservedNotWritten() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (CaptureLog log = new CaptureLog(directory, 4096)) {
+            for (int i = 0; i < 3; i++) {
+                log.append(CaptureRecordType.SERVICE_DATA, DEVICE, i, new byte[] {(byte) i});
+            }
+        }
+        Path file = directory.resolve(String.format("%s%012d%s", CaptureLog.FILE_PREFIX, 0, CaptureLog.FILE_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            // the second record is reserved, but its writer has been terminated
+            int position = CaptureLog.SEGMENT_HEADER_SIZE + segment.getInt(CaptureLog.SEGMENT_HEADER_SIZE);
+            position += segment.getInt(position);
+            segment.putInt(position, -segment.getInt(position));
+            // and the segment has not been sealed (the writer process has been terminated)
+            segment.putInt(CaptureLog.END_OF_RECORDS, 0);
+        }
+
+        try (CaptureLogReader reader = new CaptureLogReader(directory)) {
+            assertEquals(0, reader.next().getTimestamp());
+            assertEquals(2, reader.next().getTimestamp());
+            assertNull(reader.next());
+            assertEquals(1, reader.getSkipped());
+        }
+    }
+
+    @Test
+    public void testConcurrentAppend() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        int threads = 4;
+        int records = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (CaptureLog log = new CaptureLog(directory, 16 * 1024)) {
+            for (int t = 0; t < threads; t++) {
+                URL url = CHARACTERISTIC.copyWithAdapter("00:00:00:00:00:0" + t);
+                executor.submit(() -> {
+                    for (int i = 0; i < records; i++) {
+                        log.append(CaptureRecordType.CHARACTERISTIC_VALUE, url, i, new byte[] {(byte) i});
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            assertEquals(threads * records, log.getRecords());
+            assertEquals(0, log.getDropped());
+        }
+
+        Map<URL, Long> lastTimestamps = new HashMap<>();
+        int count = 0;
+        try (CaptureLogReader reader = new CaptureLogReader(directory)) {
+            CaptureRecord record;
+            while ((record = reader.next()) != null) {
+                Long last = lastTimestamps.put(record.getURL(), record.getTimestamp());
+                // records of each writer are in order
+                assertTrue(last == null || last < record.getTimestamp());
+                count++;
+            }
+        }
+        assertEquals(threads * records, count);
+    }
+
+}
@@ -13,10 +13,19 @@ import org.sputnikdev.bluetooth.URL;
 import org.sputnikdev.bluetooth.manager.BluetoothInteractionException;
 import org.sputnikdev.bluetooth.manager.BluetoothObjectType;
 import org.sputnikdev.bluetooth.manager.BluetoothObjectVisitor;
+import org.sputnikdev.bluetooth.manager.CircuitBreakerState;
 import org.sputnikdev.bluetooth.manager.GovernorListener;
+import org.sputnikdev.bluetooth.manager.NotReadyException;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObject;
 
 import java.time.Instant;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 import static org.junit.Assert.assertEquals;
@@ -24,7 +33,11 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
@@ -289,4 +302,334 @@ public class AbstractBluetoothObjectGovernorTest {
         verify(governorListener, times(1)).ready(true);
     }
 
+    @Test
+    public void testCircuitBreaker() {
+        CircuitBreaker transportBreaker = new CircuitBreaker("tinyb", 2, 60000);
+        CircuitBreaker adapterBreaker = new CircuitBreaker(URL.toString(), 2, 60000);
+        when(bluetoothManager.getTransportCircuitBreaker("tinyb")).thenReturn(transportBreaker);
+        when(bluetoothManager.getAdapterCircuitBreaker(URL)).thenReturn(adapterBreaker);
+        governor.update();
+        assertEquals(CircuitBreakerState.CLOSED, governor.getCircuitBreakerState());
+
+        Function<BluetoothObject, Boolean> function = mock(Function.class);
+        when(function.apply(any())).thenThrow(RuntimeException.class);
+        for (int i = 0; i < 2; i++) {
+            Whitebox.setInternalState(governor, "bluetoothObject", bluetoothObject);
+            try {
+                governor.interact("test", function);
+                fail();
+            } catch (BluetoothInteractionException ignore) { }
+        }
+        verify(governor, times(2)).reset();
+        assertEquals(CircuitBreakerState.OPEN, transportBreaker.getState());
+        assertEquals(CircuitBreakerState.OPEN, adapterBreaker.getState());
+        assertEquals(CircuitBreakerState.OPEN, governor.getCircuitBreakerState());
+
+        // calls fail fast without hitting the hardware and resetting the governor
+        try {
+            governor.interact("test", function);
+            fail();
+        } catch (BluetoothInteractionException ignore) { }
+        verify(function, times(2)).apply(any());
+        verify(governor, times(2)).reset();
+
+        // governor is not updated while the breaker is open
+        Whitebox.setInternalState(governor, "bluetoothObject", null);
+        governor.update();
+        verify(bluetoothManager, times(1)).getBluetoothObject(URL);
+    }
+
+    @Test
+    public void testNativeCallTimeout() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            when(bluetoothManager.getNativeCallTimeout("test")).thenReturn(50L);
+            when(bluetoothManager.submitNativeCall(any())).thenAnswer(
+                answer -> executor.submit((Callable<?>) answer.getArguments()[0]));
+            governor.update();
+
+            assertTrue((Boolean) governor.interact("test", (Function<BluetoothObject, Boolean>) object -> true));
+
+            CountDownLatch interrupted = new CountDownLatch(1);
+            try {
+                governor.interact("test", (Function<BluetoothObject, Boolean>) object -> {
+                    try {
+                        Thread.sleep(10000);
+                    } catch (InterruptedException ex) {
+                        interrupted.countDown();
+                    }
+                    return true;
+                });
+                fail();
+            } catch (BluetoothInteractionException ignore) { }
+            assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+            // the timed out native object is not touched
+            verify(governor, never()).reset();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testUpdateInteractionDeadline() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AdapterHealth health = mock(AdapterHealth.class);
+            when(bluetoothManager.getAdapterHealth(URL)).thenReturn(health);
+            when(bluetoothManager.getNativeCallTimeout("nested")).thenReturn(200L);
+            when(bluetoothManager.submitNativeCall(any())).thenAnswer(
+                answer -> executor.submit((Callable<?>) answer.getArguments()[0]));
+            TestGovernor testGovernor = spy(new TestGovernor(bluetoothManager, URL));
+            testGovernor.nestedCalls = 3;
+
+            // each interaction has its own deadline, the update as a whole is not limited
+            testGovernor.nestedDelay = 100;
+            testGovernor.update();
+            assertTrue(testGovernor.isReady());
+            verify(health, times(1)).recordNativeCall(eq(true), anyLong());
+
+            // a timed out interaction fails the update, but the hanging native object is not reset
+            testGovernor.nestedDelay = 10000;
+            testGovernor.update();
+            assertTrue(testGovernor.isReady());
+            verify(health, times(1)).recordNativeCall(eq(false), anyLong());
+            verify(testGovernor, never()).reset();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testNativeCallNotStarted() throws Exception {
+        CircuitBreaker adapterBreaker = new CircuitBreaker(URL.toString(), 1, 60000);
+        when(bluetoothManager.getAdapterCircuitBreaker(URL)).thenReturn(adapterBreaker);
+        when(bluetoothManager.getNativeCallTimeout("test")).thenReturn(50L);
+        governor.update();
+
+        // rejected by the native call executor
+        when(bluetoothManager.submitNativeCall(any())).thenThrow(RejectedExecutionException.class);
+        try {
+            governor.interact("test", (Function<BluetoothObject, Boolean>) object -> true);
+            fail();
+        } catch (BluetoothInteractionException ignore) { }
+
+        // waiting for a free thread longer than the deadline
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.submit(() -> {
+                release.await();
+                return null;
+            });
+            doAnswer(answer -> executor.submit((Callable<?>) answer.getArguments()[0]))
+                    .when(bluetoothManager).submitNativeCall(any());
+            Function<BluetoothObject, Boolean> function = mock(Function.class);
+            try {
+                governor.interact("test", function);
+                fail();
+            } catch (BluetoothInteractionException ignore) { }
+            release.countDown();
+            executor.submit(() -> { }).get();
+            verify(function, never()).apply(any());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // calls that have not started are neither hardware faults nor a reason to reset the governor
+        assertEquals(CircuitBreakerState.CLOSED, adapterBreaker.getState());
+        assertEquals(CircuitBreakerState.CLOSED, governor.getCircuitBreakerState());
+        verify(governor, never()).reset();
+    }
+
+    @Test
+    public void testProbeNotTakenWhenRejected() {
+        AtomicLong time = new AtomicLong();
+        CircuitBreaker transportBreaker = new CircuitBreaker("tinyb", 1, 1000, time::get);
+        CircuitBreaker adapterBreaker = new CircuitBreaker(URL.toString(), 1, 2000, time::get);
+        when(bluetoothManager.getTransportCircuitBreaker("tinyb")).thenReturn(transportBreaker);
+        when(bluetoothManager.getAdapterCircuitBreaker(URL)).thenReturn(adapterBreaker);
+        governor.update();
+        transportBreaker.onFailure();
+        adapterBreaker.onFailure();
+
+        // the transport breaker is half-open, the adapter breaker is still open
+        time.set(1000);
+        Function<BluetoothObject, Boolean> function = mock(Function.class);
+        try {
+            governor.interact("test", function);
+            fail();
+        } catch (BluetoothInteractionException ignore) { }
+        verify(function, never()).apply(any());
+        assertTrue(transportBreaker.isRequestAllowed());
+
+        time.set(2000);
+        when(function.apply(any())).thenReturn(true);
+        assertTrue((Boolean) governor.interact("test", function));
+        assertEquals(CircuitBreakerState.CLOSED, transportBreaker.getState());
+        assertEquals(CircuitBreakerState.CLOSED, adapterBreaker.getState());
+    }
+
+    @Test
+    public void testNativeCallTimeoutQuarantine() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            when(bluetoothManager.getNativeCallTimeout("test")).thenReturn(50L);
+            when(bluetoothManager.submitNativeCall(any())).thenAnswer(
+                answer -> executor.submit((Callable<?>) answer.getArguments()[0]));
+            governor.update();
+
+            // the native call ignores interruption and keeps running after its deadline
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch finished = new CountDownLatch(1);
+            try {
+                governor.interact("test", (Function<BluetoothObject, Boolean>) object -> {
+                    while (true) {
+                        try {
+                            release.await();
+                            break;
+                        } catch (InterruptedException ignore) { }
+                    }
+                    finished.countDown();
+                    return true;
+                });
+                fail();
+            } catch (BluetoothInteractionException ignore) { }
+
+            // the governor is quarantined until the call finishes
+            assertEquals(CircuitBreakerState.OPEN, governor.getCircuitBreakerState());
+            Function<BluetoothObject, Boolean> function = mock(Function.class);
+            Whitebox.setInternalState(governor, "bluetoothObject", bluetoothObject);
+            try {
+                governor.interact("test", function);
+                fail();
+            } catch (BluetoothInteractionException ignore) { }
+            verify(function, never()).apply(any());
+            Whitebox.setInternalState(governor, "bluetoothObject", null);
+            governor.update();
+            verify(bluetoothManager, times(1)).getBluetoothObject(any());
+
+            release.countDown();
+            assertTrue(finished.await(1, TimeUnit.SECONDS));
+            executor.submit(() -> { }).get();
+            assertEquals(CircuitBreakerState.CLOSED, governor.getCircuitBreakerState());
+            governor.update();
+            verify(bluetoothManager, times(2)).getBluetoothObject(any());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGovernorCircuitBreaker() {
+        URL deviceURL = URL.copyWithDevice("12:34:56:78:90:12");
+        CircuitBreaker transportBreaker = new CircuitBreaker("tinyb", 2, 60000);
+        CircuitBreaker adapterBreaker = new CircuitBreaker(URL.toString(), 2, 60000);
+        CircuitBreaker governorBreaker = new CircuitBreaker(deviceURL.toString(), 2, 60000);
+        when(bluetoothManager.getTransportCircuitBreaker("tinyb")).thenReturn(transportBreaker);
+        when(bluetoothManager.getAdapterCircuitBreaker(URL)).thenReturn(adapterBreaker);
+        when(bluetoothManager.createCircuitBreaker(deviceURL.toString())).thenReturn(governorBreaker);
+        when(bluetoothObject.getURL()).thenReturn(deviceURL.copyWithProtocol("tinyb"));
+        when(bluetoothManager.getBluetoothObject(deviceURL)).thenReturn(bluetoothObject);
+        TestGovernor deviceGovernor = new TestGovernor(bluetoothManager, deviceURL);
+        deviceGovernor.update();
+
+        // device errors count only towards the governor breaker
+        for (int i = 0; i < 2; i++) {
+            Whitebox.setInternalState(deviceGovernor, "bluetoothObject", bluetoothObject);
+            try {
+                deviceGovernor.interact("test", (Function<BluetoothObject, Boolean>) object -> {
+                    throw new IllegalStateException();
+                });
+                fail();
+            } catch (BluetoothInteractionException ignore) { }
+        }
+        assertEquals(CircuitBreakerState.OPEN, governorBreaker.getState());
+        assertEquals(CircuitBreakerState.CLOSED, transportBreaker.getState());
+        assertEquals(CircuitBreakerState.CLOSED, adapterBreaker.getState());
+        assertEquals(CircuitBreakerState.OPEN, deviceGovernor.getCircuitBreakerState());
+    }
+
+    @Test
+    public void testSharedCircuitBreakerFaults() {
+        URL deviceURL = URL.copyWithDevice("12:34:56:78:90:12");
+        CircuitBreaker adapterBreaker = new CircuitBreaker(URL.toString(), 2, 60000);
+        when(bluetoothManager.getAdapterCircuitBreaker(URL)).thenReturn(adapterBreaker);
+        when(bluetoothObject.getURL()).thenReturn(deviceURL.copyWithProtocol("tinyb"));
+        when(bluetoothManager.getBluetoothObject(deviceURL)).thenReturn(bluetoothObject);
+        TestGovernor deviceGovernor = new TestGovernor(bluetoothManager, deviceURL);
+        deviceGovernor.update();
+
+        // adapter is not ready
+        for (int i = 0; i < 2; i++) {
+            Whitebox.setInternalState(deviceGovernor, "bluetoothObject", bluetoothObject);
+            try {
+                deviceGovernor.interact("test", (Function<BluetoothObject, Boolean>) object -> {
+                    throw new NotReadyException();
+                });
+                fail();
+            } catch (BluetoothInteractionException ignore) { }
+        }
+        assertEquals(CircuitBreakerState.OPEN, adapterBreaker.getState());
+    }
+
+    @Test
+    public void testNestedNativeCallsRecordedOnce() {
+        AdapterHealth health = mock(AdapterHealth.class);
+        when(bluetoothManager.getAdapterHealth(URL)).thenReturn(health);
+        TestGovernor testGovernor = new TestGovernor(bluetoothManager, URL);
+        testGovernor.nestedCalls = 3;
+
+        testGovernor.update();
+        verify(health, times(1)).recordNativeCall(eq(true), anyLong());
+
+        testGovernor.nestedError = true;
+        testGovernor.update();
+        verify(health, times(1)).recordNativeCall(eq(false), anyLong());
+    }
+
+    private static class TestGovernor extends AbstractBluetoothObjectGovernor<BluetoothObject> {
+
+        private int nestedCalls;
+        private boolean nestedError;
+        private long nestedDelay;
+
+        TestGovernor(BluetoothManagerImpl bluetoothManager, URL url) {
+            super(bluetoothManager, url);
+        }
+
+        @Override
+        public boolean isUpdatable() {
+            return true;
+        }
+
+        @Override void reset(BluetoothObject object) {
+        }
+
+        @Override void update(BluetoothObject object) {
+            for (int i = 0; i < nestedCalls; i++) {
+                interact("nested", (Function<BluetoothObject, Boolean>) nested -> {
+                    if (nestedError) {
+                        throw new IllegalStateException();
+                    }
+                    if (nestedDelay > 0) {
+                        try {
+                            Thread.sleep(nestedDelay);
+                        } catch (InterruptedException ignore) { }
+                    }
+                    return true;
+                });
+            }
+        }
+
+        @Override void init(BluetoothObject object) {
+        }
+
+        @Override public BluetoothObjectType getType() {
+            return BluetoothObjectType.DEVICE;
+        }
+
+        @Override public void accept(BluetoothObjectVisitor visitor) throws Exception {
+        }
+    }
+
 }
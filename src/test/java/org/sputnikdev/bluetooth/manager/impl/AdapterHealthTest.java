@@ -0,0 +1,50 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdapterHealthTest {
+
+    @Test
+    public void testScore() {
+        AdapterHealth health = new AdapterHealth();
+        assertEquals(1.0, health.getScore(), 0.0);
+        assertEquals(1.0, AdapterHealth.getScore(null), 0.0);
+
+        for (int i = 0; i < 100; i++) {
+            health.recordNativeCall(true, 1000000);
+            health.recordConnectionAttempt(true, 2000);
+        }
+        assertEquals(1.0, health.getScore(), 0.0);
+        assertEquals(1.0, health.getLatency(), 0.01);
+        assertEquals(2000, health.getConnectionLatency(), 1);
+
+        // the adapter is wedged
+        for (int i = 0; i < 20; i++) {
+            health.recordNativeCall(false, 1000000);
+            health.recordConnectionAttempt(false, 0);
+        }
+        assertTrue(health.getErrorRate() > 0.8);
+        assertTrue(health.getScore() < AdapterHealth.UNHEALTHY_THRESHOLD);
+
+        // and recovers
+        for (int i = 0; i < 50; i++) {
+            health.recordNativeCall(true, 1000000);
+            health.recordConnectionAttempt(true, 2000);
+        }
+        assertTrue(health.getScore() > 0.9);
+    }
+
+    @Test
+    public void testLatency() {
+        AdapterHealth health = new AdapterHealth();
+        for (int i = 0; i < 200; i++) {
+            health.recordNativeCall(true, 2000000000L);
+        }
+        // 2 seconds vs 500 ms reference latency
+        assertEquals(0.25, health.getScore(), 0.01);
+    }
+
+}
@@ -0,0 +1,57 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Test;
+import org.sputnikdev.bluetooth.URL;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdvertisementDeduplicatorTest {
+
+    private static final URL FIRST = new URL("/11:22:33:44:55:66/12:34:56:78:90:12/0000feaa-0000-1000-8000-00805f9b34fb");
+    private static final URL SECOND = new URL("/77:22:33:44:55:66/12:34:56:78:90:12/0000feaa-0000-1000-8000-00805f9b34fb");
+
+    @Test
+    public void testServiceData() {
+        AdvertisementDeduplicator<URL> deduplicator = new AdvertisementDeduplicator<>(URL::getServiceUUID, 1000);
+
+        assertTrue(deduplicator.accept(0, serviceData(FIRST, 1, 2, 3), 0));
+        // the same advertisement received through another adapter
+        assertFalse(deduplicator.accept(1, serviceData(SECOND, 1, 2, 3), 10));
+        // a different advertisement
+        assertTrue(deduplicator.accept(1, serviceData(SECOND, 1, 2, 4), 20));
+        assertFalse(deduplicator.accept(0, serviceData(FIRST, 1, 2, 4), 30));
+
+        // the same payload advertised again
+        assertTrue(deduplicator.accept(0, serviceData(FIRST, 1, 2, 3), 100));
+        assertFalse(deduplicator.accept(1, serviceData(SECOND, 1, 2, 3), 110));
+
+        // window elapsed
+        assertTrue(deduplicator.accept(1, serviceData(SECOND, 1, 2, 3), 1200));
+    }
+
+    @Test
+    public void testDisabled() {
+        AdvertisementDeduplicator<Short> deduplicator = new AdvertisementDeduplicator<>(id -> id, 1000);
+        Map<Short, byte[]> data = Collections.singletonMap((short) 0x004c, new byte[] {1, 2});
+
+        assertTrue(deduplicator.accept(0, data, 0));
+        assertFalse(deduplicator.accept(1, data, 0));
+
+        deduplicator.setWindow(0);
+        assertTrue(deduplicator.accept(2, data, 0));
+        assertTrue(deduplicator.accept(3, data, 0));
+    }
+
+    private static Map<URL, byte[]> serviceData(URL url, int... values) {
+        byte[] data = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            data[i] = (byte) values[i];
+        }
+        return Collections.singletonMap(url, data);
+    }
+
+}
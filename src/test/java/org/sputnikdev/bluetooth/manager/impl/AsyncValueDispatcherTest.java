@@ -0,0 +1,118 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.After;
+import org.junit.Test;
+import org.sputnikdev.bluetooth.manager.ValueDispatchPolicy;
+import org.sputnikdev.bluetooth.manager.ValueListener;
+import org.sputnikdev.bluetooth.manager.ValueListenerStats;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncValueDispatcherTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<Byte> received = new CopyOnWriteArrayList<>();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ValueListener slowListener = value -> {
+        started.countDown();
+        try {
+            release.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        received.add(value[0]);
+    };
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testQueued() throws Exception {
+        AsyncValueDispatcher dispatcher = new AsyncValueDispatcher(slowListener, ValueDispatchPolicy.QUEUED, 3,
+                executor);
+        dispatcher.changed(new byte[] {1});
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        for (byte i = 2; i <= 10; i++) {
+            dispatcher.changed(new byte[] {i});
+        }
+        ValueListenerStats stats = dispatcher.getStats();
+        assertEquals(6, stats.getDropped());
+        assertEquals(3, stats.getPending());
+        assertEquals(0, stats.getDelivered());
+
+        release.countDown();
+        awaitDelivered(dispatcher, 4);
+        assertEquals(Arrays.asList((byte) 1, (byte) 8, (byte) 9, (byte) 10), received);
+        assertEquals(0, dispatcher.getStats().getPending());
+    }
+
+    @Test
+    public void testConflated() throws Exception {
+        AsyncValueDispatcher dispatcher = new AsyncValueDispatcher(slowListener, ValueDispatchPolicy.CONFLATED, 0,
+                executor);
+        dispatcher.changed(new byte[] {1});
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        for (byte i = 2; i <= 10; i++) {
+            dispatcher.changed(new byte[] {i});
+        }
+        assertEquals(8, dispatcher.getStats().getDropped());
+        assertEquals(1, dispatcher.getStats().getPending());
+
+        release.countDown();
+        awaitDelivered(dispatcher, 2);
+        assertEquals(Arrays.asList((byte) 1, (byte) 10), received);
+    }
+
+    @Test
+    public void testOrderAndFailures() throws Exception {
+        release.countDown();
+        AsyncValueDispatcher dispatcher = new AsyncValueDispatcher(value -> {
+            received.add(value[0]);
+            throw new IllegalStateException();
+        }, ValueDispatchPolicy.QUEUED, 1000, executor);
+        for (byte i = 0; i < 100; i++) {
+            dispatcher.changed(new byte[] {i});
+        }
+        awaitDelivered(dispatcher, 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) received.get(i));
+        }
+        assertEquals(0, dispatcher.getStats().getDropped());
+    }
+
+    @Test
+    public void testDispose() throws Exception {
+        AsyncValueDispatcher dispatcher = new AsyncValueDispatcher(slowListener, ValueDispatchPolicy.QUEUED, 10,
+                executor);
+        dispatcher.changed(new byte[] {1});
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        dispatcher.changed(new byte[] {2});
+        dispatcher.dispose();
+        dispatcher.changed(new byte[] {3});
+        release.countDown();
+        awaitDelivered(dispatcher, 1);
+        Thread.sleep(50);
+        assertEquals(Arrays.asList((byte) 1), received);
+    }
+
+    private static void awaitDelivered(AsyncValueDispatcher dispatcher, long expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (dispatcher.getStats().getDelivered() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, dispatcher.getStats().getDelivered());
+    }
+
+}
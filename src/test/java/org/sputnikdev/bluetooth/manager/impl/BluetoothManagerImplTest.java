@@ -7,23 +7,29 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.BluetoothGovernor;
+import org.sputnikdev.bluetooth.manager.CombinedGovernor;
 import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
+import org.sputnikdev.bluetooth.manager.ManagerListener;
 import org.sputnikdev.bluetooth.manager.transport.Adapter;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObject;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObjectFactory;
 import org.sputnikdev.bluetooth.manager.transport.Characteristic;
 import org.sputnikdev.bluetooth.manager.transport.Device;
+import org.sputnikdev.bluetooth.manager.transport.DeviceState;
 
 import java.util.Collections;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -97,6 +103,8 @@ public class BluetoothManagerImplTest {
         when(dbusAdapter.getURL()).thenReturn(DBUS_ADAPTER_URL);
         when(tinybDevice.getURL()).thenReturn(TINYB_DEVICE_URL);
         when(dbusDevice.getURL()).thenReturn(DBUS_DEVICE_URL);
+        when(tinybDevice.getState()).thenReturn(new DeviceState(false, false, false, (short) 0, (short) 0));
+        when(dbusDevice.getState()).thenReturn(new DeviceState(false, false, false, (short) 0, (short) 0));
         when(tinybCharacteristic.getURL()).thenReturn(TINYB_CHARACTERISTIC_URL);
         when(dbusCharacteristic.getURL()).thenReturn(DBUS_CHARACTERISTIC_URL);
 
@@ -171,6 +179,47 @@ public class BluetoothManagerImplTest {
         assertResetGovernors(1, 1, new URL("/"));
     }
 
+    @Test
+    public void testReadyListener() {
+        URL combinedURL = TINYB_CHARACTERISTIC_URL.copyWithProtocol(null)
+                .copyWithAdapter(CombinedGovernor.COMBINED_ADDRESS);
+        ManagerListener listener = mock(ManagerListener.class);
+        ManagerListener another = mock(ManagerListener.class);
+        bluetoothManager.addReadyListener(combinedURL, listener);
+        bluetoothManager.addReadyListener(combinedURL.copyWithDevice("12:34:56:78:90:13"), another);
+
+        BluetoothGovernor governor = mock(BluetoothGovernor.class);
+        when(governor.getURL()).thenReturn(TINYB_CHARACTERISTIC_URL);
+        bluetoothManager.notifyGovernorReady(governor, true);
+
+        verify(listener).ready(governor, true);
+        verify(another, never()).ready(governor, true);
+
+        bluetoothManager.removeReadyListener(combinedURL, listener);
+        bluetoothManager.notifyGovernorReady(governor, false);
+        verify(listener, never()).ready(governor, false);
+    }
+
+    @Test
+    public void testAdapterMembershipListener() {
+        AdapterMembershipListener listener = mock(AdapterMembershipListener.class);
+        bluetoothManager.addAdapterMembershipListener(listener);
+
+        DiscoveredAdapter adapter = mock(DiscoveredAdapter.class);
+        when(adapter.getURL()).thenReturn(new URL("bluegiga:/88:22:33:44:55:66"));
+        BluetoothObjectFactory bluegigaObjectFactory = mock(BluetoothObjectFactory.class);
+        when(bluegigaObjectFactory.getProtocolName()).thenReturn("bluegiga");
+        when(bluegigaObjectFactory.getDiscoveredAdapters()).thenReturn(Collections.singleton(adapter));
+
+        bluetoothManager.registerFactory(bluegigaObjectFactory);
+
+        // only the new adapter is reported, already known adapters are not re-announced
+        verify(listener, timeout(1000)).membershipChanged(Collections.singleton(adapter), Collections.emptySet());
+        verify(listener, times(1)).membershipChanged(any(), any());
+
+        bluetoothManager.removeAdapterMembershipListener(listener);
+    }
+
     @Test
     public void testUnregisterFactory() throws Exception {
         AdapterGovernorImpl tinybAdapterGovernor = (AdapterGovernorImpl)
@@ -0,0 +1,225 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.internal.util.reflection.Whitebox;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.ByteBufferValueListener;
+import org.sputnikdev.bluetooth.manager.ValueListener;
+import org.sputnikdev.bluetooth.manager.transport.Characteristic;
+import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
+import org.sputnikdev.bluetooth.manager.transport.Notification;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CharacteristicGovernorImplTest {
+
+    private static final URL URL = new URL("/11:22:33:44:55:66/12:34:56:78:90:12/0000180f-0000-1000-8000-00805f9b34fb/"
+            + "00002a19-0000-1000-8000-00805f9b34fb");
+
+    private final BluetoothManagerImpl bluetoothManager = mock(BluetoothManagerImpl.class);
+    private final DeviceGovernorImpl deviceGovernor = mock(DeviceGovernorImpl.class);
+    private final Characteristic characteristic = mock(Characteristic.class);
+    private final CharacteristicGovernorImpl governor = new CharacteristicGovernorImpl(bluetoothManager, URL);
+
+    @Before
+    public void setUp() {
+        when(bluetoothManager.getDeviceGovernor(URL.getDeviceURL())).thenReturn(deviceGovernor);
+        when(deviceGovernor.isAuthenticated()).thenReturn(true);
+        when(characteristic.getFlags()).thenReturn(EnumSet.of(CharacteristicAccessType.NOTIFY));
+        when(characteristic.getURL()).thenReturn(URL);
+        when(bluetoothManager.getBluetoothObject(URL)).thenReturn(characteristic);
+    }
+
+    @Test
+    public void testBufferListeners() {
+        List<Integer> values = new ArrayList<>();
+        List<ByteBuffer> buffers = new ArrayList<>();
+        ByteBufferValueListener first = value -> {
+            buffers.add(value);
+            // consuming the buffer must not affect other listeners
+            values.add((int) value.getShort());
+        };
+        ByteBufferValueListener second = value -> {
+            buffers.add(value);
+            values.add(value.remaining());
+        };
+        ValueListener valueListener = mock(ValueListener.class);
+        governor.addValueListener(valueListener);
+        governor.addBufferListener(first);
+        governor.addBufferListener(second);
+        Notification<byte[]> notification = enableNotifications();
+
+        notification.notify(new byte[] {0x01, 0x02});
+        notification.notify(new byte[] {(byte) 0xFF, (byte) 0xFF, 0x00});
+
+        verify(valueListener).changed(new byte[] {0x01, 0x02});
+        assertEquals(0x0201, (int) values.get(0));
+        assertEquals(2, (int) values.get(1));
+        assertEquals(-1, (int) values.get(2));
+        assertEquals(3, (int) values.get(3));
+        // buffers are reused and read-only
+        assertSame(buffers.get(0), buffers.get(3));
+        assertTrue(buffers.get(0).isReadOnly());
+        assertEquals(ByteOrder.LITTLE_ENDIAN, buffers.get(0).order());
+
+        governor.removeBufferListener(first);
+        notification.notify(new byte[1]);
+        assertEquals(5, values.size());
+    }
+
+    @Test
+    public void testValueListeners() {
+        ValueListener failing = mock(ValueListener.class);
+        doThrow(RuntimeException.class).when(failing).changed(any());
+        ValueListener valueListener = mock(ValueListener.class);
+        // a listener that modifies the value it receives
+        doAnswer(answer -> ((byte[]) answer.getArguments()[0])[0] = 0x09).when(valueListener).changed(any());
+        governor.addValueListener(failing);
+        governor.addValueListener(valueListener);
+        governor.setReadCacheTTL(60000);
+        Notification<byte[]> notification = enableNotifications();
+
+        byte[] value = {0x01, 0x02};
+        notification.notify(value);
+        verify(failing).changed(value);
+        verify(valueListener).changed(value);
+        assertNotNull(governor.getLastNotified());
+        assertEquals(governor.getLastNotified(), governor.getLastInteracted());
+        // notified values are cached, but not exposed
+        byte[] cached = governor.read();
+        assertArrayEquals(new byte[] {0x01, 0x02}, cached);
+        assertNotSame(value, cached);
+        ByteBuffer buffer = ByteBuffer.allocate(2);
+        assertEquals(2, governor.read(buffer));
+        assertArrayEquals(new byte[] {0x01, 0x02}, buffer.array());
+
+        governor.removeValueListener(failing);
+        notification.notify(new byte[1]);
+        verify(failing, times(1)).changed(any());
+        verify(valueListener, times(2)).changed(any());
+    }
+
+    @Test
+    public void testNotificationLinger() {
+        when(bluetoothManager.getNotificationLinger()).thenReturn(1000L);
+        ValueListener first = mock(ValueListener.class);
+        ValueListener second = mock(ValueListener.class);
+
+        governor.addValueListener(first);
+        enableNotifications();
+        governor.addValueListener(second);
+        // notifications are already enabled, no update is needed
+        verify(bluetoothManager, times(1)).scheduleForceUpdate(governor);
+
+        governor.removeValueListener(first);
+        governor.removeValueListener(second);
+        verify(bluetoothManager).scheduleForceUpdate(governor, 1000L);
+        governor.update();
+        verify(characteristic, never()).disableValueNotifications();
+
+        // re-subscribing within the linger period costs nothing
+        governor.addValueListener(first);
+        governor.update();
+        verify(characteristic, times(1)).enableValueNotifications(any());
+        verify(bluetoothManager, times(1)).scheduleForceUpdate(governor);
+
+        governor.removeValueListener(first);
+        Whitebox.setInternalState(governor, "unsubscribed", System.currentTimeMillis() - 1000);
+        governor.update();
+        verify(characteristic).disableValueNotifications();
+        assertEquals(1, governor.getNotificationEnableCount());
+        assertEquals(1, governor.getNotificationDisableCount());
+    }
+
+    @Test
+    public void testReadAsyncJoinsReadInFlight() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(characteristic.getFlags()).thenReturn(EnumSet.of(CharacteristicAccessType.READ));
+        when(characteristic.readValue()).thenAnswer(answer -> {
+            started.countDown();
+            release.await(1, TimeUnit.SECONDS);
+            return new byte[] {1, 2, 3};
+        });
+        when(bluetoothManager.getGattOperationQueue(URL)).thenReturn(new GattOperationQueue(URL, Runnable::run));
+        Whitebox.setInternalState(governor, "bluetoothObject", characteristic);
+        governor.setReadCacheTTL(1000);
+
+        CompletableFuture<byte[]> owner = CompletableFuture.supplyAsync(governor::read);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        // the caller is not blocked by the read in flight
+        CompletableFuture<byte[]> joined = governor.readAsync();
+        assertFalse(joined.isDone());
+        release.countDown();
+
+        assertArrayEquals(new byte[] {1, 2, 3}, joined.get(1, TimeUnit.SECONDS));
+        assertArrayEquals(new byte[] {1, 2, 3}, owner.get(1, TimeUnit.SECONDS));
+        verify(characteristic, times(1)).readValue();
+    }
+
+    @Test
+    public void testReadIntoBuffer() {
+        when(characteristic.getFlags()).thenReturn(EnumSet.of(CharacteristicAccessType.READ));
+        when(characteristic.readValue()).thenReturn(new byte[] {1, 2, 3});
+        when(bluetoothManager.getGattOperationQueue(URL)).thenReturn(new GattOperationQueue(URL, Runnable::run));
+        Whitebox.setInternalState(governor, "bluetoothObject", characteristic);
+
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        buffer.put((byte) 9);
+        assertEquals(3, governor.read(buffer));
+        assertEquals(4, buffer.position());
+        assertEquals(3, buffer.get(3));
+
+        try {
+            governor.read(buffer);
+            fail();
+        } catch (java.nio.BufferOverflowException ignore) { }
+
+        // cached values are put straight into the buffer
+        governor.setReadCacheTTL(60000);
+        buffer.clear();
+        assertEquals(3, governor.read(buffer));
+        buffer.clear();
+        assertEquals(3, governor.read(buffer));
+        assertEquals(3, buffer.position());
+        assertEquals(1, buffer.get(0));
+        verify(characteristic, times(3)).readValue();
+        assertEquals(1, governor.getReadCacheHits());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Notification<byte[]> enableNotifications() {
+        governor.update();
+        ArgumentCaptor<Notification> captor = ArgumentCaptor.forClass(Notification.class);
+        verify(characteristic).enableValueNotifications(captor.capture());
+        return captor.getValue();
+    }
+
+}
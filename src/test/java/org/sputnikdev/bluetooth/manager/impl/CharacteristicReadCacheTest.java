@@ -0,0 +1,166 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Test;
+import org.sputnikdev.bluetooth.manager.BluetoothInteractionException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CharacteristicReadCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final CharacteristicReadCache cache = new CharacteristicReadCache(clock::get);
+    private final AtomicInteger reads = new AtomicInteger();
+    private final Supplier<byte[]> reader = () -> new byte[] {(byte) reads.incrementAndGet()};
+
+    @Test
+    public void testDisabled() {
+        cache.put(new byte[] {1});
+        assertNull(cache.get());
+        assertArrayEquals(new byte[] {1}, cache.load(reader));
+        assertArrayEquals(new byte[] {2}, cache.load(reader));
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testTTL() {
+        cache.setTTL(1000);
+        assertNull(cache.get());
+        assertArrayEquals(new byte[] {1}, cache.load(reader));
+
+        clock.set(999);
+        assertArrayEquals(new byte[] {1}, cache.get());
+        assertArrayEquals(new byte[] {1}, cache.load(reader));
+        assertEquals(1, reads.get());
+
+        clock.set(1000);
+        assertNull(cache.get());
+        assertArrayEquals(new byte[] {2}, cache.load(reader));
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        // cached values are not exposed
+        cache.get()[0] = 42;
+        assertArrayEquals(new byte[] {2}, cache.get());
+
+        cache.put(new byte[] {10});
+        assertArrayEquals(new byte[] {10}, cache.get());
+
+        cache.invalidate();
+        assertNull(cache.get());
+
+        cache.put(new byte[] {10});
+        cache.setTTL(0);
+        assertNull(cache.get());
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        cache.setTTL(1000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<byte[]> owner = CompletableFuture.supplyAsync(() -> cache.load(() -> {
+            started.countDown();
+            await(release);
+            return reader.get();
+        }));
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        // the first read is held in flight by the loader, the waiter joins it
+        CompletableFuture<byte[]> waiter = cache.getAsync();
+        assertNotNull(waiter);
+        assertFalse(waiter.isDone());
+        release.countDown();
+
+        assertArrayEquals(new byte[] {1}, owner.get(1, TimeUnit.SECONDS));
+        assertArrayEquals(new byte[] {1}, waiter.get(1, TimeUnit.SECONDS));
+        assertEquals(1, reads.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testInvalidatedWhileInFlight() {
+        cache.setTTL(1000);
+        assertArrayEquals(new byte[] {1}, cache.load(() -> {
+            cache.invalidate();
+            return reader.get();
+        }));
+        assertNull(cache.get());
+    }
+
+    @Test
+    public void testNullValue() throws Exception {
+        cache.setTTL(1000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<byte[]> owner = CompletableFuture.supplyAsync(() -> cache.load(() -> {
+            started.countDown();
+            await(release);
+            return null;
+        }));
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        CompletableFuture<byte[]> waiter = cache.getAsync();
+        assertNotNull(waiter);
+        release.countDown();
+
+        assertNull(owner.get(1, TimeUnit.SECONDS));
+        assertNull(waiter.get(1, TimeUnit.SECONDS));
+        // null is not cached
+        assertNull(cache.get());
+        assertArrayEquals(new byte[] {1}, cache.load(reader));
+    }
+
+    @Test
+    public void testReadFailed() throws Exception {
+        cache.setTTL(1000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<byte[]> owner = CompletableFuture.supplyAsync(() -> cache.load(() -> {
+            started.countDown();
+            await(release);
+            throw new BluetoothInteractionException("failed");
+        }));
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        CompletableFuture<byte[]> waiter = cache.getAsync();
+        assertNotNull(waiter);
+        assertFalse(waiter.isDone());
+        release.countDown();
+
+        try {
+            waiter.join();
+            fail();
+        } catch (Exception ex) {
+            assertTrue(ex.getCause() instanceof BluetoothInteractionException);
+        }
+        try {
+            owner.join();
+            fail();
+        } catch (Exception ex) {
+            assertTrue(ex.getCause() instanceof BluetoothInteractionException);
+        }
+        assertNull(cache.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
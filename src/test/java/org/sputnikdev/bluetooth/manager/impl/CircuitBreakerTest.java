@@ -0,0 +1,102 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Test;
+import org.sputnikdev.bluetooth.manager.CircuitBreakerState;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong time = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 3, 1000, time::get);
+
+    @Test
+    public void testOpen() {
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreakerState.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+
+        // a success resets consecutive failures
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreakerState.CLOSED, breaker.getState());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreakerState.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        time.set(999);
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void testHalfOpenProbeSucceeded() {
+        open();
+        time.set(1000);
+        assertEquals(CircuitBreakerState.HALF_OPEN, breaker.getState());
+
+        // only a single probe is allowed
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreakerState.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testHalfOpenProbeFailed() {
+        open();
+        time.set(1000);
+        assertTrue(breaker.allowRequest());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreakerState.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        time.set(2000);
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testHalfOpenProbeLost() {
+        open();
+        time.set(1000);
+        assertTrue(breaker.allowRequest());
+        time.set(1999);
+        assertFalse(breaker.allowRequest());
+        time.set(2000);
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testHalfOpenProbeCancelled() {
+        open();
+        time.set(1000);
+        // checking does not start a probe
+        assertTrue(breaker.isRequestAllowed());
+        assertTrue(breaker.isRequestAllowed());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.isRequestAllowed());
+        assertFalse(breaker.allowRequest());
+
+        breaker.cancelRequest();
+        assertEquals(CircuitBreakerState.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.isRequestAllowed());
+        assertTrue(breaker.allowRequest());
+    }
+
+    private void open() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreakerState.OPEN, breaker.getState());
+    }
+
+}
@@ -9,14 +9,11 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.sputnikdev.bluetooth.URL;
 import org.sputnikdev.bluetooth.manager.CharacteristicGovernor;
-import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
 import org.sputnikdev.bluetooth.manager.GovernorListener;
 import org.sputnikdev.bluetooth.manager.ManagerListener;
 import org.sputnikdev.bluetooth.manager.ValueListener;
 
 import java.time.Instant;
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
@@ -26,11 +23,12 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
-import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -59,9 +57,7 @@ public class CombinedCharacteristicGovernorImplTest {
     @Mock
     private CharacteristicGovernor delegate2;
     @Mock
-    private DiscoveredAdapter adapter1;
-    @Mock
-    private DiscoveredAdapter adapter2;
+    private CombinedDeviceGovernorImpl deviceGovernor;
     @Mock
     private GovernorListener governorListener;
     @Mock
@@ -82,17 +78,14 @@ public class CombinedCharacteristicGovernorImplTest {
         when(delegate2.getLastNotified()).thenReturn(LAST_NOTIFIED);
         when(delegate2.getLastInteracted()).thenReturn(LAST_INTERACTED);
 
-        when(adapter1.getURL()).thenReturn(ADAPTER_1);
-        when(adapter2.getURL()).thenReturn(ADAPTER_2);
-
-        when(bluetoothManager.getDiscoveredAdapters()).thenReturn(new HashSet<>(Arrays.asList(adapter1, adapter2)));
         when(bluetoothManager.getCharacteristicGovernor(CHARACTERISTIC_1)).thenReturn(delegate1);
         when(bluetoothManager.getCharacteristicGovernor(CHARACTERISTIC_2)).thenReturn(delegate2);
+        when(bluetoothManager.getDeviceGovernor(CHARACTERISTIC_URL)).thenReturn(deviceGovernor);
 
         governor.addValueListener(valueListener);
         governor.addGovernorListener(governorListener);
 
-        doNothing().when(bluetoothManager).addManagerListener(managerListenerArgumentCaptor.capture());
+        doNothing().when(bluetoothManager).addReadyListener(eq(CHARACTERISTIC_URL), managerListenerArgumentCaptor.capture());
 
         doAnswer(answer -> {
             ((Runnable) answer.getArguments()[0]).run();
@@ -107,12 +100,9 @@ public class CombinedCharacteristicGovernorImplTest {
         spy.init();
 
         assertNotNull(managerListenerArgumentCaptor.getValue());
-        verify(bluetoothManager).addManagerListener(managerListenerArgumentCaptor.getValue());
-        verify(bluetoothManager).getCharacteristicGovernor(CHARACTERISTIC_1);
-        verify(bluetoothManager).getCharacteristicGovernor(CHARACTERISTIC_2);
-        verify(bluetoothManager).getDiscoveredAdapters();
-        verify(delegate1).isReady();
-        verify(delegate2).isReady();
+        verify(bluetoothManager).addReadyListener(CHARACTERISTIC_URL, managerListenerArgumentCaptor.getValue());
+        // device is not connected, characteristic governors are not created
+        verify(bluetoothManager).getDeviceGovernor(CHARACTERISTIC_URL);
         verify(spy).update();
 
         verifyNoMoreInteractions(bluetoothManager, delegate1, delegate2, governorListener, valueListener);
@@ -121,6 +111,7 @@ public class CombinedCharacteristicGovernorImplTest {
     @Test
     public void testInitDelegatesNotReady() {
         CombinedCharacteristicGovernorImpl spy = spy(governor);
+        when(deviceGovernor.getConnectedAdapter()).thenReturn(URL.copyWithAdapter(ADAPTER_1.getAdapterAddress()));
 
         CompletableFuture<Boolean> ready = governor.whenReady(gov -> {
             fail();
@@ -133,11 +124,9 @@ public class CombinedCharacteristicGovernorImplTest {
 
         verify(spy).update();
         verify(delegate1).isReady();
-        verify(delegate2).isReady();
-        verify(bluetoothManager).addManagerListener(managerListenerArgumentCaptor.getValue());
+        verify(bluetoothManager).addReadyListener(CHARACTERISTIC_URL, managerListenerArgumentCaptor.getValue());
+        verify(bluetoothManager).getDeviceGovernor(CHARACTERISTIC_URL);
         verify(bluetoothManager).getCharacteristicGovernor(CHARACTERISTIC_1);
-        verify(bluetoothManager).getCharacteristicGovernor(CHARACTERISTIC_2);
-        verify(bluetoothManager).getDiscoveredAdapters();
 
         verifyNoMoreInteractions(bluetoothManager, delegate1, delegate2, governorListener, valueListener);
     }
@@ -146,6 +135,7 @@ public class CombinedCharacteristicGovernorImplTest {
     public void testInitDelegatesReady() throws ExecutionException, InterruptedException {
         CombinedCharacteristicGovernorImpl spy = spy(governor);
         when(delegate2.isReady()).thenReturn(true);
+        when(deviceGovernor.getConnectedAdapter()).thenReturn(URL.copyWithAdapter(ADAPTER_2.getAdapterAddress()));
 
         CompletableFuture<Boolean> ready = spy.whenReady(gov -> true);
 
@@ -170,10 +160,10 @@ public class CombinedCharacteristicGovernorImplTest {
         verify(delegate2, atLeastOnce()).getLastInteracted();
         verify(delegate2, atLeastOnce()).isReady();
 
-        verify(bluetoothManager).addManagerListener(managerListenerArgumentCaptor.getValue());
-        verify(bluetoothManager, atMost(1)).getCharacteristicGovernor(CHARACTERISTIC_1);
+        verify(bluetoothManager).addReadyListener(CHARACTERISTIC_URL, managerListenerArgumentCaptor.getValue());
+        verify(bluetoothManager).getDeviceGovernor(CHARACTERISTIC_URL);
         verify(bluetoothManager).getCharacteristicGovernor(CHARACTERISTIC_2);
-        verify(bluetoothManager).getDiscoveredAdapters();
+        verify(bluetoothManager, never()).getCharacteristicGovernor(CHARACTERISTIC_1);
         verify(bluetoothManager).notify(any(Runnable.class));
 
         verify(governorListener).ready(true);
@@ -189,13 +179,17 @@ public class CombinedCharacteristicGovernorImplTest {
 
         governor.init();
 
+        // device is not connected yet
+        governor.update();
+        verify(bluetoothManager, never()).getCharacteristicGovernor(any());
+
+        when(deviceGovernor.getConnectedAdapter()).thenReturn(URL.copyWithAdapter(ADAPTER_2.getAdapterAddress()));
         governor.update();
 
         assertFalse(governor.isReady());
         assertFalse(ready.isDone());
 
-        verify(delegate1, times(2)).isReady();
-        verify(delegate2, times(2)).isReady();
+        verify(delegate2, times(1)).isReady();
 
         when(delegate2.isReady()).thenReturn(true);
 
@@ -210,13 +204,11 @@ public class CombinedCharacteristicGovernorImplTest {
         assertTrue(ready.isDone());
         assertTrue(ready.get());
 
-        verify(bluetoothManager).addManagerListener(managerListenerArgumentCaptor.getValue());
-        verify(bluetoothManager, atLeastOnce()).getCharacteristicGovernor(CHARACTERISTIC_1);
+        verify(bluetoothManager).addReadyListener(CHARACTERISTIC_URL, managerListenerArgumentCaptor.getValue());
+        verify(bluetoothManager, atLeastOnce()).getDeviceGovernor(CHARACTERISTIC_URL);
         verify(bluetoothManager, atLeastOnce()).getCharacteristicGovernor(CHARACTERISTIC_2);
-        verify(bluetoothManager, atLeastOnce()).getDiscoveredAdapters();
         verify(bluetoothManager).notify(any(Runnable.class));
 
-        verify(delegate1, atLeastOnce()).isReady();
         verify(delegate2, atLeastOnce()).isReady();
 
         verify(governorListener).ready(true);
@@ -231,6 +223,14 @@ public class CombinedCharacteristicGovernorImplTest {
         governor.init();
         assertFalse(governor.isReady());
 
+        when(deviceGovernor.getConnectedAdapter()).thenReturn(URL.copyWithAdapter(ADAPTER_1.getAdapterAddress()));
+
+        // the device is not connected through the second adapter
+        when(delegate2.isReady()).thenReturn(true);
+        managerListenerArgumentCaptor.getValue().ready(delegate2, true);
+        assertFalse(governor.isReady());
+        verify(delegate2, never()).addValueListener(valueListener);
+
         when(delegate1.isReady()).thenReturn(true);
         managerListenerArgumentCaptor.getValue().ready(delegate1, true);
 
@@ -244,6 +244,38 @@ public class CombinedCharacteristicGovernorImplTest {
         assertFalse(governor.isReady());
     }
 
+    @Test
+    public void testRebindToConnectedAdapter() {
+        when(delegate1.isReady()).thenReturn(true);
+        when(delegate2.isReady()).thenReturn(true);
+        when(deviceGovernor.getConnectedAdapter()).thenReturn(URL.copyWithAdapter(ADAPTER_1.getAdapterAddress()));
+        governor.init();
+        assertDelegateInstallation(delegate1);
+
+        // device has been reconnected through another adapter
+        when(deviceGovernor.getConnectedAdapter()).thenReturn(URL.copyWithAdapter(ADAPTER_2.getAdapterAddress()));
+        governor.update();
+
+        assertDelegateRemoval(delegate1);
+        assertDelegateInstallation(delegate2);
+        assertTrue(governor.isReady());
+    }
+
+    @Test
+    public void testUninstallOnDisconnect() {
+        when(delegate1.isReady()).thenReturn(true);
+        when(deviceGovernor.getConnectedAdapter()).thenReturn(URL.copyWithAdapter(ADAPTER_1.getAdapterAddress()));
+        governor.init();
+        assertDelegateInstallation(delegate1);
+
+        // device has been disconnected
+        when(deviceGovernor.getConnectedAdapter()).thenReturn(null);
+        governor.update();
+
+        assertDelegateRemoval(delegate1);
+        assertFalse(governor.isReady());
+    }
+
     private void assertDelegateInstallation(CharacteristicGovernor delegate) {
         verify(delegate).addValueListener(valueListener);
         verify(delegate).addGovernorListener(governorListener);
@@ -11,6 +11,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.sputnikdev.bluetooth.RssiKalmanFilter;
 import org.sputnikdev.bluetooth.URL;
 import org.sputnikdev.bluetooth.manager.BluetoothSmartDeviceListener;
+import org.sputnikdev.bluetooth.manager.ConnectionStrategy;
 import org.sputnikdev.bluetooth.manager.DeviceGovernor;
 import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
 import org.sputnikdev.bluetooth.manager.GenericBluetoothDeviceListener;
@@ -32,6 +33,7 @@ import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -246,6 +248,176 @@ public class CombinedDeviceGovernorImplTest {
         verify(bluetoothSmartDeviceListener).disconnected();
     }
 
+    @Test
+    public void testNearestAdapterWithHysteresis() {
+        when(tinybGovernor.isReady()).thenReturn(true);
+        when(bluegigaGovernor.isReady()).thenReturn(true);
+        when(bluegigaGovernor.isConnected()).thenReturn(false);
+        when(bluegigaGovernor.isServicesResolved()).thenReturn(false);
+        when(tinybGovernor.getLastAdvertised()).thenReturn(Instant.now());
+        when(bluegigaGovernor.getLastAdvertised()).thenReturn(Instant.now());
+
+        doNothing().when(tinybGovernor).addGenericBluetoothDeviceListener(tinybGenericBluetoothListenerDelegateCaptor.capture());
+        when(tinybGovernor.doWhen(any(), tinyReadyCaptor.capture())).thenReturn(new CompletableFuture<>());
+        when(bluegigaGovernor.doWhen(any(), bluegigaReadyCaptor.capture())).thenReturn(new CompletableFuture<>());
+
+        governor.init();
+        governor.setConnectionStrategy(ConnectionStrategy.NEAREST_ADAPTER_WITH_HYSTERESIS);
+        governor.setMinimumDwellTime(0);
+        governor.setHysteresisMargin(6);
+
+        tinyReadyCaptor.getValue().accept(tinybGovernor);
+        bluegigaReadyCaptor.getValue().accept(bluegigaGovernor);
+
+        // bluegiga is the nearest one and becomes the connection target
+        governor.setConnectionControl(true);
+        verify(bluegigaGovernor).setConnectionControl(true);
+
+        // tinyb becomes the nearest one, but its signal is not strong enough
+        when(tinybGovernor.getEstimatedDistance()).thenReturn(0.5);
+        tinybGenericBluetoothListenerDelegateCaptor.getValue().rssiChanged((short) (BLUEGIGA_RSSI + 3));
+        governor.setConnectionControl(true);
+        verify(tinybGovernor, never()).setConnectionControl(true);
+
+        tinybGenericBluetoothListenerDelegateCaptor.getValue().rssiChanged((short) (BLUEGIGA_RSSI + 7));
+        governor.setConnectionControl(true);
+        verify(tinybGovernor).setConnectionControl(true);
+    }
+
+    @Test
+    public void testMinimumDwellTime() {
+        when(tinybGovernor.isReady()).thenReturn(true);
+        when(bluegigaGovernor.isReady()).thenReturn(true);
+        when(bluegigaGovernor.isConnected()).thenReturn(false);
+        when(bluegigaGovernor.isServicesResolved()).thenReturn(false);
+        when(tinybGovernor.getLastAdvertised()).thenReturn(Instant.now());
+        when(bluegigaGovernor.getLastAdvertised()).thenReturn(Instant.now());
+
+        doNothing().when(tinybGovernor).addGenericBluetoothDeviceListener(tinybGenericBluetoothListenerDelegateCaptor.capture());
+        when(tinybGovernor.doWhen(any(), tinyReadyCaptor.capture())).thenReturn(new CompletableFuture<>());
+        when(bluegigaGovernor.doWhen(any(), bluegigaReadyCaptor.capture())).thenReturn(new CompletableFuture<>());
+
+        governor.init();
+        governor.setConnectionStrategy(ConnectionStrategy.NEAREST_ADAPTER_WITH_HYSTERESIS);
+        governor.setMinimumDwellTime(60000);
+
+        tinyReadyCaptor.getValue().accept(tinybGovernor);
+        bluegigaReadyCaptor.getValue().accept(bluegigaGovernor);
+
+        governor.setConnectionControl(true);
+        verify(bluegigaGovernor).setConnectionControl(true);
+
+        // much stronger, but the current target has not been kept long enough
+        when(tinybGovernor.getEstimatedDistance()).thenReturn(0.5);
+        tinybGenericBluetoothListenerDelegateCaptor.getValue().rssiChanged((short) -40);
+        governor.setConnectionControl(true);
+        verify(tinybGovernor, never()).setConnectionControl(true);
+    }
+
+    @Test
+    public void testLeastLoadedAdapter() {
+        when(tinybGovernor.isReady()).thenReturn(true);
+        when(bluegigaGovernor.isReady()).thenReturn(true);
+        when(bluegigaGovernor.isConnected()).thenReturn(false);
+        when(bluegigaGovernor.isServicesResolved()).thenReturn(false);
+        when(tinybGovernor.getLastAdvertised()).thenReturn(Instant.now());
+        when(bluegigaGovernor.getLastAdvertised()).thenReturn(Instant.now());
+        when(tinybGovernor.getURL()).thenReturn(TINYB_DEVICE_URL);
+        when(bluegigaGovernor.getURL()).thenReturn(BLUEGIGA_DEVICE_URL);
+
+        // bluegiga is the nearest one, but it is busy
+        AdapterLoad bluegigaLoad = new AdapterLoad();
+        bluegigaLoad.setConnected(BLUEGIGA_ADAPTER_URL.copyWithDevice("11:11:11:11:11:11"), true);
+        when(bluetoothManager.getAdapterLoad(BLUEGIGA_DEVICE_URL)).thenReturn(bluegigaLoad);
+        when(bluetoothManager.getAdapterLoad(TINYB_DEVICE_URL)).thenReturn(new AdapterLoad());
+
+        when(tinybGovernor.doWhen(any(), tinyReadyCaptor.capture())).thenReturn(new CompletableFuture<>());
+        when(bluegigaGovernor.doWhen(any(), bluegigaReadyCaptor.capture())).thenReturn(new CompletableFuture<>());
+
+        governor.init();
+        governor.setConnectionStrategy(ConnectionStrategy.LEAST_LOADED_ADAPTER);
+
+        tinyReadyCaptor.getValue().accept(tinybGovernor);
+        bluegigaReadyCaptor.getValue().accept(bluegigaGovernor);
+
+        governor.setConnectionControl(true);
+        verify(tinybGovernor).setConnectionControl(true);
+        verify(bluegigaGovernor, never()).setConnectionControl(true);
+    }
+
+    @Test
+    public void testUnhealthyAdapterAvoided() {
+        when(tinybGovernor.isReady()).thenReturn(true);
+        when(bluegigaGovernor.isReady()).thenReturn(true);
+        when(bluegigaGovernor.isConnected()).thenReturn(false);
+        when(bluegigaGovernor.isServicesResolved()).thenReturn(false);
+        when(tinybGovernor.getLastAdvertised()).thenReturn(Instant.now());
+        when(bluegigaGovernor.getLastAdvertised()).thenReturn(Instant.now());
+        when(tinybGovernor.getURL()).thenReturn(TINYB_DEVICE_URL);
+        when(bluegigaGovernor.getURL()).thenReturn(BLUEGIGA_DEVICE_URL);
+
+        // bluegiga is the nearest one, but it is failing
+        AdapterHealth bluegigaHealth = new AdapterHealth();
+        for (int i = 0; i < 20; i++) {
+            bluegigaHealth.recordNativeCall(false, 0);
+        }
+        when(bluetoothManager.getAdapterHealth(BLUEGIGA_DEVICE_URL)).thenReturn(bluegigaHealth);
+        when(bluetoothManager.getAdapterHealth(TINYB_DEVICE_URL)).thenReturn(new AdapterHealth());
+
+        when(tinybGovernor.doWhen(any(), tinyReadyCaptor.capture())).thenReturn(new CompletableFuture<>());
+        when(bluegigaGovernor.doWhen(any(), bluegigaReadyCaptor.capture())).thenReturn(new CompletableFuture<>());
+
+        governor.init();
+        tinyReadyCaptor.getValue().accept(tinybGovernor);
+        bluegigaReadyCaptor.getValue().accept(bluegigaGovernor);
+
+        governor.setConnectionControl(true);
+        verify(tinybGovernor).setConnectionControl(true);
+        verify(bluegigaGovernor, never()).setConnectionControl(true);
+    }
+
+    @Test
+    public void testFailover() {
+        when(tinybGovernor.isReady()).thenReturn(true);
+        when(bluegigaGovernor.isReady()).thenReturn(true);
+        when(bluegigaGovernor.isConnected()).thenReturn(false);
+        when(bluegigaGovernor.isServicesResolved()).thenReturn(false);
+        when(tinybGovernor.getLastAdvertised()).thenReturn(Instant.now());
+        when(bluegigaGovernor.getLastAdvertised()).thenReturn(Instant.now());
+
+        doNothing().when(tinybGovernor).addBluetoothSmartDeviceListener(tinybBluetoothSmartListenerDelegateCaptor.capture());
+        doNothing().when(bluegigaGovernor).addBluetoothSmartDeviceListener(bluegigaBluetoothSmartListenerDelegateCaptor.capture());
+        when(tinybGovernor.doWhen(any(), tinyReadyCaptor.capture())).thenReturn(new CompletableFuture<>());
+        when(bluegigaGovernor.doWhen(any(), bluegigaReadyCaptor.capture())).thenReturn(new CompletableFuture<>());
+
+        governor.init();
+        tinyReadyCaptor.getValue().accept(tinybGovernor);
+        bluegigaReadyCaptor.getValue().accept(bluegigaGovernor);
+        assertEquals(-1, governor.getReconnectionLatency());
+
+        // bluegiga is the nearest one
+        governor.setConnectionControl(true);
+        verify(bluegigaGovernor).setConnectionControl(true);
+        bluegigaBluetoothSmartListenerDelegateCaptor.getValue().connected();
+        assertTrue(governor.isConnected());
+
+        // connection is lost, tinyb takes over straight away
+        when(bluegigaGovernor.getConnectionControl()).thenReturn(true);
+        bluegigaBluetoothSmartListenerDelegateCaptor.getValue().disconnected();
+        assertFalse(governor.isConnected());
+        verify(tinybGovernor).setConnectionControl(true);
+        verify(bluegigaGovernor, times(2)).setConnectionControl(false);
+
+        // bluegiga is still the nearest one, but it is blacklisted
+        when(tinybGovernor.getConnectionControl()).thenReturn(true);
+        governor.setConnectionControl(true);
+        verify(bluegigaGovernor, times(1)).setConnectionControl(true);
+
+        tinybBluetoothSmartListenerDelegateCaptor.getValue().connected();
+        assertTrue(governor.isConnected());
+        assertTrue(governor.getReconnectionLatency() >= 0);
+    }
+
     private static void verifyUnsafe(DeviceGovernor deviceGovernor) {
         verify(deviceGovernor).setAlias(DEVICE_ALIAS);
 
@@ -0,0 +1,123 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Test;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.DeviceGovernor;
+import org.sputnikdev.bluetooth.manager.GovernorTransition;
+import org.sputnikdev.bluetooth.manager.NotReadyException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CompletableFutureServiceTest {
+
+    private final DeviceGovernor governor = mock(DeviceGovernor.class);
+    private final CompletableFutureService<DeviceGovernor> service = new CompletableFutureService<>();
+
+    {
+        when(governor.getURL()).thenReturn(new URL("/11:22:33:44:55:66/12:34:56:78:90:12"));
+    }
+
+    @Test
+    public void testTransitionCompletedByNotification() throws Exception {
+        CompletableFuture<String> future = service.submit(governor, GovernorTransition.CONNECTED, gov -> "connected");
+        assertFalse(future.isDone());
+        // checked once after the future got queued
+        verify(governor, times(1)).isConnected();
+
+        // polling does not evaluate transition futures
+        service.complete(governor);
+        verify(governor, times(1)).isConnected();
+        assertFalse(future.isDone());
+
+        // other transitions do not affect the future
+        service.complete(governor, GovernorTransition.SERVICES_RESOLVED);
+        assertFalse(future.isDone());
+
+        service.complete(governor, GovernorTransition.CONNECTED);
+        assertTrue(future.isDone());
+        assertEquals("connected", future.get());
+        verify(governor, times(1)).isConnected();
+    }
+
+    @Test
+    public void testTransitionDuringSubmission() throws Exception {
+        // the transition notification comes while the condition is being checked, the condition is not met yet
+        when(governor.isConnected()).thenAnswer(invocation -> {
+            service.complete(governor, GovernorTransition.CONNECTED);
+            return false;
+        });
+        CompletableFuture<String> future = service.submit(governor, GovernorTransition.CONNECTED, gov -> "connected");
+        assertTrue(future.isDone());
+        assertEquals("connected", future.get());
+
+        // the condition is met and the notification comes at the same time, the future is completed only once
+        AtomicInteger completions = new AtomicInteger();
+        when(governor.isConnected()).thenAnswer(invocation -> {
+            service.complete(governor, GovernorTransition.CONNECTED);
+            return true;
+        });
+        CompletableFuture<Integer> completed =
+                service.submit(governor, GovernorTransition.CONNECTED, gov -> completions.incrementAndGet());
+        assertEquals(1, (int) completed.get());
+        assertEquals(1, completions.get());
+    }
+
+    @Test
+    public void testTransitionCompletedImmediately() throws Exception {
+        when(governor.isServicesResolved()).thenReturn(true);
+        CompletableFuture<Boolean> future =
+                service.submit(governor, GovernorTransition.SERVICES_RESOLVED, gov -> true);
+        assertTrue(future.get());
+    }
+
+    @Test
+    public void testCompleteTransitions() throws Exception {
+        CompletableFuture<Boolean> ready = service.submit(governor, GovernorTransition.READY, gov -> true);
+        CompletableFuture<Boolean> authenticated =
+                service.submit(governor, GovernorTransition.AUTHENTICATED, gov -> true);
+
+        when(governor.isReady()).thenReturn(true);
+        service.completeTransitions(governor);
+
+        assertTrue(ready.get());
+        assertFalse(authenticated.isDone());
+    }
+
+    @Test
+    public void testTransitionFunctionNotReady() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<Integer> future = service.submit(governor, GovernorTransition.CONNECTED, gov -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new NotReadyException("not ready");
+            }
+            return attempts.get();
+        });
+
+        when(governor.isConnected()).thenReturn(true);
+        service.complete(governor, GovernorTransition.CONNECTED);
+        assertFalse(future.isDone());
+
+        // the failed future is not waiting for the transition anymore, it is retried by polling
+        service.complete(governor, GovernorTransition.CONNECTED);
+        assertFalse(future.isDone());
+        service.complete(governor);
+        assertEquals(2, (int) future.get());
+    }
+
+    @Test
+    public void testClear() {
+        CompletableFuture<Boolean> future = service.submit(governor, GovernorTransition.CONNECTED, gov -> true);
+        service.clear();
+        assertTrue(future.isCancelled());
+    }
+
+}
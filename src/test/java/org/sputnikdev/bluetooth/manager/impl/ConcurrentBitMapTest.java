@@ -0,0 +1,109 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConcurrentBitMapTest {
+
+    @Test
+    public void testCumulativeSet() {
+        ConcurrentBitMap bitMap = new ConcurrentBitMap();
+        AtomicInteger changed = new AtomicInteger();
+        AtomicInteger notChanged = new AtomicInteger();
+
+        assertFalse(bitMap.get());
+        assertEquals(-1, bitMap.getUniqueIndex());
+
+        bitMap.cumulativeSet(150, true, changed::incrementAndGet, notChanged::incrementAndGet);
+        assertTrue(bitMap.get());
+        assertEquals(150, bitMap.getUniqueIndex());
+        assertEquals(1, changed.get());
+
+        bitMap.cumulativeSet(3, true, changed::incrementAndGet, notChanged::incrementAndGet);
+        bitMap.cumulativeSet(64, true, changed::incrementAndGet, notChanged::incrementAndGet);
+        assertEquals(1, changed.get());
+        assertEquals(2, notChanged.get());
+        try {
+            bitMap.getUniqueIndex();
+            fail();
+        } catch (IllegalStateException ignore) { }
+
+        bitMap.cumulativeSet(150, false, changed::incrementAndGet, notChanged::incrementAndGet);
+        bitMap.cumulativeSet(3, false, changed::incrementAndGet, notChanged::incrementAndGet);
+        assertTrue(bitMap.get());
+        assertEquals(64, bitMap.getUniqueIndex());
+        bitMap.cumulativeSet(64, false, changed::incrementAndGet, notChanged::incrementAndGet);
+        assertFalse(bitMap.get());
+        assertEquals(2, changed.get());
+        assertEquals(4, notChanged.get());
+
+        bitMap.cumulativeSet(1000, true);
+        bitMap.reset();
+        assertFalse(bitMap.get());
+    }
+
+    @Test
+    public void testExclusiveSet() {
+        ConcurrentBitMap bitMap = new ConcurrentBitMap();
+        AtomicInteger changed = new AtomicInteger();
+        AtomicInteger notChanged = new AtomicInteger();
+
+        bitMap.exclusiveSet(100, true, changed::incrementAndGet, notChanged::incrementAndGet);
+        assertEquals(100, bitMap.getUniqueIndex());
+        assertEquals(1, changed.get());
+
+        bitMap.exclusiveSet(1, true, changed::incrementAndGet, notChanged::incrementAndGet);
+        assertEquals(1, bitMap.getUniqueIndex());
+        assertEquals(1, notChanged.get());
+
+        // not the current one
+        bitMap.exclusiveSet(100, false, changed::incrementAndGet, notChanged::incrementAndGet);
+        assertEquals(1, bitMap.getUniqueIndex());
+        assertEquals(2, notChanged.get());
+
+        bitMap.exclusiveSet(1, false, changed::incrementAndGet, notChanged::incrementAndGet);
+        assertFalse(bitMap.get());
+        assertEquals(-1, bitMap.getUniqueIndex());
+        assertEquals(2, changed.get());
+    }
+
+    @Test
+    public void testConcurrentCumulativeSet() throws Exception {
+        ConcurrentBitMap bitMap = new ConcurrentBitMap();
+        AtomicInteger state = new AtomicInteger();
+        int delegates = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch done = new CountDownLatch(delegates);
+        for (int i = 0; i < delegates; i++) {
+            int index = i;
+            executor.execute(() -> {
+                for (int j = 0; j < 100; j++) {
+                    bitMap.cumulativeSet(index, true, state::incrementAndGet);
+                    bitMap.cumulativeSet(index, false, state::decrementAndGet);
+                }
+                if (index == 130) {
+                    bitMap.cumulativeSet(index, true, state::incrementAndGet);
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        // overall state changes are reported in alternating order, so that they always get balanced
+        assertEquals(1, state.get());
+        assertTrue(bitMap.get());
+        assertEquals(130, bitMap.getUniqueIndex());
+    }
+
+}
@@ -3,6 +3,7 @@ package org.sputnikdev.bluetooth.manager.impl;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.AdditionalAnswers;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InOrder;
@@ -27,14 +28,23 @@ import org.sputnikdev.bluetooth.manager.GattService;
 import org.sputnikdev.bluetooth.manager.GenericBluetoothDeviceListener;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObjectFactory;
 import org.sputnikdev.bluetooth.manager.transport.Characteristic;
+import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
 import org.sputnikdev.bluetooth.manager.transport.Device;
+import org.sputnikdev.bluetooth.manager.transport.DeviceState;
 import org.sputnikdev.bluetooth.manager.transport.Notification;
 import org.sputnikdev.bluetooth.manager.transport.Service;
+import org.sputnikdev.bluetooth.manager.transport.metrics.InstrumentedBluetoothObjectFactory;
+import org.sputnikdev.bluetooth.manager.transport.metrics.MethodMetrics;
+import org.sputnikdev.bluetooth.manager.transport.metrics.NativeCallMetrics;
+import org.sputnikdev.bluetooth.manager.transport.sim.SimulatedBluetoothFactory;
+import org.sputnikdev.bluetooth.manager.transport.sim.SimulationConfig;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -42,12 +52,16 @@ import java.util.function.Function;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
@@ -127,6 +141,7 @@ public class DeviceGovernorImplTest {
         when(device.getBluetoothClass()).thenReturn(BLUETOOTH_CLASS);
         when(device.getAlias()).thenReturn(ALIAS);
         when(device.getName()).thenReturn(NAME);
+        when(device.getState()).thenAnswer(answer -> DeviceState.of(device));
 
         List<Service> services = new ArrayList<>();
         List<Characteristic> characteristics = new ArrayList<>();
@@ -180,6 +195,10 @@ public class DeviceGovernorImplTest {
         verify(device).enableServiceDataNotifications(serviceDataCaptor.getValue());
         verify(device).enableManufacturerDataNotifications(manufacturerDataCaptor.getValue());
 
+        verify(device).getName();
+        verify(device).getAlias();
+        verify(device).getBluetoothClass();
+        verify(device).isBleEnabled();
         verify(device).isConnected();
         verify(device).isServicesResolved();
         verify(device).getServices();
@@ -250,6 +269,47 @@ public class DeviceGovernorImplTest {
         verify(genericDeviceListener, times(1)).rssiChanged(rssi);
     }
 
+    @Test
+    public void testUpdateNativeCallsSimulated() {
+        SimulatedBluetoothFactory simulation = new SimulatedBluetoothFactory(new SimulationConfig().withDevices(1));
+        NativeCallMetrics metrics = new NativeCallMetrics();
+        BluetoothObjectFactory factory = new InstrumentedBluetoothObjectFactory(simulation, metrics);
+        factory.getDiscoveredAdapters().forEach(adapter -> factory.getAdapter(adapter.getURL()).startDiscovery());
+        Device simulatedDevice = factory.getDevice(factory.getDiscoveredDevices().iterator().next().getURL());
+        simulatedDevice.connect();
+        simulation.advance(1000);
+        URL url = simulatedDevice.getURL().copyWithProtocol(null);
+        String adapter = url.getAdapterAddress();
+        when(bluetoothManager.getAdapterGovernor(url)).thenReturn(adapterGovernor);
+        DeviceGovernorImpl simulatedGovernor = new DeviceGovernorImpl(bluetoothManager, url);
+        simulatedGovernor.setRssiFilter(null);
+        simulatedGovernor.setConnectionControl(true);
+
+        // the simulated transport gets the device state in a single call
+        metrics.reset();
+        for (int i = 0; i < 10; i++) {
+            simulatedGovernor.update(simulatedDevice);
+        }
+        assertEquals(10, getCalls(metrics, adapter, "getState"));
+        // no other native calls are made
+        assertEquals(10, metrics.getMethodMetrics(SimulatedBluetoothFactory.SIM_PROTOCOL_NAME).stream()
+                .mapToLong(MethodMetrics::getCalls).sum());
+
+        // transports that do not override getState make the same calls as before (4 per tick for a connected device)
+        Device defaultStateDevice = mock(Device.class, AdditionalAnswers.delegatesTo(simulatedDevice));
+        doAnswer(answer -> DeviceState.of(defaultStateDevice)).when(defaultStateDevice).getState();
+        metrics.reset();
+        for (int i = 0; i < 10; i++) {
+            simulatedGovernor.update(defaultStateDevice);
+        }
+        assertEquals(0, getCalls(metrics, adapter, "getState"));
+        assertEquals(10, getCalls(metrics, adapter, "isConnected"));
+        assertEquals(10, getCalls(metrics, adapter, "isBlocked"));
+        assertEquals(10, getCalls(metrics, adapter, "getRSSI"));
+        assertEquals(10, getCalls(metrics, adapter, "getTxPower"));
+        assertEquals(0, getCalls(metrics, adapter, "isServicesResolved"));
+    }
+
     @Test
     public void testUpdateConnected() {
         // this test checks if native device gets updated in accordance with various combination of:
@@ -441,6 +501,53 @@ public class DeviceGovernorImplTest {
         verify(governor).interact(eq("getName"), any(Function.class));
     }
 
+    @Test
+    public void testStaticPropertiesCached() {
+        when(device.isBleEnabled()).thenReturn(true);
+
+        governor.init(device);
+        verify(device, times(1)).getName();
+        verify(device, times(1)).getAlias();
+        verify(device, times(1)).getBluetoothClass();
+        verify(device, times(1)).isBleEnabled();
+
+        assertEquals(NAME, governor.getName());
+        assertEquals(ALIAS, governor.getAlias());
+        assertEquals(ALIAS, governor.getDisplayName());
+        assertEquals(BLUETOOTH_CLASS, governor.getBluetoothClass());
+        assertTrue(governor.isBleEnabled());
+        assertEquals("[Device] " + URL + " [" + ALIAS + "] [BLE]", governor.toString());
+
+        // no extra native calls
+        verify(device, times(1)).getName();
+        verify(device, times(1)).getAlias();
+        verify(device, times(1)).getBluetoothClass();
+        verify(device, times(1)).isBleEnabled();
+
+        // alias is updated in cache
+        String newAlias = "new alias";
+        governor.setAlias(newAlias);
+        assertEquals(newAlias, governor.getAlias());
+        verify(device, times(1)).getAlias();
+
+        // cache is invalidated on reset
+        governor.reset(device);
+        assertEquals(ALIAS, governor.getAlias());
+        verify(device, times(2)).getAlias();
+        assertTrue(governor.isBleEnabled());
+        verify(device, times(2)).isBleEnabled();
+    }
+
+    @Test
+    public void testGetNameNotKnownYet() {
+        when(device.getName()).thenReturn(null).thenReturn(NAME);
+
+        governor.init(device);
+        assertEquals(NAME, governor.getName());
+        assertEquals(NAME, governor.getName());
+        verify(device, times(2)).getName();
+    }
+
     @Test
     public void testGetDisplayName() throws Exception {
         when(device.getAlias()).thenReturn(ALIAS).thenReturn(null);
@@ -936,6 +1043,79 @@ public class DeviceGovernorImplTest {
         verify(governor, times(2)).updateLastInteracted();
     }
 
+    @Test
+    public void testGattDatabaseCached() {
+        ArgumentCaptor<Notification> notificationCaptor = ArgumentCaptor.forClass(Notification.class);
+        doNothing().when(device).enableServicesResolvedNotifications(notificationCaptor.capture());
+        when(device.isConnected()).thenReturn(true);
+        when(device.isServicesResolved()).thenReturn(true);
+
+        governor.init(device);
+        verify(device, times(1)).getServices();
+
+        List<GattService> services = governor.getResolvedServices();
+        assertEquals(1, services.size());
+        assertEquals(SERVICE_1_URL, services.get(0).getURL());
+        assertTrue(services == governor.getResolvedServices());
+        verify(device, times(1)).getServices();
+
+        // cache is invalidated when services are unresolved
+        notificationCaptor.getValue().notify(Boolean.FALSE);
+        assertFalse(services == governor.getResolvedServices());
+        verify(device, times(2)).getServices();
+
+        // and rebuilt when they are resolved again
+        notificationCaptor.getValue().notify(Boolean.TRUE);
+        verify(device, times(3)).getServices();
+        governor.getResolvedServices();
+        verify(device, times(3)).getServices();
+    }
+
+    @Test
+    public void testKnownGattDatabase() {
+        GattDatabaseStore store = mock(GattDatabaseStore.class);
+        when(bluetoothManager.getGattDatabaseStore()).thenReturn(store);
+        when(device.isConnected()).thenReturn(true);
+        when(device.isServicesResolved()).thenReturn(true);
+
+        // services resolved, database gets stored
+        governor.init(device);
+        verify(store).save(eq(URL), any());
+        assertSame(governor.getResolvedServices(), governor.getKnownServices());
+
+        // services are not resolved yet, known database is reported as known services only
+        governor.reset(device);
+        ArgumentCaptor<Notification> notificationCaptor = ArgumentCaptor.forClass(Notification.class);
+        doNothing().when(device).enableServicesResolvedNotifications(notificationCaptor.capture());
+        List<GattService> known = Collections.singletonList(new GattService(SERVICE_1_URL, Arrays.asList(
+                new GattCharacteristic(CHARACTERISTIC_1_URL, EnumSet.noneOf(CharacteristicAccessType.class)),
+                new GattCharacteristic(CHARACTERISTIC_2_URL, EnumSet.noneOf(CharacteristicAccessType.class)))));
+        when(store.load(URL)).thenReturn(known);
+        when(device.isServicesResolved()).thenReturn(false);
+        governor.init(device);
+        verify(bluetoothSmartDeviceListener, times(1)).servicesResolved(any());
+        assertFalse(governor.isServicesResolved());
+        assertSame(known, governor.getKnownServices());
+        assertNotSame(known, governor.getResolvedServices());
+
+        // services get resolved, the same database is not stored again
+        when(device.isServicesResolved()).thenReturn(true);
+        notificationCaptor.getValue().notify(Boolean.TRUE);
+        verify(bluetoothSmartDeviceListener, times(2)).servicesResolved(any());
+        assertNotSame(known, governor.getKnownServices());
+        assertSame(governor.getResolvedServices(), governor.getKnownServices());
+        verify(store, times(1)).save(eq(URL), any());
+
+        // characteristic flags have changed since the database was stored
+        notificationCaptor.getValue().notify(Boolean.FALSE);
+        List<GattService> outdated = Collections.singletonList(new GattService(SERVICE_1_URL, Arrays.asList(
+                new GattCharacteristic(CHARACTERISTIC_1_URL, EnumSet.of(CharacteristicAccessType.READ)),
+                new GattCharacteristic(CHARACTERISTIC_2_URL, EnumSet.noneOf(CharacteristicAccessType.class)))));
+        when(store.load(URL)).thenReturn(outdated);
+        notificationCaptor.getValue().notify(Boolean.TRUE);
+        verify(store, times(2)).save(eq(URL), any());
+    }
+
     @Test
     public void testServicesResolvedNotification() {
         ArgumentCaptor<Notification> notificationCaptor = ArgumentCaptor.forClass(Notification.class);
@@ -1120,6 +1300,12 @@ public class DeviceGovernorImplTest {
     }
 
 
+    private static long getCalls(NativeCallMetrics metrics, String adapter, String method) {
+        MethodMetrics methodMetrics = metrics.getMethodMetrics(SimulatedBluetoothFactory.SIM_PROTOCOL_NAME,
+                adapter, "Device", method);
+        return methodMetrics != null ? methodMetrics.getCalls() : 0;
+    }
+
     private CharacteristicGovernor mockCharacteristicGovernor(URL url) {
         CharacteristicGovernor governor = mock(CharacteristicGovernor.class);
         when(governor.getURL()).thenReturn(url);
@@ -0,0 +1,98 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.GattCharacteristic;
+import org.sputnikdev.bluetooth.manager.GattService;
+import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GattDatabaseStoreTest {
+
+    private static final URL DEVICE_URL = new URL("tinyb:/11:22:33:44:55:66/12:34:56:78:90:12");
+    private static final String SERVICE_1 = "0000180f-0000-1000-8000-00805f9b34fb";
+    private static final String SERVICE_2 = "0000180a-0000-1000-8000-00805f9b34fb";
+    private static final String CHARACTERISTIC_1 = "00002a19-0000-1000-8000-00805f9b34fb";
+    private static final String CHARACTERISTIC_2 = "00002a29-0000-1000-8000-00805f9b34fb";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GattDatabaseStore store;
+
+    @Before
+    public void setUp() {
+        store = new GattDatabaseStore(folder.getRoot().toPath().resolve("gatt"));
+    }
+
+    @Test
+    public void testLoadUnknown() {
+        assertNull(store.load(DEVICE_URL));
+    }
+
+    @Test
+    public void testSaveLoad() {
+        List<GattService> services = Arrays.asList(
+                new GattService(DEVICE_URL.copyWithService(SERVICE_1), Collections.singletonList(
+                        new GattCharacteristic(DEVICE_URL.copyWith(SERVICE_1, CHARACTERISTIC_1),
+                                EnumSet.of(CharacteristicAccessType.READ, CharacteristicAccessType.NOTIFY)))),
+                new GattService(DEVICE_URL.copyWithService(SERVICE_2), Collections.singletonList(
+                        new GattCharacteristic(DEVICE_URL.copyWith(SERVICE_2, CHARACTERISTIC_2),
+                                EnumSet.noneOf(CharacteristicAccessType.class)))));
+
+        store.save(DEVICE_URL, services);
+
+        // the database is shared between adapters
+        URL anotherAdapter = DEVICE_URL.copyWithProtocol(null).copyWithAdapter("22:33:44:55:66:77");
+        List<GattService> loaded = store.load(anotherAdapter);
+
+        assertEquals(2, loaded.size());
+        assertEquals(anotherAdapter.copyWithService(SERVICE_1), loaded.get(0).getURL());
+        assertEquals(1, loaded.get(0).getCharacteristics().size());
+        GattCharacteristic characteristic = loaded.get(0).getCharacteristics().get(0);
+        assertEquals(anotherAdapter.copyWith(SERVICE_1, CHARACTERISTIC_1), characteristic.getURL());
+        assertEquals(EnumSet.of(CharacteristicAccessType.READ, CharacteristicAccessType.NOTIFY),
+                characteristic.getFlags());
+        assertEquals(anotherAdapter.copyWithService(SERVICE_2), loaded.get(1).getURL());
+        assertTrue(loaded.get(1).getCharacteristics().get(0).getFlags().isEmpty());
+    }
+
+    @Test
+    public void testLoadCorrupted() throws Exception {
+        Files.createDirectories(store.getDirectory());
+        Files.write(store.getDirectory().resolve("12-34-56-78-90-12.gatt"),
+                Arrays.asList(" " + CHARACTERISTIC_1 + " READ"));
+        assertNull(store.load(DEVICE_URL));
+    }
+
+    @Test
+    public void testSaveFailed() throws Exception {
+        // a non-empty directory in place of the database file makes the rename fail
+        Path file = store.getDirectory().resolve("12-34-56-78-90-12.gatt");
+        Files.createDirectories(file.resolve("nested"));
+
+        store.save(DEVICE_URL, Collections.singletonList(
+                new GattService(DEVICE_URL.copyWithService(SERVICE_1), Collections.emptyList())));
+
+        // the temporary file is cleaned up
+        try (Stream<Path> files = Files.list(store.getDirectory())) {
+            assertEquals(Collections.singletonList(file), files.collect(Collectors.toList()));
+        }
+    }
+
+}
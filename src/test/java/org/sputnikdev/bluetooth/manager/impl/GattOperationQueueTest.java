@@ -0,0 +1,120 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.After;
+import org.junit.Test;
+import org.sputnikdev.bluetooth.URL;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GattOperationQueueTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final GattOperationQueue queue = new GattOperationQueue(new URL("/11:22:33:44:55:66/12:34:56:78:90:12"),
+            executor);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testOrderAndExclusiveness() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int index = i;
+            futures.add(queue.submit("test", () -> {
+                assertEquals(1, running.incrementAndGet());
+                executed.add(index);
+                running.decrementAndGet();
+                return index;
+            }));
+        }
+        // synchronous operations never run concurrently with queued ones
+        for (int i = 0; i < 10; i++) {
+            queue.execute(() -> {
+                assertEquals(1, running.incrementAndGet());
+                return running.decrementAndGet();
+            });
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i, (int) futures.get(i).get(1, TimeUnit.SECONDS));
+        }
+        for (int i = 0; i < executed.size(); i++) {
+            assertEquals(i, (int) executed.get(i));
+        }
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testCallerDoesNotBlock() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> first = queue.submit("slow", () -> {
+            try {
+                return release.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        CompletableFuture<Boolean> second = queue.submit("fast", () -> true);
+
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+        release.countDown();
+        assertTrue(first.get(1, TimeUnit.SECONDS));
+        assertTrue(second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailedOperation() throws Exception {
+        CompletableFuture<Object> failed = queue.submit("failed", () -> {
+            throw new IllegalStateException("failed");
+        });
+        CompletableFuture<Boolean> next = queue.submit("next", () -> true);
+
+        try {
+            failed.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(next.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        queue.submit("slow", () -> {
+            try {
+                return release.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        CompletableFuture<Boolean> pending = queue.submit("pending", () -> true);
+        Thread.sleep(50);
+
+        queue.cancel(new IllegalStateException("cancelled"));
+        release.countDown();
+
+        assertTrue(pending.isCompletedExceptionally());
+        assertEquals(0, queue.size());
+    }
+
+}
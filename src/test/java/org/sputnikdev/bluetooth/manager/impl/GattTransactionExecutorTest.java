@@ -0,0 +1,160 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.BluetoothInteractionException;
+import org.sputnikdev.bluetooth.manager.GattTransaction;
+import org.sputnikdev.bluetooth.manager.ValueListener;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GattTransactionExecutorTest {
+
+    private static final URL DEVICE = new URL("/11:22:33:44:55:66/12:34:56:78:90:12");
+    private static final URL COMMAND = DEVICE.copyWith("0000180f-0000-1000-8000-00805f9b34fb",
+            "00002a19-0000-1000-8000-00805f9b34fb");
+    private static final URL STATUS = DEVICE.copyWith("0000180f-0000-1000-8000-00805f9b34fb",
+            "00002a1a-0000-1000-8000-00805f9b34fb");
+
+    private final BluetoothManagerImpl bluetoothManager = mock(BluetoothManagerImpl.class);
+    private final CharacteristicGovernorImpl command = mock(CharacteristicGovernorImpl.class);
+    private final CharacteristicGovernorImpl status = mock(CharacteristicGovernorImpl.class);
+    private final AtomicReference<ValueListener> statusListener = new AtomicReference<>();
+
+    @Before
+    public void setUp() {
+        when(bluetoothManager.getCharacteristicGovernor(COMMAND)).thenReturn(command);
+        when(bluetoothManager.getCharacteristicGovernor(STATUS)).thenReturn(status);
+        doAnswer(answer -> {
+            statusListener.set((ValueListener) answer.getArguments()[0]);
+            return null;
+        }).when(status).addValueListener(any());
+    }
+
+    @Test
+    public void testExecute() {
+        // the device responds to the command with a notification
+        when(command.write(eq(new byte[] {1}), anyLong())).thenAnswer(answer -> {
+            statusListener.get().changed(new byte[] {2});
+            return true;
+        });
+        when(command.readUncached(anyLong())).thenReturn(new byte[] {3});
+
+        List<byte[]> results = new GattTransactionExecutor(bluetoothManager, DEVICE, new GattTransaction()
+                .write(COMMAND, new byte[] {1})
+                .awaitNotification(STATUS, 1000)
+                .read(COMMAND)).execute();
+
+        assertEquals(3, results.size());
+        assertNull(results.get(0));
+        assertArrayEquals(new byte[] {2}, results.get(1));
+        assertArrayEquals(new byte[] {3}, results.get(2));
+
+        // notifications are captured before the first step
+        InOrder inOrder = inOrder(status, command);
+        inOrder.verify(status).addValueListener(statusListener.get());
+        inOrder.verify(status).update();
+        inOrder.verify(command).write(eq(new byte[] {1}), anyLong());
+        inOrder.verify(command).readUncached(anyLong());
+        inOrder.verify(status).removeValueListener(statusListener.get());
+    }
+
+    @Test
+    public void testNotificationTimeout() {
+        when(command.write(any(), anyLong())).thenReturn(true);
+        long started = System.currentTimeMillis();
+        try {
+            new GattTransactionExecutor(bluetoothManager, DEVICE, new GattTransaction()
+                    .write(COMMAND, new byte[] {1})
+                    .awaitNotification(STATUS, 5000)
+                    .withTimeout(100)).execute();
+            fail();
+        } catch (BluetoothInteractionException ignore) { }
+        assertTrue(System.currentTimeMillis() - started < 2000);
+        verify(status).removeValueListener(statusListener.get());
+    }
+
+    @Test
+    public void testWriteFailed() {
+        when(command.write(any(), anyLong())).thenReturn(false);
+        try {
+            new GattTransactionExecutor(bluetoothManager, DEVICE, new GattTransaction()
+                    .write(COMMAND, new byte[] {1})
+                    .read(COMMAND)).execute();
+            fail();
+        } catch (BluetoothInteractionException ignore) { }
+        verify(command, never()).readUncached(anyLong());
+    }
+
+    @Test
+    public void testStepDeadline() {
+        when(command.write(any(), anyLong())).thenReturn(true);
+        when(command.readUncached(anyLong())).thenReturn(new byte[] {3});
+        when(bluetoothManager.getNativeCallTimeout("write")).thenReturn(50L);
+
+        new GattTransactionExecutor(bluetoothManager, DEVICE, new GattTransaction()
+                .write(COMMAND, new byte[] {1})
+                .read(COMMAND)
+                .withTimeout(1000)).execute();
+
+        // each native call is limited by the remaining transaction deadline (or a stricter configured one)
+        ArgumentCaptor<Long> writeTimeout = ArgumentCaptor.forClass(Long.class);
+        verify(command).write(eq(new byte[] {1}), writeTimeout.capture());
+        assertEquals(50L, (long) writeTimeout.getValue());
+        ArgumentCaptor<Long> readTimeout = ArgumentCaptor.forClass(Long.class);
+        verify(command).readUncached(readTimeout.capture());
+        assertTrue(readTimeout.getValue() > 0 && readTimeout.getValue() <= 1000);
+        // the read cache is bypassed
+        verify(command, never()).read();
+    }
+
+    @Test
+    public void testStaleNotification() {
+        // a notification that comes before the command is written is not a response to the command
+        doAnswer(answer -> {
+            statusListener.get().changed(new byte[] {9});
+            return null;
+        }).when(status).update();
+        when(command.write(eq(new byte[] {1}), anyLong())).thenAnswer(answer -> {
+            statusListener.get().changed(new byte[] {2});
+            return true;
+        });
+
+        List<byte[]> results = new GattTransactionExecutor(bluetoothManager, DEVICE, new GattTransaction()
+                .write(COMMAND, new byte[] {1})
+                .awaitNotification(STATUS, 1000)).execute();
+
+        assertArrayEquals(new byte[] {2}, results.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroNotificationTimeout() {
+        new GattTransaction().awaitNotification(STATUS, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForeignCharacteristic() {
+        new GattTransactionExecutor(bluetoothManager, DEVICE, new GattTransaction()
+                .read(COMMAND.copyWithDevice("AA:BB:CC:DD:EE:FF")));
+    }
+
+}
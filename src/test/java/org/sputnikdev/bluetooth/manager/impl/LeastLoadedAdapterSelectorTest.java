@@ -0,0 +1,88 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Test;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.ConnectionCandidate;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LeastLoadedAdapterSelectorTest {
+
+    private static final URL DEVICE = new URL("/XX:XX:XX:XX:XX:XX/12:34:56:78:90:12");
+    private static final URL FIRST = new URL("/11:22:33:44:55:66/12:34:56:78:90:12");
+    private static final URL SECOND = new URL("/77:22:33:44:55:66/12:34:56:78:90:12");
+    private static final URL THIRD = new URL("/88:22:33:44:55:66/12:34:56:78:90:12");
+
+    private final LeastLoadedAdapterSelector selector = new LeastLoadedAdapterSelector();
+
+    @Test
+    public void testLeastLoaded() {
+        ConnectionCandidate first = new ConnectionCandidate(FIRST, (short) -50, true, 5, 1, false);
+        ConnectionCandidate second = new ConnectionCandidate(SECOND, (short) -70, true, 2, 1, false);
+        // the least loaded one, but the signal is too weak
+        ConnectionCandidate third = new ConnectionCandidate(THIRD, (short) -95, true, 0, 0, false);
+
+        assertSame(second, selector.select(DEVICE, Arrays.asList(first, second, third)));
+    }
+
+    @Test
+    public void testTies() {
+        ConnectionCandidate first = new ConnectionCandidate(FIRST, (short) -50, true, 2, 0, false);
+        ConnectionCandidate second = new ConnectionCandidate(SECOND, (short) -70, true, 1, 1, true);
+        ConnectionCandidate third = new ConnectionCandidate(THIRD, (short) -60, true, 0, 2, false);
+
+        // the current target wins
+        assertSame(second, selector.select(DEVICE, Arrays.asList(first, second, third)));
+
+        second = new ConnectionCandidate(SECOND, (short) -70, true, 1, 1, false);
+        // the strongest wins
+        assertSame(first, selector.select(DEVICE, Arrays.asList(first, second, third)));
+    }
+
+    @Test
+    public void testNotViable() {
+        ConnectionCandidate first = new ConnectionCandidate(FIRST, (short) -92, true, 0, 0, false);
+        ConnectionCandidate second = new ConnectionCandidate(SECOND, (short) -95, true, 0, 0, true);
+        ConnectionCandidate third = new ConnectionCandidate(THIRD, (short) -40, false, 0, 0, false);
+
+        assertSame(second, selector.select(DEVICE, Arrays.asList(first, second, third)));
+
+        second = new ConnectionCandidate(SECOND, (short) -95, false, 0, 0, true);
+        assertSame(first, selector.select(DEVICE, Arrays.asList(first, second, third)));
+
+        assertSame(second, selector.select(DEVICE, Arrays.asList(second, third)));
+        assertNull(selector.select(DEVICE, Collections.singletonList(third)));
+    }
+
+    @Test
+    public void testAdapterLoad() {
+        AdapterLoad load = new AdapterLoad();
+        URL device = FIRST.copyWithProtocol("tinyb");
+
+        load.setConnectionControl(device, true);
+        assertEquals(1, load.getPendingConnectionCount());
+        assertTrue(load.isPending(FIRST));
+
+        load.setConnected(device, true);
+        load.setConnected(device, true);
+        assertEquals(1, load.getConnectionCount());
+        assertEquals(0, load.getPendingConnectionCount());
+
+        // connection lost, but still controlled
+        load.setConnected(device, false);
+        assertEquals(0, load.getConnectionCount());
+        assertEquals(1, load.getPendingConnectionCount());
+
+        load.setConnectionControl(device, false);
+        assertFalse(load.isPending(device));
+        assertEquals(0, load.getPendingConnectionCount());
+    }
+
+}
@@ -0,0 +1,63 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class NearestDelegateTrackerTest {
+
+    private final AtomicLong clock = new AtomicLong(100000);
+    private final NearestDelegateTracker<String> tracker = new NearestDelegateTracker<>(10000, clock::get);
+
+    @Test
+    public void testNearest() {
+        assertNull(tracker.getNearest());
+        assertEquals("a", tracker.update(0, "a", 5.0, clock.get()));
+        assertEquals("b", tracker.update(1, "b", 2.0, clock.get()));
+        assertEquals("b", tracker.update(2, "c", 3.0, clock.get()));
+        assertEquals("b", tracker.update(0, "a", 4.0, clock.get()));
+
+        // the nearest one moves away
+        assertEquals("c", tracker.update(1, "b", 3.5, clock.get()));
+        // and comes back
+        assertEquals("b", tracker.update(1, "b", 1.0, clock.get()));
+
+        tracker.deactivate(1);
+        assertEquals("c", tracker.getNearest());
+        tracker.deactivate(2);
+        tracker.deactivate(0);
+        assertNull(tracker.getNearest());
+    }
+
+    @Test
+    public void testStale() {
+        tracker.update(0, "a", 1.0, clock.get());
+        clock.addAndGet(5000);
+        assertEquals("a", tracker.update(1, "b", 10.0, clock.get() - 20000));
+
+        // the nearest one becomes stale, fresh readings win over stale ones even if they are farther
+        clock.addAndGet(6000);
+        assertEquals("c", tracker.update(2, "c", 8.0, clock.get()));
+        assertEquals("c", tracker.update(1, "b", 7.0, clock.get() - 20000));
+
+        // all stale, the nearest one wins
+        clock.addAndGet(20000);
+        assertEquals("a", tracker.update(1, "b", 7.0, clock.get() - 20000));
+    }
+
+    @Test
+    public void testActivate() {
+        tracker.activate(0, "a");
+        assertEquals("a", tracker.getNearest());
+        tracker.activate(100, "b");
+        assertEquals("b", tracker.update(100, "b", 3.0, clock.get()));
+        assertEquals("b", tracker.update(0, "a", 4.0, clock.get()));
+
+        tracker.clear();
+        assertNull(tracker.getNearest());
+    }
+
+}
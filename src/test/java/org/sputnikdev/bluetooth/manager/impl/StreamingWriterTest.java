@@ -0,0 +1,246 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.internal.util.reflection.Whitebox;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.BluetoothInteractionException;
+import org.sputnikdev.bluetooth.manager.WriteProgress;
+import org.sputnikdev.bluetooth.manager.transport.Characteristic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StreamingWriterTest {
+
+    private static final URL URL = new URL("/11:22:33:44:55:66/12:34:56:78:90:12/0000180f-0000-1000-8000-00805f9b34fb/"
+            + "00002a19-0000-1000-8000-00805f9b34fb");
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final BluetoothManagerImpl bluetoothManager = mock(BluetoothManagerImpl.class);
+    private final Characteristic characteristic = mock(Characteristic.class);
+    private final CharacteristicGovernorImpl governor = new CharacteristicGovernorImpl(bluetoothManager, URL);
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    private final List<WriteProgress> progress = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        Whitebox.setInternalState(governor, "bluetoothObject", characteristic);
+        when(characteristic.getMaxPayloadSize()).thenReturn(20);
+        when(characteristic.writeValueAsync(any())).thenAnswer(answer -> {
+            written.write((byte[]) answer.getArguments()[0]);
+            return CompletableFuture.completedFuture(true);
+        });
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testWriteBuffer() {
+        byte[] data = data(1000);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+
+        WriteProgress result = new StreamingWriter(governor, StreamingWriter.channel(buffer),
+                buffer.remaining(), 4, 0, progress::add).write();
+
+        assertArrayEquals(data, written.toByteArray());
+        assertEquals(0, buffer.position());
+        assertTrue(result.isCompleted());
+        assertEquals(1000, result.getBytesWritten());
+        assertEquals(50, result.getChunksWritten());
+        assertEquals(100, result.getPercentage(), 0.0);
+        assertEquals(51, progress.size());
+        assertEquals(20, progress.get(0).getBytesWritten());
+        assertFalse(progress.get(0).isCompleted());
+    }
+
+    @Test
+    public void testWriteStream() {
+        byte[] data = data(1001);
+
+        WriteProgress result = new StreamingWriter(governor,
+                Channels.newChannel(new ByteArrayInputStream(data)), -1, 1, 0, null).write();
+
+        assertArrayEquals(data, written.toByteArray());
+        assertEquals(51, result.getChunksWritten());
+        assertEquals(-1, result.getPercentage(), 0.0);
+    }
+
+    @Test
+    public void testWriteSlowStream() {
+        byte[] data = data(100);
+        ReadableByteChannel source = StreamingWriter.channel(ByteBuffer.wrap(data));
+        AtomicInteger reads = new AtomicInteger();
+        long available = System.currentTimeMillis() + 200;
+        // the source has no data available for a while
+        ReadableByteChannel slow = new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                reads.incrementAndGet();
+                return System.currentTimeMillis() < available ? 0 : source.read(dst);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() { }
+        };
+
+        WriteProgress result = new StreamingWriter(governor, slow, -1, 2, 0, null).write();
+
+        assertArrayEquals(data, written.toByteArray());
+        assertEquals(5, result.getChunksWritten());
+        // the writer backs off instead of spinning on empty reads
+        assertTrue(reads.get() < 100);
+    }
+
+    @Test
+    public void testEmpty() {
+        WriteProgress result = new StreamingWriter(governor,
+                StreamingWriter.channel(ByteBuffer.allocate(0)), 0, 4, 0, null).write();
+        assertTrue(result.isCompleted());
+        assertEquals(0, result.getChunksWritten());
+    }
+
+    @Test
+    public void testWriteFailed() {
+        doReturn(CompletableFuture.completedFuture(true)).doReturn(CompletableFuture.completedFuture(true))
+                .doReturn(CompletableFuture.completedFuture(false)).when(characteristic).writeValueAsync(any());
+        try {
+            new StreamingWriter(governor, StreamingWriter.channel(ByteBuffer.wrap(data(10000))),
+                    10000, 2, 0, progress::add).write();
+            fail();
+        } catch (BluetoothInteractionException ignore) { }
+        assertEquals(2, progress.size());
+    }
+
+    @Test
+    public void testWindow() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        doAnswer(answer -> {
+            written.write((byte[]) answer.getArguments()[0]);
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            // packets are completed asynchronously by the transport
+            return CompletableFuture.supplyAsync(() -> {
+                sleep(5);
+                inFlight.decrementAndGet();
+                return true;
+            }, executor);
+        }).when(characteristic).writeValueAsync(any());
+        byte[] data = data(1000);
+
+        WriteProgress result = new StreamingWriter(governor, StreamingWriter.channel(ByteBuffer.wrap(data)),
+                data.length, 4, 0, progress::add).write();
+
+        assertArrayEquals(data, written.toByteArray());
+        assertEquals(50, result.getChunksWritten());
+        assertEquals(4, maxInFlight.get());
+        assertEquals(0, inFlight.get());
+        // progress is reported in order, once per completed packet
+        for (int i = 0; i < 50; i++) {
+            assertEquals((i + 1) * 20, progress.get(i).getBytesWritten());
+        }
+    }
+
+    @Test
+    public void testSynchronousTransport() {
+        // transports that do not support pipelined writes write chunks one by one
+        Characteristic characteristic = mock(SynchronousCharacteristic.class);
+        Whitebox.setInternalState(governor, "bluetoothObject", characteristic);
+        when(characteristic.getMaxPayloadSize()).thenReturn(20);
+        doCallRealMethod().when(characteristic).writeValueAsync(any());
+        when(characteristic.writeValue(any())).thenAnswer(answer -> {
+            written.write((byte[]) answer.getArguments()[0]);
+            return true;
+        });
+        byte[] data = data(1000);
+
+        WriteProgress result = new StreamingWriter(governor, StreamingWriter.channel(ByteBuffer.wrap(data)),
+                data.length, 4, 0, null).write();
+
+        assertArrayEquals(data, written.toByteArray());
+        assertEquals(50, result.getChunksWritten());
+        verify(characteristic, times(50)).writeValue(any());
+    }
+
+    @Test
+    public void testPacketFailed() {
+        CompletableFuture<Boolean> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("disconnected"));
+        doReturn(CompletableFuture.completedFuture(true)).doReturn(failed)
+                .when(characteristic).writeValueAsync(any());
+        try {
+            new StreamingWriter(governor, StreamingWriter.channel(ByteBuffer.wrap(data(100))),
+                    100, 4, 0, progress::add).write();
+            fail();
+        } catch (BluetoothInteractionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1, progress.size());
+    }
+
+    @Test
+    public void testPacketTimeout() {
+        CompletableFuture<Boolean> pending = new CompletableFuture<>();
+        doReturn(pending).when(characteristic).writeValueAsync(any());
+        try {
+            new StreamingWriter(governor, StreamingWriter.channel(ByteBuffer.wrap(data(100))),
+                    100, 2, 50, progress::add).write();
+            fail();
+        } catch (BluetoothInteractionException ignore) { }
+        assertTrue(progress.isEmpty());
+        // packets still in flight are cancelled
+        assertTrue(pending.isCancelled());
+    }
+
+    private abstract static class SynchronousCharacteristic implements Characteristic { }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] data(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+}
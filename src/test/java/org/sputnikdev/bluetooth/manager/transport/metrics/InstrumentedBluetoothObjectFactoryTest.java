@@ -0,0 +1,110 @@
+package org.sputnikdev.bluetooth.manager.transport.metrics;
+
+import org.junit.Test;
+import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
+import org.sputnikdev.bluetooth.manager.transport.Adapter;
+import org.sputnikdev.bluetooth.manager.transport.BluetoothObjectFactory;
+import org.sputnikdev.bluetooth.manager.transport.Characteristic;
+import org.sputnikdev.bluetooth.manager.transport.Device;
+import org.sputnikdev.bluetooth.manager.transport.sim.SimulatedBluetoothFactory;
+import org.sputnikdev.bluetooth.manager.transport.sim.SimulationConfig;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class InstrumentedBluetoothObjectFactoryTest {
+
+    private final SimulatedBluetoothFactory simulation =
+            new SimulatedBluetoothFactory(new SimulationConfig().withDevices(1));
+    private final NativeCallMetrics metrics = new NativeCallMetrics();
+    private final BluetoothObjectFactory factory = new InstrumentedBluetoothObjectFactory(simulation, metrics);
+
+    @Test
+    public void testMetrics() {
+        DiscoveredAdapter discoveredAdapter = factory.getDiscoveredAdapters().iterator().next();
+        Adapter adapter = factory.getAdapter(discoveredAdapter.getURL());
+        adapter.startDiscovery();
+        Device device = factory.getDevice(factory.getDiscoveredDevices().iterator().next().getURL());
+        String adapterAddress = discoveredAdapter.getURL().getAdapterAddress();
+
+        device.connect();
+        simulation.advance(1000);
+        assertTrue(device.isConnected());
+        assertTrue(device.isConnected());
+
+        Characteristic characteristic = device.getServices().get(0).getCharacteristics().get(0);
+        characteristic.readValue();
+        device.disconnect();
+        try {
+            characteristic.readValue();
+            fail();
+        } catch (IllegalStateException ignore) { }
+
+        assertEquals(SimulatedBluetoothFactory.SIM_PROTOCOL_NAME, factory.getProtocolName());
+        assertEquals(1, metrics.getMethodMetrics(SimulatedBluetoothFactory.SIM_PROTOCOL_NAME, null,
+                "BluetoothObjectFactory", "getDiscoveredAdapters").getCalls());
+        assertEquals(1, metrics.getMethodMetrics(SimulatedBluetoothFactory.SIM_PROTOCOL_NAME, adapterAddress,
+                "BluetoothObjectFactory", "getDevice").getCalls());
+        assertEquals(1, metrics.getMethodMetrics(SimulatedBluetoothFactory.SIM_PROTOCOL_NAME, adapterAddress,
+                "Adapter", "startDiscovery").getCalls());
+
+        MethodMetrics isConnected = metrics.getMethodMetrics(SimulatedBluetoothFactory.SIM_PROTOCOL_NAME,
+                adapterAddress, "Device", "isConnected");
+        assertEquals(2, isConnected.getCalls());
+        assertEquals(0, isConnected.getErrors());
+        assertEquals(2, isConnected.getLatency().getCount());
+
+        // returned services and characteristics are instrumented as well
+        MethodMetrics readValue = metrics.getMethodMetrics(SimulatedBluetoothFactory.SIM_PROTOCOL_NAME,
+                adapterAddress, "Characteristic", "readValue");
+        assertEquals(2, readValue.getCalls());
+        assertEquals(1, readValue.getErrors());
+        assertNotNull(metrics.getMethodMetrics(SimulatedBluetoothFactory.SIM_PROTOCOL_NAME,
+                adapterAddress, "Service", "getCharacteristics"));
+
+        assertNull(metrics.getMethodMetrics(SimulatedBluetoothFactory.SIM_PROTOCOL_NAME,
+                adapterAddress, "Device", "getName"));
+        assertEquals(metrics.getMethodMetrics().size(),
+                metrics.getMethodMetrics(SimulatedBluetoothFactory.SIM_PROTOCOL_NAME).size());
+
+        metrics.reset();
+        assertEquals(0, isConnected.getCalls());
+    }
+
+    @Test
+    public void testEquality() {
+        DiscoveredAdapter discoveredAdapter = factory.getDiscoveredAdapters().iterator().next();
+        Adapter adapter = factory.getAdapter(discoveredAdapter.getURL());
+        Adapter another = factory.getAdapter(discoveredAdapter.getURL());
+
+        assertEquals(adapter, another);
+        assertEquals(adapter.hashCode(), another.hashCode());
+        assertEquals(simulation.getAdapter(discoveredAdapter.getURL()).toString(), adapter.toString());
+        assertEquals(discoveredAdapter.getURL(), adapter.getURL());
+    }
+
+    @Test
+    public void testDispose() {
+        BluetoothObjectFactory delegate = mock(BluetoothObjectFactory.class);
+        when(delegate.getProtocolName()).thenReturn(SimulatedBluetoothFactory.SIM_PROTOCOL_NAME);
+        BluetoothObjectFactory instrumented = new InstrumentedBluetoothObjectFactory(delegate, metrics);
+
+        instrumented.dispose();
+        verify(delegate).dispose();
+
+        // errors are not swallowed
+        doThrow(new IllegalStateException()).when(delegate).dispose();
+        try {
+            instrumented.dispose();
+            fail();
+        } catch (IllegalStateException ignore) { }
+    }
+
+}
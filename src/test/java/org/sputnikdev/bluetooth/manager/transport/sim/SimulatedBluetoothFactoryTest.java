@@ -0,0 +1,227 @@
+package org.sputnikdev.bluetooth.manager.transport.sim;
+
+import org.junit.Test;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.DiscoveredDevice;
+import org.sputnikdev.bluetooth.manager.transport.Adapter;
+import org.sputnikdev.bluetooth.manager.transport.Characteristic;
+import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
+import org.sputnikdev.bluetooth.manager.transport.Device;
+import org.sputnikdev.bluetooth.manager.transport.Notification;
+import org.sputnikdev.bluetooth.manager.transport.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class SimulatedBluetoothFactoryTest {
+
+    @Test
+    public void testDeterministic() {
+        SimulationConfig config = new SimulationConfig().withSeed(42).withAdapters(3).withDevices(200)
+                .withVisibilityRatio(0.7).withPrivateAddresses(0.3, 5000);
+
+        List<String> first = run(new SimulatedBluetoothFactory(config));
+        List<String> second = run(new SimulatedBluetoothFactory(config));
+        assertEquals(first, second);
+
+        List<String> another = run(new SimulatedBluetoothFactory(new SimulationConfig().withSeed(43)
+                .withAdapters(3).withDevices(200).withVisibilityRatio(0.7).withPrivateAddresses(0.3, 5000)));
+        assertFalse(first.equals(another));
+    }
+
+    @Test
+    public void testDiscovery() {
+        SimulatedBluetoothFactory factory = new SimulatedBluetoothFactory(
+                new SimulationConfig().withAdapters(2).withDevices(10));
+
+        assertEquals(2, factory.getDiscoveredAdapters().size());
+        // adapters are not discovering yet
+        assertTrue(factory.getDiscoveredDevices().isEmpty());
+
+        factory.getDiscoveredAdapters().forEach(adapter -> factory.getAdapter(adapter.getURL()).startDiscovery());
+        Set<DiscoveredDevice> devices = factory.getDiscoveredDevices();
+        assertEquals(20, devices.size());
+        devices.forEach(device -> {
+            assertEquals(SimulatedBluetoothFactory.SIM_PROTOCOL_NAME, device.getURL().getProtocol());
+            assertNotNull(factory.getDevice(device.getURL()));
+        });
+    }
+
+    @Test
+    public void testRssiRandomWalk() {
+        SimulationConfig config = new SimulationConfig().withDevices(1).withRssi((short) -80, (short) -60, 5.0)
+                .withAdvertisementInterval(100, 0);
+        SimulatedBluetoothFactory factory = new SimulatedBluetoothFactory(config);
+        Device device = getDevice(factory);
+        Notification<Short> rssiNotification = mock(Notification.class);
+        device.enableRSSINotifications(rssiNotification);
+
+        factory.advance(1000);
+
+        verify(rssiNotification, times(10)).notify(any());
+        short rssi = device.getRSSI();
+        assertTrue(rssi >= -80 && rssi <= -60);
+    }
+
+    @Test
+    public void testConnection() {
+        SimulationConfig config = new SimulationConfig().withDevices(1).withConnectionLatency(100, 500).withGatt(2, 3);
+        SimulatedBluetoothFactory factory = new SimulatedBluetoothFactory(config);
+        Device device = getDevice(factory);
+        Notification<Boolean> connected = mock(Notification.class);
+        Notification<Boolean> servicesResolved = mock(Notification.class);
+        device.enableConnectedNotifications(connected);
+        device.enableServicesResolvedNotifications(servicesResolved);
+
+        assertTrue(device.connect());
+        assertFalse(device.isConnected());
+        factory.advance(99);
+        assertFalse(device.isConnected());
+        factory.advance(1);
+        assertTrue(device.isConnected());
+        verify(connected).notify(true);
+        assertFalse(device.isServicesResolved());
+        assertTrue(device.getServices().isEmpty());
+
+        factory.advance(500);
+        assertTrue(device.isServicesResolved());
+        verify(servicesResolved).notify(true);
+        List<Service> services = device.getServices();
+        assertEquals(2, services.size());
+        assertEquals(3, services.get(0).getCharacteristics().size());
+        Characteristic characteristic = services.get(0).getCharacteristics().get(1);
+        assertEquals(characteristic, factory.getCharacteristic(characteristic.getURL()));
+
+        assertTrue(characteristic.writeValue(new byte[] {1, 2, 3}));
+        assertArrayEquals(new byte[] {1, 2, 3}, characteristic.readValue());
+
+        assertTrue(device.disconnect());
+        assertFalse(device.isConnected());
+        verify(servicesResolved).notify(false);
+        verify(connected).notify(false);
+        assertNull(factory.getCharacteristic(characteristic.getURL()));
+        try {
+            characteristic.readValue();
+            fail();
+        } catch (IllegalStateException ignore) { }
+    }
+
+    @Test
+    public void testDisconnectWhileConnecting() {
+        SimulatedBluetoothFactory factory = new SimulatedBluetoothFactory(new SimulationConfig().withDevices(1));
+        Device device = getDevice(factory);
+
+        device.connect();
+        device.disconnect();
+        factory.advance(10000);
+        assertFalse(device.isConnected());
+    }
+
+    @Test
+    public void testNotificationStream() {
+        SimulationConfig config = new SimulationConfig().withDevices(1).withNotificationInterval(200);
+        SimulatedBluetoothFactory factory = new SimulatedBluetoothFactory(config);
+        Device device = getDevice(factory);
+        device.connect();
+        factory.advance(1000);
+
+        Characteristic characteristic = device.getServices().get(0).getCharacteristics().get(0);
+        assertTrue(characteristic.getFlags().contains(CharacteristicAccessType.NOTIFY));
+        Notification<byte[]> notification = mock(Notification.class);
+        characteristic.enableValueNotifications(notification);
+        assertTrue(characteristic.isNotifying());
+
+        factory.advance(1000);
+        verify(notification, times(5)).notify(any());
+
+        characteristic.disableValueNotifications();
+        factory.advance(1000);
+        verify(notification, times(5)).notify(any());
+        assertFalse(characteristic.isNotifying());
+    }
+
+    @Test
+    public void testAddressRotation() {
+        SimulationConfig config = new SimulationConfig().withDevices(1).withPrivateAddresses(1.0, 1000);
+        SimulatedBluetoothFactory factory = new SimulatedBluetoothFactory(config);
+        Device device = getDevice(factory);
+        URL url = device.getURL();
+
+        factory.advance(2000);
+
+        assertNull(factory.getDevice(url));
+        try {
+            device.isConnected();
+            fail();
+        } catch (IllegalStateException ignore) { }
+        Device rotated = getDevice(factory);
+        assertFalse(url.equals(rotated.getURL()));
+
+        // connected devices do not rotate their addresses
+        rotated.connect();
+        factory.advance(5000);
+        assertTrue(rotated.isConnected());
+        assertEquals(rotated.getURL(), getDevice(factory).getURL());
+    }
+
+    @Test
+    public void testLargeScale() {
+        SimulatedBluetoothFactory factory = new SimulatedBluetoothFactory(
+                new SimulationConfig().withAdapters(3).withDevices(20000).withPrivateAddresses(0.5, 10000));
+        factory.getDiscoveredAdapters().forEach(adapter -> factory.getAdapter(adapter.getURL()).startDiscovery());
+
+        factory.advance(30000);
+
+        assertEquals(60000, factory.getDiscoveredDevices().size());
+    }
+
+    @Test
+    public void testAdapterPowered() {
+        SimulatedBluetoothFactory factory = new SimulatedBluetoothFactory(new SimulationConfig().withDevices(1));
+        Device device = getDevice(factory);
+        Adapter adapter = factory.getAdapter(device.getURL());
+        Notification<Boolean> powered = mock(Notification.class);
+        adapter.enablePoweredNotifications(powered);
+        device.connect();
+        factory.advance(1000);
+
+        adapter.setPowered(false);
+        verify(powered).notify(false);
+        assertFalse(device.isConnected());
+        assertFalse(device.connect());
+        verify(powered, never()).notify(true);
+    }
+
+    private static Device getDevice(SimulatedBluetoothFactory factory) {
+        factory.getDiscoveredAdapters().forEach(adapter -> factory.getAdapter(adapter.getURL()).startDiscovery());
+        return factory.getDevice(factory.getDiscoveredDevices().iterator().next().getURL());
+    }
+
+    private static List<String> run(SimulatedBluetoothFactory factory) {
+        factory.getDiscoveredAdapters().forEach(adapter -> factory.getAdapter(adapter.getURL()).startDiscovery());
+        List<String> snapshots = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            factory.advance(1000);
+            snapshots.add(factory.getDiscoveredDevices().stream()
+                    .map(device -> device.getURL() + ":" + device.getRSSI())
+                    .sorted().collect(Collectors.joining(",")));
+        }
+        return snapshots;
+    }
+
+}
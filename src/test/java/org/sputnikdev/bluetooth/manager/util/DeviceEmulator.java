@@ -6,6 +6,7 @@ import org.sputnikdev.bluetooth.manager.DiscoveredDevice;
 import org.sputnikdev.bluetooth.manager.transport.Characteristic;
 import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
 import org.sputnikdev.bluetooth.manager.transport.Device;
+import org.sputnikdev.bluetooth.manager.transport.DeviceState;
 import org.sputnikdev.bluetooth.manager.transport.Notification;
 import org.sputnikdev.bluetooth.manager.transport.Service;
 
@@ -42,6 +43,7 @@ public class DeviceEmulator {
         discoveredDevice = mock(DiscoveredDevice.class);
         when(device.getURL()).thenReturn(url);
         when(device.getName()).thenReturn(name);
+        when(device.getState()).thenAnswer(answer -> DeviceState.of(device));
 
         when(device.getServices()).thenAnswer(answer ->
                 characteristics.entrySet().stream().collect(Collectors.groupingBy(entry -> entry.getKey().getServiceURL()))